@@ -0,0 +1,105 @@
+package snapsort.extractor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import snapsort.CameraFileNameConfiguration;
+import snapsort.DateChooserConfiguration;
+import snapsort.DateRange;
+import snapsort.ExtractionCacheConfiguration;
+import snapsort.FileListerConfiguration;
+import snapsort.PoisonFileConfiguration;
+import snapsort.TestResourcesUtils;
+import snapsort.TimeStampWithSource;
+import snapsort.cache.ExtractionCache;
+import snapsort.cache.PoisonFileRegistry;
+import snapsort.extractor.filename.FinalFileNameDateExtractor;
+import snapsort.extractor.filename.FromCameraFileNameDateExtractor;
+import snapsort.files.FileContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * EXIF extraction and date choice on the files of testfiles.zip. The files stay in the page cache, so this measures
+ * parsing rather than disk access.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtractorBenchmark {
+  private static final DateRange NO_RANGE = new DateRange(null, null);
+
+  @Param({ "4e69kpxgr88pm9pkjbr1b76far.jpg", "20240530_210359.jpg", "2024-05-30 21.03.59.jpg", "badjpg.jpg" })
+  private String fileName;
+
+  private Path tempDir;
+  private Path file;
+  private ExifDateExtractor exifDateExtractor;
+  private DateChooser dateChooser;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    tempDir = Files.createTempDirectory("snapsort-benchmark");
+    Path inputFolder = Path.of(new TestResourcesUtils().extractTestFiles("/testfiles.zip", tempDir));
+    file = inputFolder.resolve("testfiles").resolve(fileName);
+    exifDateExtractor = new ExifDateExtractor();
+    DateChooserConfiguration configuration = new DateChooserConfiguration();
+    dateChooser = new DateChooser(new FinalFileNameDateExtractor(), exifDateExtractor, new MatroskaDateExtractor(),
+        new ChunkDateExtractor(), new FromCameraFileNameDateExtractor(), new FileDateExtractor(), NO_RANGE,
+        configuration, new FileListerConfiguration(), new MedianDateSelector(),
+        new ExtractionCache(new ExtractionCacheConfiguration(), NO_RANGE, configuration,
+            new CameraFileNameConfiguration()),
+        new PoisonFileRegistry(new PoisonFileConfiguration()));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (Stream<Path> files = Files.walk(tempDir)) {
+      for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  @Benchmark
+  public List<TimeStampWithSource> exifDates() throws IOException {
+    return exifDateExtractor.extractDates(new FileContext(file));
+  }
+
+  /**
+   * Parsing of the whole metadata by commons-imaging, the fallback of exifDates, handling errors the same way.
+   */
+  @Benchmark
+  public List<TimeStampWithSource> exifDatesFullMetadataParsing() {
+    try {
+      return ExifDateExtractor.extractDatesWithImaging(file);
+    } catch (IOException e) {
+      return Collections.emptyList();
+    }
+  }
+
+  @Benchmark
+  public TimeStampWithSource chooseDate() {
+    return dateChooser.computeTimestamp(new FileContext(file));
+  }
+}
@@ -0,0 +1,59 @@
+package snapsort.extractor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Median selection on as many dates as an EXIF block can give.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MedianDateSelectorBenchmark {
+  private static final TimeStampSource[] SOURCES = {
+      TimeStampSource.EXIF_GPS_DATE_TIME,
+      TimeStampSource.EXIF_DATE_TIME,
+      TimeStampSource.EXIF_DATE_TIME_DIGITIZED,
+      TimeStampSource.EXIF_DATE_TIME_ORIGINAL
+  };
+
+  @Param({ "1", "2", "4" })
+  private int dateCount;
+
+  private final MedianDateSelector medianDateSelector = new MedianDateSelector();
+  private List<TimeStampWithSource> dates;
+
+  @Setup
+  public void setup() {
+    dates = new ArrayList<>();
+    LocalDateTime time = LocalDateTime.of(2016, 9, 19, 21, 11, 12);
+    for (int i = 0; i < dateCount; i++) {
+      // Unsorted, GPS time is UTC and the others are local times
+      dates.add(new TimeStampWithSource(time.plusHours(i % 2 == 0 ? i : -i), SOURCES[i]));
+    }
+  }
+
+  @Benchmark
+  public TimeStampWithSource selectDate() {
+    return medianDateSelector.selectDate(dates);
+  }
+}
@@ -0,0 +1,62 @@
+package snapsort.extractor.filename;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import snapsort.TimeStampWithSource;
+import snapsort.files.FileContext;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * File name parsing, on names that match and on names that do not (the common case for the final name extractor).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileNameDateExtractorBenchmark {
+  private final FinalFileNameDateExtractor finalFileNameDateExtractor = new FinalFileNameDateExtractor();
+  private final FromCameraFileNameDateExtractor fromCameraFileNameDateExtractor = new FromCameraFileNameDateExtractor();
+
+  @Benchmark
+  public LocalDateTime parseMatching() {
+    return finalFileNameDateExtractor.parse("2024-05-30 21.03.59");
+  }
+
+  @Benchmark
+  public LocalDateTime parseMatchingAlternative() {
+    return finalFileNameDateExtractor.parse("2024-05-30 21-03-59");
+  }
+
+  @Benchmark
+  public LocalDateTime parseNotMatching() {
+    return finalFileNameDateExtractor.parse("IMG_20240530_210359");
+  }
+
+  @Benchmark
+  public List<TimeStampWithSource> cameraFileNameMatching() {
+    return fromCameraFileNameDateExtractor.extractDates(new FileContext(Path.of("IMG_20240530_210359.jpg")));
+  }
+
+  @Benchmark
+  public List<TimeStampWithSource> cameraFileNameWithoutPrefix() {
+    return fromCameraFileNameDateExtractor.extractDates(new FileContext(Path.of("20240530_210359.jpg")));
+  }
+
+  @Benchmark
+  public List<TimeStampWithSource> cameraFileNameNotMatching() {
+    return fromCameraFileNameDateExtractor.extractDates(new FileContext(Path.of("4e69kpxgr88pm9pkjbr1b76far.jpg")));
+  }
+}
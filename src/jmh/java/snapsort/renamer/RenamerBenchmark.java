@@ -0,0 +1,107 @@
+package snapsort.renamer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.files.FileInfo;
+import snapsort.files.FileTable;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deduplication and name generation on 100k files.
+ * <ul>
+ * <li>realistic: shots spread over a year, a few per second during events, some bursts of a few dozen shots</li>
+ * <li>burst: 100 bursts of 1000 shots in the same second, the worst case for collisions</li>
+ * </ul>
+ * The table variants run on a {@link FileTable} sorted by path like the one of the file lister, deduplicated in place.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenamerBenchmark {
+  private static final int FILE_COUNT = 100_000;
+  private static final LocalDateTime START = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+  @Param({ "realistic", "burst" })
+  private String distribution;
+
+  private final Deduplicator deduplicator = new Deduplicator();
+  private final RenameGenerator renameGenerator = new RenameGenerator();
+  private List<FileInfo> files;
+  private List<FileInfo> deduplicatedFiles;
+  private FileTable table;
+  private FileTable deduplicatedTable;
+
+  @Setup
+  public void setup() {
+    Random random = new Random(42);
+    files = new ArrayList<>(FILE_COUNT);
+    LocalDateTime time = START;
+    for (int i = 0; i < FILE_COUNT; i++) {
+      if ("burst".equals(distribution)) {
+        time = START.plusDays(i / 1000);
+      } else if (random.nextInt(100) == 0) {
+        // Next event
+        time = time.plusMinutes(random.nextInt(24 * 60 * 7));
+      } else if (random.nextInt(50) != 0) {
+        // Burst shots stay in the same second
+        time = time.plusSeconds(random.nextInt(30));
+      }
+      String extension = random.nextInt(10) == 0 ? ".mp4" : ".jpg";
+      files.add(new FileInfo(Path.of("/photos/inbox/IMG_" + i + extension),
+          new TimeStampWithSource(time, TimeStampSource.EXIF_DATE_TIME_ORIGINAL)));
+    }
+    files.sort(Comparator.comparing(FileInfo::path));
+    deduplicatedFiles = deduplicator.deduplicateDates(files);
+    deduplicatedTable = FileTable.of(files);
+    deduplicator.deduplicateDates(deduplicatedTable);
+  }
+
+  @Setup(Level.Invocation)
+  public void setupTable() {
+    // Deduplication updates the table it is given
+    table = FileTable.of(files);
+  }
+
+  @Benchmark
+  public List<FileInfo> deduplicateDates() {
+    return deduplicator.deduplicateDates(files);
+  }
+
+  @Benchmark
+  public List<RenamedFile> generateRenamedFileNames() {
+    return renameGenerator.generateRenamedFileNames(deduplicatedFiles);
+  }
+
+  @Benchmark
+  public FileTable deduplicateTable() {
+    deduplicator.deduplicateDates(table);
+    return table;
+  }
+
+  @Benchmark
+  public List<RenamedFile> generateRenamedFileNamesFromTable() {
+    return renameGenerator.generateRenamedFileNames(deduplicatedTable);
+  }
+}
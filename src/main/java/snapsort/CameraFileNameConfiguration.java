@@ -0,0 +1,15 @@
+package snapsort;
+
+import lombok.Data;
+import snapsort.extractor.filename.CameraFileNamePattern;
+
+import java.util.List;
+
+/**
+ * Camera file name configuration. Injectable from command line option.
+ */
+@Data
+public class CameraFileNameConfiguration {
+  // Patterns tried after the built-in ones
+  private List<CameraFileNamePattern> patterns = List.of();
+}
@@ -3,13 +3,19 @@ package snapsort;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.enterprise.inject.Produces;
 import picocli.CommandLine;
+import snapsort.extractor.filename.CameraFileNamePattern;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
- * CDI producer for CLI-driven configuration beans ({@link DateChooserConfiguration}, {@link DateRange}).
+ * CDI producer for CLI-driven configuration beans ({@link DateChooserConfiguration}, {@link FileListerConfiguration},
+ * {@link ExtractionCacheConfiguration}, {@link PipelineConfiguration}, {@link PlanConfiguration},
+ * {@link JournalConfiguration}, {@link ShardConfiguration}, {@link SortConfiguration},
+ * {@link PoisonFileConfiguration}, {@link CameraFileNameConfiguration}, {@link DateRange}).
  */
 @ApplicationScoped
 public class CliProducerConfiguration {
@@ -22,9 +28,249 @@ public class CliProducerConfiguration {
     if (option != null) {
       res.setReadFilesystemDateModified(option.getValue());
     }
+    CommandLine.Model.OptionSpec timeoutOption = parseResult.matchedOption("extraction-timeout");
+    if (timeoutOption != null) {
+      int extractionTimeoutSeconds = timeoutOption.getValue();
+      if (extractionTimeoutSeconds < 1) {
+        throw new IllegalArgumentException(
+            "Invalid extraction timeout: --extraction-timeout must be at least 1 second");
+      }
+      res.setExtractionTimeoutSeconds(extractionTimeoutSeconds);
+    }
+    return res;
+  }
+
+  @Produces
+  @ApplicationScoped
+  FileListerConfiguration fileListerConfiguration(CommandLine.ParseResult parseResult) {
+    FileListerConfiguration res = new FileListerConfiguration();
+    CommandLine.Model.OptionSpec option = parseResult.matchedOption("extraction-threads");
+    if (option != null) {
+      int extractionThreads = option.getValue();
+      if (extractionThreads < 1) {
+        throw new IllegalArgumentException("Invalid extraction threads: --extraction-threads must be at least 1");
+      }
+      res.setExtractionThreads(extractionThreads);
+    }
+    CommandLine.Model.OptionSpec walkerThreadsOption = parseResult.matchedOption("walker-threads");
+    if (walkerThreadsOption != null) {
+      int walkerThreads = walkerThreadsOption.getValue();
+      if (walkerThreads < 1) {
+        throw new IllegalArgumentException("Invalid walker threads: --walker-threads must be at least 1");
+      }
+      res.setWalkerThreads(walkerThreads);
+    }
+    CommandLine.Model.OptionSpec shardOption = parseResult.matchedOption("shard");
+    if (shardOption != null) {
+      String shard = shardOption.getValue();
+      String[] parts = shard.split("/");
+      try {
+        if (parts.length != 2) {
+          throw new NumberFormatException(shard);
+        }
+        res.setShard(Integer.parseInt(parts[0].trim()));
+        res.setShardCount(Integer.parseInt(parts[1].trim()));
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("Invalid shard: --shard must be <shard>/<shards>, for example 3/16", e);
+      }
+      if (res.getShardCount() < 1 || res.getShard() < 1 || res.getShard() > res.getShardCount()) {
+        throw new IllegalArgumentException("Invalid shard: --shard must be between 1/<shards> and <shards>/<shards>");
+      }
+    }
+    CommandLine.Model.OptionSpec pruneOption = parseResult.matchedOption("prune-by-date-range");
+    if (pruneOption != null) {
+      res.setPruneByDateRange(pruneOption.getValue());
+    }
+    if (res.isPruneByDateRange() && !parseResult.hasMatchedOption("date-min")
+        && !parseResult.hasMatchedOption("date-max")) {
+      throw new IllegalArgumentException("Invalid prune option: --prune-by-date-range needs --date-min or --date-max");
+    }
     return res;
   }
 
+  @Produces
+  @ApplicationScoped
+  RenamerConfiguration renamerConfiguration(CommandLine.ParseResult parseResult) {
+    RenamerConfiguration res = new RenamerConfiguration();
+    CommandLine.Model.OptionSpec option = parseResult.matchedOption("rename-threads");
+    if (option != null) {
+      int renameThreads = option.getValue();
+      if (renameThreads < 1) {
+        throw new IllegalArgumentException("Invalid rename threads: --rename-threads must be at least 1");
+      }
+      res.setRenameThreads(renameThreads);
+    }
+    CommandLine.Model.OptionSpec copyThreadsOption = parseResult.matchedOption("copy-threads");
+    if (copyThreadsOption != null) {
+      int copyThreads = copyThreadsOption.getValue();
+      if (copyThreads < 1) {
+        throw new IllegalArgumentException("Invalid copy threads: --copy-threads must be at least 1");
+      }
+      res.setCopyThreads(copyThreads);
+    }
+    return res;
+  }
+
+  @Produces
+  @ApplicationScoped
+  ExtractionCacheConfiguration extractionCacheConfiguration(CommandLine.ParseResult parseResult) {
+    ExtractionCacheConfiguration res = new ExtractionCacheConfiguration();
+    CommandLine.Model.OptionSpec option = parseResult.matchedOption("extraction-cache");
+    if (option != null) {
+      Path cacheFile = option.getValue();
+      res.setCacheFile(cacheFile.toAbsolutePath().normalize());
+    }
+    return res;
+  }
+
+  @Produces
+  @ApplicationScoped
+  PipelineConfiguration pipelineConfiguration(CommandLine.ParseResult parseResult) {
+    PipelineConfiguration res = new PipelineConfiguration();
+    CommandLine.Model.OptionSpec option = parseResult.matchedOption("pipelined");
+    if (option != null) {
+      res.setPipelined(option.getValue());
+    }
+    return res;
+  }
+
+  @Produces
+  @ApplicationScoped
+  PlanConfiguration planConfiguration(CommandLine.ParseResult parseResult) {
+    PlanConfiguration res = new PlanConfiguration();
+    CommandLine.Model.OptionSpec planFileOption = parseResult.matchedOption("plan-file");
+    if (planFileOption != null) {
+      Path planFile = planFileOption.getValue();
+      res.setPlanFile(planFile.toAbsolutePath().normalize());
+    }
+    CommandLine.Model.OptionSpec applyPlanOption = parseResult.matchedOption("apply-plan");
+    if (applyPlanOption != null) {
+      Path applyPlan = applyPlanOption.getValue();
+      res.setApplyPlan(applyPlan.toAbsolutePath().normalize());
+    }
+    if (res.getPlanFile() != null && res.getApplyPlan() != null) {
+      throw new IllegalArgumentException("Invalid plan options: --plan-file and --apply-plan cannot be used together");
+    }
+    return res;
+  }
+
+  @Produces
+  @ApplicationScoped
+  JournalConfiguration journalConfiguration(CommandLine.ParseResult parseResult) {
+    JournalConfiguration res = new JournalConfiguration();
+    CommandLine.Model.OptionSpec journalFileOption = parseResult.matchedOption("journal-file");
+    if (journalFileOption != null) {
+      Path journalFile = journalFileOption.getValue();
+      res.setJournalFile(journalFile.toAbsolutePath().normalize());
+    }
+    CommandLine.Model.OptionSpec resumeOption = parseResult.matchedOption("resume");
+    if (resumeOption != null) {
+      res.setResume(resumeOption.getValue());
+    }
+    CommandLine.Model.OptionSpec undoOption = parseResult.matchedOption("undo");
+    if (undoOption != null) {
+      res.setUndo(undoOption.getValue());
+    }
+    if ((res.isResume() || res.isUndo()) && res.getJournalFile() == null) {
+      throw new IllegalArgumentException("Invalid journal options: --resume and --undo need --journal-file");
+    }
+    if (res.isResume() && res.isUndo()) {
+      throw new IllegalArgumentException("Invalid journal options: --resume and --undo cannot be used together");
+    }
+    if ((res.isResume() || res.isUndo()) && parseResult.hasMatchedOption("apply-plan")) {
+      throw new IllegalArgumentException(
+          "Invalid journal options: --resume and --undo cannot be used with --apply-plan");
+    }
+    return res;
+  }
+
+  @Produces
+  @ApplicationScoped
+  ShardConfiguration shardConfiguration(CommandLine.ParseResult parseResult) {
+    ShardConfiguration res = new ShardConfiguration();
+    CommandLine.Model.OptionSpec shardResultOption = parseResult.matchedOption("shard-result");
+    if (shardResultOption != null) {
+      Path shardResult = shardResultOption.getValue();
+      res.setShardResult(shardResult.toAbsolutePath().normalize());
+    }
+    CommandLine.Model.OptionSpec mergeShardsOption = parseResult.matchedOption("merge-shards");
+    if (mergeShardsOption != null) {
+      List<Path> mergeShards = mergeShardsOption.getValue();
+      res.setMergeShards(mergeShards.stream().map(file -> file.toAbsolutePath().normalize()).toList());
+    }
+    if (parseResult.hasMatchedOption("shard") && res.getShardResult() == null) {
+      throw new IllegalArgumentException("Invalid shard options: --shard needs --shard-result");
+    }
+    if (res.getShardResult() != null && res.getMergeShards() != null) {
+      throw new IllegalArgumentException("Invalid shard options: --shard-result and --merge-shards cannot be used "
+          + "together");
+    }
+    if ((res.getShardResult() != null || res.getMergeShards() != null) && parseResult.hasMatchedOption("pipelined")) {
+      throw new IllegalArgumentException("Invalid shard options: --pipelined cannot be used with shards");
+    }
+    return res;
+  }
+
+  @Produces
+  @ApplicationScoped
+  SortConfiguration sortConfiguration(CommandLine.ParseResult parseResult) {
+    SortConfiguration res = new SortConfiguration();
+    CommandLine.Model.OptionSpec maxFilesOption = parseResult.matchedOption("max-files-in-memory");
+    if (maxFilesOption != null) {
+      int maxFilesInMemory = maxFilesOption.getValue();
+      if (maxFilesInMemory < 1) {
+        throw new IllegalArgumentException("Invalid max files in memory: --max-files-in-memory must be at least 1");
+      }
+      res.setMaxFilesInMemory(maxFilesInMemory);
+    }
+    CommandLine.Model.OptionSpec spillFolderOption = parseResult.matchedOption("spill-folder");
+    if (spillFolderOption != null) {
+      Path spillFolder = spillFolderOption.getValue();
+      res.setSpillFolder(spillFolder.toAbsolutePath().normalize());
+    }
+    if (res.getSpillFolder() != null && res.getMaxFilesInMemory() == 0) {
+      throw new IllegalArgumentException("Invalid sort options: --spill-folder needs --max-files-in-memory");
+    }
+    if (res.getMaxFilesInMemory() > 0
+        && (parseResult.hasMatchedOption("pipelined") || parseResult.hasMatchedOption("shard-result"))) {
+      throw new IllegalArgumentException(
+          "Invalid sort options: --max-files-in-memory cannot be used with --pipelined or --shard-result");
+    }
+    return res;
+  }
+
+  @Produces
+  @ApplicationScoped
+  PoisonFileConfiguration poisonFileConfiguration(CommandLine.ParseResult parseResult) {
+    PoisonFileConfiguration res = new PoisonFileConfiguration();
+    CommandLine.Model.OptionSpec option = parseResult.matchedOption("poison-file-registry");
+    if (option != null) {
+      Path registryFile = option.getValue();
+      res.setRegistryFile(registryFile.toAbsolutePath().normalize());
+    }
+    return res;
+  }
+
+  @Produces
+  @ApplicationScoped
+  CameraFileNameConfiguration cameraFileNameConfiguration(CommandLine.ParseResult parseResult) {
+    CameraFileNameConfiguration res = new CameraFileNameConfiguration();
+    CommandLine.Model.OptionSpec option = parseResult.matchedOption("camera-file-name-patterns");
+    if (option != null) {
+      List<String> patterns = option.getValue();
+      res.setPatterns(patterns.stream().map(CliProducerConfiguration::cameraFileNamePattern).toList());
+    }
+    return res;
+  }
+
+  private static CameraFileNamePattern cameraFileNamePattern(String pattern) {
+    try {
+      return CameraFileNamePattern.of(pattern);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid camera file name pattern: " + e.getMessage(), e);
+    }
+  }
+
   @Produces
   DateRange dateRange(CommandLine.ParseResult parseResult) {
     LocalDate min = getDate(parseResult, "date-min");
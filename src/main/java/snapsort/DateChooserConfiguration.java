@@ -1,11 +1,13 @@
-package snapsort;
-
-import lombok.Data;
-
-/**
- * Date chooser configuration. Injectable from command line option.
- */
-@Data
-public class DateChooserConfiguration {
-  private boolean readFilesystemDateModified;
-}
+package snapsort;
+
+import lombok.Data;
+
+/**
+ * Date chooser configuration. Injectable from command line option.
+ */
+@Data
+public class DateChooserConfiguration {
+  private boolean readFilesystemDateModified;
+  // Time an extractor may spend on a file before it is abandoned, no limit when 0
+  private int extractionTimeoutSeconds;
+}
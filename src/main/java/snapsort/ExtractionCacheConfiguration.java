@@ -0,0 +1,14 @@
+package snapsort;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * Extraction cache configuration. Injectable from command line option.
+ */
+@Data
+public class ExtractionCacheConfiguration {
+  // File storing the dates extracted by previous runs, no cache when null
+  private Path cacheFile;
+}
@@ -0,0 +1,20 @@
+package snapsort;
+
+import lombok.Data;
+
+/**
+ * File lister configuration. Injectable from command line option.
+ */
+@Data
+public class FileListerConfiguration {
+  // Number of files whose dates are extracted concurrently, 1 means sequential
+  private int extractionThreads = 1;
+  // Number of directories listed concurrently, 1 means sequential
+  private int walkerThreads = 1;
+  // Shard whose files are listed, from 1 to shardCount
+  private int shard = 1;
+  // Number of shards the directories are split into, 1 means all the files are listed
+  private int shardCount = 1;
+  // Skip the files and folders that cannot be in the date range before extracting their dates
+  private boolean pruneByDateRange;
+}
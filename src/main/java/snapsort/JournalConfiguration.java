@@ -0,0 +1,18 @@
+package snapsort;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * Move journal configuration. Injectable from command line option.
+ */
+@Data
+public class JournalConfiguration {
+  // File where moves are recorded before and after being done, no journal when null
+  private Path journalFile;
+  // Finish the moves of an interrupted run from the journal instead of analyzing input folders
+  private boolean resume;
+  // Move back the files moved by the run recorded in the journal instead of analyzing input folders
+  private boolean undo;
+}
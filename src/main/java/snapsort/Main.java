@@ -32,7 +32,11 @@ public class Main implements QuarkusApplication, Runnable {
   @Inject
   private CommandLine.IFactory factory;
 
-  @CommandLine.Option(names = { "--input-folders" }, description = "Input folders list, separated by commas", required = true,
+  @CommandLine.Spec
+  private CommandLine.Model.CommandSpec spec;
+
+  // Required unless --apply-plan, --resume, --undo or --merge-shards is given, checked by run()
+  @CommandLine.Option(names = { "--input-folders" }, description = "Input folders list, separated by commas",
       split = ",", converter = InputFolderPathConverter.class)
   private List<Path> inputFolders;
 
@@ -49,6 +53,11 @@ public class Main implements QuarkusApplication, Runnable {
       converter = IsoLocalDateConverter.class)
   private LocalDate dateMax;
 
+  @CommandLine.Option(names = { "--prune-by-date-range" },
+      description = "Skips the files and folders that cannot be in the date range before analyzing them, from their "
+          + "names, sorted folders and last modified dates", defaultValue = "false")
+  private boolean pruneByDateRange;
+
   @CommandLine.Option(names = { "--write" }, description = "If no given, will do a dry run, no files will be written", defaultValue = "false")
   private boolean write;
 
@@ -56,6 +65,91 @@ public class Main implements QuarkusApplication, Runnable {
       description = "Allow renaming according to filesystem dates modified (as a last resort)", defaultValue = "false")
   private boolean readFilesystemDateModified;
 
+  @CommandLine.Option(names = { "--extraction-threads" },
+      description = "Number of files analyzed concurrently when extracting dates", defaultValue = "1")
+  private int extractionThreads;
+
+  @CommandLine.Option(names = { "--walker-threads" },
+      description = "Number of input directories listed concurrently", defaultValue = "1")
+  private int walkerThreads;
+
+  @CommandLine.Option(names = { "--rename-threads" },
+      description = "Number of destination folders filled concurrently when moving files", defaultValue = "1")
+  private int renameThreads;
+
+  @CommandLine.Option(names = { "--copy-threads" },
+      description = "Number of chunks of a large file copied concurrently when the output folder is on another "
+          + "file system", defaultValue = "1")
+  private int copyThreads;
+
+  @CommandLine.Option(names = { "--extraction-cache" },
+      description = "File where extracted dates are kept so that unchanged files are not analyzed again by next runs")
+  private Path extractionCache;
+
+  @CommandLine.Option(names = { "--extraction-timeout" },
+      description = "Seconds an extractor may spend on a file before it is abandoned for the next one, no limit by "
+          + "default")
+  private int extractionTimeout;
+
+  @CommandLine.Option(names = { "--poison-file-registry" },
+      description = "File where the files an extractor timed out or failed on are recorded, so that next runs skip "
+          + "that extractor for them")
+  private Path poisonFileRegistry;
+
+  @CommandLine.Option(names = { "--pipelined" },
+      description = "Move files while the next ones are analyzed, instead of after all of them", defaultValue = "false")
+  private boolean pipelined;
+
+  @CommandLine.Option(names = { "--plan-file" },
+      description = "File where a dry run writes the renames it would do, to apply them later with --apply-plan")
+  private Path planFile;
+
+  @CommandLine.Option(names = { "--apply-plan" },
+      description = "Applies the renames of a plan written by --plan-file instead of analyzing input folders")
+  private Path applyPlan;
+
+  @CommandLine.Option(names = { "--journal-file" },
+      description = "File where moves are recorded as they are done, so that --resume can finish an interrupted run")
+  private Path journalFile;
+
+  @CommandLine.Option(names = { "--resume" },
+      description = "Finishes the moves of an interrupted run from --journal-file instead of analyzing input folders",
+      defaultValue = "false")
+  private boolean resume;
+
+  @CommandLine.Option(names = { "--undo" },
+      description = "Moves the files moved by the run recorded in --journal-file back where they were",
+      defaultValue = "false")
+  private boolean undo;
+
+  @CommandLine.Option(names = { "--shard" },
+      description = "Only analyzes the files of this shard of the input directories (<shard>/<shards>, e.g. 3/16) and "
+          + "writes them to --shard-result")
+  private String shard;
+
+  @CommandLine.Option(names = { "--shard-result" },
+      description = "File where a shard writes its dated files, to be merged by --merge-shards")
+  private Path shardResult;
+
+  @CommandLine.Option(names = { "--merge-shards" },
+      description = "Deduplicates and renames the files of all the shard results, separated by commas, instead of "
+          + "analyzing input folders", split = ",")
+  private List<Path> mergeShards;
+
+  @CommandLine.Option(names = { "--max-files-in-memory" },
+      description = "Number of files kept in memory before sorted parts of the files are written to disk, for "
+          + "libraries too large to be sorted in memory")
+  private int maxFilesInMemory;
+
+  @CommandLine.Option(names = { "--spill-folder" },
+      description = "Folder where the sorted parts of --max-files-in-memory are written, the temporary folder "
+          + "by default")
+  private Path spillFolder;
+
+  @CommandLine.Option(names = { "--camera-file-name-patterns" },
+      description = "Additional camera file name patterns, separated by commas", split = ",")
+  private List<String> cameraFileNamePatterns;
+
   @Inject
   private SnapsortOrchestrator orchestrator;
 
@@ -70,6 +164,11 @@ public class Main implements QuarkusApplication, Runnable {
 
   @Override
   public void run() {
+    if (inputFolders == null && applyPlan == null && !resume && !undo && mergeShards == null) {
+      throw new CommandLine.ParameterException(spec.commandLine(), "Missing required option: "
+          + "'--input-folders=<inputFolders>' (or '--apply-plan=<applyPlan>', '--resume', '--undo' or "
+          + "'--merge-shards=<mergeShards>')");
+    }
     orchestrator.execute(inputFolders, outputFolder, write);
   }
 }
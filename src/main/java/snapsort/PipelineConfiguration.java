@@ -0,0 +1,12 @@
+package snapsort;
+
+import lombok.Data;
+
+/**
+ * Pipeline configuration. Injectable from command line option.
+ */
+@Data
+public class PipelineConfiguration {
+  // Moves files while the next ones are analyzed instead of after all of them
+  private boolean pipelined;
+}
@@ -0,0 +1,16 @@
+package snapsort;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * Rename plan configuration. Injectable from command line option.
+ */
+@Data
+public class PlanConfiguration {
+  // File where dry runs write their renames, none when null
+  private Path planFile;
+  // Plan whose renames are applied instead of analyzing input folders, none when null
+  private Path applyPlan;
+}
@@ -0,0 +1,14 @@
+package snapsort;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * Poison file registry configuration. Injectable from command line option.
+ */
+@Data
+public class PoisonFileConfiguration {
+  // File recording the files extractors timed out or failed on, not recorded when null
+  private Path registryFile;
+}
@@ -0,0 +1,14 @@
+package snapsort;
+
+import lombok.Data;
+
+/**
+ * Renamer configuration. Injectable from command line option.
+ */
+@Data
+public class RenamerConfiguration {
+  // Number of destination folders filled concurrently, 1 means sequential
+  private int renameThreads = 1;
+  // Number of chunks of a large file copied concurrently when the destination is on another file system
+  private int copyThreads = 1;
+}
@@ -0,0 +1,17 @@
+package snapsort;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Sharded run configuration. Injectable from command line option.
+ */
+@Data
+public class ShardConfiguration {
+  // File where a shard writes its dated files instead of renaming them, none when null
+  private Path shardResult;
+  // Results of all the shards, deduplicated and renamed instead of analyzing input folders, none when null
+  private List<Path> mergeShards;
+}
@@ -2,27 +2,69 @@ package snapsort;
 
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
+import snapsort.cache.ExtractionCache;
+import snapsort.cache.PoisonFileRegistry;
 import snapsort.files.FileInfo;
 import snapsort.files.FileLister;
+import snapsort.files.FileTable;
+import snapsort.files.ShardResult;
+import snapsort.files.SpillingFileSorter;
 import snapsort.renamer.Deduplicator;
+import snapsort.renamer.DestinationIndex;
+import snapsort.renamer.PipelinedDeduplicator;
+import snapsort.renamer.RenamePlan;
 import snapsort.renamer.RenameGenerator;
 import snapsort.renamer.RenamedFile;
 import snapsort.renamer.Renamer;
+import snapsort.renamer.SortedDeduplicator;
 
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Orchestrates the snapsort pipeline: list files -> deduplicate dates -> generate names -> rename.
+ * <p>
+ * A dry run can write its renames to a plan file, applying the plan later only runs the rename step. Resuming or
+ * undoing a run only uses the moves recorded in its journal.
+ * <p>
+ * A sharded run splits the listing and analysis between processes, each writing the files it found to a shard result.
+ * The results of all the shards are then merged, deduplicated and renamed by a single process.
+ * <p>
+ * In pipelined mode the stages overlap: files are analyzed by ascending last modified date, and the seconds no file
+ * still to analyze is expected to collide with are deduplicated and handed to a renaming thread right away.
+ * <p>
+ * When the files do not fit in memory, they are sorted by date on disk, then deduplicated and renamed in batches while
+ * the sorted files are read back.
  */
 @ApplicationScoped
 @Slf4j
 public class SnapsortOrchestrator {
+  // Deduplicated batches waiting for the renaming thread, analysis waits when it is full
+  private static final int RENAME_QUEUE_SIZE = 16;
+  // Renames of a plan applied at once
+  private static final int PLAN_BATCH_SIZE = 10_000;
+  private static final List<FileInfo> END_OF_FILES = new ArrayList<>();
 
   @Inject
   private FileLister fileLister;
 
+  @Inject
+  private ExtractionCache extractionCache;
+
+  @Inject
+  private PoisonFileRegistry poisonFileRegistry;
+
   @Inject
   private Deduplicator deduplicator;
 
@@ -32,16 +74,287 @@ public class SnapsortOrchestrator {
   @Inject
   private Renamer renamer;
 
+  @Inject
+  private PipelineConfiguration pipelineConfiguration;
+
+  @Inject
+  private PlanConfiguration planConfiguration;
+
+  @Inject
+  private JournalConfiguration journalConfiguration;
+
+  @Inject
+  private ShardConfiguration shardConfiguration;
+
+  @Inject
+  private FileListerConfiguration fileListerConfiguration;
+
+  @Inject
+  private SortConfiguration sortConfiguration;
+
+  @SneakyThrows
   public void execute(List<Path> inputFolders, Path outputFolder, boolean write) {
+    if (journalConfiguration.isResume() || journalConfiguration.isUndo()) {
+      if (inputFolders != null) {
+        log.warn("Ignoring input folders {}, using journal {}", inputFolders, journalConfiguration.getJournalFile());
+      }
+      if (journalConfiguration.isUndo()) {
+        renamer.undo(outputFolder, write);
+      } else {
+        renamer.resume(outputFolder, new DestinationIndex(outputFolder), write);
+      }
+      return;
+    }
+    if (planConfiguration.getApplyPlan() != null) {
+      applyPlan(planConfiguration.getApplyPlan(), inputFolders, outputFolder, write);
+      return;
+    }
     log.info("Input folders: {} (write={})", inputFolders, write);
-    List<FileInfo> files = fileLister.listFiles(inputFolders);
+    if (planConfiguration.getPlanFile() != null && write) {
+      log.warn("Not writing plan {}, plans are written by dry runs only", planConfiguration.getPlanFile());
+    }
+    if (shardConfiguration.getShardResult() != null) {
+      executeShard(inputFolders);
+      return;
+    }
+    if (pipelineConfiguration.isPipelined()) {
+      executePipelined(inputFolders, outputFolder, write);
+      return;
+    }
+    if (sortConfiguration.getMaxFilesInMemory() > 0) {
+      executeSpilling(inputFolders, outputFolder, write);
+      return;
+    }
+    FileTable files;
+    if (shardConfiguration.getMergeShards() != null) {
+      files = ShardResult.merge(shardConfiguration.getMergeShards());
+    } else {
+      files = fileLister.listFileTable(inputFolders);
+      saveAnalysis();
+    }
     log.info("Found {} files and choose the following dates:", files.size());
-    files.forEach(file -> log.info(file.toString()));
+    logFiles(files);
     log.info("Deduplicating dates");
-    List<FileInfo> deduplicatedFiles = deduplicator.deduplicateDates(files);
-    deduplicatedFiles.forEach(file -> log.info(file.toString()));
+    DestinationIndex destinationIndex = new DestinationIndex(outputFolder);
+    deduplicator.deduplicateDates(files, destinationIndex);
+    logFiles(files);
     log.info("Generating new names");
-    List<RenamedFile> renamedFiles = renameGenerator.generateRenamedFileNames(deduplicatedFiles);
-    renamer.renameFiles(renamedFiles, outputFolder, write);
+    List<RenamedFile> renamedFiles = renameGenerator.generateRenamedFileNames(files);
+    try (RenamePlan.Writer planWriter = planWriter(outputFolder, write)) {
+      renamer.renameFiles(renamedFiles, outputFolder, destinationIndex, write);
+      addToPlan(planWriter, renamedFiles);
+      commitPlan(planWriter);
+    }
+    renamer.finishJournal();
+  }
+
+  /**
+   * Analyzes the files of one shard and writes them to its result, they are deduplicated and renamed when the results
+   * of all the shards are merged.
+   */
+  private void executeShard(List<Path> inputFolders) throws IOException {
+    FileTable files = fileLister.listFileTable(inputFolders);
+    saveAnalysis();
+    ShardResult.write(shardConfiguration.getShardResult(), fileListerConfiguration.getShard(),
+        fileListerConfiguration.getShardCount(), inputFolders, files);
+  }
+
+  /**
+   * Saves what the analysis learned about the files for next runs.
+   */
+  private void saveAnalysis() {
+    extractionCache.save();
+    poisonFileRegistry.save();
+  }
+
+  private static void logFiles(FileTable files) {
+    if (log.isInfoEnabled()) {
+      for (int row = 0; row < files.size(); row++) {
+        log.info(files.fileInfo(row).toString());
+      }
+    }
+  }
+
+  /**
+   * Renames the files of a plan written by a previous dry run, without analyzing anything.
+   */
+  @SneakyThrows
+  private void applyPlan(Path plan, List<Path> inputFolders, Path outputFolder, boolean write) {
+    if (inputFolders != null) {
+      log.warn("Ignoring input folders {}, applying plan {}", inputFolders, plan);
+    }
+    log.info("Applying plan {} (write={})", plan, write);
+    DestinationIndex destinationIndex = new DestinationIndex(outputFolder);
+    // Applied batch by batch as the plan is read, a plan of millions of files is never held in memory
+    List<RenamedFile> batch = new ArrayList<>();
+    RenamePlan.forEach(plan, outputFolder, renamedFile -> {
+      batch.add(renamedFile);
+      if (batch.size() >= PLAN_BATCH_SIZE) {
+        renamer.renameFiles(List.copyOf(batch), outputFolder, destinationIndex, write);
+        batch.clear();
+      }
+    });
+    if (!batch.isEmpty()) {
+      renamer.renameFiles(List.copyOf(batch), outputFolder, destinationIndex, write);
+    }
+    renamer.finishJournal();
+  }
+
+  /**
+   * Writer of the plan file of a dry run, null when no plan is written.
+   */
+  @SneakyThrows
+  private RenamePlan.Writer planWriter(Path outputFolder, boolean write) {
+    if (planConfiguration.getPlanFile() == null || write) {
+      return null;
+    }
+    return RenamePlan.writer(planConfiguration.getPlanFile(), outputFolder);
+  }
+
+  @SneakyThrows
+  private static void addToPlan(RenamePlan.Writer planWriter, List<RenamedFile> renamedFiles) {
+    if (planWriter != null) {
+      planWriter.add(renamedFiles);
+    }
+  }
+
+  /**
+   * Writes the plan file, once every file was added to the plan.
+   */
+  @SneakyThrows
+  private static void commitPlan(RenamePlan.Writer planWriter) {
+    if (planWriter != null) {
+      planWriter.commit();
+    }
+  }
+
+  @SneakyThrows
+  private void executePipelined(List<Path> inputFolders, Path outputFolder, boolean write) {
+    DestinationIndex destinationIndex = new DestinationIndex(outputFolder);
+    PipelinedDeduplicator pipelinedDeduplicator = new PipelinedDeduplicator(destinationIndex);
+    BlockingQueue<List<FileInfo>> toRename = new ArrayBlockingQueue<>(RENAME_QUEUE_SIZE);
+    try (RenamePlan.Writer planWriter = planWriter(outputFolder, write);
+        ExecutorService renaming = Executors.newSingleThreadExecutor()) {
+      Future<?> renameStage = renaming.submit(
+          () -> renameBatches(toRename, outputFolder, destinationIndex, write, planWriter));
+      try {
+        fileLister.listFilesByCandidateTime(inputFolders, FileLister.CONTENT_DATE_SLACK, (file, watermark) -> {
+          if (file != null) {
+            log.info(file.toString());
+            pipelinedDeduplicator.add(file);
+          }
+          handOver(toRename, pipelinedDeduplicator.resolveBefore(watermark), renameStage);
+        });
+        handOver(toRename, pipelinedDeduplicator.resolveAll(), renameStage);
+        handOver(toRename, END_OF_FILES, renameStage);
+      } catch (Throwable e) {
+        // The rename stage would otherwise wait forever for the next batch
+        renaming.shutdownNow();
+        throw e;
+      }
+      getResult(renameStage);
+      commitPlan(planWriter);
+    }
+    renamer.finishJournal();
+    saveAnalysis();
+    if (pipelinedDeduplicator.getLateFiles() > 0) {
+      log.warn("{} files were analyzed after the files they could collide with had been deduplicated, their dates may "
+          + "differ from the ones of a run without --pipelined", pipelinedDeduplicator.getLateFiles());
+    }
+  }
+
+  /**
+   * Sorts the files by date with at most maxFilesInMemory of them in memory, then deduplicates the sorted files as they
+   * are read back and renames them by batches of maxFilesInMemory.
+   */
+  @SneakyThrows
+  private void executeSpilling(List<Path> inputFolders, Path outputFolder, boolean write) {
+    int maxFilesInMemory = sortConfiguration.getMaxFilesInMemory();
+    DestinationIndex destinationIndex = new DestinationIndex(outputFolder);
+    SortedDeduplicator sortedDeduplicator = new SortedDeduplicator(destinationIndex);
+    try (SpillingFileSorter sorter = new SpillingFileSorter(maxFilesInMemory, sortConfiguration.getSpillFolder());
+        RenamePlan.Writer planWriter = planWriter(outputFolder, write)) {
+      if (shardConfiguration.getMergeShards() != null) {
+        ShardResult.forEachFile(shardConfiguration.getMergeShards(), sorter::add);
+      } else {
+        fileLister.forEachFile(inputFolders, sorter::add);
+        saveAnalysis();
+      }
+      log.info("Found {} files, deduplicating them by ascending date:", sorter.size());
+      List<FileInfo> batch = new ArrayList<>();
+      sorter.forEachByTime(file -> {
+        log.info(file.toString());
+        batch.addAll(sortedDeduplicator.add(file));
+        if (batch.size() >= maxFilesInMemory) {
+          renameBatch(batch, outputFolder, destinationIndex, write, planWriter);
+          batch.clear();
+        }
+      });
+      batch.addAll(sortedDeduplicator.resolveAll());
+      renameBatch(batch, outputFolder, destinationIndex, write, planWriter);
+      commitPlan(planWriter);
+    }
+    renamer.finishJournal();
+  }
+
+  /**
+   * Renames the batches of deduplicated files until END_OF_FILES, the batches waiting in the queue are renamed
+   * together.
+   */
+  @SneakyThrows
+  private void renameBatches(BlockingQueue<List<FileInfo>> toRename, Path outputFolder,
+      DestinationIndex destinationIndex, boolean write, RenamePlan.Writer planWriter) {
+    boolean end = false;
+    while (!end) {
+      List<List<FileInfo>> batches = new ArrayList<>();
+      batches.add(toRename.take());
+      toRename.drainTo(batches);
+      List<FileInfo> files = new ArrayList<>();
+      for (List<FileInfo> batch : batches) {
+        end |= batch == END_OF_FILES;
+        files.addAll(batch);
+      }
+      renameBatch(files, outputFolder, destinationIndex, write, planWriter);
+    }
+  }
+
+  /**
+   * Renames a batch of deduplicated files, if any.
+   */
+  @SneakyThrows
+  private void renameBatch(List<FileInfo> files, Path outputFolder, DestinationIndex destinationIndex, boolean write,
+      RenamePlan.Writer planWriter) {
+    if (files.isEmpty()) {
+      return;
+    }
+    files.forEach(file -> log.info("Deduplicated {}", file));
+    List<RenamedFile> renamedFiles = renameGenerator.generateRenamedFileNames(files);
+    renamer.renameFiles(renamedFiles, outputFolder, destinationIndex, write);
+    addToPlan(planWriter, renamedFiles);
+  }
+
+  /**
+   * Queues a batch for the rename stage, failing instead of waiting forever if the rename stage died.
+   */
+  @SneakyThrows
+  private static void handOver(BlockingQueue<List<FileInfo>> toRename, List<FileInfo> batch, Future<?> renameStage) {
+    if (batch.isEmpty() && batch != END_OF_FILES) {
+      return;
+    }
+    while (!toRename.offer(batch, 1, TimeUnit.SECONDS)) {
+      if (renameStage.isDone()) {
+        getResult(renameStage);
+        throw new IllegalStateException("Rename stage stopped before the end of the files");
+      }
+    }
+  }
+
+  @SneakyThrows
+  private static void getResult(Future<?> future) {
+    try {
+      future.get();
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
   }
 }
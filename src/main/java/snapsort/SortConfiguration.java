@@ -0,0 +1,16 @@
+package snapsort;
+
+import lombok.Data;
+
+import java.nio.file.Path;
+
+/**
+ * Sort configuration. Injectable from command line option.
+ */
+@Data
+public class SortConfiguration {
+  // Files kept in memory before sorted runs are written to disk, 0 to keep all of them in memory
+  private int maxFilesInMemory;
+  // Folder where the sorted runs are written, the default temporary folder when null
+  private Path spillFolder;
+}
@@ -8,5 +8,8 @@ public enum TimeStampSource {
   CAMERA_FILE_NAME,
   FINAL_FILE_NAME,
   FILE_LAST_MODIFIED,
-  COLLISION_AVOIDANCE
+  COLLISION_AVOIDANCE,
+  MOVIE_CREATION_TIME,
+  IMAGE_CREATION_TIME,
+  IMAGE_MODIFICATION_TIME
 }
@@ -0,0 +1,199 @@
+package snapsort.cache;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import snapsort.CameraFileNameConfiguration;
+import snapsort.DateChooserConfiguration;
+import snapsort.DateRange;
+import snapsort.ExtractionCacheConfiguration;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.extractor.filename.CameraFileNamePattern;
+import snapsort.files.FileContext;
+import snapsort.io.BinaryStrings;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * On-disk cache of the dates chosen by {@link snapsort.extractor.DateChooser}, so that files already analyzed by a
+ * previous run are not parsed again.
+ * <p>
+ * Entries are keyed by absolute path, size and last modified time: a file that changed is analyzed again.
+ * The whole cache is discarded when the options influencing the chosen date (date range, filesystem dates, camera
+ * file name patterns) differ from the ones of the run that wrote it.
+ * <p>
+ * The cache file is memory mapped when loaded. It is stored by a {@link SharedEntryFile}, so that two snapsort
+ * processes sharing the cache do not lose each other's entries.
+ */
+@Slf4j
+@ApplicationScoped
+public class ExtractionCache {
+  private static final int MAGIC = 0x534E5343; // "SNSC"
+  // Increase when the extractors change in a way that makes previously extracted dates wrong
+  private static final int FORMAT_VERSION = 4;
+  private static final byte NO_TIMESTAMP = -1;
+  private static final TimeStampSource[] SOURCES = TimeStampSource.values();
+
+  /**
+   * Cached result of a previous extraction. timestamp is null when no date could be found for the file.
+   */
+  public record CachedTimestamp(TimeStampWithSource timestamp) {
+  }
+
+  private record Entry(long size, long lastModifiedMillis, byte source, long epochSecond, int nano) {
+    boolean matches(FileKey key) {
+      return size == key.size() && lastModifiedMillis == key.lastModifiedMillis();
+    }
+  }
+
+  private final String optionsFingerprint;
+  // Keyed by path
+  private final SharedEntryFile<Entry> entryFile;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  @Inject
+  public ExtractionCache(ExtractionCacheConfiguration configuration, DateRange dateRange,
+      DateChooserConfiguration dateChooserConfiguration, CameraFileNameConfiguration cameraFileNameConfiguration) {
+    this.optionsFingerprint = "version=" + FORMAT_VERSION
+        + ", dateRange=" + dateRange
+        + ", readFilesystemDateModified=" + dateChooserConfiguration.isReadFilesystemDateModified()
+        // In the order they are tried, the first matching pattern gives the date
+        + ", cameraFileNamePatterns=" + cameraFileNameConfiguration.getPatterns().stream()
+        .map(CameraFileNamePattern::toString)
+        .collect(Collectors.joining("\n"));
+    this.entryFile = new SharedEntryFile<>(configuration.getCacheFile(), "extraction cache", this::readEntries,
+        this::writeEntries, path -> path);
+  }
+
+  public boolean isEnabled() {
+    return entryFile.isEnabled();
+  }
+
+  /**
+   * Key of the current version of the file, null when the cache is disabled or the file attributes cannot be read.
+   */
+  public FileKey key(FileContext file) {
+    return entryFile.key(file);
+  }
+
+  /**
+   * Returns the result of a previous extraction of this exact version of the file, null if there is none.
+   */
+  public CachedTimestamp lookup(FileKey key) {
+    if (key == null) {
+      return null;
+    }
+    Entry entry = entryFile.entries(key).get(key.path());
+    if (entry == null || !entry.matches(key)) {
+      misses.increment();
+      return null;
+    }
+    hits.increment();
+    return new CachedTimestamp(toTimestamp(entry));
+  }
+
+  public void store(FileKey key, TimeStampWithSource timestamp) {
+    if (key == null) {
+      return;
+    }
+    entryFile.entries(key).put(key.path(), toEntry(key, timestamp));
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  /**
+   * Writes the cache back to disk, merged with what other processes may have saved since it was loaded.
+   */
+  public void save() {
+    Map<String, Entry> saved = entryFile.save();
+    if (saved != null) {
+      log.info("Extraction cache: {} hits, {} misses, {} entries saved to {}", getHits(), getMisses(), saved.size(),
+          entryFile.file());
+    }
+  }
+
+  private Map<String, Entry> readEntries(Path cacheFile) throws IOException {
+    Map<String, Entry> res = new HashMap<>();
+    if (!Files.exists(cacheFile)) {
+      return res;
+    }
+    try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.remaining() < Integer.BYTES || buffer.getInt() != MAGIC) {
+        log.warn("File {} is not an extraction cache, ignoring it", cacheFile);
+        return res;
+      }
+      String fingerprint = BinaryStrings.read(buffer);
+      if (!optionsFingerprint.equals(fingerprint)) {
+        log.info("Extraction cache {} was written with different options ({}), ignoring it", cacheFile, fingerprint);
+        return res;
+      }
+      while (buffer.hasRemaining()) {
+        String path = BinaryStrings.read(buffer);
+        res.put(path, new Entry(buffer.getLong(), buffer.getLong(), buffer.get(), buffer.getLong(), buffer.getInt()));
+      }
+    } catch (BufferUnderflowException e) {
+      // Truncated file, keep what could be read
+      log.warn("Extraction cache {} is truncated, keeping {} entries", cacheFile, res.size());
+    }
+    return res;
+  }
+
+  private void writeEntries(Path file, Map<String, Entry> toWrite) throws IOException {
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      BinaryStrings.write(out, optionsFingerprint);
+      for (Map.Entry<String, Entry> mapEntry : toWrite.entrySet()) {
+        Entry entry = mapEntry.getValue();
+        BinaryStrings.write(out, mapEntry.getKey());
+        out.writeLong(entry.size());
+        out.writeLong(entry.lastModifiedMillis());
+        out.writeByte(entry.source());
+        out.writeLong(entry.epochSecond());
+        out.writeInt(entry.nano());
+      }
+    }
+  }
+
+
+
+  private static Entry toEntry(FileKey key, TimeStampWithSource timestamp) {
+    if (timestamp == null) {
+      return new Entry(key.size(), key.lastModifiedMillis(), NO_TIMESTAMP, 0, 0);
+    }
+    LocalDateTime time = timestamp.getTime();
+    return new Entry(key.size(), key.lastModifiedMillis(), (byte) timestamp.getSource().ordinal(),
+        time.toEpochSecond(ZoneOffset.UTC), time.getNano());
+  }
+
+  private static TimeStampWithSource toTimestamp(Entry entry) {
+    if (entry.source() == NO_TIMESTAMP) {
+      return null;
+    }
+    LocalDateTime time = LocalDateTime.ofEpochSecond(entry.epochSecond(), entry.nano(), ZoneOffset.UTC);
+    return new TimeStampWithSource(time, SOURCES[entry.source()]);
+  }
+}
@@ -0,0 +1,7 @@
+package snapsort.cache;
+
+/**
+ * Identifies a version of a file, taken before extracting its date: a file that changed gets another key.
+ */
+public record FileKey(String path, long size, long lastModifiedMillis) {
+}
@@ -0,0 +1,189 @@
+package snapsort.cache;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import snapsort.PoisonFileConfiguration;
+import snapsort.files.FileContext;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk registry of the files an extractor of {@link snapsort.extractor.DateChooser} timed out or failed on, so that
+ * next runs skip that extractor for them instead of paying the cost again.
+ * <p>
+ * Entries are keyed by absolute path, size and last modified time like the {@link ExtractionCache}: a file that
+ * changed is tried again. The registry is a tab separated text file, one line per file and extractor, that doubles as
+ * a report of the files to look at. It is stored by a {@link SharedEntryFile}, so that the processes of a sharded run
+ * can share it.
+ */
+@Slf4j
+@ApplicationScoped
+public class PoisonFileRegistry {
+  private static final String HEADER = "# snapsort poison files 1: size, last modified millis, extractor, reason, "
+      + "detail, path";
+  private static final int FIELDS = 6;
+
+  public enum Reason {
+    TIMEOUT,
+    ERROR
+  }
+
+  private record Entry(String path, long size, long lastModifiedMillis, String extractor, Reason reason,
+      String detail) {
+    boolean matches(FileKey key) {
+      return size == key.size() && lastModifiedMillis == key.lastModifiedMillis();
+    }
+  }
+
+  // Keyed by extractor and path
+  private final SharedEntryFile<Entry> entryFile;
+
+  @Inject
+  public PoisonFileRegistry(PoisonFileConfiguration configuration) {
+    this.entryFile = new SharedEntryFile<>(configuration.getRegistryFile(), "poison file registry",
+        PoisonFileRegistry::readEntries, PoisonFileRegistry::writeEntries, PoisonFileRegistry::pathOf);
+  }
+
+  public boolean isEnabled() {
+    return entryFile.isEnabled();
+  }
+
+  /**
+   * Key of the current version of the file, null when the registry is disabled or the file attributes cannot be read.
+   */
+  public FileKey key(FileContext file) {
+    return entryFile.key(file);
+  }
+
+  /**
+   * Whether the extractor timed out or failed on this exact version of the file in a previous run.
+   */
+  public boolean isPoisoned(FileKey key, String extractor) {
+    if (key == null) {
+      return false;
+    }
+    Map<String, Entry> entries = entryFile.entries(key);
+    String entryKey = entryKey(extractor, key.path());
+    Entry entry = entries.get(entryKey);
+    if (entry == null) {
+      return false;
+    }
+    if (!entry.matches(key)) {
+      // The file changed, it is tried again
+      entries.remove(entryKey);
+      return false;
+    }
+    return true;
+  }
+
+  public void record(FileKey key, String extractor, Reason reason, String detail) {
+    if (key == null) {
+      return;
+    }
+    entryFile.entries(key).put(entryKey(extractor, key.path()),
+        new Entry(key.path(), key.size(), key.lastModifiedMillis(), extractor, reason, singleLine(detail)));
+  }
+
+  /**
+   * Writes the registry back to disk, merged with what other processes may have saved since it was loaded, and lists
+   * the poison files met by this run.
+   */
+  public void save() {
+    Map<String, Entry> saved = entryFile.save();
+    if (saved != null) {
+      report(saved);
+    }
+  }
+
+  private void report(Map<String, Entry> saved) {
+    List<Entry> met = saved.entrySet().stream()
+        .filter(mapEntry -> entryFile.isUsed(mapEntry.getKey()))
+        .map(Map.Entry::getValue)
+        .sorted(Comparator.comparing(Entry::path).thenComparing(Entry::extractor))
+        .toList();
+    if (met.isEmpty()) {
+      log.info("Poison file registry: no file timed out or failed, {} entries saved to {}", saved.size(),
+          entryFile.file());
+      return;
+    }
+    log.warn("Poison file registry: {} extractions timed out or failed, they were skipped for these files:",
+        met.size());
+    met.forEach(entry -> log.warn("- {}: {} {} ({})", entry.path(), entry.extractor(), entry.reason(),
+        entry.detail()));
+    log.warn("Poison file registry: {} entries saved to {}", saved.size(), entryFile.file());
+  }
+
+  private static Map<String, Entry> readEntries(Path registryFile) throws IOException {
+    Map<String, Entry> res = new HashMap<>();
+    if (!Files.exists(registryFile)) {
+      return res;
+    }
+    try (BufferedReader reader = Files.newBufferedReader(registryFile, StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        Entry entry = parse(line);
+        if (entry == null) {
+          log.warn("Ignoring invalid line of poison file registry {}: {}", registryFile, line);
+          continue;
+        }
+        res.put(entryKey(entry.extractor(), entry.path()), entry);
+      }
+    }
+    return res;
+  }
+
+  private static Entry parse(String line) {
+    // Path is last, it is the only field that may contain a tab
+    String[] fields = line.split("\t", FIELDS);
+    if (fields.length != FIELDS) {
+      return null;
+    }
+    try {
+      return new Entry(fields[5], Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2],
+          Reason.valueOf(fields[3]), fields[4]);
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private static void writeEntries(Path file, Map<String, Entry> toWrite) throws IOException {
+    try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      out.write(HEADER);
+      out.newLine();
+      for (Entry entry : toWrite.values()) {
+        out.write(entry.size() + "\t" + entry.lastModifiedMillis() + "\t" + entry.extractor() + "\t"
+            + entry.reason() + "\t" + entry.detail() + "\t" + entry.path());
+        out.newLine();
+      }
+    }
+  }
+
+  private static String entryKey(String extractor, String path) {
+    return extractor + "\t" + path;
+  }
+
+  private static String pathOf(String entryKey) {
+    // Extractor names have no tab
+    return entryKey.substring(entryKey.indexOf('\t') + 1);
+  }
+
+  /**
+   * Detail without the tabs and line breaks that would break the format.
+   */
+  private static String singleLine(String detail) {
+    return detail == null ? "" : detail.replaceAll("[\\t\\r\\n]+", " ");
+  }
+}
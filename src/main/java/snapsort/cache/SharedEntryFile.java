@@ -0,0 +1,166 @@
+package snapsort.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.files.FileContext;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Entries about files kept in a file that several snapsort processes may share, the storage of {@link ExtractionCache}
+ * and {@link PoisonFileRegistry}. How entries are read and written is up to them.
+ * <p>
+ * The file is loaded on first use and saved merged with what other processes saved since, both under a lock on a
+ * sibling {@code .lock} file. Entries of the files met by this run replace the ones on disk. The other entries are
+ * kept, except those of files that no longer exist in a folder this run met: only their files are checked, so that
+ * saving does not stat every file of a large cache.
+ */
+@Slf4j
+class SharedEntryFile<E> {
+
+  @FunctionalInterface
+  interface Reader<E> {
+    /**
+     * Entries of the file by key, empty when the file is not usable.
+     */
+    Map<String, E> read(Path file) throws IOException;
+  }
+
+  @FunctionalInterface
+  interface Writer<E> {
+    void write(Path file, Map<String, E> entries) throws IOException;
+  }
+
+  private final Path file;
+  private final String description;
+  private final Reader<E> reader;
+  private final Writer<E> writer;
+  // Path of the file an entry is about, from its key
+  private final Function<String, String> pathOfKey;
+  private final Map<String, E> entries = new ConcurrentHashMap<>();
+  // Paths of the files met by this run
+  private final Map<String, Boolean> usedPaths = new ConcurrentHashMap<>();
+  // Folders of the files met by this run
+  private final Map<Path, Boolean> usedFolders = new ConcurrentHashMap<>();
+  private volatile boolean loaded;
+
+  /**
+   * Entries stored in file, no storage when file is null. description names the file in logs.
+   */
+  SharedEntryFile(Path file, String description, Reader<E> reader, Writer<E> writer,
+      Function<String, String> pathOfKey) {
+    this.file = file;
+    this.description = description;
+    this.reader = reader;
+    this.writer = writer;
+    this.pathOfKey = pathOfKey;
+  }
+
+  boolean isEnabled() {
+    return file != null;
+  }
+
+  Path file() {
+    return file;
+  }
+
+  /**
+   * Key of the current version of the file, null when there is no storage or the file attributes cannot be read.
+   */
+  FileKey key(FileContext fileContext) {
+    if (!isEnabled()) {
+      return null;
+    }
+    try {
+      BasicFileAttributes attributes = fileContext.attributes();
+      return new FileKey(fileContext.path().toAbsolutePath().normalize().toString(), attributes.size(),
+          attributes.lastModifiedTime().toMillis());
+    } catch (IOException e) {
+      log.warn("Could not read attributes of file {}, not using the {} for it", fileContext, description, e);
+      return null;
+    }
+  }
+
+  /**
+   * Entries, loaded on first call, in which the file of the key is marked as met by this run.
+   */
+  Map<String, E> entries(FileKey key) {
+    ensureLoaded();
+    usedPaths.put(key.path(), Boolean.TRUE);
+    Path folder = Path.of(key.path()).getParent();
+    if (folder != null) {
+      usedFolders.put(folder, Boolean.TRUE);
+    }
+    return entries;
+  }
+
+  /**
+   * Writes the entries back to disk, merged with what other processes may have saved since they were loaded. Returns
+   * what was saved, null when nothing was.
+   */
+  synchronized Map<String, E> save() {
+    if (!isEnabled() || !loaded) {
+      return null;
+    }
+    try (FileChannel lockChannel = openLockChannel(); FileLock ignored = lockChannel.lock()) {
+      // Start from what is on disk now, other processes may have saved entries since this one was loaded
+      Map<String, E> merged = reader.read(file);
+      merged.keySet().removeIf(key -> isUsed(key) || isRemoved(pathOfKey.apply(key)));
+      // Entries of the files met by this run are the freshest, including the ones that were removed
+      entries.forEach((key, entry) -> {
+        if (isUsed(key)) {
+          merged.put(key, entry);
+        }
+      });
+      Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+      writer.write(tempFile, merged);
+      // Readers never see a half written file
+      Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      return merged;
+    } catch (IOException e) {
+      log.error("Could not save {} {}", description, file, e);
+      return null;
+    }
+  }
+
+  boolean isUsed(String key) {
+    return usedPaths.containsKey(pathOfKey.apply(key));
+  }
+
+  private boolean isRemoved(String path) {
+    Path folder = Path.of(path).getParent();
+    return folder != null && usedFolders.containsKey(folder) && Files.notExists(Path.of(path));
+  }
+
+  private void ensureLoaded() {
+    if (loaded) {
+      return;
+    }
+    synchronized (this) {
+      if (loaded) {
+        return;
+      }
+      try (FileChannel lockChannel = openLockChannel(); FileLock ignored = lockChannel.lock(0, Long.MAX_VALUE, true)) {
+        entries.putAll(reader.read(file));
+        log.info("Loaded {} entries from {} {}", entries.size(), description, file);
+      } catch (IOException e) {
+        log.error("Could not load {} {}, starting with no entries", description, file, e);
+      }
+      loaded = true;
+    }
+  }
+
+  private FileChannel openLockChannel() throws IOException {
+    Path lockFile = file.resolveSibling(file.getFileName() + ".lock");
+    return FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+}
@@ -0,0 +1,192 @@
+package snapsort.concurrent;
+
+import lombok.SneakyThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Helpers to run I/O bound work on virtual threads with a bounded concurrency.
+ */
+public class ConcurrencyUtil {
+  // Results computed ahead of the consumer of forEachMappedInOrder, per thread
+  private static final int PENDING_RESULTS_PER_THREAD = 64;
+
+  /**
+   * Applies mapper to each item, running at most parallelism mappers at once.
+   * The result has the same order as items whatever the parallelism, null results are kept.
+   */
+  public static <T, R> List<R> mapOrdered(List<T> items, int parallelism, Function<? super T, ? extends R> mapper) {
+    List<R> res = new ArrayList<>(items.size());
+    if (parallelism <= 1 || items.size() <= 1) {
+      items.forEach(item -> res.add(mapper.apply(item)));
+      return res;
+    }
+    // Bounds the number of submitted but unfinished tasks so that millions of files do not mean millions of threads
+    Semaphore permits = new Semaphore(parallelism);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      List<Future<R>> futures = new ArrayList<>(items.size());
+      for (T item : items) {
+        permits.acquireUninterruptibly();
+        futures.add(executor.submit(() -> {
+          try {
+            return mapper.apply(item);
+          } finally {
+            permits.release();
+          }
+        }));
+      }
+      for (Future<R> future : futures) {
+        res.add(getResult(future));
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Runs action on each item given by producer as soon as it is given, running at most parallelism actions at once.
+   * producer may give items from several threads, it is slowed down while parallelism actions are running. Nothing is
+   * kept per item: memory does not grow with the number of items. With a parallelism of 1, actions are run by the
+   * producer threads instead of a thread per item.
+   * <p>
+   * Once an action failed, giving an item throws so that the producer stops, and the first exception thrown by action
+   * is rethrown once the running actions are done.
+   */
+  @SneakyThrows
+  public static <T> void forEachAsProduced(Consumer<Consumer<T>> producer, int parallelism,
+      Consumer<? super T> action) {
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    Semaphore permits = new Semaphore(Math.max(parallelism, 1));
+    try {
+      if (parallelism <= 1) {
+        producer.accept(item -> {
+          acquireUnlessFailed(permits, failure);
+          try {
+            runRecordingFailure(action, item, failure);
+          } finally {
+            permits.release();
+          }
+          if (failure.get() != null) {
+            throw new ProducerCancelledException();
+          }
+        });
+      } else {
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+          producer.accept(item -> {
+            acquireUnlessFailed(permits, failure);
+            executor.execute(() -> {
+              try {
+                runRecordingFailure(action, item, failure);
+              } finally {
+                permits.release();
+              }
+            });
+          });
+        }
+      }
+    } catch (RuntimeException e) {
+      if (!isProducerCancelled(e)) {
+        throw e;
+      }
+    }
+    if (failure.get() != null) {
+      throw failure.get();
+    }
+  }
+
+  /**
+   * Thrown to the producer of {@link #forEachAsProduced} once an action failed, so that it gives no more items.
+   */
+  private static class ProducerCancelledException extends RuntimeException {
+    ProducerCancelledException() {
+      super("An action failed, no more items are accepted", null, false, false);
+    }
+  }
+
+  private static void acquireUnlessFailed(Semaphore permits, AtomicReference<Throwable> failure) {
+    permits.acquireUninterruptibly();
+    // Checked with a permit: a failed action records its failure before releasing its permit
+    if (failure.get() != null) {
+      permits.release();
+      throw new ProducerCancelledException();
+    }
+  }
+
+  private static <T> void runRecordingFailure(Consumer<? super T> action, T item, AtomicReference<Throwable> failure) {
+    try {
+      action.accept(item);
+    } catch (Throwable e) {
+      failure.compareAndSet(null, e);
+    }
+  }
+
+  /**
+   * Whether the producer stopped because of a failed action, possibly wrapped by the threads of the producer.
+   */
+  private static boolean isProducerCancelled(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ProducerCancelledException) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Applies mapper to each item like {@link #mapOrdered}, handing each result with the index of its item to consumer as
+   * soon as it and all the results before it are available. consumer is called on the calling thread, in the order
+   * of items. Mapping runs ahead of consumer by a bounded number of items.
+   */
+  @SneakyThrows
+  public static <T, R> void forEachMappedInOrder(List<T> items, int parallelism,
+      Function<? super T, ? extends R> mapper, ObjIntConsumer<? super R> consumer) {
+    int window = Math.max(parallelism, 1);
+    Semaphore permits = new Semaphore(window);
+    BlockingQueue<Future<R>> pending = new ArrayBlockingQueue<>(window * PENDING_RESULTS_PER_THREAD);
+    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      executor.submit(() -> {
+        for (T item : items) {
+          permits.acquire();
+          pending.put(executor.submit(() -> {
+            try {
+              return mapper.apply(item);
+            } finally {
+              permits.release();
+            }
+          }));
+        }
+        return null;
+      });
+      try {
+        for (int i = 0; i < items.size(); i++) {
+          consumer.accept(getResult(pending.take()), i);
+        }
+      } catch (Throwable e) {
+        // Stops the submission and the mappers still running, close would otherwise wait for all the items
+        executor.shutdownNow();
+        throw e;
+      }
+    }
+  }
+
+  @SneakyThrows
+  private static <R> R getResult(Future<R> future) {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      // Same exception as if the mapper had been called on the current thread
+      throw e.getCause();
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package snapsort.extractor;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+import snapsort.TimeStampWithSource;
+import snapsort.extractor.chunk.PngDateReader;
+import snapsort.extractor.chunk.RiffDateReader;
+import snapsort.files.FileContext;
+import snapsort.files.FileTypeUtil;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Extracts dates from the metadata chunks of PNG files ({@link PngDateReader}), WebP images and AVI videos
+ * ({@link RiffDateReader}). Only the chunk headers and the chunks holding dates are read.
+ */
+@Slf4j
+@ApplicationScoped
+public class ChunkDateExtractor implements DateExtractor {
+
+  @Override
+  public List<TimeStampWithSource> extractDates(FileContext file) {
+    String extension = file.lowercaseExtension();
+    boolean png = FileTypeUtil.isPngExtension(extension);
+    if (!png && !FileTypeUtil.isRiffExtension(extension)) {
+      log.debug("File {} is not a PNG, WebP or AVI file", file);
+      return Collections.emptyList();
+    }
+    log.debug("Extracting metadata chunks from file {}", file);
+    try {
+      List<TimeStampWithSource> res = png ? PngDateReader.readDates(file) : RiffDateReader.readDates(file);
+      if (res == null) {
+        log.warn("File {} does not start with a {} signature", file, png ? "PNG" : "RIFF");
+        return Collections.emptyList();
+      }
+      if (res.isEmpty()) {
+        log.warn("No usable date found in metadata chunks of file {}", file);
+      }
+      return res;
+    } catch (IOException e) {
+      log.error("Error reading metadata chunks from file {}", file, e);
+      return Collections.emptyList();
+    }
+  }
+}
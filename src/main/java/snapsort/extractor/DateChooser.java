@@ -2,65 +2,173 @@ package snapsort.extractor;
 
 import snapsort.DateChooserConfiguration;
 import snapsort.DateRange;
+import snapsort.FileListerConfiguration;
 import snapsort.TimeStampWithSource;
+import snapsort.cache.ExtractionCache;
+import snapsort.cache.FileKey;
+import snapsort.cache.PoisonFileRegistry;
 import snapsort.extractor.filename.FinalFileNameDateExtractor;
 import snapsort.extractor.filename.FromCameraFileNameDateExtractor;
+import snapsort.files.FileContext;
+import jakarta.annotation.PreDestroy;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.collections4.CollectionUtils;
 
-import java.nio.file.Path;
+import java.io.IOException;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Chooses the date of a file from the first extractor returning one. The extractors share the {@link FileContext} of
+ * the file, so its attributes and header are read once whatever the number of extractors.
+ * Holds no mutable state, so it can be called concurrently by the parallel extraction of {@link snapsort.files.FileLister}.
+ * <p>
+ * With an extraction timeout, each extractor runs on a thread of a pool sized to the extraction threads and is
+ * abandoned when it takes longer, the next extractor is then tried. An abandoned extractor keeps its thread until it
+ * ends, the few spare threads of the pool absorb them; once they are all stuck, extractions wait for a thread and may
+ * time out. Extractors that timed out or threw on a file are recorded in the {@link PoisonFileRegistry} and skipped for
+ * that file by next runs. The date chosen without them is not stored in the {@link ExtractionCache}, it would be reused
+ * even once the file is no longer in the registry. Without a timeout, extractors run on the calling thread and an
+ * exception thrown by one of them is propagated.
+ */
 @Slf4j
 @ApplicationScoped
 public class DateChooser {
   private static final String CLIENT_PROXY_SUFFIX = "_ClientProxy";
+  // Threads of the extraction pool beyond the extraction threads, taken by abandoned extractors still running
+  private static final int ABANDONED_EXTRACTION_THREADS = 4;
+
+  /**
+   * Date chosen for a file, complete when no extractor was skipped, abandoned or failed on it.
+   */
+  private record Extraction(TimeStampWithSource timestamp, boolean complete) {
+  }
 
   private final List<DateExtractor> extractors;
   private final DateRange dateRange;
   private final MedianDateSelector medianDateSelector;
+  private final ExtractionCache extractionCache;
+  private final PoisonFileRegistry poisonFileRegistry;
   private final boolean readFilesystemDateModified;
+  // Null when there is no timeout
+  private final Duration extractionTimeout;
+  // Platform threads: an abandoned extractor stuck in a loop must not hold a carrier of the virtual threads
+  private final ExecutorService extractionExecutor;
 
   @Inject
   public DateChooser(FinalFileNameDateExtractor finalFileNameDateExtractor,
       ExifDateExtractor exifDateExtractor,
+      MatroskaDateExtractor matroskaDateExtractor,
+      ChunkDateExtractor chunkDateExtractor,
       FromCameraFileNameDateExtractor fromCameraFileNameDateExtractor,
       FileDateExtractor fileDateExtractor,
       DateRange dateRange,
       DateChooserConfiguration dateChooserConfiguration,
-      MedianDateSelector medianDateSelector) {
+      FileListerConfiguration fileListerConfiguration,
+      MedianDateSelector medianDateSelector,
+      ExtractionCache extractionCache,
+      PoisonFileRegistry poisonFileRegistry) {
     // List is ordered, if one extractor finds something we take it and ignore what the other have to say
-    this.extractors = new ArrayList<>(List.of(
+    List<DateExtractor> orderedExtractors = new ArrayList<>(List.of(
         // If file is in final name format, it is the most reliable source,
         // means it has already been processed before or renamed by user and we trust it
         finalFileNameDateExtractor,
         // exif is the second most reliable source
         exifDateExtractor,
+        // metadata of videos and other images, as reliable as exif (they never apply to the same files)
+        matroskaDateExtractor,
+        chunkDateExtractor,
         // camera file name is the third most reliable source
         fromCameraFileNameDateExtractor
     ));
     if (dateChooserConfiguration.isReadFilesystemDateModified()) {
       // last resort, file date, murky but better than nothing
-      this.extractors.add(fileDateExtractor);
+      orderedExtractors.add(fileDateExtractor);
     }
+    this.extractors = List.copyOf(orderedExtractors);
     this.readFilesystemDateModified = dateChooserConfiguration.isReadFilesystemDateModified();
     this.dateRange = dateRange;
     this.medianDateSelector = medianDateSelector;
+    this.extractionCache = extractionCache;
+    this.poisonFileRegistry = poisonFileRegistry;
+    int timeoutSeconds = dateChooserConfiguration.getExtractionTimeoutSeconds();
+    this.extractionTimeout = timeoutSeconds > 0 ? Duration.ofSeconds(timeoutSeconds) : null;
+    this.extractionExecutor = extractionTimeout == null ? null
+        : Executors.newFixedThreadPool(fileListerConfiguration.getExtractionThreads() + ABANDONED_EXTRACTION_THREADS,
+            Thread.ofPlatform().daemon().name("extraction-", 0).factory());
+  }
+
+  @PreDestroy
+  void shutdown() {
+    if (extractionExecutor != null) {
+      // Interrupts the abandoned extractors still running
+      extractionExecutor.shutdownNow();
+    }
+  }
+
+  public TimeStampWithSource computeTimestamp(FileContext file) {
+    FileKey cacheKey = extractionCache.key(file);
+    ExtractionCache.CachedTimestamp cached = extractionCache.lookup(cacheKey);
+    if (cached != null) {
+      log.info("Using cached timestamp {} for file {}", cached.timestamp(), file);
+      return cached.timestamp();
+    }
+    Extraction extraction = extractTimestamp(file);
+    if (extraction.complete()) {
+      extractionCache.store(cacheKey, extraction.timestamp());
+    }
+    return extraction.timestamp();
   }
 
-  public TimeStampWithSource computeTimestamp(Path file) {
+  private Extraction extractTimestamp(FileContext file) {
     log.info("Computing timestamp for file {}", file);
+    boolean complete = true;
     String extractorUsed = null;
     List<TimeStampWithSource> extractedDates = Collections.emptyList();
+    FileKey poisonKey = poisonFileRegistry.key(file);
+    FileContext context = file;
+    // Read before any extractor runs, a context replacing one still used by an abandoned extractor reuses them
+    BasicFileAttributes attributes = extractionTimeout == null ? null : attributesOf(file);
     for (DateExtractor extractor : extractors) {
-      List<TimeStampWithSource> candidateDates = extractor.extractDates(file);
+      String extractorName = extractorDisplayName(extractor);
+      if (poisonFileRegistry.isPoisoned(poisonKey, extractorName)) {
+        log.warn("Skipping {} for file {}, it timed out or failed on it in a previous run", extractorName, file);
+        complete = false;
+        continue;
+      }
+      List<TimeStampWithSource> candidateDates;
+      try {
+        candidateDates = extract(extractor, context);
+      } catch (TimeoutException e) {
+        log.error("{} took more than {} on file {}, abandoning it", extractorName, extractionTimeout, file);
+        poisonFileRegistry.record(poisonKey, extractorName, PoisonFileRegistry.Reason.TIMEOUT,
+            "more than " + extractionTimeout);
+        // The abandoned extractor may still be using the context
+        context = new FileContext(file.path(), attributes);
+        complete = false;
+        continue;
+      } catch (ExecutionException e) {
+        log.error("{} failed on file {}", extractorName, file, e.getCause());
+        poisonFileRegistry.record(poisonKey, extractorName, PoisonFileRegistry.Reason.ERROR,
+            e.getCause().toString());
+        complete = false;
+        continue;
+      }
       if (CollectionUtils.isNotEmpty(candidateDates)) {
-        extractorUsed = extractorDisplayName(extractor);
+        extractorUsed = extractorName;
         extractedDates = candidateDates;
         // Once an extractor returns dates, we ignore later extractors.
         break;
@@ -76,7 +184,39 @@ public class DateChooser {
       log.error("Could not find a date for file {}. rootCause={}", file,
           determineRootCause(extractorUsed, extractedDates, dates));
     }
-    return result;
+    return new Extraction(result, complete);
+  }
+
+  /**
+   * Dates found by the extractor, on a thread of the extraction executor when there is a timeout. Exceptions thrown by
+   * the extractor are then wrapped in an ExecutionException, without timeout they are propagated.
+   */
+  @SneakyThrows(InterruptedException.class)
+  private List<TimeStampWithSource> extract(DateExtractor extractor, FileContext file)
+      throws ExecutionException, TimeoutException {
+    if (extractionExecutor == null) {
+      return extractor.extractDates(file);
+    }
+    Future<List<TimeStampWithSource>> extraction = extractionExecutor.submit(() -> extractor.extractDates(file));
+    try {
+      return extraction.get(extractionTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException | InterruptedException e) {
+      // Only stops extractors checking for interruption, the others run until they end and their result is ignored
+      extraction.cancel(true);
+      throw e;
+    }
+  }
+
+  /**
+   * Attributes of the file, usually the ones read while walking its folder. Null when they cannot be read, a context
+   * created with them then tries again.
+   */
+  private static BasicFileAttributes attributesOf(FileContext file) {
+    try {
+      return file.attributes();
+    } catch (IOException e) {
+      return null;
+    }
   }
 
   private String determineRootCause(String extractorUsed, List<TimeStampWithSource> extractedDates,
@@ -108,7 +248,7 @@ public class DateChooser {
     return simpleName;
   }
 
-  private boolean isInRange(Path file, TimeStampWithSource date) {
+  private boolean isInRange(FileContext file, TimeStampWithSource date) {
     LocalDateTime timestamp = date.getTime();
     boolean inRange = dateRange.isInRange(timestamp);
     if (!inRange) {
@@ -1,10 +1,10 @@
 package snapsort.extractor;
 
 import snapsort.TimeStampWithSource;
+import snapsort.files.FileContext;
 
-import java.nio.file.Path;
 import java.util.List;
 
 public interface DateExtractor {
-  List<TimeStampWithSource> extractDates(Path file);
+  List<TimeStampWithSource> extractDates(FileContext file);
 }
@@ -0,0 +1,32 @@
+package snapsort.extractor;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+
+/**
+ * Builds dates from fields scanned by hand, without going through a {@link java.time.format.DateTimeFormatter}.
+ */
+public class DateTimeFields {
+
+  /**
+   * Resolves the fields like the default SMART resolver of a {@link java.time.format.DateTimeFormatter} pattern does:
+   * a day of month up to 31 is reduced to the last day of the month and 24:00:00 is midnight of the next day.
+   * Returns null instead of throwing when the fields are out of range.
+   */
+  public static LocalDateTime resolve(int year, int month, int day, int hour, int minute, int second) {
+    if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31
+        || minute < 0 || minute > 59 || second < 0 || second > 59) {
+      return null;
+    }
+    boolean endOfDay = hour == 24 && minute == 0 && second == 0;
+    if (hour < 0 || (hour > 23 && !endOfDay)) {
+      return null;
+    }
+    int dayOfMonth = Math.min(day, Month.of(month).length(Year.isLeap(year)));
+    if (endOfDay) {
+      return LocalDateTime.of(year, month, dayOfMonth, 0, 0).plusDays(1);
+    }
+    return LocalDateTime.of(year, month, dayOfMonth, hour, minute, second);
+  }
+}
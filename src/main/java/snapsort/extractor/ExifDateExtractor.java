@@ -2,6 +2,9 @@ package snapsort.extractor;
 
 import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
+import snapsort.extractor.exif.JpegExifReader;
+import snapsort.extractor.exif.TiffFileReader;
+import snapsort.files.FileContext;
 import snapsort.files.FileTypeUtil;
 import jakarta.enterprise.context.ApplicationScoped;
 import lombok.SneakyThrows;
@@ -29,6 +32,11 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Extracts dates from the EXIF data of JPEG files, TIFF files and camera RAW files built on TIFF.
+ * The EXIF segment of JPEG files is read by {@link JpegExifReader}, commons-imaging is only used for files it does not
+ * understand. TIFF and RAW files are read by {@link TiffFileReader}, they are never handed to a full parser.
+ */
 @Slf4j
 @ApplicationScoped
 public class ExifDateExtractor implements DateExtractor {
@@ -36,21 +44,24 @@ public class ExifDateExtractor implements DateExtractor {
   private static final DateTimeFormatter GPS_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy:MM:dd");
 
   @Override
-  public List<TimeStampWithSource> extractDates(Path file) {
-    if (!FileTypeUtil.isJpegFile(file)) {
-      log.debug("File {} is not a jpeg file", file);
+  public List<TimeStampWithSource> extractDates(FileContext file) {
+    String extension = file.lowercaseExtension();
+    boolean jpeg = FileTypeUtil.isJpegExtension(extension);
+    if (!jpeg && !FileTypeUtil.isTiffExtension(extension)) {
+      log.debug("File {} is not a jpeg or tiff file", file);
       return Collections.emptyList();
     }
     log.debug("Extracting exif data from file {}", file);
     try {
-      ImageMetadata metadata = extractExif(file);
-
-      List<TimeStampWithSource> res = Optional.ofNullable(metadata)
-          .filter(JpegImageMetadata.class::isInstance)
-          .map(JpegImageMetadata.class::cast)
-          .map(JpegImageMetadata::getExif)
-          .map(ExifDateExtractor::extractDate)
-          .orElseGet(Collections::emptyList);
+      List<TimeStampWithSource> res = jpeg ? JpegExifReader.readDates(file) : TiffFileReader.readDates(file);
+      if (res == null && !jpeg) {
+        log.warn("File {} does not have a valid TIFF structure", file);
+        return Collections.emptyList();
+      }
+      if (res == null) {
+        log.debug("Exif header of file {} not understood, parsing its whole metadata", file);
+        res = extractDatesWithImaging(file.path());
+      }
       if (res.isEmpty()) {
         log.warn("No usable date found in exif data of file {}", file);
       }
@@ -61,9 +72,21 @@ public class ExifDateExtractor implements DateExtractor {
     }
   }
 
+  static List<TimeStampWithSource> extractDatesWithImaging(Path file) throws IOException {
+    ImageMetadata metadata = extractExif(file);
+    return Optional.ofNullable(metadata)
+        .filter(JpegImageMetadata.class::isInstance)
+        .map(JpegImageMetadata.class::cast)
+        .map(JpegImageMetadata::getExif)
+        .map(ExifDateExtractor::extractDate)
+        .orElseGet(Collections::emptyList);
+  }
+
   @SneakyThrows
   private static List<TimeStampWithSource> extractDate(TiffImageMetadata tiffImageMetadata) {
-    tiffImageMetadata.getAllFields().forEach(f -> log.debug("- Field: {}", f));
+    if (log.isDebugEnabled()) {
+      tiffImageMetadata.getAllFields().forEach(f -> log.debug("- Field: {}", f));
+    }
     TiffField gpsTimestampField = tiffImageMetadata.findField(GpsTagConstants.GPS_TAG_GPS_TIME_STAMP);
     TiffField gpsDateField = tiffImageMetadata.findField(GpsTagConstants.GPS_TAG_GPS_DATE_STAMP);
     TiffField dateTimeField = tiffImageMetadata.findField(TiffTagConstants.TIFF_TAG_DATE_TIME);
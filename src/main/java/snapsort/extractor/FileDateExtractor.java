@@ -2,12 +2,11 @@ package snapsort.extractor;
 
 import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
+import snapsort.files.FileContext;
 import jakarta.enterprise.context.ApplicationScoped;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.List;
@@ -17,9 +16,9 @@ import java.util.List;
 public class FileDateExtractor implements DateExtractor {
   @SneakyThrows
   @Override
-  public List<TimeStampWithSource> extractDates(Path file) {
+  public List<TimeStampWithSource> extractDates(FileContext file) {
     LocalDateTime dateTime =
-        Files.getLastModifiedTime(file).toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
+        file.attributes().lastModifiedTime().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime();
     return List.of(new TimeStampWithSource(dateTime, TimeStampSource.FILE_LAST_MODIFIED));
   }
 }
@@ -0,0 +1,44 @@
+package snapsort.extractor;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import lombok.extern.slf4j.Slf4j;
+import snapsort.TimeStampWithSource;
+import snapsort.extractor.matroska.MatroskaDateReader;
+import snapsort.files.FileContext;
+import snapsort.files.FileTypeUtil;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Extracts the creation date of MKV and WebM videos from their segment information, read by
+ * {@link MatroskaDateReader}. The clusters holding the media data are never read.
+ */
+@Slf4j
+@ApplicationScoped
+public class MatroskaDateExtractor implements DateExtractor {
+
+  @Override
+  public List<TimeStampWithSource> extractDates(FileContext file) {
+    if (!FileTypeUtil.isMatroskaExtension(file.lowercaseExtension())) {
+      log.debug("File {} is not a Matroska file", file);
+      return Collections.emptyList();
+    }
+    log.debug("Extracting segment information from file {}", file);
+    try {
+      List<TimeStampWithSource> res = MatroskaDateReader.readDates(file);
+      if (res == null) {
+        log.warn("File {} does not start with an EBML header and a segment", file);
+        return Collections.emptyList();
+      }
+      if (res.isEmpty()) {
+        log.warn("No usable date found in segment information of file {}", file);
+      }
+      return res;
+    } catch (IOException e) {
+      log.error("Error reading segment information from file {}", file, e);
+      return Collections.emptyList();
+    }
+  }
+}
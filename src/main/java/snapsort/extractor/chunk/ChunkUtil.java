@@ -0,0 +1,62 @@
+package snapsort.extractor.chunk;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.files.PositionedReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads shared by the chunk walkers.
+ */
+@Slf4j
+class ChunkUtil {
+  // Bounds the walk of damaged files made of tiny chunks
+  static final int MAX_CHUNKS = 100_000;
+  // Chunks read whole (EXIF) are small, larger ones are not understood
+  private static final int MAX_READ_SIZE = 4 * 1024 * 1024;
+  private static final byte[] TIFF_LITTLE_ENDIAN = { 'I', 'I', 42, 0 };
+  private static final byte[] TIFF_BIG_ENDIAN = { 'M', 'M', 0, 42 };
+
+  static int fourCc(String type) {
+    return ByteBuffer.wrap(type.getBytes(StandardCharsets.US_ASCII)).getInt();
+  }
+
+  static boolean startsWith(ByteBuffer buffer, int position, byte[] prefix) {
+    if (position < 0 || position + prefix.length > buffer.limit()) {
+      return false;
+    }
+    for (int i = 0; i < prefix.length; i++) {
+      if (buffer.get(position + i) != prefix[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * length bytes at position, null when they are too many or the file is truncated.
+   */
+  static ByteBuffer data(PositionedReader reader, long position, long length) throws IOException {
+    if (length > MAX_READ_SIZE) {
+      log.warn("Not reading chunk of file {}: {} bytes", reader.path(), length);
+      return null;
+    }
+    ByteBuffer res = reader.read(position, (int) length);
+    return res.limit() < length ? null : res;
+  }
+
+  /**
+   * TIFF structure starting in the first maxOffset bytes of data, after whatever identifier the writer put in front
+   * of it ("Exif\0\0", "AVIF"...). Null when there is none.
+   */
+  static ByteBuffer tiff(ByteBuffer data, int maxOffset) {
+    for (int i = 0; i <= maxOffset; i++) {
+      if (startsWith(data, i, TIFF_LITTLE_ENDIAN) || startsWith(data, i, TIFF_BIG_ENDIAN)) {
+        return data.slice(i, data.limit() - i);
+      }
+    }
+    return null;
+  }
+}
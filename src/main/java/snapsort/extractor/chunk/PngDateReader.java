@@ -0,0 +1,120 @@
+package snapsort.extractor.chunk;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.extractor.DateTimeFields;
+import snapsort.extractor.exif.TiffDateReader;
+import snapsort.files.FileContext;
+import snapsort.files.PositionedReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Finds the dates of a PNG file by jumping from chunk header to chunk header, only reading the chunks holding dates:
+ * eXIf (an EXIF block, handed to {@link TiffDateReader}), the "Creation Time" tEXt and tIME (last modification, in
+ * UTC). The image data chunks are skipped without being read.
+ */
+@Slf4j
+public class PngDateReader {
+  private static final byte[] SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+  private static final int EXIF = ChunkUtil.fourCc("eXIf");
+  private static final int TEXT = ChunkUtil.fourCc("tEXt");
+  private static final int TIME = ChunkUtil.fourCc("tIME");
+  private static final int IEND = ChunkUtil.fourCc("IEND");
+  private static final String CREATION_TIME_KEYWORD = "Creation Time";
+
+  // Length and type in front of the data, CRC after it
+  private static final int CHUNK_HEADER_SIZE = 8;
+  private static final int CRC_SIZE = 4;
+  private static final int TIME_SIZE = 7;
+  // Text chunks holding a date are short, longer ones hold something else
+  private static final int MAX_TEXT_SIZE = 1024;
+
+  /**
+   * Dates of the file, from the most reliable chunk found: eXIf, then "Creation Time", then tIME. Empty when it has
+   * none, null when the file is not a PNG file.
+   */
+  public static List<TimeStampWithSource> readDates(FileContext file) throws IOException {
+    ByteBuffer header = file.header();
+    if (!ChunkUtil.startsWith(header, 0, SIGNATURE)) {
+      return null;
+    }
+    ZoneId zone = ZoneId.systemDefault();
+    List<TimeStampWithSource> exifDates = List.of();
+    TimeStampWithSource creationTime = null;
+    TimeStampWithSource modificationTime = null;
+    try (PositionedReader reader = new PositionedReader(file)) {
+      long position = SIGNATURE.length;
+      for (int i = 0; i < ChunkUtil.MAX_CHUNKS && position + CHUNK_HEADER_SIZE <= reader.size(); i++) {
+        ByteBuffer chunkHeader = reader.read(position, CHUNK_HEADER_SIZE);
+        long length = Integer.toUnsignedLong(chunkHeader.getInt(0));
+        int type = chunkHeader.getInt(4);
+        long dataStart = position + CHUNK_HEADER_SIZE;
+        if (type == IEND) {
+          break;
+        }
+        if (type == EXIF && exifDates.isEmpty()) {
+          ByteBuffer tiff = ChunkUtil.data(reader, dataStart, length);
+          exifDates = tiff == null ? null : TiffDateReader.readDates(tiff);
+          if (exifDates == null) {
+            log.warn("Failed to read eXIf chunk of file {}: invalid TIFF structure", reader.path());
+            exifDates = List.of();
+          }
+        } else if (type == TEXT && creationTime == null && length <= MAX_TEXT_SIZE) {
+          creationTime = readCreationTime(reader, dataStart, (int) length, zone);
+        } else if (type == TIME && length == TIME_SIZE) {
+          modificationTime = readModificationTime(reader.read(dataStart, TIME_SIZE), zone);
+        }
+        position = dataStart + length + CRC_SIZE;
+      }
+    }
+    if (!exifDates.isEmpty()) {
+      return exifDates;
+    }
+    if (creationTime != null) {
+      return List.of(creationTime);
+    }
+    return modificationTime == null ? List.of() : List.of(modificationTime);
+  }
+
+  /**
+   * Date of a tEXt chunk with the "Creation Time" keyword, null for other keywords or unknown formats.
+   */
+  private static TimeStampWithSource readCreationTime(PositionedReader reader, long position, int length, ZoneId zone)
+      throws IOException {
+    ByteBuffer data = reader.read(position, length);
+    // Latin-1 keyword and text, separated by a NUL
+    String text = StandardCharsets.ISO_8859_1.decode(data).toString();
+    int separator = text.indexOf('\0');
+    if (separator < 0 || !CREATION_TIME_KEYWORD.equals(text.substring(0, separator))) {
+      return null;
+    }
+    LocalDateTime time = TextDateParser.parse(text.substring(separator + 1), zone);
+    if (time == null) {
+      log.warn("Failed to parse creation time of file {}: {}", reader.path(), text.substring(separator + 1));
+      return null;
+    }
+    return new TimeStampWithSource(time, TimeStampSource.IMAGE_CREATION_TIME);
+  }
+
+  private static TimeStampWithSource readModificationTime(ByteBuffer data, ZoneId zone) {
+    if (data.limit() < TIME_SIZE) {
+      return null;
+    }
+    // Second is 60 for a leap second
+    LocalDateTime utc = DateTimeFields.resolve(Short.toUnsignedInt(data.getShort(0)), data.get(2), data.get(3),
+        data.get(4), data.get(5), Math.min(data.get(6), 59));
+    if (utc == null) {
+      return null;
+    }
+    LocalDateTime time = utc.atOffset(ZoneOffset.UTC).atZoneSameInstant(zone).toLocalDateTime();
+    return new TimeStampWithSource(time, TimeStampSource.IMAGE_MODIFICATION_TIME);
+  }
+}
@@ -0,0 +1,151 @@
+package snapsort.extractor.chunk;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.extractor.exif.TiffDateReader;
+import snapsort.files.FileContext;
+import snapsort.files.PositionedReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * Finds the dates of a RIFF file by jumping from chunk header to chunk header, only reading the chunks holding dates.
+ * In WebP files, the EXIF chunk is handed to {@link TiffDateReader}. In AVI files, the header lists are walked for the
+ * stream data (strd) of cameras writing an EXIF block there, and for the IDIT chunk holding the recording date as
+ * text. The movi list holding the frames is skipped without being read.
+ */
+@Slf4j
+public class RiffDateReader {
+  private static final int RIFF = ChunkUtil.fourCc("RIFF");
+  private static final int WEBP = ChunkUtil.fourCc("WEBP");
+  private static final int AVI = ChunkUtil.fourCc("AVI ");
+  private static final int LIST = ChunkUtil.fourCc("LIST");
+  private static final int MOVI = ChunkUtil.fourCc("movi");
+  private static final int EXIF = ChunkUtil.fourCc("EXIF");
+  private static final int IDIT = ChunkUtil.fourCc("IDIT");
+  private static final int STRD = ChunkUtil.fourCc("strd");
+
+  // Type and little endian size in front of the data, padded to an even size
+  private static final int CHUNK_HEADER_SIZE = 8;
+  // RIFF header and form type
+  private static final int FILE_HEADER_SIZE = 12;
+  // hdrl, then strl in it
+  private static final int MAX_LIST_DEPTH = 2;
+  // Identifiers written in front of the TIFF structure by cameras ("AVIF" and a few bytes, "Exif\0\0")
+  private static final int MAX_TIFF_OFFSET = 32;
+  private static final int MAX_TEXT_SIZE = 1024;
+
+  /**
+   * Dates found while walking an AVI file, EXIF dates preferred over IDIT.
+   */
+  private static class AviDates {
+    private List<TimeStampWithSource> exifDates = List.of();
+    private TimeStampWithSource recordingDate;
+  }
+
+  /**
+   * Dates of a WebP or AVI file, empty when it has none, null when the file is neither.
+   */
+  public static List<TimeStampWithSource> readDates(FileContext file) throws IOException {
+    ByteBuffer header = file.header();
+    if (header.limit() < FILE_HEADER_SIZE || header.getInt(0) != RIFF) {
+      return null;
+    }
+    int formType = header.getInt(8);
+    if (formType != WEBP && formType != AVI) {
+      return null;
+    }
+    try (PositionedReader reader = new PositionedReader(file)) {
+      long end = Math.min(reader.size(), CHUNK_HEADER_SIZE + size(header, 0));
+      if (formType == WEBP) {
+        return readWebpDates(reader, end);
+      }
+      AviDates dates = new AviDates();
+      walkAvi(reader, FILE_HEADER_SIZE, end, 0, dates);
+      if (!dates.exifDates.isEmpty()) {
+        return dates.exifDates;
+      }
+      return dates.recordingDate == null ? List.of() : List.of(dates.recordingDate);
+    }
+  }
+
+  private static List<TimeStampWithSource> readWebpDates(PositionedReader reader, long end) throws IOException {
+    long position = FILE_HEADER_SIZE;
+    for (int i = 0; i < ChunkUtil.MAX_CHUNKS && position + CHUNK_HEADER_SIZE <= end; i++) {
+      ByteBuffer chunkHeader = reader.read(position, CHUNK_HEADER_SIZE);
+      long size = size(chunkHeader, 0);
+      if (chunkHeader.getInt(0) == EXIF) {
+        return readExif(reader, position + CHUNK_HEADER_SIZE, size);
+      }
+      position = next(position, size);
+    }
+    return List.of();
+  }
+
+  /**
+   * Walks the chunks from start to end, going into the lists but movi.
+   */
+  private static void walkAvi(PositionedReader reader, long start, long end, int depth, AviDates dates)
+      throws IOException {
+    long position = start;
+    for (int i = 0; i < ChunkUtil.MAX_CHUNKS && position + CHUNK_HEADER_SIZE <= end; i++) {
+      ByteBuffer chunkHeader = reader.read(position, CHUNK_HEADER_SIZE + 4);
+      int type = chunkHeader.getInt(0);
+      long size = size(chunkHeader, 0);
+      long dataStart = position + CHUNK_HEADER_SIZE;
+      long chunkEnd = Math.min(dataStart + size, end);
+      if (type == LIST && depth < MAX_LIST_DEPTH && chunkHeader.limit() >= CHUNK_HEADER_SIZE + 4
+          && chunkHeader.getInt(CHUNK_HEADER_SIZE) != MOVI) {
+        walkAvi(reader, dataStart + 4, chunkEnd, depth + 1, dates);
+      } else if (type == STRD && dates.exifDates.isEmpty()) {
+        dates.exifDates = readExif(reader, dataStart, size);
+      } else if (type == IDIT && dates.recordingDate == null && size <= MAX_TEXT_SIZE) {
+        dates.recordingDate = readRecordingDate(reader, dataStart, (int) size);
+      }
+      position = next(position, size);
+    }
+  }
+
+  /**
+   * Dates of the TIFF structure in the chunk data, after the identifier some writers put in front of it.
+   */
+  private static List<TimeStampWithSource> readExif(PositionedReader reader, long position, long size)
+      throws IOException {
+    ByteBuffer data = ChunkUtil.data(reader, position, size);
+    ByteBuffer tiff = data == null ? null : ChunkUtil.tiff(data, MAX_TIFF_OFFSET);
+    List<TimeStampWithSource> res = tiff == null ? null : TiffDateReader.readDates(tiff);
+    if (res == null) {
+      log.debug("No TIFF structure in the EXIF chunk of file {}", reader.path());
+      return List.of();
+    }
+    return res;
+  }
+
+  private static TimeStampWithSource readRecordingDate(PositionedReader reader, long position, int size)
+      throws IOException {
+    String text = StandardCharsets.ISO_8859_1.decode(reader.read(position, size)).toString();
+    LocalDateTime time = TextDateParser.parse(text, ZoneId.systemDefault());
+    if (time == null) {
+      log.warn("Failed to parse IDIT date of file {}: {}", reader.path(), text.trim());
+      return null;
+    }
+    return new TimeStampWithSource(time, TimeStampSource.MOVIE_CREATION_TIME);
+  }
+
+  /**
+   * Little endian size of the chunk whose header is at position.
+   */
+  private static long size(ByteBuffer buffer, int position) {
+    return Integer.toUnsignedLong(Integer.reverseBytes(buffer.getInt(position + 4)));
+  }
+
+  private static long next(long position, long size) {
+    return position + CHUNK_HEADER_SIZE + size + (size & 1);
+  }
+}
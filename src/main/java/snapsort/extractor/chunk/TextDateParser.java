@@ -0,0 +1,51 @@
+package snapsort.extractor.chunk;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parses the dates written as free text in chunks (PNG "Creation Time", AVI IDIT), whose format depends on the writer.
+ */
+class TextDateParser {
+  private static final List<DateTimeFormatter> OFFSET_FORMATS = List.of(
+      // Recommended by the PNG specification: "Thu, 30 May 2024 21:03:59 +0200"
+      DateTimeFormatter.RFC_1123_DATE_TIME,
+      DateTimeFormatter.ISO_OFFSET_DATE_TIME);
+  private static final List<DateTimeFormatter> LOCAL_FORMATS = List.of(
+      DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss"),
+      DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"),
+      DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+      // ctime, written by camcorders in IDIT: "THU MAY 30 21:03:59 2024"
+      new DateTimeFormatterBuilder().parseCaseInsensitive().appendPattern("EEE MMM d HH:mm:ss yyyy")
+          .toFormatter(Locale.ENGLISH));
+
+  /**
+   * Date of the text up to its first NUL, converted to zone when it has an offset and kept as written otherwise.
+   * Null when no known format matches.
+   */
+  static LocalDateTime parse(String text, ZoneId zone) {
+    int end = text.indexOf('\0');
+    String value = (end < 0 ? text : text.substring(0, end)).trim().replaceAll("\\s+", " ");
+    for (DateTimeFormatter format : OFFSET_FORMATS) {
+      try {
+        return OffsetDateTime.parse(value, format).atZoneSameInstant(zone).toLocalDateTime();
+      } catch (DateTimeParseException e) {
+        // Next format
+      }
+    }
+    for (DateTimeFormatter format : LOCAL_FORMATS) {
+      try {
+        return LocalDateTime.parse(value, format);
+      } catch (DateTimeParseException e) {
+        // Next format
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,103 @@
+package snapsort.extractor.exif;
+
+import snapsort.TimeStampWithSource;
+import snapsort.files.FileContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Finds the EXIF segment of a JPEG file by jumping from marker to marker in the header of the file, then hands it to
+ * {@link TiffDateReader}. The image data is never read, the file is only opened again when the EXIF segment does not
+ * fit in the header.
+ */
+public class JpegExifReader {
+  private static final int MARKER_PREFIX = 0xFF;
+  private static final int SOI = 0xD8;
+  private static final int EOI = 0xD9;
+  private static final int SOS = 0xDA;
+  private static final int APP1 = 0xE1;
+  private static final int TEM = 0x01;
+  private static final int RST0 = 0xD0;
+  private static final int RST7 = 0xD7;
+  private static final byte[] EXIF_IDENTIFIER = { 'E', 'x', 'i', 'f', 0, 0 };
+
+  /**
+   * Dates of the EXIF segment of the file, empty when it has none.
+   * Returns null when the file is not a JPEG file this reader understands, it should then be parsed by a full parser.
+   */
+  public static List<TimeStampWithSource> readDates(FileContext file) throws IOException {
+    // EXIF is normally the first or second segment, the date tags are at the start of it
+    ByteBuffer header = file.header();
+    if (header.limit() < 4 || unsignedByte(header, 0) != MARKER_PREFIX || unsignedByte(header, 1) != SOI) {
+      return null;
+    }
+    int position = 2;
+    while (position + 4 <= header.limit()) {
+      if (unsignedByte(header, position) != MARKER_PREFIX) {
+        return null;
+      }
+      int marker = unsignedByte(header, position + 1);
+      if (marker == MARKER_PREFIX) {
+        // Fill byte
+        position++;
+        continue;
+      }
+      if (marker == SOS || marker == EOI) {
+        // Image data starts, metadata segments are all before it
+        return Collections.emptyList();
+      }
+      if (marker == TEM || (marker >= RST0 && marker <= RST7)) {
+        // Standalone markers, no length
+        position += 2;
+        continue;
+      }
+      int length = Short.toUnsignedInt(header.getShort(position + 2));
+      if (length < 2) {
+        return null;
+      }
+      if (marker == APP1 && isExifSegment(header, position + 4, length - 2)) {
+        int tiffStart = position + 4 + EXIF_IDENTIFIER.length;
+        int tiffLength = length - 2 - EXIF_IDENTIFIER.length;
+        ByteBuffer tiff = tiffStart + tiffLength <= header.limit()
+            ? header.slice(tiffStart, tiffLength)
+            : read(file.path(), tiffStart, tiffLength);
+        if (tiff.limit() < tiffLength) {
+          // Truncated file
+          return null;
+        }
+        return TiffDateReader.readDates(tiff);
+      }
+      position += 2 + length;
+    }
+    // Metadata segments larger than the header or truncated file
+    return null;
+  }
+
+  private static boolean isExifSegment(ByteBuffer header, int position, int length) {
+    if (length < EXIF_IDENTIFIER.length || position + EXIF_IDENTIFIER.length > header.limit()) {
+      return false;
+    }
+    for (int i = 0; i < EXIF_IDENTIFIER.length; i++) {
+      if (header.get(position + i) != EXIF_IDENTIFIER[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static ByteBuffer read(Path file, long position, int length) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return FileContext.read(channel, position, length);
+    }
+  }
+
+  private static int unsignedByte(ByteBuffer buffer, int position) {
+    return Byte.toUnsignedInt(buffer.get(position));
+  }
+}
@@ -0,0 +1,301 @@
+package snapsort.extractor.exif;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.extractor.DateTimeFields;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the capture dates of a TIFF structure (the content of an EXIF block) by following the IFD offsets straight to
+ * the date tags. Other fields are skipped without being decoded.
+ */
+@Slf4j
+public class TiffDateReader {
+  static final int TAG_DATE_TIME = 0x0132;
+  static final int TAG_EXIF_IFD = 0x8769;
+  static final int TAG_GPS_IFD = 0x8825;
+  static final int TAG_DATE_TIME_ORIGINAL = 0x9003;
+  static final int TAG_DATE_TIME_DIGITIZED = 0x9004;
+  static final int TAG_GPS_TIME_STAMP = 0x0007;
+  static final int TAG_GPS_DATE_STAMP = 0x001D;
+
+  static final int TYPE_ASCII = 2;
+  private static final int TYPE_LONG = 4;
+  static final int TYPE_RATIONAL = 5;
+  static final int TYPE_SRATIONAL = 10;
+  private static final int TYPE_IFD = 13;
+
+  static final int TIFF_MAGIC = 42;
+  static final int ENTRY_SIZE = 12;
+  private static final int NOT_FOUND = -1;
+  // "yyyy:MM:dd HH:mm:ss"
+  private static final int DATE_TIME_LENGTH = 19;
+  // "yyyy:MM:dd"
+  private static final int DATE_LENGTH = 10;
+
+  /**
+   * Dates of the TIFF structure starting at position 0 of the buffer, in the order GPS, date time, date time
+   * digitized, date time original. Returns null when the structure is invalid.
+   */
+  public static List<TimeStampWithSource> readDates(ByteBuffer tiff) {
+    if (tiff.limit() < 8) {
+      return null;
+    }
+    short byteOrderMark = tiff.getShort(0);
+    if (byteOrderMark == 0x4949) {
+      tiff.order(ByteOrder.LITTLE_ENDIAN);
+    } else if (byteOrderMark == 0x4D4D) {
+      tiff.order(ByteOrder.BIG_ENDIAN);
+    } else {
+      return null;
+    }
+    if (unsignedShort(tiff, 2) != TIFF_MAGIC) {
+      return null;
+    }
+    int ifd0 = offset(tiff, 4);
+    if (!isValidIfd(tiff, ifd0)) {
+      return null;
+    }
+    int exifIfd = subIfd(tiff, findEntry(tiff, ifd0, TAG_EXIF_IFD));
+    int gpsIfd = subIfd(tiff, findEntry(tiff, ifd0, TAG_GPS_IFD));
+    if (exifIfd == NOT_FOUND || gpsIfd == NOT_FOUND) {
+      return null;
+    }
+    int dateTimeEntry = findEntry(tiff, TAG_DATE_TIME, ifd0, exifIfd, gpsIfd);
+
+    List<TimeStampWithSource> res = new ArrayList<>(4);
+    addIfNotNull(res, readGpsDate(tiff, findEntry(tiff, TAG_GPS_TIME_STAMP, ifd0, exifIfd, gpsIfd),
+        findEntry(tiff, TAG_GPS_DATE_STAMP, ifd0, exifIfd, gpsIfd)));
+    addIfNotNull(res, readDate(tiff, dateTimeEntry, TimeStampSource.EXIF_DATE_TIME));
+    addIfNotNull(res, readDate(tiff, findEntry(tiff, TAG_DATE_TIME_DIGITIZED, ifd0, exifIfd, gpsIfd),
+        TimeStampSource.EXIF_DATE_TIME_DIGITIZED));
+    addIfNotNull(res, readDate(tiff, findEntry(tiff, TAG_DATE_TIME_ORIGINAL, ifd0, exifIfd, gpsIfd),
+        TimeStampSource.EXIF_DATE_TIME_ORIGINAL));
+    return res;
+  }
+
+  private static void addIfNotNull(List<TimeStampWithSource> res, TimeStampWithSource timestamp) {
+    if (timestamp != null) {
+      res.add(timestamp);
+    }
+  }
+
+  /**
+   * First entry with this tag in the IFDs, searched in order (0 means no IFD). Writers do not always put the tags in
+   * the IFD the specification says.
+   */
+  private static int findEntry(ByteBuffer tiff, int tag, int... ifds) {
+    for (int ifd : ifds) {
+      int entry = ifd > 0 ? findEntry(tiff, ifd, tag) : NOT_FOUND;
+      if (entry != NOT_FOUND) {
+        return entry;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Offset of the IFD pointed by the entry, 0 when there is no entry and NOT_FOUND when the pointer is invalid.
+   */
+  private static int subIfd(ByteBuffer tiff, int entry) {
+    if (entry == NOT_FOUND) {
+      return 0;
+    }
+    int type = unsignedShort(tiff, entry + 2);
+    if (type != TYPE_LONG && type != TYPE_IFD) {
+      return NOT_FOUND;
+    }
+    int ifd = offset(tiff, entry + 8);
+    return isValidIfd(tiff, ifd) ? ifd : NOT_FOUND;
+  }
+
+  private static boolean isValidIfd(ByteBuffer tiff, int ifd) {
+    return ifd >= 8 && ifd <= tiff.limit() - 2
+        && (long) ifd + 2 + (long) unsignedShort(tiff, ifd) * ENTRY_SIZE <= tiff.limit();
+  }
+
+  private static int findEntry(ByteBuffer tiff, int ifd, int tag) {
+    int count = unsignedShort(tiff, ifd);
+    for (int i = 0; i < count; i++) {
+      int entry = ifd + 2 + i * ENTRY_SIZE;
+      if (unsignedShort(tiff, entry) == tag) {
+        return entry;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  /**
+   * Position of the value of the entry: inline when it fits in 4 bytes, elsewhere in the structure otherwise.
+   * NOT_FOUND when the value does not fit in the buffer.
+   */
+  private static int valuePosition(ByteBuffer tiff, int entry, int length) {
+    if (length <= 4) {
+      return entry + 8;
+    }
+    int position = offset(tiff, entry + 8);
+    if (position < 0 || (long) position + length > tiff.limit()) {
+      return NOT_FOUND;
+    }
+    return position;
+  }
+
+  private static TimeStampWithSource readDate(ByteBuffer tiff, int entry, TimeStampSource source) {
+    if (entry == NOT_FOUND) {
+      return null;
+    }
+    int count = tiff.getInt(entry + 4);
+    int position = valuePosition(tiff, entry, count);
+    if (unsignedShort(tiff, entry + 2) != TYPE_ASCII || count < 0 || position == NOT_FOUND) {
+      log.warn("Failed to parse date from EXIF field {}: unexpected type or size", source);
+      return null;
+    }
+    // Like a string value: stops at the first NUL and ignores surrounding blanks
+    int start = position;
+    int end = position;
+    while (end < position + count && tiff.get(end) != 0) {
+      end++;
+    }
+    while (start < end && isBlank(tiff.get(start))) {
+      start++;
+    }
+    while (end > start && isBlank(tiff.get(end - 1))) {
+      end--;
+    }
+    if (start == end) {
+      return null;
+    }
+    LocalDateTime dateTime = end - start == DATE_TIME_LENGTH ? parseDateTime(tiff, start) : null;
+    if (dateTime == null) {
+      log.warn("Failed to parse date from EXIF field {}: {}", source, asciiString(tiff, start, end - start));
+      return null;
+    }
+    return new TimeStampWithSource(dateTime, source);
+  }
+
+  private static TimeStampWithSource readGpsDate(ByteBuffer tiff, int timeStampEntry, int dateStampEntry) {
+    if (timeStampEntry == NOT_FOUND || dateStampEntry == NOT_FOUND) {
+      return null;
+    }
+    int timeType = unsignedShort(tiff, timeStampEntry + 2);
+    int timeCount = tiff.getInt(timeStampEntry + 4);
+    int dateCount = tiff.getInt(dateStampEntry + 4);
+    if ((timeType != TYPE_RATIONAL && timeType != TYPE_SRATIONAL)
+        || unsignedShort(tiff, dateStampEntry + 2) != TYPE_ASCII || dateCount < 0) {
+      log.warn("Unexpected GPS EXIF field types: timestamp={}, date={}", timeType,
+          unsignedShort(tiff, dateStampEntry + 2));
+      return null;
+    }
+    if (timeCount != 3) {
+      return null;
+    }
+    int timePosition = valuePosition(tiff, timeStampEntry, 3 * 8);
+    int datePosition = valuePosition(tiff, dateStampEntry, dateCount);
+    if (timePosition == NOT_FOUND || datePosition == NOT_FOUND) {
+      log.warn("Failed to extract GPS date from EXIF: values out of the EXIF block");
+      return null;
+    }
+    boolean signed = timeType == TYPE_SRATIONAL;
+    long hour = rationalIntValue(tiff, timePosition, signed);
+    long minute = rationalIntValue(tiff, timePosition + 8, signed);
+    long second = rationalIntValue(tiff, timePosition + 16, signed);
+    int dateLength = 0;
+    while (dateLength < dateCount && tiff.get(datePosition + dateLength) != 0) {
+      dateLength++;
+    }
+    LocalDateTime date = dateLength == DATE_LENGTH ? parseDate(tiff, datePosition) : null;
+    if (hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59 || date == null) {
+      log.warn("Failed to extract GPS date from EXIF: time={}:{}:{}, date={}", hour, minute, second,
+          asciiString(tiff, datePosition, dateLength));
+      return null;
+    }
+    LocalDateTime dateTime = date.withHour((int) hour).withMinute((int) minute).withSecond((int) second);
+    return new TimeStampWithSource(dateTime, TimeStampSource.EXIF_GPS_DATE_TIME);
+  }
+
+  /**
+   * Integer part of a rational, -1 when the denominator is 0.
+   */
+  private static long rationalIntValue(ByteBuffer tiff, int position, boolean signed) {
+    long numerator = signed ? tiff.getInt(position) : Integer.toUnsignedLong(tiff.getInt(position));
+    long denominator = signed ? tiff.getInt(position + 4) : Integer.toUnsignedLong(tiff.getInt(position + 4));
+    if (denominator == 0) {
+      return -1;
+    }
+    return (int) (numerator / denominator);
+  }
+
+  private static LocalDateTime parseDateTime(ByteBuffer tiff, int position) {
+    if (tiff.get(position + 10) != ' ' || tiff.get(position + 13) != ':' || tiff.get(position + 16) != ':') {
+      return null;
+    }
+    LocalDateTime date = parseDate(tiff, position);
+    int hour = digits(tiff, position + 11, 2);
+    int minute = digits(tiff, position + 14, 2);
+    int second = digits(tiff, position + 17, 2);
+    if (date == null || hour < 0 || minute < 0 || second < 0) {
+      return null;
+    }
+    return DateTimeFields.resolve(date.getYear(), date.getMonthValue(), date.getDayOfMonth(), hour, minute, second);
+  }
+
+  /**
+   * Parses "yyyy:MM:dd" as the start of a day, null if invalid.
+   */
+  private static LocalDateTime parseDate(ByteBuffer tiff, int position) {
+    if (tiff.get(position + 4) != ':' || tiff.get(position + 7) != ':') {
+      return null;
+    }
+    int year = digits(tiff, position, 4);
+    int month = digits(tiff, position + 5, 2);
+    int day = digits(tiff, position + 8, 2);
+    if (year < 0 || month < 0 || day < 0) {
+      return null;
+    }
+    return DateTimeFields.resolve(year, month, day, 0, 0, 0);
+  }
+
+  /**
+   * Value of length ASCII digits, -1 if one of them is not a digit.
+   */
+  private static int digits(ByteBuffer tiff, int position, int length) {
+    int value = 0;
+    for (int i = position; i < position + length; i++) {
+      int digit = tiff.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  private static boolean isBlank(byte b) {
+    return (b & 0xFF) <= ' ';
+  }
+
+  private static int unsignedShort(ByteBuffer tiff, int position) {
+    return Short.toUnsignedInt(tiff.getShort(position));
+  }
+
+  /**
+   * Reads an unsigned 32 bits offset, -1 when it does not fit in an int (it cannot be inside the buffer anyway).
+   */
+  private static int offset(ByteBuffer tiff, int position) {
+    long offset = Integer.toUnsignedLong(tiff.getInt(position));
+    return offset > Integer.MAX_VALUE ? -1 : (int) offset;
+  }
+
+  private static String asciiString(ByteBuffer tiff, int position, int length) {
+    byte[] bytes = new byte[length];
+    tiff.get(position, bytes);
+    return new String(bytes, StandardCharsets.US_ASCII);
+  }
+}
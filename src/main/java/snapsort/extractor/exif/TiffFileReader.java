@@ -0,0 +1,135 @@
+package snapsort.extractor.exif;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.TimeStampWithSource;
+import snapsort.files.FileContext;
+import snapsort.files.PositionedReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Finds the dates of a TIFF file, or of a camera RAW file built on TIFF (CR2, NEF, ARW, DNG), without loading it. The
+ * directories of IFD0 and of its EXIF and GPS sub-IFDs are read with positioned reads, then the start of the file up
+ * to the end of these directories and of the date values is handed to {@link TiffDateReader}. Cameras write the
+ * previews and the sensor data after them, so a file costs a few small reads whatever its size.
+ */
+@Slf4j
+public class TiffFileReader {
+  private static final Set<Integer> DATE_TAGS = Set.of(TiffDateReader.TAG_DATE_TIME,
+      TiffDateReader.TAG_DATE_TIME_ORIGINAL, TiffDateReader.TAG_DATE_TIME_DIGITIZED,
+      TiffDateReader.TAG_GPS_TIME_STAMP, TiffDateReader.TAG_GPS_DATE_STAMP);
+  private static final int[] SUB_IFD_TAGS = { TiffDateReader.TAG_EXIF_IFD, TiffDateReader.TAG_GPS_IFD };
+
+  // Byte order, magic number and offset of IFD0
+  private static final int HEADER_SIZE = 8;
+  // The dates are in the first kilobytes of the files written by cameras, files needing more are not understood
+  private static final int MAX_READ_SIZE = 1024 * 1024;
+
+  /**
+   * Entries of the IFD at position, in the byte order of the file.
+   */
+  private record Ifd(long position, ByteBuffer entries) {
+    long end() {
+      return position + 2 + entries.limit();
+    }
+  }
+
+  /**
+   * Dates of the file, in the order of {@link TiffDateReader}. Empty when it has none, null when the file does not
+   * have a valid TIFF structure.
+   */
+  public static List<TimeStampWithSource> readDates(FileContext file) throws IOException {
+    ByteBuffer header = file.header();
+    ByteOrder order = byteOrder(header);
+    if (order == null || Short.toUnsignedInt(header.order(order).getShort(2)) != TiffDateReader.TIFF_MAGIC) {
+      return null;
+    }
+    try (PositionedReader reader = new PositionedReader(file)) {
+      Ifd ifd0 = ifd(reader, Integer.toUnsignedLong(header.getInt(4)), order);
+      if (ifd0 == null) {
+        return null;
+      }
+      long end = datesEnd(ifd0);
+      for (int tag : SUB_IFD_TAGS) {
+        ByteBuffer entry = findEntry(ifd0, tag);
+        Ifd subIfd = entry == null ? null : ifd(reader, Integer.toUnsignedLong(entry.getInt(8)), order);
+        if (subIfd != null) {
+          end = Math.max(end, datesEnd(subIfd));
+        }
+      }
+      // Values past the end of a truncated file are reported by TiffDateReader
+      end = Math.min(end, reader.size());
+      if (end > MAX_READ_SIZE) {
+        log.warn("Not reading dates of file {}: they end at byte {}", reader.path(), end);
+        return List.of();
+      }
+      return TiffDateReader.readDates(reader.read(0, (int) end));
+    }
+  }
+
+  private static ByteOrder byteOrder(ByteBuffer header) {
+    if (header.limit() < HEADER_SIZE) {
+      return null;
+    }
+    return switch (header.getShort(0)) {
+      case 0x4949 -> ByteOrder.LITTLE_ENDIAN;
+      case 0x4D4D -> ByteOrder.BIG_ENDIAN;
+      default -> null;
+    };
+  }
+
+  /**
+   * IFD at position, null when it is not inside the file.
+   */
+  private static Ifd ifd(PositionedReader reader, long position, ByteOrder order) throws IOException {
+    if (position < HEADER_SIZE || position + 2 > reader.size()) {
+      return null;
+    }
+    int length = Short.toUnsignedInt(reader.read(position, 2).order(order).getShort(0)) * TiffDateReader.ENTRY_SIZE;
+    ByteBuffer entries = reader.read(position + 2, length).order(order);
+    return entries.limit() < length ? null : new Ifd(position, entries);
+  }
+
+  private static ByteBuffer findEntry(Ifd ifd, int tag) {
+    ByteBuffer entries = ifd.entries();
+    for (int entry = 0; entry < entries.limit(); entry += TiffDateReader.ENTRY_SIZE) {
+      if (Short.toUnsignedInt(entries.getShort(entry)) == tag) {
+        return entries.slice(entry, TiffDateReader.ENTRY_SIZE).order(entries.order());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * End of the IFD and of the values of its date entries stored out of it.
+   */
+  private static long datesEnd(Ifd ifd) {
+    ByteBuffer entries = ifd.entries();
+    long end = ifd.end();
+    for (int entry = 0; entry < entries.limit(); entry += TiffDateReader.ENTRY_SIZE) {
+      if (!DATE_TAGS.contains(Short.toUnsignedInt(entries.getShort(entry)))) {
+        continue;
+      }
+      long length = Integer.toUnsignedLong(entries.getInt(entry + 4)) * valueSize(entries.getShort(entry + 2));
+      if (length > 4) {
+        end = Math.max(end, Integer.toUnsignedLong(entries.getInt(entry + 8)) + length);
+      }
+    }
+    return end;
+  }
+
+  /**
+   * Size of a value of the types date entries have, 0 for other types (TiffDateReader ignores them).
+   */
+  private static int valueSize(short type) {
+    return switch (type) {
+      case TiffDateReader.TYPE_ASCII -> 1;
+      case TiffDateReader.TYPE_RATIONAL, TiffDateReader.TYPE_SRATIONAL -> 8;
+      default -> 0;
+    };
+  }
+}
@@ -3,28 +3,23 @@ package snapsort.extractor.filename;
 import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
 import snapsort.extractor.DateExtractor;
-import snapsort.files.FileTypeUtil;
-import lombok.extern.slf4j.Slf4j;
+import snapsort.files.FileContext;
 
-import java.nio.file.Path;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 import java.util.Collections;
 import java.util.List;
 
-@Slf4j
 public class BaseFileNameDateExtractor implements DateExtractor {
   private final TimeStampSource source;
-  private final List<DateTimeFormatter> formatters;
+  private final List<FileNameDatePattern> patterns;
 
-  protected BaseFileNameDateExtractor(TimeStampSource source, DateTimeFormatter... formatters) {
+  protected BaseFileNameDateExtractor(TimeStampSource source, FileNameDatePattern... patterns) {
     this.source = source;
-    this.formatters = List.of(formatters);
+    this.patterns = List.of(patterns);
   }
 
   @Override
-  public List<TimeStampWithSource> extractDates(Path file) {
+  public List<TimeStampWithSource> extractDates(FileContext file) {
     TimeStampWithSource res = extractSingleDate(file);
     if (res == null) {
       return Collections.emptyList();
@@ -32,8 +27,8 @@ public class BaseFileNameDateExtractor implements DateExtractor {
     return List.of(res);
   }
 
-  private TimeStampWithSource extractSingleDate(Path file) {
-    String name = FileTypeUtil.withoutExtension(file);
+  private TimeStampWithSource extractSingleDate(FileContext file) {
+    String name = file.nameWithoutExtension();
     LocalDateTime dateTime = parse(name);
     if (dateTime != null) {
       return new TimeStampWithSource(dateTime, source);
@@ -45,13 +40,10 @@ public class BaseFileNameDateExtractor implements DateExtractor {
     if (input == null) {
       return null;
     }
-    for (DateTimeFormatter formatter : formatters) {
-      try {
-        return LocalDateTime.parse(input, formatter);
-      } catch (DateTimeParseException e) {
-        if (log.isDebugEnabled()) {
-          log.debug("Failed to parse date " + input + " with formatter " + formatter, e);
-        }
+    for (FileNameDatePattern pattern : patterns) {
+      LocalDateTime res = pattern.parse(input);
+      if (res != null) {
+        return res;
       }
     }
     return null;
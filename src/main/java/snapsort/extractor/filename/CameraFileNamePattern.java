@@ -0,0 +1,107 @@
+package snapsort.extractor.filename;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * File name pattern of a camera or an application: a {@link FileNameDatePattern}, optionally preceded by @ and
+ * followed by *.
+ * <ul>
+ * <li>@ at the start is a word: at least one character, none of them the literal following @, not only digits
+ * (IMG, VID, MVIMG...)</li>
+ * <li>* at the end is any suffix, including none (_HDR, (1), .PORTRAIT...)</li>
+ * </ul>
+ * Names are in the local time, unless the pattern is {@link #ofUtc(String) in UTC}.
+ */
+public class CameraFileNamePattern {
+  private final String pattern;
+  private final FileNameDatePattern body;
+  private final boolean wordPrefix;
+  // Character ending the word prefix
+  private final char wordEnd;
+  private final boolean anySuffix;
+  // Names in UTC, their date is converted to the local time
+  private final boolean utc;
+
+  private CameraFileNamePattern(String pattern, FileNameDatePattern body, boolean wordPrefix, char wordEnd,
+      boolean anySuffix, boolean utc) {
+    this.pattern = pattern;
+    this.body = body;
+    this.wordPrefix = wordPrefix;
+    this.wordEnd = wordEnd;
+    this.anySuffix = anySuffix;
+    this.utc = utc;
+  }
+
+  /**
+   * Compiles the pattern, throws IllegalArgumentException when it is not supported.
+   */
+  public static CameraFileNamePattern of(String pattern) {
+    return of(pattern, false);
+  }
+
+  /**
+   * Compiles the pattern of names in UTC, throws IllegalArgumentException when it is not supported.
+   */
+  public static CameraFileNamePattern ofUtc(String pattern) {
+    return of(pattern, true);
+  }
+
+  private static CameraFileNamePattern of(String pattern, boolean utc) {
+    boolean wordPrefix = pattern.startsWith("@");
+    boolean anySuffix = pattern.endsWith("*");
+    String body = pattern.substring(wordPrefix ? 1 : 0, Math.max(wordPrefix ? 1 : 0,
+        pattern.length() - (anySuffix ? 1 : 0)));
+    FileNameDatePattern bodyPattern = FileNameDatePattern.of(body);
+    int wordEnd = bodyPattern.literalAt(0);
+    if (wordPrefix && wordEnd < 0) {
+      throw new IllegalArgumentException("@ must be followed by a literal character in pattern " + pattern);
+    }
+    return new CameraFileNamePattern(pattern, bodyPattern, wordPrefix, (char) wordEnd, anySuffix, utc);
+  }
+
+  /**
+   * Date of the name in the local time, null if it does not match.
+   */
+  public LocalDateTime parse(String name) {
+    return parse(name, ZoneId.systemDefault());
+  }
+
+  /**
+   * Date of the name in the given local zone, null if it does not match.
+   */
+  LocalDateTime parse(String name, ZoneId zone) {
+    int offset = 0;
+    if (wordPrefix) {
+      offset = name.indexOf(wordEnd);
+      if (offset <= 0 || isDigits(name, offset)) {
+        return null;
+      }
+    }
+    int remaining = name.length() - offset;
+    if (remaining < body.length() || (!anySuffix && remaining != body.length())) {
+      return null;
+    }
+    LocalDateTime time = body.parse(name, offset);
+    if (time == null || !utc) {
+      return time;
+    }
+    return LocalDateTime.ofInstant(time.toInstant(ZoneOffset.UTC), zone);
+  }
+
+  private static boolean isDigits(String name, int length) {
+    for (int i = 0; i < length; i++) {
+      char c = name.charAt(i);
+      if (!Character.isDigit(c)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    return pattern;
+  }
+}
@@ -0,0 +1,198 @@
+package snapsort.extractor.filename;
+
+import snapsort.extractor.DateTimeFields;
+
+import java.time.LocalDateTime;
+
+/**
+ * Fixed width date pattern matched character by character: parsing a name that does not match costs a few character
+ * comparisons, no exception and no allocation.
+ * <p>
+ * Patterns use the letters of {@link java.time.format.DateTimeFormatter} patterns: yyyy, MM, dd, HH, mm and ss. Other
+ * characters are literals, letters have to be quoted like in DateTimeFormatter patterns ('' is a quote), and # is any
+ * digit (a counter, milliseconds...). Time fields are optional and default to 0. Dates are resolved like DateTimeFormatter does by default, see
+ * {@link DateTimeFields#resolve}.
+ */
+public class FileNameDatePattern {
+  private static final byte LITERAL = 0;
+  private static final byte YEAR = 1;
+  private static final byte MONTH = 2;
+  private static final byte DAY = 3;
+  private static final byte HOUR = 4;
+  private static final byte MINUTE = 5;
+  private static final byte SECOND = 6;
+  private static final byte ANY_DIGIT = 7;
+
+  private final String pattern;
+  // For each character of a matching input: field its digit belongs to, or LITERAL
+  private final byte[] fields;
+  // For each character of a matching input: the expected character when it is a literal
+  private final char[] literals;
+
+  private FileNameDatePattern(String pattern, byte[] fields, char[] literals) {
+    this.pattern = pattern;
+    this.fields = fields;
+    this.literals = literals;
+  }
+
+  /**
+   * Compiles the pattern, throws IllegalArgumentException when it is not supported.
+   */
+  public static FileNameDatePattern of(String pattern) {
+    StringBuilder literals = new StringBuilder();
+    StringBuilder fields = new StringBuilder();
+    boolean[] seen = new boolean[SECOND + 1];
+    int i = 0;
+    while (i < pattern.length()) {
+      char c = pattern.charAt(i);
+      if (c == '\'') {
+        i = appendQuoted(pattern, i, literals, fields);
+        continue;
+      }
+      if (!isLetter(c)) {
+        literals.append(c);
+        fields.append((char) (c == '#' ? ANY_DIGIT : LITERAL));
+        i++;
+        continue;
+      }
+      int count = 1;
+      while (i + count < pattern.length() && pattern.charAt(i + count) == c) {
+        count++;
+      }
+      byte field = field(pattern, c, count);
+      if (seen[field]) {
+        throw new IllegalArgumentException("Field " + c + " appears twice in pattern " + pattern);
+      }
+      seen[field] = true;
+      for (int j = 0; j < count; j++) {
+        literals.append(c);
+        fields.append((char) field);
+      }
+      i += count;
+    }
+    if (!seen[YEAR] || !seen[MONTH] || !seen[DAY]) {
+      throw new IllegalArgumentException("Pattern " + pattern + " must contain yyyy, MM and dd");
+    }
+    byte[] fieldArray = new byte[fields.length()];
+    for (int j = 0; j < fieldArray.length; j++) {
+      fieldArray[j] = (byte) fields.charAt(j);
+    }
+    return new FileNameDatePattern(pattern, fieldArray, literals.toString().toCharArray());
+  }
+
+  private static int appendQuoted(String pattern, int quote, StringBuilder literals, StringBuilder fields) {
+    if (quote + 1 < pattern.length() && pattern.charAt(quote + 1) == '\'') {
+      literals.append('\'');
+      fields.append((char) LITERAL);
+      return quote + 2;
+    }
+    int i = quote + 1;
+    while (true) {
+      if (i >= pattern.length()) {
+        throw new IllegalArgumentException("Unterminated quote in pattern " + pattern);
+      }
+      char c = pattern.charAt(i);
+      if (c == '\'') {
+        if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+          // Escaped quote inside quoted text
+          i++;
+        } else {
+          return i + 1;
+        }
+      }
+      literals.append(c);
+      fields.append((char) LITERAL);
+      i++;
+    }
+  }
+
+  private static byte field(String pattern, char letter, int count) {
+    byte field = switch (letter) {
+      case 'y' -> YEAR;
+      case 'M' -> MONTH;
+      case 'd' -> DAY;
+      case 'H' -> HOUR;
+      case 'm' -> MINUTE;
+      case 's' -> SECOND;
+      default -> throw new IllegalArgumentException("Unsupported letter " + letter + " in pattern " + pattern);
+    };
+    int expectedCount = field == YEAR ? 4 : 2;
+    if (count != expectedCount) {
+      throw new IllegalArgumentException("Field " + letter + " must appear " + expectedCount + " times in pattern "
+          + pattern);
+    }
+    return field;
+  }
+
+  private static boolean isLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  /**
+   * Number of characters of a matching input.
+   */
+  public int length() {
+    return fields.length;
+  }
+
+  /**
+   * Literal expected at this position of a matching input, -1 if it is a digit.
+   */
+  int literalAt(int position) {
+    return fields[position] == LITERAL ? literals[position] : -1;
+  }
+
+  /**
+   * Date of the whole input, null if it does not match the pattern or is not a valid date.
+   */
+  public LocalDateTime parse(CharSequence input) {
+    if (input == null || input.length() != fields.length) {
+      return null;
+    }
+    return parse(input, 0);
+  }
+
+  /**
+   * Date of the length() characters of the input starting at offset, null if they do not match the pattern or are
+   * not a valid date. The input must have at least offset + length() characters.
+   */
+  public LocalDateTime parse(CharSequence input, int offset) {
+    int year = 0;
+    int month = 0;
+    int day = 0;
+    int hour = 0;
+    int minute = 0;
+    int second = 0;
+    for (int i = 0; i < fields.length; i++) {
+      char c = input.charAt(offset + i);
+      byte field = fields[i];
+      if (field == LITERAL) {
+        if (c != literals[i]) {
+          return null;
+        }
+        continue;
+      }
+      int digit = c - '0';
+      if (digit < 0 || digit > 9) {
+        return null;
+      }
+      switch (field) {
+        case YEAR -> year = year * 10 + digit;
+        case MONTH -> month = month * 10 + digit;
+        case DAY -> day = day * 10 + digit;
+        case HOUR -> hour = hour * 10 + digit;
+        case MINUTE -> minute = minute * 10 + digit;
+        case SECOND -> second = second * 10 + digit;
+        default -> {
+          // Any digit, ignored
+        }
+      }
+    }
+    return DateTimeFields.resolve(year, month, day, hour, minute, second);
+  }
+
+  @Override
+  public String toString() {
+    return pattern;
+  }
+}
@@ -1,47 +1,60 @@
 package snapsort.extractor.filename;
 
+import snapsort.CameraFileNameConfiguration;
 import snapsort.TimeStampSource;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
+/**
+ * Date of the names given by cameras and phone applications, tried in order from a table of
+ * {@link CameraFileNamePattern}. Patterns given on the command line are tried after the built-in ones.
+ */
 @ApplicationScoped
 public class FromCameraFileNameDateExtractor extends BaseFileNameDateExtractor {
+  static final List<CameraFileNamePattern> BUILT_IN_PATTERNS = List.of(
+      // 20160804_100935, IMG_20160804_100935, VID_20160804_100935_HDR...
+      CameraFileNamePattern.of("yyyyMMdd_HHmmss"),
+      CameraFileNamePattern.of("yyyyMMdd_HHmmss_*"),
+      CameraFileNamePattern.of("@_yyyyMMdd_HHmmss"),
+      CameraFileNamePattern.of("@_yyyyMMdd_HHmmss_*"),
+      // Pixel: PXL_20231224_181503123, milliseconds ignored. Pixel names are in UTC, not in the local time.
+      CameraFileNamePattern.ofUtc("'PXL_'yyyyMMdd_HHmmss###*"),
+      // WhatsApp: IMG-20240115-WA0007, no time
+      CameraFileNamePattern.of("'IMG-'yyyyMMdd'-WA'####*"),
+      CameraFileNamePattern.of("'VID-'yyyyMMdd'-WA'####*"),
+      // Android screenshots: Screenshot_20240115-183022
+      CameraFileNamePattern.of("'Screenshot_'yyyyMMdd-HHmmss*"),
+      // macOS screenshots: Screenshot 2024-01-15 at 18.30.22
+      CameraFileNamePattern.of("'Screenshot 'yyyy-MM-dd' at 'HH.mm.ss*"),
+      // DJI drones: DJI_20240115183022_0001
+      CameraFileNamePattern.of("'DJI_'yyyyMMddHHmmss*"));
+
+  private final List<CameraFileNamePattern> patterns;
+
   public FromCameraFileNameDateExtractor() {
-    super(TimeStampSource.CAMERA_FILE_NAME, DateTimeFormatter.ofPattern("yyyyMMdd HHmmss"));
+    this(new CameraFileNameConfiguration());
   }
 
-  @Override
-  protected LocalDateTime parse(String fileName) {
-    String formatted = removePrefix(fileName);
-    return super.parse(formatted);
+  @Inject
+  public FromCameraFileNameDateExtractor(CameraFileNameConfiguration configuration) {
+    super(TimeStampSource.CAMERA_FILE_NAME);
+    List<CameraFileNamePattern> allPatterns = new ArrayList<>(BUILT_IN_PATTERNS);
+    allPatterns.addAll(configuration.getPatterns());
+    this.patterns = List.copyOf(allPatterns);
   }
 
-  private static String removePrefix(String fileName) {
-    // File format is IMG_20160804_100935.jpg or VID_20160804_100935.jpg or 20160804_100935.jpg
-    // So remove the IMG / VID part before parsing
-    String[] split = fileName.split("_");
-    if (split.length < 2) {
-      return null;
-    }
-    int dateIndex = 1;
-    if (isNumber(split[0])) {
-      dateIndex = 0;
-    }
-    int timeIndex = dateIndex + 1;
-    if (timeIndex >= split.length) {
-      return null;
-    }
-    String date = split[dateIndex];
-    String time = split[timeIndex];
-    if (date.length() != 8 || time.length() != 6) {
-      return null;
+  @Override
+  protected LocalDateTime parse(String fileName) {
+    for (CameraFileNamePattern pattern : patterns) {
+      LocalDateTime res = pattern.parse(fileName);
+      if (res != null) {
+        return res;
+      }
     }
-    return date + " " + time;
-  }
-
-  private static boolean isNumber(String s) {
-    return s.chars().allMatch(Character::isDigit);
+    return null;
   }
 }
@@ -0,0 +1,248 @@
+package snapsort.extractor.matroska;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.files.FileContext;
+import snapsort.files.PositionedReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the creation date of a Matroska file (MKV, WebM): the DateUTC element of the segment Info. The EBML elements
+ * of the segment are walked by their sizes with positioned reads until Info is reached; when the first Cluster comes
+ * before it, the walk jumps to the position the SeekHead gives for Info. Clusters, holding the media data, are never
+ * read, so a file costs a few small reads whatever its size.
+ */
+@Slf4j
+public class MatroskaDateReader {
+  private static final long EBML = 0x1A45DFA3L;
+  private static final long SEGMENT = 0x18538067L;
+  private static final long SEEK_HEAD = 0x114D9B74L;
+  private static final long SEEK = 0x4DBBL;
+  private static final long SEEK_ID = 0x53ABL;
+  private static final long SEEK_POSITION = 0x53ACL;
+  private static final long INFO = 0x1549A966L;
+  private static final long DATE_UTC = 0x4461L;
+  private static final long CLUSTER = 0x1F43B675L;
+
+  // Longest element header: 4 bytes of id and 8 bytes of size
+  private static final int MAX_HEADER_SIZE = 12;
+  // SeekHead and Info are small, larger ones are not understood
+  private static final int MAX_READ_SIZE = 1024 * 1024;
+  // Bounds the walk of damaged files made of tiny elements
+  private static final int MAX_ELEMENTS = 4096;
+  // Seconds from 1970-01-01 to 2001-01-01, the epoch of DateUTC
+  private static final long EPOCH_2001_OFFSET = 978_307_200L;
+  private static final long NOT_FOUND = -1;
+
+  /**
+   * Element whose data starts at dataStart, unknownSize when its size is not written (it then extends to the end of
+   * its parent).
+   */
+  private record Element(long id, long dataStart, long end, boolean unknownSize) {
+  }
+
+  /**
+   * Date of the file in the system time zone (DateUTC is in UTC). Empty when it has none, null when the file is not a
+   * Matroska file.
+   */
+  public static List<TimeStampWithSource> readDates(FileContext file) throws IOException {
+    ByteBuffer header = file.header();
+    if (header.limit() < 4 || Integer.toUnsignedLong(header.getInt(0)) != EBML) {
+      return null;
+    }
+    try (PositionedReader reader = new PositionedReader(file)) {
+      Element ebml = element(reader, 0, reader.size());
+      Element segment = ebml == null ? null : element(reader, ebml.end(), reader.size());
+      if (segment == null || segment.id() != SEGMENT) {
+        return null;
+      }
+      Element info = findInfo(reader, segment);
+      TimeStampWithSource date = info == null ? null : readDateUtc(reader, info, ZoneId.systemDefault());
+      return date == null ? List.of() : List.of(date);
+    }
+  }
+
+  /**
+   * Info element of the segment, from the walk of its first elements or from its SeekHead.
+   */
+  private static Element findInfo(PositionedReader reader, Element segment) throws IOException {
+    long infoPosition = NOT_FOUND;
+    long position = segment.dataStart();
+    Element element;
+    for (int i = 0; i < MAX_ELEMENTS && (element = element(reader, position, segment.end())) != null; i++) {
+      if (element.id() == INFO) {
+        return element;
+      }
+      if (element.id() == SEEK_HEAD && infoPosition == NOT_FOUND) {
+        infoPosition = seekPosition(reader, element, INFO, segment.dataStart());
+      }
+      if (element.id() == CLUSTER || element.unknownSize()) {
+        // Media data, what follows is only reached through the SeekHead
+        break;
+      }
+      position = element.end();
+    }
+    if (infoPosition == NOT_FOUND) {
+      return null;
+    }
+    Element info = element(reader, infoPosition, segment.end());
+    return info != null && info.id() == INFO ? info : null;
+  }
+
+  /**
+   * Position of the element with this id given by the SeekHead, NOT_FOUND when it is not listed.
+   */
+  private static long seekPosition(PositionedReader reader, Element seekHead, long id, long segmentDataStart)
+      throws IOException {
+    ByteBuffer seeks = content(reader, seekHead);
+    if (seeks == null) {
+      return NOT_FOUND;
+    }
+    for (Element seek : children(seeks, seekHead)) {
+      if (seek.id() != SEEK) {
+        continue;
+      }
+      ByteBuffer fields = seeks.slice((int) (seek.dataStart() - seekHead.dataStart()),
+          (int) (seek.end() - seek.dataStart()));
+      long seekId = NOT_FOUND;
+      long seekPosition = NOT_FOUND;
+      for (Element field : children(fields, seek)) {
+        int offset = (int) (field.dataStart() - seek.dataStart());
+        int length = (int) (field.end() - field.dataStart());
+        if (field.id() == SEEK_ID && length <= 4) {
+          seekId = unsigned(fields, offset, length);
+        } else if (field.id() == SEEK_POSITION && length <= 8) {
+          seekPosition = unsigned(fields, offset, length);
+        }
+      }
+      if (seekId == id && seekPosition != NOT_FOUND) {
+        return segmentDataStart + seekPosition;
+      }
+    }
+    return NOT_FOUND;
+  }
+
+  private static TimeStampWithSource readDateUtc(PositionedReader reader, Element info, ZoneId zone)
+      throws IOException {
+    ByteBuffer fields = content(reader, info);
+    if (fields == null) {
+      return null;
+    }
+    for (Element field : children(fields, info)) {
+      if (field.id() != DATE_UTC) {
+        continue;
+      }
+      if (field.end() - field.dataStart() != 8) {
+        log.warn("Failed to read DateUTC of file {}: unexpected size", reader.path());
+        return null;
+      }
+      long nanos = fields.getLong((int) (field.dataStart() - info.dataStart()));
+      if (nanos == 0) {
+        // Not set by the writer
+        return null;
+      }
+      try {
+        Instant instant = Instant.ofEpochSecond(EPOCH_2001_OFFSET + Math.floorDiv(nanos, 1_000_000_000L),
+            Math.floorMod(nanos, 1_000_000_000L));
+        return new TimeStampWithSource(LocalDateTime.ofInstant(instant, zone), TimeStampSource.MOVIE_CREATION_TIME);
+      } catch (DateTimeException e) {
+        log.warn("Failed to read DateUTC of file {}: {} nanoseconds is out of range", reader.path(), nanos);
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Element starting at position, null when there is none before end or when it is invalid.
+   */
+  private static Element element(PositionedReader reader, long position, long end) throws IOException {
+    if (position < 0 || position >= end) {
+      return null;
+    }
+    return element(reader.read(position, (int) Math.min(MAX_HEADER_SIZE, end - position)), position, end);
+  }
+
+  /**
+   * Element whose header is at the start of bytes, itself at position in the file.
+   */
+  private static Element element(ByteBuffer bytes, long position, long end) {
+    int idLength = vintLength(bytes, 0, 4);
+    int sizeLength = idLength == 0 ? 0 : vintLength(bytes, idLength, 8);
+    if (sizeLength == 0) {
+      return null;
+    }
+    long id = unsigned(bytes, 0, idLength);
+    // Size without its length marker, all ones meaning unknown
+    long size = unsigned(bytes, idLength, sizeLength) & (-1L >>> (64 - 7 * sizeLength));
+    boolean unknownSize = size == -1L >>> (64 - 7 * sizeLength);
+    long dataStart = position + idLength + sizeLength;
+    if (unknownSize) {
+      return new Element(id, dataStart, end, true);
+    }
+    if (size > end - dataStart) {
+      return null;
+    }
+    return new Element(id, dataStart, dataStart + size, false);
+  }
+
+  /**
+   * Length of the variable length integer at offset (its number of leading zero bits plus one), 0 when it is invalid
+   * or does not fit in bytes.
+   */
+  private static int vintLength(ByteBuffer bytes, int offset, int maxLength) {
+    if (offset >= bytes.limit()) {
+      return 0;
+    }
+    int length = Integer.numberOfLeadingZeros(Byte.toUnsignedInt(bytes.get(offset))) - 23;
+    return length > maxLength || offset + length > bytes.limit() ? 0 : length;
+  }
+
+  /**
+   * Elements directly inside parent, whose data is content.
+   */
+  private static List<Element> children(ByteBuffer content, Element parent) {
+    List<Element> res = new ArrayList<>();
+    int offset = 0;
+    while (offset < content.limit() && res.size() < MAX_ELEMENTS) {
+      Element child = element(content.slice(offset, Math.min(MAX_HEADER_SIZE, content.limit() - offset)),
+          parent.dataStart() + offset, parent.end());
+      if (child == null || child.unknownSize()) {
+        break;
+      }
+      res.add(child);
+      offset = (int) (child.end() - parent.dataStart());
+    }
+    return res;
+  }
+
+  /**
+   * Data of the element, null when it is too large or truncated.
+   */
+  private static ByteBuffer content(PositionedReader reader, Element element) throws IOException {
+    long length = element.end() - element.dataStart();
+    if (element.unknownSize() || length > MAX_READ_SIZE) {
+      log.warn("Not reading element of file {}: {} bytes", reader.path(), length);
+      return null;
+    }
+    ByteBuffer res = reader.read(element.dataStart(), (int) length);
+    return res.limit() < length ? null : res;
+  }
+
+  private static long unsigned(ByteBuffer bytes, int offset, int length) {
+    long res = 0;
+    for (int i = offset; i < offset + length; i++) {
+      res = (res << 8) | Byte.toUnsignedInt(bytes.get(i));
+    }
+    return res;
+  }
+}
@@ -0,0 +1,137 @@
+package snapsort.files;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import lombok.extern.slf4j.Slf4j;
+import snapsort.DateRange;
+import snapsort.FileListerConfiguration;
+import snapsort.TimeStampWithSource;
+import snapsort.extractor.DateTimeFields;
+import snapsort.extractor.filename.FinalFileNameDateExtractor;
+import snapsort.extractor.filename.FromCameraFileNameDateExtractor;
+
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Skips the files and folders that cannot be in the date range before their dates are extracted, from what is known
+ * without reading the files:
+ * <ul>
+ *   <li>a final file name: it is the first date source, so its date is the one {@link snapsort.extractor.DateChooser}
+ *   chooses</li>
+ *   <li>the last modified date and the date of a camera file name: a file is named and written when it is captured
+ *   or later, so a file whose dates are before the minimum date was captured before it</li>
+ *   <li>a day folder of a sorted library ({@code yyyy/yyyyMMdd_}): its files were sorted there by their date, the
+ *   whole folder is skipped without being listed</li>
+ * </ul>
+ * The bounds that are not exact are widened by a slack, for time zones and camera clocks a bit off. The dates of the
+ * files that are not skipped are chosen as usual.
+ */
+@Slf4j
+@ApplicationScoped
+public class DateRangePruner {
+  private static final Pattern DAY_FOLDER_NAME = Pattern.compile("(\\d{4})(\\d{2})(\\d{2})_.*");
+
+  private final boolean enabled;
+  private final DateRange dateRange;
+  // Range widened by the slack, null bounds are open
+  private final LocalDateTime minWithSlack;
+  private final LocalDateTime maxWithSlack;
+  private final FinalFileNameDateExtractor finalFileNameDateExtractor;
+  private final FromCameraFileNameDateExtractor fromCameraFileNameDateExtractor;
+  private final LongAdder skippedFiles = new LongAdder();
+  private final LongAdder skippedFolders = new LongAdder();
+
+  @Inject
+  public DateRangePruner(FileListerConfiguration configuration, DateRange dateRange,
+      FinalFileNameDateExtractor finalFileNameDateExtractor,
+      FromCameraFileNameDateExtractor fromCameraFileNameDateExtractor) {
+    this.enabled = configuration.isPruneByDateRange() && (dateRange.min() != null || dateRange.max() != null);
+    this.dateRange = dateRange;
+    this.minWithSlack = dateRange.min() == null ? null : dateRange.min().minus(FileLister.CONTENT_DATE_SLACK);
+    this.maxWithSlack = dateRange.max() == null ? null : dateRange.max().plus(FileLister.CONTENT_DATE_SLACK);
+    this.finalFileNameDateExtractor = finalFileNameDateExtractor;
+    this.fromCameraFileNameDateExtractor = fromCameraFileNameDateExtractor;
+  }
+
+  /**
+   * Whether the folder is the day folder of a sorted library (yyyyMMdd_ in its yyyy folder) for a day out of range.
+   */
+  public boolean isSkippedFolder(Path folder) {
+    if (!enabled) {
+      return false;
+    }
+    Matcher matcher = DAY_FOLDER_NAME.matcher(folder.getFileName().toString());
+    Path yearFolder = folder.getParent() == null ? null : folder.getParent().getFileName();
+    if (!matcher.matches() || yearFolder == null || !yearFolder.toString().equals(matcher.group(1))) {
+      return false;
+    }
+    LocalDateTime day = DateTimeFields.resolve(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+        Integer.parseInt(matcher.group(3)), 0, 0, 0);
+    if (day == null || overlapsRange(day, day.plusDays(1))) {
+      return false;
+    }
+    log.info("Skipping folder {}, its day is not in range {}", folder, dateRange);
+    skippedFolders.increment();
+    return true;
+  }
+
+  /**
+   * Whether the date of the file cannot be in range.
+   */
+  public boolean isSkippedFile(Path file, BasicFileAttributes attributes) {
+    if (!enabled) {
+      return false;
+    }
+    String reason = skipReason(new FileContext(file, attributes), attributes);
+    if (reason == null) {
+      return false;
+    }
+    log.info("Skipping file {}, its {} is not in range {}", file, reason, dateRange);
+    skippedFiles.increment();
+    return true;
+  }
+
+  /**
+   * Logs the number of files and folders skipped so far.
+   */
+  public void logSkipped() {
+    if (enabled) {
+      log.info("Skipped {} files and {} folders that cannot be in range {}", skippedFiles.sum(),
+          skippedFolders.sum(), dateRange);
+    }
+  }
+
+  private String skipReason(FileContext file, BasicFileAttributes attributes) {
+    List<TimeStampWithSource> finalFileNameDates = finalFileNameDateExtractor.extractDates(file);
+    if (!finalFileNameDates.isEmpty()) {
+      // Exact, whatever the other date sources say
+      return dateRange.isInRange(finalFileNameDates.getFirst().getTime()) ? null : "final file name date";
+    }
+    if (minWithSlack == null) {
+      // Files can be written long after they were captured, nothing known bounds the date from below
+      return null;
+    }
+    LocalDateTime lastModified = LocalDateTime.ofInstant(attributes.lastModifiedTime().toInstant(),
+        ZoneId.systemDefault());
+    if (lastModified.isBefore(minWithSlack)) {
+      return "last modified date";
+    }
+    List<TimeStampWithSource> cameraFileNameDates = fromCameraFileNameDateExtractor.extractDates(file);
+    if (!cameraFileNameDates.isEmpty() && cameraFileNameDates.getFirst().getTime().isBefore(minWithSlack)) {
+      return "camera file name date";
+    }
+    return null;
+  }
+
+  private boolean overlapsRange(LocalDateTime start, LocalDateTime end) {
+    return (maxWithSlack == null || start.isBefore(maxWithSlack))
+        && (minWithSlack == null || end.isAfter(minWithSlack));
+  }
+}
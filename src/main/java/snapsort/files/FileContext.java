@@ -0,0 +1,90 @@
+package snapsort.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * What the date extractors know about one file, shared by all of them so that the file is stat-ed once and its start
+ * is read at most once: attributes, extension and the first bytes of the content.
+ * <p>
+ * Attributes and header are loaded on first use. A context is used by one extraction at a time, it is not thread
+ * safe.
+ */
+public class FileContext {
+  // Metadata of the supported formats is normally in the first kilobytes
+  public static final int HEADER_SIZE = 16 * 1024;
+
+  private final Path path;
+  private final String nameWithoutExtension;
+  private final String lowercaseExtension;
+  private BasicFileAttributes attributes;
+  private ByteBuffer header;
+
+  public FileContext(Path path) {
+    this(path, null);
+  }
+
+  /**
+   * Context of a file whose attributes were already read, for example while walking a folder.
+   */
+  public FileContext(Path path, BasicFileAttributes attributes) {
+    this.path = path;
+    this.attributes = attributes;
+    this.nameWithoutExtension = FileTypeUtil.withoutExtension(path);
+    this.lowercaseExtension = FileTypeUtil.getLowercaseExtension(path);
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  public String nameWithoutExtension() {
+    return nameWithoutExtension;
+  }
+
+  public String lowercaseExtension() {
+    return lowercaseExtension;
+  }
+
+  public BasicFileAttributes attributes() throws IOException {
+    if (attributes == null) {
+      attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    }
+    return attributes;
+  }
+
+  /**
+   * First HEADER_SIZE bytes of the file, less if the file is smaller. Each call returns an independent read-only view.
+   */
+  public ByteBuffer header() throws IOException {
+    if (header == null) {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+        header = read(channel, 0, HEADER_SIZE);
+      }
+    }
+    return header.asReadOnlyBuffer();
+  }
+
+  /**
+   * Reads up to length bytes at position, less if the end of the file is reached.
+   */
+  public static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        break;
+      }
+    }
+    return buffer.flip();
+  }
+
+  @Override
+  public String toString() {
+    return path.toString();
+  }
+}
@@ -0,0 +1,14 @@
+package snapsort.files;
+
+import snapsort.TimeStampSource;
+
+import java.nio.file.Path;
+
+/**
+ * Receives dated files with their timestamp in the primitive form stored by {@link FileTable}: UTC epoch second and
+ * nano of second, and the size and last modified time of the file when it was analyzed.
+ */
+@FunctionalInterface
+public interface FileEntryConsumer {
+  void accept(Path path, long epochSecond, int nano, TimeStampSource source, long size, long lastModifiedMillis);
+}
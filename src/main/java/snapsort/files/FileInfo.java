@@ -4,5 +4,21 @@ import snapsort.TimeStampWithSource;
 
 import java.nio.file.Path;
 
-public record FileInfo(Path path, TimeStampWithSource timestamp) {
+/**
+ * Dated file, with the size and last modified time it had when it was analyzed: {@link #UNKNOWN} when the file was not
+ * analyzed by this run.
+ */
+public record FileInfo(Path path, TimeStampWithSource timestamp, long size, long lastModifiedMillis) {
+  public static final long UNKNOWN = -1;
+
+  public FileInfo(Path path, TimeStampWithSource timestamp) {
+    this(path, timestamp, UNKNOWN, UNKNOWN);
+  }
+
+  /**
+   * Same file at another timestamp.
+   */
+  public FileInfo withTimestamp(TimeStampWithSource newTimestamp) {
+    return new FileInfo(path, newTimestamp, size, lastModifiedMillis);
+  }
 }
@@ -1,56 +1,193 @@
 package snapsort.files;
 
+import snapsort.FileListerConfiguration;
 import snapsort.TimeStampWithSource;
+import snapsort.concurrent.ConcurrencyUtil;
 import snapsort.extractor.DateChooser;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import one.util.streamex.StreamEx;
-import org.apache.commons.io.file.PathUtils;
-
-import java.util.Comparator;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
-import java.util.Objects;
-import java.util.stream.Stream;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 @Slf4j
 @ApplicationScoped
 public class FileLister {
+  /**
+   * How much the date chosen from the content of a file can be before its last modified date, which is often a bit
+   * later. Used when the last modified date stands for a date not known yet.
+   */
+  public static final Duration CONTENT_DATE_SLACK = Duration.ofDays(1);
   private final DateChooser dateChooser;
+  private final DateRangePruner dateRangePruner;
+  private final int extractionThreads;
+  private final FileWalker fileWalker;
+  private final int shard;
+  private final int shardCount;
 
   @Inject
-  public FileLister(DateChooser dateChooser) {
+  public FileLister(DateChooser dateChooser, DateRangePruner dateRangePruner, FileListerConfiguration configuration) {
     this.dateChooser = dateChooser;
+    this.dateRangePruner = dateRangePruner;
+    this.extractionThreads = configuration.getExtractionThreads();
+    this.fileWalker = new FileWalker(configuration.getWalkerThreads());
+    this.shard = configuration.getShard();
+    this.shardCount = configuration.getShardCount();
   }
 
   public List<FileInfo> listFiles(List<Path> folders) {
-    return StreamEx.of(folders).flatCollection(this::listFiles).sorted(Comparator.comparing(FileInfo::path)).toList();
+    return listFileTable(folders).toFileInfos();
   }
 
-  @SneakyThrows
   public List<FileInfo> listFiles(Path folder) {
-    log.info("Analyzing files in folder {}", folder);
+    return listFiles(List.of(folder));
+  }
+
+  /**
+   * Files of the folders with the date chosen for them, sorted by path, stored in a table instead of a
+   * {@link FileInfo} per file.
+   */
+  public FileTable listFileTable(List<Path> folders) {
+    FileTable res = new FileTable();
+    forEachFile(folders, file -> {
+      synchronized (res) {
+        res.add(file);
+      }
+    });
+    // Order of a parallel walk varies from run to run
+    res.sortByPath();
+    return res;
+  }
+
+  /**
+   * Gives each file of the folders with the date chosen for it to consumer as soon as it is analyzed, without keeping
+   * anything per file. consumer is called from the extraction threads (the walking threads with a single extraction
+   * thread), in no particular order. Files without a date are skipped. The walk stops at the first failure.
+   */
+  public void forEachFile(List<Path> folders, Consumer<FileInfo> consumer) {
+    for (Path folder : folders) {
+      log.info("Analyzing files in folder {}", folder);
+      if (isFolder(folder)) {
+        // Files are handed to extraction as soon as the walk finds them
+        ConcurrencyUtil.forEachAsProduced((Consumer<ListedFile> extraction) -> walk(folder, extraction),
+            extractionThreads, file -> {
+              FileInfo fileInfo = parseFromFile(file);
+              if (fileInfo != null) {
+                consumer.accept(fileInfo);
+              }
+            });
+      }
+    }
+    dateRangePruner.logSkipped();
+  }
+
+  /**
+   * Lists the files of the folders then analyzes them in ascending order of candidate time (last modified date, known
+   * without reading the files). Each analyzed file is given to consumer with a watermark, the files given later are
+   * expected at or after it: the candidate time of the next file minus slack, and minus the largest gap seen so far
+   * between the candidate time of a file and its date. Files copied or restored long after they were taken thus keep
+   * the watermark back until the end, their seconds are resolved together like without a watermark. consumer is called
+   * on the calling thread, with a null file when no date was found.
+   */
+  public void listFilesByCandidateTime(List<Path> folders, Duration slack,
+      BiConsumer<FileInfo, LocalDateTime> consumer) {
+    List<ListedFile> files = new ArrayList<>();
+    for (Path folder : folders) {
+      log.info("Listing files in folder {}", folder);
+      if (isFolder(folder)) {
+        List<ListedFile> folderFiles = Collections.synchronizedList(new ArrayList<>());
+        walk(folder, folderFiles::add);
+        files.addAll(folderFiles);
+      }
+    }
+    dateRangePruner.logSkipped();
+    // Same order as the candidate times, without converting them
+    files.sort(Comparator.comparing((ListedFile file) -> file.attributes().lastModifiedTime())
+        .thenComparing(ListedFile::path));
+    log.info("Analyzing {} files by ascending last modified date", files.size());
+    AtomicReference<Duration> maxLateness = new AtomicReference<>(Duration.ZERO);
+    ConcurrencyUtil.forEachMappedInOrder(files, extractionThreads, this::parseFromFile, (file, index) -> {
+      if (file != null) {
+        Duration lateness = Duration.between(file.timestamp().getTime(), files.get(index).candidateTime());
+        maxLateness.accumulateAndGet(lateness, (max, other) -> other.compareTo(max) > 0 ? other : max);
+      }
+      LocalDateTime watermark = index + 1 < files.size()
+          ? files.get(index + 1).candidateTime().minus(slack).minus(maxLateness.get())
+          : LocalDateTime.MAX;
+      consumer.accept(file, watermark);
+    });
+  }
+
+  private static boolean isFolder(Path folder) {
     if (!Files.exists(folder) || !Files.isDirectory(folder)) {
       log.error("Folder {} does not exist or is not a directory", folder);
-      return Collections.emptyList();
-    }
-    try (Stream<Path> files = Files.walk(folder)) {
-      return files.filter(FileLister::isSupportedFile).map(this::parseFromFile).filter(Objects::nonNull).toList();
+      return false;
     }
+    return true;
   }
 
+  /**
+   * Gives the supported files of the folder that may be in the date range to consumer, with the attributes read by the
+   * walk so that they are not read again.
+   */
   @SneakyThrows
-  private static boolean isSupportedFile(Path file) {
-    if (!Files.isRegularFile(file)) {
+  private void walk(Path folder, Consumer<ListedFile> consumer) {
+    fileWalker.walk(folder, dateRangePruner::isSkippedFolder, (file, attributes) -> {
+      if (!isInShard(file)) {
+        return;
+      }
+      BasicFileAttributes fileAttributes = attributes.isSymbolicLink() ? linkTargetAttributes(file) : attributes;
+      if (fileAttributes != null && isSupportedFile(file, fileAttributes)
+          && !dateRangePruner.isSkippedFile(file, fileAttributes)) {
+        consumer.accept(new ListedFile(file, fileAttributes));
+      }
+    });
+  }
+
+  /**
+   * Whether the file belongs to the listed shard. Files are split by directory, with a hash that is the same on all
+   * the machines running the shards.
+   */
+  private boolean isInShard(Path file) {
+    if (shardCount == 1) {
+      return true;
+    }
+    Path directory = file.toAbsolutePath().normalize().getParent();
+    return Math.floorMod(directory.toString().hashCode(), shardCount) == shard - 1;
+  }
+
+  /**
+   * Links are not followed by the walk, attributes of their target, null when it does not exist.
+   */
+  private static BasicFileAttributes linkTargetAttributes(Path link) {
+    try {
+      return Files.readAttributes(link, BasicFileAttributes.class);
+    } catch (IOException e) {
+      log.debug("Could not read target of link {}", link, e);
+      return null;
+    }
+  }
+
+  private static boolean isSupportedFile(Path file, BasicFileAttributes attributes) {
+    if (!attributes.isRegularFile()) {
       return false;
     }
-    if (PathUtils.sizeOf(file) == 0) {
+    if (attributes.size() == 0) {
       log.warn("File is empty, skipping {}", file);
       return false;
     }
@@ -67,13 +204,28 @@ public class FileLister {
     return true;
   }
 
-  @SneakyThrows
-  private FileInfo parseFromFile(Path file) {
-    TimeStampWithSource timeStampWithSource = dateChooser.computeTimestamp(file);
+  private FileInfo parseFromFile(ListedFile file) {
+    TimeStampWithSource timeStampWithSource = chooseTimestamp(file);
     if (timeStampWithSource == null) {
       return null;
     }
-    return new FileInfo(file, timeStampWithSource);
+    // The version the date was chosen for, a plan skips the file if it changes before being applied
+    BasicFileAttributes attributes = file.attributes();
+    return new FileInfo(file.path(), timeStampWithSource, attributes.size(), attributes.lastModifiedTime().toMillis());
+  }
+
+  @SneakyThrows
+  private TimeStampWithSource chooseTimestamp(ListedFile file) {
+    // The context, and the header it may have read, is only referenced during the extraction of its file
+    FileContext context = new FileContext(file.path(), file.attributes());
+    return dateChooser.computeTimestamp(context);
+  }
+
+  private record ListedFile(Path path, BasicFileAttributes attributes) {
+    // Same time as the one of FileDateExtractor
+    LocalDateTime candidateTime() {
+      return LocalDateTime.ofInstant(attributes.lastModifiedTime().toInstant(), ZoneId.systemDefault());
+    }
   }
 }
 
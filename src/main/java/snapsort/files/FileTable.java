@@ -0,0 +1,240 @@
+package snapsort.files;
+
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Dated files stored column by column, for runs over millions of files.
+ * <p>
+ * A {@link FileInfo} costs a record, a {@link TimeStampWithSource}, a {@link LocalDateTime} with its date and time and
+ * a {@link Path} repeating the whole directory per file. Here a file is a row number: its directory is a node of a
+ * {@link PathTrie} shared by the rows, its name is kept alone and its timestamp is kept in primitive columns (UTC epoch
+ * second, nano of second, source ordinal), like the size and last modified time of the file when it was analyzed.
+ * Sorting orders row numbers, the full path of a row is only built when it is asked for, and the rows are only turned
+ * into {@link FileInfo} when asked for.
+ * <p>
+ * Not thread safe.
+ */
+public class FileTable {
+  private static final TimeStampSource[] SOURCES = TimeStampSource.values();
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final PathTrie directories = new PathTrie();
+  // Row -> id of its directory in directories
+  private int[] directoryIds;
+  // Row -> file name, the whole path when it has no directory
+  private Path[] names;
+  private long[] epochSeconds;
+  private int[] nanos;
+  private byte[] sources;
+  private long[] fileSizes;
+  private long[] lastModifiedMillis;
+  private int size;
+
+  public FileTable() {
+    this(INITIAL_CAPACITY);
+  }
+
+  public FileTable(int capacity) {
+    int initialCapacity = Math.max(capacity, 1);
+    directoryIds = new int[initialCapacity];
+    names = new Path[initialCapacity];
+    epochSeconds = new long[initialCapacity];
+    nanos = new int[initialCapacity];
+    sources = new byte[initialCapacity];
+    fileSizes = new long[initialCapacity];
+    lastModifiedMillis = new long[initialCapacity];
+  }
+
+  public static FileTable of(Collection<FileInfo> files) {
+    FileTable res = new FileTable(files.size());
+    files.forEach(res::add);
+    return res;
+  }
+
+  public void add(FileInfo file) {
+    LocalDateTime time = file.timestamp().getTime();
+    add(file.path(), time.toEpochSecond(ZoneOffset.UTC), time.getNano(), file.timestamp().getSource(), file.size(),
+        file.lastModifiedMillis());
+  }
+
+  public void add(Path path, TimeStampWithSource timestamp) {
+    add(path, timestamp.getTime(), timestamp.getSource());
+  }
+
+  public void add(Path path, LocalDateTime time, TimeStampSource source) {
+    add(path, time.toEpochSecond(ZoneOffset.UTC), time.getNano(), source, FileInfo.UNKNOWN, FileInfo.UNKNOWN);
+  }
+
+  public void add(Path path, long epochSecond, int nano, TimeStampSource source, long fileSize,
+      long fileLastModifiedMillis) {
+    if (size == names.length) {
+      int capacity = size + (size >> 1) + 1;
+      directoryIds = Arrays.copyOf(directoryIds, capacity);
+      names = Arrays.copyOf(names, capacity);
+      epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+      nanos = Arrays.copyOf(nanos, capacity);
+      sources = Arrays.copyOf(sources, capacity);
+      fileSizes = Arrays.copyOf(fileSizes, capacity);
+      lastModifiedMillis = Arrays.copyOf(lastModifiedMillis, capacity);
+    }
+    Path directory = path.getParent();
+    directoryIds[size] = directories.id(directory);
+    names[size] = directory == null ? path : path.getFileName();
+    epochSeconds[size] = epochSecond;
+    nanos[size] = nano;
+    sources[size] = (byte) source.ordinal();
+    fileSizes[size] = fileSize;
+    lastModifiedMillis[size] = fileLastModifiedMillis;
+    size++;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Path of the file of the row, built at each call.
+   */
+  public Path path(int row) {
+    Path directory = directories.path(directoryIds[row]);
+    return directory == null ? names[row] : directory.resolve(names[row]);
+  }
+
+  public LocalDateTime time(int row) {
+    return LocalDateTime.ofEpochSecond(epochSeconds[row], nanos[row], ZoneOffset.UTC);
+  }
+
+  public long epochSecond(int row) {
+    return epochSeconds[row];
+  }
+
+  public int nano(int row) {
+    return nanos[row];
+  }
+
+  public TimeStampSource source(int row) {
+    return SOURCES[sources[row]];
+  }
+
+  /**
+   * Size of the file of the row when it was analyzed, {@link FileInfo#UNKNOWN} if it was not.
+   */
+  public long fileSize(int row) {
+    return fileSizes[row];
+  }
+
+  /**
+   * Last modified time of the file of the row when it was analyzed, {@link FileInfo#UNKNOWN} if it was not.
+   */
+  public long lastModifiedMillis(int row) {
+    return lastModifiedMillis[row];
+  }
+
+  public void setTimestamp(int row, LocalDateTime time, TimeStampSource source) {
+    epochSeconds[row] = time.toEpochSecond(ZoneOffset.UTC);
+    nanos[row] = time.getNano();
+    sources[row] = (byte) source.ordinal();
+  }
+
+  public FileInfo fileInfo(int row) {
+    return new FileInfo(path(row), new TimeStampWithSource(time(row), source(row)), fileSizes[row],
+        lastModifiedMillis[row]);
+  }
+
+  public List<FileInfo> toFileInfos() {
+    List<FileInfo> res = new ArrayList<>(size);
+    for (int row = 0; row < size; row++) {
+      res.add(fileInfo(row));
+    }
+    return res;
+  }
+
+  /**
+   * Compares the timestamps of two rows, same order as their {@link LocalDateTime}.
+   */
+  public int compareTime(int row, int otherRow) {
+    int res = Long.compare(epochSeconds[row], epochSeconds[otherRow]);
+    return res != 0 ? res : Integer.compare(nanos[row], nanos[otherRow]);
+  }
+
+  /**
+   * Row numbers sorted by comparator, rows comparing equal keep their order.
+   */
+  public int[] order(IntBinaryOperator comparator) {
+    int[] res = new int[size];
+    Arrays.setAll(res, row -> row);
+    int[] buffer = new int[size];
+    // Bottom-up merge sort, stable unlike the sorts of primitive arrays
+    for (int width = 1; width < size; width *= 2) {
+      for (int start = 0; start < size; start += 2 * width) {
+        int middle = Math.min(start + width, size);
+        int end = Math.min(start + 2 * width, size);
+        int left = start;
+        int right = middle;
+        for (int i = start; i < end; i++) {
+          if (left < middle && (right >= end || comparator.applyAsInt(res[left], res[right]) <= 0)) {
+            buffer[i] = res[left++];
+          } else {
+            buffer[i] = res[right++];
+          }
+        }
+      }
+      int[] sorted = buffer;
+      buffer = res;
+      res = sorted;
+    }
+    return res;
+  }
+
+  /**
+   * Compares the paths of two rows, same order as their {@link Path}.
+   */
+  public int comparePath(int row, int otherRow) {
+    return directories.compare(directoryIds[row], names[row], directoryIds[otherRow], names[otherRow]);
+  }
+
+  /**
+   * Reorders the rows by path, dropping the spare capacity.
+   */
+  public void sortByPath() {
+    int[] order = order(this::comparePath);
+    int[] sortedDirectoryIds = new int[size];
+    Path[] sortedNames = new Path[size];
+    long[] sortedEpochSeconds = new long[size];
+    int[] sortedNanos = new int[size];
+    byte[] sortedSources = new byte[size];
+    long[] sortedFileSizes = new long[size];
+    long[] sortedLastModifiedMillis = new long[size];
+    for (int i = 0; i < size; i++) {
+      int row = order[i];
+      sortedDirectoryIds[i] = directoryIds[row];
+      sortedNames[i] = names[row];
+      sortedEpochSeconds[i] = epochSeconds[row];
+      sortedNanos[i] = nanos[row];
+      sortedSources[i] = sources[row];
+      sortedFileSizes[i] = fileSizes[row];
+      sortedLastModifiedMillis[i] = lastModifiedMillis[row];
+    }
+    directoryIds = sortedDirectoryIds;
+    names = sortedNames;
+    epochSeconds = sortedEpochSeconds;
+    nanos = sortedNanos;
+    sources = sortedSources;
+    fileSizes = sortedFileSizes;
+    lastModifiedMillis = sortedLastModifiedMillis;
+  }
+}
@@ -9,16 +9,42 @@ import java.util.Set;
 public class FileTypeUtil {
   private static final Set<String> SUPPORTED_EXTENSIONS = Set.of(
       "mkv", "jpeg", "jpg", "avi", "mp4", "mov", "png", "webp", "gif",
-      "heic", "heif", "webm", "3gp", "tiff", "tif");
+      "heic", "heif", "webm", "3gp", "tiff", "tif", "cr2", "nef", "arw", "dng");
+  private static final Set<String> MATROSKA_EXTENSIONS = Set.of("mkv", "webm");
+  private static final Set<String> RIFF_EXTENSIONS = Set.of("webp", "avi");
+  // TIFF and the camera RAW formats built on it
+  private static final Set<String> TIFF_EXTENSIONS = Set.of("tiff", "tif", "cr2", "nef", "arw", "dng");
 
   public static boolean isJpegFile(Path file) {
-    String extension = getLowercaseExtension(file);
-    return "jpeg".equals(extension) || "jpg".equals(extension);
+    return isJpegExtension(getLowercaseExtension(file));
+  }
+
+  public static boolean isJpegExtension(String lowercaseExtension) {
+    return "jpeg".equals(lowercaseExtension) || "jpg".equals(lowercaseExtension);
+  }
+
+  public static boolean isTiffExtension(String lowercaseExtension) {
+    return TIFF_EXTENSIONS.contains(lowercaseExtension);
+  }
+
+  public static boolean isMatroskaExtension(String lowercaseExtension) {
+    return MATROSKA_EXTENSIONS.contains(lowercaseExtension);
+  }
+
+  public static boolean isPngExtension(String lowercaseExtension) {
+    return "png".equals(lowercaseExtension);
+  }
+
+  public static boolean isRiffExtension(String lowercaseExtension) {
+    return RIFF_EXTENSIONS.contains(lowercaseExtension);
   }
 
   public static boolean isSupportedExtension(Path file) {
-    String extension = getLowercaseExtension(file);
-    return SUPPORTED_EXTENSIONS.contains(extension);
+    return isSupportedExtension(getLowercaseExtension(file));
+  }
+
+  public static boolean isSupportedExtension(String lowercaseExtension) {
+    return SUPPORTED_EXTENSIONS.contains(lowercaseExtension);
   }
 
   public static String withoutExtension(Path file) {
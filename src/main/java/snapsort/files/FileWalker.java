@@ -0,0 +1,123 @@
+package snapsort.files;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SecureDirectoryStream;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Walks a folder tree and hands each file that is not a directory to a visitor, together with the attributes read
+ * while listing its directory. Symbolic links are not followed, the visitor receives the attributes of the link.
+ * <p>
+ * With one thread this is {@link Files#walkFileTree}. With more, directories are listed concurrently on a fork-join
+ * pool: the visitor is then called from several threads and files come in no particular order.
+ * <p>
+ * Directories under the walked folder can be skipped, their content is then not listed.
+ */
+class FileWalker {
+  private final int threads;
+
+  FileWalker(int threads) {
+    this.threads = threads;
+  }
+
+  void walk(Path folder, BiConsumer<Path, BasicFileAttributes> visitor) throws IOException {
+    walk(folder, directory -> false, visitor);
+  }
+
+  void walk(Path folder, Predicate<Path> skippedDirectory, BiConsumer<Path, BasicFileAttributes> visitor)
+      throws IOException {
+    if (threads <= 1) {
+      walkSequentially(folder, skippedDirectory, visitor);
+      return;
+    }
+    try (ForkJoinPool pool = new ForkJoinPool(threads)) {
+      pool.invoke(new DirectoryTask(folder, skippedDirectory, visitor));
+    } catch (RuntimeException e) {
+      // Fork-join may wrap the exception of another thread, report the I/O error as the sequential walk would
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+        if (cause instanceof UncheckedIOException uncheckedIOException) {
+          throw uncheckedIOException.getCause();
+        }
+      }
+      throw e;
+    }
+  }
+
+  private static void walkSequentially(Path folder, Predicate<Path> skippedDirectory,
+      BiConsumer<Path, BasicFileAttributes> visitor) throws IOException {
+    Files.walkFileTree(folder, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes) {
+        return !directory.equals(folder) && skippedDirectory.test(directory)
+            ? FileVisitResult.SKIP_SUBTREE
+            : FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+        visitor.accept(file, attributes);
+        return FileVisitResult.CONTINUE;
+      }
+    });
+  }
+
+  private static class DirectoryTask extends RecursiveAction {
+    private final Path directory;
+    private final Predicate<Path> skippedDirectory;
+    private final BiConsumer<Path, BasicFileAttributes> visitor;
+
+    DirectoryTask(Path directory, Predicate<Path> skippedDirectory, BiConsumer<Path, BasicFileAttributes> visitor) {
+      this.directory = directory;
+      this.skippedDirectory = skippedDirectory;
+      this.visitor = visitor;
+    }
+
+    @Override
+    protected void compute() {
+      List<DirectoryTask> subDirectories = new ArrayList<>();
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+        for (Path entry : entries) {
+          BasicFileAttributes attributes = readAttributes(entries, entry);
+          if (attributes.isDirectory()) {
+            if (skippedDirectory.test(entry)) {
+              continue;
+            }
+            DirectoryTask subDirectory = new DirectoryTask(entry, skippedDirectory, visitor);
+            // Listed by an idle thread while this one carries on with the files of this directory
+            subDirectory.fork();
+            subDirectories.add(subDirectory);
+          } else {
+            visitor.accept(entry, attributes);
+          }
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      subDirectories.forEach(ForkJoinTask::join);
+    }
+
+    private static BasicFileAttributes readAttributes(DirectoryStream<Path> entries, Path entry) throws IOException {
+      if (entries instanceof SecureDirectoryStream<Path> secureEntries) {
+        // Relative to the open directory, the path is not resolved again from the root for each file
+        return secureEntries.getFileAttributeView(entry.getFileName(), BasicFileAttributeView.class,
+            LinkOption.NOFOLLOW_LINKS).readAttributes();
+      }
+      return Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+    }
+  }
+}
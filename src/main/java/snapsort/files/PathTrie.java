@@ -0,0 +1,144 @@
+package snapsort.files;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Directories of the files of a {@link FileTable}, stored once per directory: each directory is a node holding its
+ * parent node and its last element, so that the files of a tree share the prefix of their paths.
+ * <p>
+ * Node ids are ints, {@link #NONE} stands for the empty path (files given without a directory). The {@link Path} of a
+ * directory is only built when it is asked for, then kept.
+ * <p>
+ * Paths compare element by element: a directory orders among the files and directories next to it like its name
+ * followed by a separator, which is the part of the full paths where they differ. Comparing two files only needs the
+ * elements just below their deepest common directory, without building their paths.
+ * <p>
+ * Not thread safe.
+ */
+class PathTrie {
+  static final int NONE = -1;
+  private static final int INITIAL_CAPACITY = 64;
+  // Any name, the order of a directory name followed by it does not depend on it
+  private static final String ANY_NAME = "x";
+
+  /**
+   * Element of a path below its parent node.
+   */
+  private record Element(int parent, Path name) {
+  }
+
+  private final Map<Element, Integer> ids = new HashMap<>();
+  // Node id -> parent node id, NONE for the first element of a path (its root when it is absolute)
+  private int[] parents = new int[INITIAL_CAPACITY];
+  // Node id -> root or name of the directory
+  private Path[] names = new Path[INITIAL_CAPACITY];
+  // Node id -> name followed by a separator and ANY_NAME, orders the directory among the elements next to it
+  private Path[] keys = new Path[INITIAL_CAPACITY];
+  // Node id -> number of directories above it
+  private int[] depths = new int[INITIAL_CAPACITY];
+  // Node id -> path of the directory, null until asked for
+  private Path[] paths = new Path[INITIAL_CAPACITY];
+  private int size;
+  // Last directory looked up, the files of a directory are usually added one after the other
+  private Path lastDirectory;
+  private int lastId = NONE;
+
+  /**
+   * Id of the directory, added if needed. directory can be null.
+   */
+  int id(Path directory) {
+    if (directory == null) {
+      return NONE;
+    }
+    if (directory.equals(lastDirectory)) {
+      return lastId;
+    }
+    int id = NONE;
+    Path root = directory.getRoot();
+    if (root != null) {
+      id = child(NONE, root);
+    }
+    for (Path name : directory) {
+      id = child(id, name);
+    }
+    lastDirectory = directory;
+    lastId = id;
+    return id;
+  }
+
+  /**
+   * Path of the directory, null for {@link #NONE}.
+   */
+  Path path(int id) {
+    if (id == NONE) {
+      return null;
+    }
+    Path res = paths[id];
+    if (res == null) {
+      Path parent = path(parents[id]);
+      res = parent == null ? names[id] : parent.resolve(names[id]);
+      paths[id] = res;
+    }
+    return res;
+  }
+
+  /**
+   * Compares the paths of two files given by the id of their directory and their name, same order as their
+   * {@link Path}.
+   */
+  int compare(int directory, Path name, int otherDirectory, Path otherName) {
+    if (directory == otherDirectory) {
+      return name.compareTo(otherName);
+    }
+    // Go up to the deepest common directory, keeping the elements just below it (NONE for the file names)
+    int element = NONE;
+    int otherElement = NONE;
+    int id = directory;
+    int otherId = otherDirectory;
+    while (depth(id) > depth(otherId)) {
+      element = id;
+      id = parents[id];
+    }
+    while (depth(otherId) > depth(id)) {
+      otherElement = otherId;
+      otherId = parents[otherId];
+    }
+    while (id != otherId) {
+      element = id;
+      id = parents[id];
+      otherElement = otherId;
+      otherId = parents[otherId];
+    }
+    Path key = element == NONE ? name : keys[element];
+    Path otherKey = otherElement == NONE ? otherName : keys[otherElement];
+    return key.compareTo(otherKey);
+  }
+
+  private int depth(int id) {
+    return id == NONE ? -1 : depths[id];
+  }
+
+  private int child(int parent, Path name) {
+    Integer id = ids.get(new Element(parent, name));
+    if (id != null) {
+      return id;
+    }
+    if (size == parents.length) {
+      int capacity = size * 2;
+      parents = Arrays.copyOf(parents, capacity);
+      names = Arrays.copyOf(names, capacity);
+      keys = Arrays.copyOf(keys, capacity);
+      depths = Arrays.copyOf(depths, capacity);
+      paths = Arrays.copyOf(paths, capacity);
+    }
+    parents[size] = parent;
+    names[size] = name;
+    keys[size] = name.resolve(ANY_NAME);
+    depths[size] = depth(parent) + 1;
+    ids.put(new Element(parent, name), size);
+    return size++;
+  }
+}
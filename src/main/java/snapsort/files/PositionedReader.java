@@ -0,0 +1,61 @@
+package snapsort.files;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Positioned reads of the file of a {@link FileContext}, for extractors jumping through the structure of a file
+ * instead of streaming it. Reads are served from the header of the context when possible, the file is only opened
+ * when a read goes past it.
+ * <p>
+ * Not thread safe.
+ */
+public class PositionedReader implements AutoCloseable {
+  private final Path path;
+  private final ByteBuffer header;
+  private final long size;
+  private FileChannel channel;
+
+  public PositionedReader(FileContext file) throws IOException {
+    this.path = file.path();
+    this.header = file.header();
+    this.size = file.attributes().size();
+  }
+
+  public Path path() {
+    return path;
+  }
+
+  /**
+   * Size of the file.
+   */
+  public long size() {
+    return size;
+  }
+
+  /**
+   * Up to length bytes at position, less at the end of the file. The buffer is big endian.
+   */
+  public ByteBuffer read(long position, int length) throws IOException {
+    if (position >= 0 && position + length <= header.limit()) {
+      return header.slice((int) position, length);
+    }
+    if (position < 0 || position >= size) {
+      return ByteBuffer.allocate(0);
+    }
+    if (channel == null) {
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+    return FileContext.read(channel, position, (int) Math.min(length, size - position));
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (channel != null) {
+      channel.close();
+    }
+  }
+}
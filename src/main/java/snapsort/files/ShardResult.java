@@ -0,0 +1,139 @@
+package snapsort.files;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.TimeStampSource;
+import snapsort.io.BinaryStrings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+/**
+ * Dated files found by one shard of a sharded run, written by each shard and merged before deduplicating.
+ * <p>
+ * The file is binary: a header with the shard number, the number of shards and the input folders, then one entry per
+ * file with its path, chosen date, and size and last modified time when it was analyzed. Merging checks that the
+ * results are the ones of all the shards of the same run, then sorts the files by path like
+ * {@link FileLister#listFileTable(List)} does, so that deduplicating them gives the same names as a run that is not
+ * sharded.
+ */
+@Slf4j
+public class ShardResult {
+  private static final int MAGIC = 0x534E5348; // "SNSH"
+  private static final int FORMAT_VERSION = 2;
+  private static final TimeStampSource[] SOURCES = TimeStampSource.values();
+
+  /**
+   * Writes the files found by shard (from 1 to shardCount) to resultFile, atomically.
+   */
+  public static void write(Path resultFile, int shard, int shardCount, List<Path> inputFolders, FileTable files)
+      throws IOException {
+    Path tempFile = resultFile.resolveSibling(resultFile.getFileName() + ".tmp");
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeInt(shard);
+      out.writeInt(shardCount);
+      BinaryStrings.write(out, inputFoldersKey(inputFolders));
+      for (int row = 0; row < files.size(); row++) {
+        BinaryStrings.write(out, files.path(row).toString());
+        out.writeByte(files.source(row).ordinal());
+        out.writeLong(files.epochSecond(row));
+        out.writeInt(files.nano(row));
+        out.writeLong(files.fileSize(row));
+        out.writeLong(files.lastModifiedMillis(row));
+      }
+    }
+    Files.move(tempFile, resultFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    log.info("Wrote {} dated files of shard {}/{} to {}", files.size(), shard, shardCount, resultFile);
+  }
+
+  /**
+   * Files of all the shards, sorted by path. Throws IllegalArgumentException if the results are not the ones of all
+   * the shards of the same input folders.
+   */
+  public static FileTable merge(List<Path> resultFiles) throws IOException {
+    FileTable res = new FileTable();
+    forEachFile(resultFiles, res::add);
+    res.sortByPath();
+    return res;
+  }
+
+  /**
+   * Gives the files of all the shards to consumer, shard after shard, without keeping them. The results are checked
+   * like by {@link #merge(List)} before any file is given.
+   */
+  public static void forEachFile(List<Path> resultFiles, FileEntryConsumer consumer) throws IOException {
+    checkShards(resultFiles);
+    for (Path resultFile : resultFiles) {
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(resultFile)))) {
+        Header header = readHeader(in, resultFile);
+        long count = 0;
+        String path;
+        while ((path = BinaryStrings.readOrEnd(in)) != null) {
+          TimeStampSource source = SOURCES[in.readByte()];
+          consumer.accept(Path.of(path), in.readLong(), in.readInt(), source, in.readLong(), in.readLong());
+          count++;
+        }
+        log.info("Read {} dated files of shard {}/{} from {}", count, header.shard(), header.shardCount(), resultFile);
+      }
+    }
+  }
+
+  private record Header(int shard, int shardCount, String inputFolders) {
+  }
+
+  /**
+   * Checks that the results are the ones of all the shards of the same run, reading only their headers.
+   */
+  private static void checkShards(List<Path> resultFiles) throws IOException {
+    Header expected = null;
+    boolean[] seenShards = null;
+    for (Path resultFile : resultFiles) {
+      Header header;
+      try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(resultFile)))) {
+        header = readHeader(in, resultFile);
+      }
+      if (expected == null) {
+        expected = header;
+        seenShards = new boolean[header.shardCount()];
+      } else if (header.shardCount() != expected.shardCount()
+          || !header.inputFolders().equals(expected.inputFolders())) {
+        throw new IllegalArgumentException("Shard result " + resultFile + " is for shards of " + header.shardCount()
+            + " of input folders " + header.inputFolders() + ", not " + expected.shardCount() + " of "
+            + expected.inputFolders());
+      }
+      if (seenShards[header.shard() - 1]) {
+        throw new IllegalArgumentException("Shard " + header.shard() + "/" + header.shardCount() + " is given twice");
+      }
+      seenShards[header.shard() - 1] = true;
+    }
+    for (int shard = 1; seenShards != null && shard <= seenShards.length; shard++) {
+      if (!seenShards[shard - 1]) {
+        throw new IllegalArgumentException("Result of shard " + shard + "/" + seenShards.length + " is missing");
+      }
+    }
+  }
+
+  private static Header readHeader(DataInputStream in, Path resultFile) throws IOException {
+    if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+      throw new IllegalArgumentException("File " + resultFile + " is not a snapsort shard result");
+    }
+    int shard = in.readInt();
+    int shardCount = in.readInt();
+    if (shard < 1 || shard > shardCount) {
+      throw new IllegalArgumentException("File " + resultFile + " has an invalid shard " + shard + "/" + shardCount);
+    }
+    return new Header(shard, shardCount, BinaryStrings.read(in));
+  }
+
+  private static String inputFoldersKey(List<Path> inputFolders) {
+    return inputFolders.stream().map(folder -> folder.toAbsolutePath().normalize().toString()).toList().toString();
+  }
+}
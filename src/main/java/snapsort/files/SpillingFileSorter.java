@@ -0,0 +1,276 @@
+package snapsort.files;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.io.BinaryStrings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Sorts dated files by timestamp, files at the same timestamp by path, with a bounded number of files in memory.
+ * <p>
+ * Added files are kept in a {@link FileTable}. Each time it holds maxFilesInMemory files, they are sorted and written
+ * to a run file in a temporary folder. The sorted files are then read back by merging the runs, holding one file per
+ * run. When there are more than {@link #MAX_MERGED_RUNS} runs, groups of runs are first merged into bigger runs so
+ * that the number of open files stays bounded. Without any run, the files are sorted in memory.
+ * <p>
+ * Files can be added from several threads. The run files are deleted by {@link #close()}.
+ */
+@Slf4j
+public class SpillingFileSorter implements AutoCloseable {
+  // Runs merged at once, each one has an open file and a read buffer
+  private static final int MAX_MERGED_RUNS = 64;
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final TimeStampSource[] SOURCES = TimeStampSource.values();
+  private static final Comparator<RunReader> BY_TIME_THEN_PATH = Comparator.comparingLong(RunReader::epochSecond)
+      .thenComparingInt(RunReader::nano)
+      .thenComparing(RunReader::path);
+
+  private final int maxFilesInMemory;
+  // Folder in which the folder of the runs is created, the default temporary folder when null
+  private final Path spillFolder;
+  private final List<Path> runs = new ArrayList<>();
+  private Path runFolder;
+  private int createdRuns;
+  private FileTable buffer = new FileTable();
+  private long size;
+
+  public SpillingFileSorter(int maxFilesInMemory, Path spillFolder) {
+    this.maxFilesInMemory = maxFilesInMemory;
+    this.spillFolder = spillFolder;
+  }
+
+  public synchronized void add(Path path, TimeStampWithSource timestamp) {
+    buffer.add(path, timestamp);
+    added();
+  }
+
+  public synchronized void add(FileInfo file) {
+    buffer.add(file);
+    added();
+  }
+
+  public synchronized void add(Path path, long epochSecond, int nano, TimeStampSource source, long fileSize,
+      long lastModifiedMillis) {
+    buffer.add(path, epochSecond, nano, source, fileSize, lastModifiedMillis);
+    added();
+  }
+
+  private void added() {
+    size++;
+    if (buffer.size() >= maxFilesInMemory) {
+      try {
+        spill();
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not write sorted files to " + runFolder, e);
+      }
+    }
+  }
+
+  /**
+   * Number of files added.
+   */
+  public synchronized long size() {
+    return size;
+  }
+
+  /**
+   * Gives all the added files to consumer by ascending timestamp, files at the same timestamp by path. Can only be
+   * called once, after all the files have been added.
+   */
+  public synchronized void forEachByTime(Consumer<FileInfo> consumer) throws IOException {
+    if (runs.isEmpty()) {
+      FileTable files = buffer;
+      buffer = new FileTable();
+      for (int row : byTimeThenPath(files)) {
+        consumer.accept(files.fileInfo(row));
+      }
+      return;
+    }
+    if (!buffer.isEmpty()) {
+      spill();
+    }
+    buffer = new FileTable();
+    while (runs.size() > MAX_MERGED_RUNS) {
+      List<Path> group = new ArrayList<>(runs.subList(0, MAX_MERGED_RUNS));
+      Path merged = newRun();
+      // Listed before being written so that close deletes it even if merging fails
+      runs.add(merged);
+      try (DataOutputStream out = openRun(merged)) {
+        merge(group, reader -> reader.write(out));
+      }
+      runs.removeAll(group);
+      for (Path run : group) {
+        Files.delete(run);
+      }
+    }
+    log.info("Merging {} runs of sorted files", runs.size());
+    merge(runs, reader -> consumer.accept(reader.fileInfo()));
+  }
+
+  private void spill() throws IOException {
+    Path run = newRun();
+    try (DataOutputStream out = openRun(run)) {
+      for (int row : byTimeThenPath(buffer)) {
+        BinaryStrings.write(out, buffer.path(row).toString());
+        out.writeByte(buffer.source(row).ordinal());
+        out.writeLong(buffer.epochSecond(row));
+        out.writeInt(buffer.nano(row));
+        out.writeLong(buffer.fileSize(row));
+        out.writeLong(buffer.lastModifiedMillis(row));
+      }
+    }
+    log.info("Wrote {} sorted files to {}", buffer.size(), run);
+    runs.add(run);
+    buffer = new FileTable();
+  }
+
+  private static int[] byTimeThenPath(FileTable files) {
+    return files.order((row, otherRow) -> {
+      int res = files.compareTime(row, otherRow);
+      return res != 0 ? res : files.comparePath(row, otherRow);
+    });
+  }
+
+  private Path newRun() throws IOException {
+    if (runFolder == null) {
+      runFolder = spillFolder == null
+          ? Files.createTempDirectory("snapsort-sort")
+          : Files.createTempDirectory(spillFolder, "snapsort-sort");
+    }
+    return runFolder.resolve("run" + createdRuns++ + ".bin");
+  }
+
+  private static DataOutputStream openRun(Path run) throws IOException {
+    return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE));
+  }
+
+  /**
+   * Calls action on the reader positioned on each file of the runs, by ascending timestamp then path.
+   */
+  private static void merge(List<Path> toMerge, RunAction action) throws IOException {
+    PriorityQueue<RunReader> readers = new PriorityQueue<>(BY_TIME_THEN_PATH);
+    try {
+      for (Path run : toMerge) {
+        RunReader reader = new RunReader(run);
+        if (reader.next()) {
+          readers.add(reader);
+        } else {
+          reader.close();
+        }
+      }
+      RunReader reader;
+      while ((reader = readers.poll()) != null) {
+        action.accept(reader);
+        if (reader.next()) {
+          readers.add(reader);
+        } else {
+          reader.close();
+        }
+      }
+    } finally {
+      for (RunReader reader : readers) {
+        reader.close();
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface RunAction {
+    void accept(RunReader reader) throws IOException;
+  }
+
+  /**
+   * Reads the files of a run one by one.
+   */
+  private static class RunReader implements AutoCloseable {
+    private final DataInputStream in;
+    private Path path;
+    private TimeStampSource source;
+    private long epochSecond;
+    private int nano;
+    private long fileSize;
+    private long lastModifiedMillis;
+
+    RunReader(Path run) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+    }
+
+    /**
+     * Moves to the next file, false at the end of the run.
+     */
+    boolean next() throws IOException {
+      String value = BinaryStrings.readOrEnd(in);
+      if (value == null) {
+        return false;
+      }
+      path = Path.of(value);
+      source = SOURCES[in.readByte()];
+      epochSecond = in.readLong();
+      nano = in.readInt();
+      fileSize = in.readLong();
+      lastModifiedMillis = in.readLong();
+      return true;
+    }
+
+    Path path() {
+      return path;
+    }
+
+    long epochSecond() {
+      return epochSecond;
+    }
+
+    int nano() {
+      return nano;
+    }
+
+    FileInfo fileInfo() {
+      LocalDateTime time = LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC);
+      return new FileInfo(path, new TimeStampWithSource(time, source), fileSize, lastModifiedMillis);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      BinaryStrings.write(out, path.toString());
+      out.writeByte(source.ordinal());
+      out.writeLong(epochSecond);
+      out.writeInt(nano);
+      out.writeLong(fileSize);
+      out.writeLong(lastModifiedMillis);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /**
+   * Deletes the runs and their folder.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    for (Path run : runs) {
+      Files.deleteIfExists(run);
+    }
+    runs.clear();
+    if (runFolder != null) {
+      Files.deleteIfExists(runFolder);
+    }
+  }
+}
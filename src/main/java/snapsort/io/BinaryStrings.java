@@ -0,0 +1,66 @@
+package snapsort.io;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Strings of the binary files written by snapsort (plans, journals, caches, sort runs, shard results): their length in
+ * bytes as an int, followed by their UTF-8 bytes.
+ * <p>
+ * A string cut by the end of the input, or whose length cannot be right, is an error: only the end of the input
+ * before a string starts is a normal end, see {@link #readOrEnd(DataInputStream)}.
+ */
+public class BinaryStrings {
+
+  public static void write(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Next string, throws EOFException when the input ends before its end.
+   */
+  public static String read(DataInputStream in) throws IOException {
+    return readBytes(in, in.readInt());
+  }
+
+  /**
+   * Next string, null when the input ends before it starts. Throws EOFException when the input ends within it.
+   */
+  public static String readOrEnd(DataInputStream in) throws IOException {
+    int first = in.read();
+    if (first < 0) {
+      return null;
+    }
+    int length = first << 24 | in.readUnsignedByte() << 16 | in.readUnsignedByte() << 8 | in.readUnsignedByte();
+    return readBytes(in, length);
+  }
+
+  /**
+   * Next string of the buffer, throws BufferUnderflowException when the buffer ends before its end.
+   */
+  public static String read(ByteBuffer buffer) {
+    int length = buffer.getInt();
+    if (length < 0 || length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+    byte[] bytes = new byte[length];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String readBytes(DataInputStream in, int length) throws IOException {
+    if (length < 0) {
+      throw new EOFException("Invalid string length " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,235 @@
+package snapsort.renamer;
+
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.files.FileInfo;
+import snapsort.files.FileTable;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Resolves timestamp collisions in a single sweep over the occupied seconds, in ascending order.
+ * <p>
+ * Gives the same result as repeating the historical resolution pass until no collision is left: in each pass, the
+ * files sharing a timestamp keep their order, the first one stays and the n-th one is moved n seconds later.
+ * Instead of regrouping all the files at each pass, files moved to a second are queued on it, tagged with the pass in
+ * which they arrive and the second they come from. When the sweep reaches a second, its files are resolved pass after
+ * pass, in the order the repeated passes would have seen them: by second of origin, the file already there last.
+ * Seconds never touched by a collision are visited once.
+ * <p>
+ * A second can be occupied by a file that is not part of the sweep (already in the destination). That file is first of
+ * every group at its second and never moves, so all the files of the sweep there are moved to the next seconds.
+ * <p>
+ * Seconds can be resolved in several steps with {@link #resolveBefore}, files being added between steps. Files added
+ * before an already resolved second are resolved by the next step against the occupants function, which must then
+ * know the files already resolved.
+ * <p>
+ * The sweep works on any representation of the files through a {@link FileAccessor}: {@link FileInfo} objects, or the
+ * rows of a {@link FileTable}.
+ */
+class CollisionSweep<F> {
+
+  /**
+   * How the sweep reads and moves the files it is given, F identifying a file.
+   */
+  interface FileAccessor<F> {
+    Path path(F file);
+
+    LocalDateTime time(F file);
+
+    /**
+     * The file moved to time by a collision, with the {@link TimeStampSource#COLLISION_AVOIDANCE} source.
+     */
+    F moved(F file, LocalDateTime time);
+  }
+
+  static final FileAccessor<FileInfo> FILE_INFOS = new FileAccessor<>() {
+    @Override
+    public Path path(FileInfo file) {
+      return file.path();
+    }
+
+    @Override
+    public LocalDateTime time(FileInfo file) {
+      return file.timestamp().getTime();
+    }
+
+    @Override
+    public FileInfo moved(FileInfo file, LocalDateTime time) {
+      return file.withTimestamp(new TimeStampWithSource(time, TimeStampSource.COLLISION_AVOIDANCE));
+    }
+  };
+
+  /**
+   * Rows of the table, whose timestamps are updated in place when they are moved.
+   */
+  static FileAccessor<Integer> rowsOf(FileTable table) {
+    return new FileAccessor<>() {
+      @Override
+      public Path path(Integer row) {
+        return table.path(row);
+      }
+
+      @Override
+      public LocalDateTime time(Integer row) {
+        return table.time(row);
+      }
+
+      @Override
+      public Integer moved(Integer row, LocalDateTime time) {
+        table.setTimestamp(row, time, TimeStampSource.COLLISION_AVOIDANCE);
+        return row;
+      }
+    };
+  }
+
+  /**
+   * File moved to a second by a collision during the previous pass, takes part in this pass there.
+   */
+  private record Arrival<F>(int pass, F file) {
+  }
+
+  private record PassGroup<F>(int pass, List<F> files) {
+  }
+
+  /**
+   * Files at a second: the ones originally there, in input order, and the ones moved there by collisions.
+   */
+  private static class Slot<F> {
+    private final List<F> originals = new ArrayList<>(1);
+    private final List<Arrival<F>> arrivals = new ArrayList<>(0);
+  }
+
+  private final TreeMap<LocalDateTime, Slot<F>> slots = new TreeMap<>();
+  private final FileAccessor<F> accessor;
+  // Normalized path of the file occupying a second outside the sweep, null when free
+  private final Function<LocalDateTime, Path> occupants;
+  // Order of the files originally at a second, null for the order in which they were added
+  private final Comparator<F> originalsOrder;
+
+  CollisionSweep(FileAccessor<F> accessor, Function<LocalDateTime, Path> occupants) {
+    this(accessor, occupants, null);
+  }
+
+  CollisionSweep(FileAccessor<F> accessor, Function<LocalDateTime, Path> occupants, Comparator<F> originalsOrder) {
+    this.accessor = accessor;
+    this.occupants = occupants;
+    this.originalsOrder = originalsOrder;
+  }
+
+  void add(F file) {
+    slots.computeIfAbsent(accessor.time(file), time -> new Slot<>()).originals.add(file);
+  }
+
+  /**
+   * Resolves all the added files, each one ends up alone at its second. Files moved by a collision get the
+   * {@link TimeStampSource#COLLISION_AVOIDANCE} source.
+   */
+  List<F> resolveAll() {
+    return resolveBefore(LocalDateTime.MAX);
+  }
+
+  /**
+   * Resolves the seconds before limit. Files added later at or after limit are resolved as if they had been added
+   * before this call.
+   */
+  List<F> resolveBefore(LocalDateTime limit) {
+    List<F> res = new ArrayList<>();
+    Map.Entry<LocalDateTime, Slot<F>> entry;
+    while ((entry = slots.firstEntry()) != null && entry.getKey().isBefore(limit)) {
+      slots.pollFirstEntry();
+      F resolved = resolve(entry.getKey(), entry.getValue());
+      if (resolved != null) {
+        res.add(resolved);
+      }
+    }
+    return res;
+  }
+
+  /**
+   * Resolves the files of a second, moves all of them but one to the next seconds and returns the one staying.
+   */
+  private F resolve(LocalDateTime time, Slot<F> slot) {
+    if (originalsOrder != null) {
+      slot.originals.sort(originalsOrder);
+    }
+    Path outsideOccupant = occupants.apply(time);
+    if (outsideOccupant != null) {
+      return resolveOccupied(time, slot, outsideOccupant);
+    }
+    F occupant = null;
+    if (!slot.originals.isEmpty()) {
+      occupant = spread(time, 1, slot.originals, 0);
+    }
+    for (PassGroup<F> group : groupByPass(slot.arrivals)) {
+      if (occupant != null) {
+        group.files().add(occupant);
+      }
+      occupant = spread(time, group.pass(), group.files(), 0);
+    }
+    return atSecond(occupant, time);
+  }
+
+  /**
+   * Moves all the files of a second occupied outside the sweep. If the occupying file is part of the sweep with this
+   * timestamp (already at its place), it stays and is returned.
+   */
+  private F resolveOccupied(LocalDateTime time, Slot<F> slot, Path outsideOccupant) {
+    F staying = null;
+    List<F> moving = new ArrayList<>(slot.originals.size());
+    for (F file : slot.originals) {
+      if (staying == null && accessor.path(file).toAbsolutePath().normalize().equals(outsideOccupant)) {
+        staying = file;
+      } else {
+        moving.add(file);
+      }
+    }
+    spread(time, 1, moving, 1);
+    for (PassGroup<F> group : groupByPass(slot.arrivals)) {
+      spread(time, group.pass(), group.files(), 1);
+    }
+    return staying;
+  }
+
+  /**
+   * Arrivals grouped by pass, in ascending order. Arrivals of a pass are queued in ascending order of their origin,
+   * the stable sort keeps it.
+   */
+  private static <F> List<PassGroup<F>> groupByPass(List<Arrival<F>> arrivals) {
+    arrivals.sort(Comparator.comparingInt(Arrival::pass));
+    List<PassGroup<F>> res = new ArrayList<>();
+    for (Arrival<F> arrival : arrivals) {
+      if (res.isEmpty() || res.getLast().pass() != arrival.pass()) {
+        res.add(new PassGroup<>(arrival.pass(), new ArrayList<>()));
+      }
+      res.getLast().files().add(arrival.file());
+    }
+    return res;
+  }
+
+  private F atSecond(F occupant, LocalDateTime time) {
+    if (accessor.time(occupant).equals(time)) {
+      return occupant;
+    }
+    return accessor.moved(occupant, time);
+  }
+
+  /**
+   * The n-th file of the group is moved n + offset seconds later and takes part in the next pass there. With an offset
+   * of 0 the first file stays and is returned, with an offset of 1 all the files move and null is returned.
+   */
+  private F spread(LocalDateTime time, int pass, List<F> group, int offset) {
+    for (int i = 1 - offset; i < group.size(); i++) {
+      Slot<F> target = slots.computeIfAbsent(time.plusSeconds(i + offset), t -> new Slot<>());
+      target.arrivals.add(new Arrival<>(pass + 1, group.get(i)));
+    }
+    return offset == 0 && !group.isEmpty() ? group.getFirst() : null;
+  }
+}
@@ -0,0 +1,202 @@
+package snapsort.renamer;
+
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import snapsort.concurrent.ConcurrencyUtil;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.CRC32C;
+
+/**
+ * Moves files to another file system, where a move is a copy followed by a delete.
+ * <p>
+ * The file is copied to a temporary file next to its destination, the CRC32C of the source being computed from the
+ * buffers written to the copy, so the source is read once. Once the copy is forced to the device it is read back and
+ * its CRC32C compared: the read back checks what the file system returns for the copy, which may come from its cache
+ * rather than from the device. Only a verified copy of a source that did not change while it was copied (same size
+ * and last modified date) is published under its final name (without overwriting), and only then the source is
+ * deleted. Large files are split in chunks copied and verified concurrently.
+ */
+@Slf4j
+class CrossDeviceCopier {
+  // Files smaller than two chunks are copied by a single thread
+  private static final long DEFAULT_MIN_CHUNK_SIZE = 64L * 1024 * 1024;
+  private static final int BUFFER_SIZE = 1024 * 1024;
+  // Starts with a dot and does not match the generated names, ignored by DestinationIndex
+  private static final String TEMP_FILE_SUFFIX = ".snapsort-copy";
+
+  private final int chunkThreads;
+  private final long minChunkSize;
+  // Direct buffers of BUFFER_SIZE not in use, at most one per thread copying at the same time. Chunks are copied by
+  // virtual threads that do not outlive the copy, so buffers are reused through this pool rather than per thread.
+  private final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+  CrossDeviceCopier(int chunkThreads) {
+    this(chunkThreads, DEFAULT_MIN_CHUNK_SIZE);
+  }
+
+  CrossDeviceCopier(int chunkThreads, long minChunkSize) {
+    this.chunkThreads = chunkThreads;
+    this.minChunkSize = minChunkSize;
+  }
+
+  /**
+   * Moves source to target, throws FileAlreadyExistsException without touching the source if target exists. Returns
+   * false when the copy was published but the source could not be deleted: the file is then under both names.
+   */
+  boolean move(Path source, Path target) throws IOException {
+    long start = System.nanoTime();
+    Path tempFile = target.resolveSibling("." + target.getFileName() + TEMP_FILE_SUFFIX);
+    BasicFileAttributes attributes = Files.readAttributes(source, BasicFileAttributes.class);
+    long size = attributes.size();
+    try {
+      copyVerified(source, tempFile, size);
+      checkUnchanged(source, attributes);
+      // Last modified date is one of the date sources, keep it like Files.move does
+      Files.setLastModifiedTime(tempFile, attributes.lastModifiedTime());
+      publish(tempFile, target);
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(tempFile);
+      throw e;
+    }
+    long elapsedNanos = Math.max(1, System.nanoTime() - start);
+    double megabytes = size / (1024.0 * 1024.0);
+    log.info("Copied {} to {}: {} MB in {} ms ({} MB/s)", source, target, String.format("%.1f", megabytes),
+        elapsedNanos / 1_000_000, String.format("%.1f", megabytes * 1e9 / elapsedNanos));
+    try {
+      Files.delete(source);
+      return true;
+    } catch (IOException e) {
+      log.warn("Could not delete {} once copied to {}", source, target, e);
+      return false;
+    }
+  }
+
+  /**
+   * Throws if source is not the version whose attributes were read before copying it: a copy of a file modified
+   * meanwhile may mix both versions, and the source must be kept.
+   */
+  static void checkUnchanged(Path source, BasicFileAttributes before) throws IOException {
+    BasicFileAttributes after = Files.readAttributes(source, BasicFileAttributes.class);
+    if (after.size() != before.size() || !after.lastModifiedTime().equals(before.lastModifiedTime())) {
+      throw new IOException("File " + source + " was modified while being copied, keeping it");
+    }
+  }
+
+  /**
+   * Copies the first size bytes of source to target. Throws if the copy differs from the source.
+   */
+  private void copyVerified(Path source, Path target, long size) throws IOException {
+    try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+        StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+      int chunks = (int) Math.max(1, Math.min(chunkThreads, size / minChunkSize));
+      long chunkSize = (size + chunks - 1) / chunks;
+      List<Long> chunkStarts = new ArrayList<>(chunks);
+      for (long position = 0; position < size || chunkStarts.isEmpty(); position += chunkSize) {
+        chunkStarts.add(position);
+      }
+      List<Long> sourceChecksums = ConcurrencyUtil.mapOrdered(chunkStarts, chunks,
+          position -> copyChunk(source, out, position, Math.min(chunkSize, size - position)));
+      out.force(true);
+      List<Long> copyChecksums = ConcurrencyUtil.mapOrdered(chunkStarts, chunks,
+          position -> checksum(out, position, Math.min(chunkSize, size - position)));
+      if (!sourceChecksums.equals(copyChecksums)) {
+        throw new IOException("Copy of " + source + " to " + target + " differs from the source");
+      }
+    }
+  }
+
+  /**
+   * Copies a range of source to the same range of out, returns the checksum of the bytes read from source.
+   */
+  @SneakyThrows
+  private long copyChunk(Path source, FileChannel out, long position, long length) {
+    ByteBuffer buffer = takeBuffer();
+    try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+      CRC32C crc = new CRC32C();
+      long copied = 0;
+      while (copied < length) {
+        buffer.clear().limit((int) Math.min(buffer.capacity(), length - copied));
+        int count = in.read(buffer, position + copied);
+        if (count < 0) {
+          throw new EOFException("Source " + source + " is shorter than expected");
+        }
+        buffer.flip();
+        crc.update(buffer);
+        buffer.rewind();
+        while (buffer.hasRemaining()) {
+          out.write(buffer, position + copied + buffer.position());
+        }
+        copied += count;
+      }
+      return crc.getValue();
+    } finally {
+      buffers.add(buffer);
+    }
+  }
+
+  @SneakyThrows
+  private long checksum(FileChannel channel, long position, long length) {
+    ByteBuffer buffer = takeBuffer();
+    try {
+      CRC32C crc = new CRC32C();
+      long read = 0;
+      while (read < length) {
+        buffer.clear().limit((int) Math.min(buffer.capacity(), length - read));
+        int count = channel.read(buffer, position + read);
+        if (count < 0) {
+          throw new EOFException("Unexpected end of file while verifying copy");
+        }
+        buffer.flip();
+        crc.update(buffer);
+        read += count;
+      }
+      return crc.getValue();
+    } finally {
+      buffers.add(buffer);
+    }
+  }
+
+  /**
+   * A buffer released by a previous chunk, a new one when all of them are in use. Goes back to the pool once used.
+   */
+  private ByteBuffer takeBuffer() {
+    ByteBuffer buffer = buffers.poll();
+    return buffer != null ? buffer : ByteBuffer.allocateDirect(BUFFER_SIZE);
+  }
+
+  /**
+   * Number of buffers allocated so far and not in use.
+   */
+  int pooledBuffers() {
+    return buffers.size();
+  }
+
+  /**
+   * Gives the copy its final name, throws FileAlreadyExistsException if the name is taken.
+   */
+  private static void publish(Path tempFile, Path target) throws IOException {
+    try {
+      Files.createLink(target, tempFile);
+    } catch (FileAlreadyExistsException e) {
+      throw e;
+    } catch (UnsupportedOperationException | IOException e) {
+      log.debug("Could not link {} to {}, moving it", tempFile, target, e);
+      Files.move(tempFile, target);
+      return;
+    }
+    Files.delete(tempFile);
+  }
+}
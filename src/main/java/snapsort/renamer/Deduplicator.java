@@ -1,66 +1,63 @@
 package snapsort.renamer;
 
-import snapsort.TimeStampSource;
-import snapsort.TimeStampWithSource;
 import snapsort.files.FileInfo;
+import snapsort.files.FileTable;
 import jakarta.enterprise.context.ApplicationScoped;
 
-import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class Deduplicator {
-  private record DeduplicateResult(boolean collisions, List<FileInfo> files) {
-  }
 
+  /**
+   * Gives a distinct timestamp to each file: when files share a timestamp, the first one keeps it and the next ones
+   * are moved one second later each, until no collision is left. Result is sorted by path.
+   */
   public List<FileInfo> deduplicateDates(List<FileInfo> files) {
-    DeduplicateResult res = deduplicateDatesStep(files);
-    while (res.collisions()) {
-      res = deduplicateDatesStep(res.files());
-    }
-    return res.files().stream().sorted(Comparator.comparing(FileInfo::path)).toList();
+    return deduplicate(files, new CollisionSweep<>(CollisionSweep.FILE_INFOS, time -> null));
   }
 
-  private static DeduplicateResult deduplicateDatesStep(List<FileInfo> allFiles) {
-    Map<LocalDateTime, List<FileInfo>> filesByDate = groupByDate(allFiles);
-    List<FileInfo> res = new ArrayList<>();
-    boolean collisions = false;
-    for (Map.Entry<LocalDateTime, List<FileInfo>> entry : filesByDate.entrySet()) {
-      List<FileInfo> files = entry.getValue();
-      FileInfo first = files.getFirst();
-      if (files.size() == 1) {
-        // No conflict
-        res.add(first);
-        continue;
-      }
-      collisions = true;
-      // Conflict, add one second to the second file, 2 seconds to the third file, etc.
-      int secondsDelta = 0;
-      for (FileInfo file : files) {
-        if (secondsDelta == 0) {
-          res.add(file);
-        } else {
-          LocalDateTime shifted = file.timestamp().getTime().plusSeconds(secondsDelta);
-          TimeStampWithSource newTimestamp = new TimeStampWithSource(shifted, TimeStampSource.COLLISION_AVOIDANCE);
-          res.add(new FileInfo(file.path(), newTimestamp));
-        }
-        secondsDelta++;
-      }
-    }
-    return new DeduplicateResult(collisions, res);
+  /**
+   * Same as {@link #deduplicateDates(List)}, also moving the files away from the seconds already taken in the
+   * destination. A file already at its place in the destination keeps its second.
+   */
+  public List<FileInfo> deduplicateDates(List<FileInfo> files, DestinationIndex destinationIndex) {
+    return deduplicate(files, new CollisionSweep<>(CollisionSweep.FILE_INFOS, destinationIndex::occupant));
+  }
+
+  /**
+   * Same as {@link #deduplicateDates(List)} on the rows of the table, whose timestamps are updated in place. The rows
+   * keep their order, the files originally sharing a timestamp are taken in that order: the table must be sorted by
+   * path to get the same dates as the list.
+   */
+  public void deduplicateDates(FileTable files) {
+    deduplicate(files, new CollisionSweep<>(CollisionSweep.rowsOf(files), time -> null));
   }
 
-  private static Map<LocalDateTime, List<FileInfo>> groupByDate(List<FileInfo> files) {
-    return files.stream()
-        .collect(Collectors.groupingBy(
-            file -> file.timestamp().getTime(),
-            TreeMap::new,
-            Collectors.toList()
-        ));
+  /**
+   * Same as {@link #deduplicateDates(List, DestinationIndex)} on the rows of the table, updated in place like
+   * {@link #deduplicateDates(FileTable)}.
+   */
+  public void deduplicateDates(FileTable files, DestinationIndex destinationIndex) {
+    deduplicate(files, new CollisionSweep<>(CollisionSweep.rowsOf(files), destinationIndex::occupant));
+  }
+
+  private static List<FileInfo> deduplicate(List<FileInfo> files, CollisionSweep<FileInfo> sweep) {
+    files.forEach(sweep::add);
+    return sweep.resolveAll().stream().sorted(Comparator.comparing(FileInfo::path)).toList();
+  }
+
+  /**
+   * Rows are given to the sweep by ascending timestamp, in table order at the same timestamp. Like in
+   * {@link SortedDeduplicator}, each row resolves the seconds before its own, so that only the rows of the seconds not
+   * resolved yet and the rows moved by collisions are held.
+   */
+  private static void deduplicate(FileTable files, CollisionSweep<Integer> sweep) {
+    for (int row : files.order(files::compareTime)) {
+      sweep.resolveBefore(files.time(row));
+      sweep.add(row);
+    }
+    sweep.resolveAll();
   }
 }
@@ -0,0 +1,97 @@
+package snapsort.renamer;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.extractor.filename.FinalFileNameDateExtractor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Seconds already taken by files in the destination folder.
+ * <p>
+ * A day folder is listed the first time a second of that day is looked up, then kept up to date by
+ * {@link #moved(Path, Path)}: each folder is listed at most once per run. A file occupies the second of its name
+ * whatever its extension, like {@link Deduplicator} never gives the same second to two files.
+ */
+@Slf4j
+public class DestinationIndex {
+  // "yyyy-MM-dd HH.mm.ss"
+  private static final int BASE_NAME_LENGTH = 19;
+
+  private final Path destination;
+  // Day folder -> second -> file occupying it
+  private final Map<Path, Map<LocalDateTime, Path>> dayFolders = new ConcurrentHashMap<>();
+
+  public DestinationIndex(Path destination) {
+    this.destination = destination.toAbsolutePath().normalize();
+  }
+
+  /**
+   * File of the destination occupying the second of this timestamp, null if it is free.
+   */
+  public Path occupant(LocalDateTime timestamp) {
+    Path folder = destination.resolve(RenameGenerator.folderName(timestamp));
+    return dayFolders.computeIfAbsent(folder, DestinationIndex::listDayFolder)
+        .get(timestamp.truncatedTo(ChronoUnit.SECONDS));
+  }
+
+  /**
+   * Records that a file has been moved to newFile, freeing the second of oldFile if it was in the destination.
+   */
+  public void moved(Path oldFile, Path newFile) {
+    Path normalizedOldFile = oldFile.toAbsolutePath().normalize();
+    Map<LocalDateTime, Path> oldFolder = dayFolders.get(normalizedOldFile.getParent());
+    LocalDateTime oldTimestamp = parseFileName(normalizedOldFile.getFileName().toString());
+    if (oldFolder != null && oldTimestamp != null) {
+      oldFolder.remove(oldTimestamp, normalizedOldFile);
+    }
+    Path normalizedNewFile = newFile.toAbsolutePath().normalize();
+    // Folders not listed yet will be listed with the file in them
+    Map<LocalDateTime, Path> newFolder = dayFolders.get(normalizedNewFile.getParent());
+    LocalDateTime newTimestamp = parseFileName(normalizedNewFile.getFileName().toString());
+    if (newFolder != null && newTimestamp != null) {
+      newFolder.put(newTimestamp, normalizedNewFile);
+    }
+  }
+
+  private static Map<LocalDateTime, Path> listDayFolder(Path folder) {
+    Map<LocalDateTime, Path> res = new ConcurrentHashMap<>();
+    if (!Files.isDirectory(folder)) {
+      return res;
+    }
+    try (Stream<Path> files = Files.list(folder)) {
+      files.forEach(file -> {
+        LocalDateTime timestamp = parseFileName(file.getFileName().toString());
+        if (timestamp != null) {
+          res.put(timestamp, file);
+        }
+      });
+    } catch (IOException e) {
+      // Renamer never overwrites, files colliding with the unknown ones will be left in place
+      log.error("Could not list destination folder {}", folder, e);
+    }
+    log.debug("Destination folder {} has {} dated files", folder, res.size());
+    return res;
+  }
+
+  /**
+   * Timestamp of a file name generated by {@link RenameGenerator}, null for other names.
+   */
+  static LocalDateTime parseFileName(String fileName) {
+    if (fileName.length() <= BASE_NAME_LENGTH || fileName.charAt(BASE_NAME_LENGTH) != '.') {
+      return null;
+    }
+    LocalDateTime timestamp = FinalFileNameDateExtractor.FILE_NAME_TARGET_PATTERN.parse(fileName, 0);
+    // Days after the end of the month are accepted, such a name cannot be the one of its timestamp
+    if (timestamp == null || !RenameGenerator.baseName(timestamp).regionMatches(0, fileName, 0, BASE_NAME_LENGTH)) {
+      return null;
+    }
+    return timestamp;
+  }
+}
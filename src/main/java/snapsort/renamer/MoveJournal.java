@@ -0,0 +1,254 @@
+package snapsort.renamer;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.io.BinaryStrings;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Write-ahead journal of the moves done by a run of {@link Renamer}, so that a run killed while moving files can be
+ * finished without analyzing the files again, and a finished run can be undone.
+ * <p>
+ * The moves of a batch are appended and synced to disk before any of them is done, and so are the output folders
+ * before they are created. The end of each move (moved or failed) is then appended, these records are synced to disk
+ * only every {@link #SYNC_INTERVAL} records: losing the last ones only means that the state of these files is checked
+ * again when resuming. A record torn by the interruption is cut from the end of the journal when it is opened again.
+ */
+@Slf4j
+class MoveJournal implements AutoCloseable {
+  private static final int MAGIC = 0x534E4A52; // "SNJR"
+  private static final int FORMAT_VERSION = 1;
+  private static final byte INTENDED = 1;
+  private static final byte DONE = 2;
+  private static final byte MOVED = 3;
+  private static final byte FOLDER_CREATED = 4;
+  // Records of finished moves written between two syncs
+  private static final int SYNC_INTERVAL = 1000;
+
+  private final Path journalFile;
+  private final String destination;
+  private final FileChannel channel;
+  private final DataOutputStream out;
+  // What the journal recorded when opened
+  private final Contents contents;
+  private int unsyncedRecords;
+
+  /**
+   * Records read from a journal.
+   */
+  private static class Contents {
+    // Current file path -> move intended and not known as done
+    private final Map<String, RenamedFile> pending = new LinkedHashMap<>();
+    // Original file path -> move done, in the order they were done
+    private final Map<String, RenamedFile> moved = new LinkedHashMap<>();
+    private final Set<Path> createdFolders = new LinkedHashSet<>();
+  }
+
+  private MoveJournal(Path journalFile, String destination, FileChannel channel, Contents contents) {
+    this.journalFile = journalFile;
+    this.destination = destination;
+    this.channel = channel;
+    this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    this.contents = contents;
+  }
+
+  /**
+   * Opens the journal, creating it if needed. Throws IllegalArgumentException if the file is not a journal or was
+   * written for another destination.
+   */
+  static MoveJournal open(Path journalFile, Path destination) throws IOException {
+    String normalizedDestination = destination.toAbsolutePath().normalize().toString();
+    FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE);
+    try {
+      Contents contents = new Contents();
+      long end = read(journalFile, channel, normalizedDestination, contents);
+      if (end < channel.size()) {
+        log.warn("Journal {} ends with an incomplete record, removing it", journalFile);
+        channel.truncate(end);
+      }
+      channel.position(end);
+      MoveJournal journal = new MoveJournal(journalFile, normalizedDestination, channel, contents);
+      if (end == 0) {
+        journal.writeHeader();
+      }
+      return journal;
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Moves intended by the run whose end was not recorded, in the order they were intended.
+   */
+  List<RenamedFile> pending() {
+    return new ArrayList<>(contents.pending.values());
+  }
+
+  /**
+   * Moves done by the run, in the order they were done.
+   */
+  List<RenamedFile> moved() {
+    return new ArrayList<>(contents.moved.values());
+  }
+
+  /**
+   * Output folders created by the run.
+   */
+  List<Path> createdFolders() {
+    return new ArrayList<>(contents.createdFolders);
+  }
+
+  /**
+   * Empties the journal for a new run, the moves of the previous run can then no longer be undone.
+   */
+  synchronized void restart() throws IOException {
+    out.flush();
+    channel.truncate(0);
+    channel.position(0);
+    contents.pending.clear();
+    contents.moved.clear();
+    contents.createdFolders.clear();
+    writeHeader();
+  }
+
+  /**
+   * Records that the files are about to be moved, returns once the records are on disk.
+   */
+  synchronized void intend(Collection<RenamedFile> renamedFiles) throws IOException {
+    for (RenamedFile renamedFile : renamedFiles) {
+      out.writeByte(INTENDED);
+      BinaryStrings.write(out, key(renamedFile));
+      BinaryStrings.write(out, renamedFile.newFolder());
+      BinaryStrings.write(out, renamedFile.newName());
+    }
+    sync();
+  }
+
+  /**
+   * Records that the move of the file is over, moved telling whether the file is now at its new name.
+   */
+  synchronized void done(RenamedFile renamedFile, boolean moved) throws IOException {
+    out.writeByte(moved ? MOVED : DONE);
+    BinaryStrings.write(out, key(renamedFile));
+    recordWritten();
+  }
+
+  /**
+   * Records that output folders are about to be created by the run, returns once the records are on disk: the journal
+   * never lists moves into a folder whose creation it lost.
+   */
+  synchronized void creatingFolders(Collection<Path> folders) throws IOException {
+    for (Path folder : folders) {
+      out.writeByte(FOLDER_CREATED);
+      BinaryStrings.write(out, folder.toAbsolutePath().normalize().toString());
+    }
+    sync();
+  }
+
+  private void recordWritten() throws IOException {
+    if (++unsyncedRecords >= SYNC_INTERVAL) {
+      sync();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (channel.isOpen()) {
+      sync();
+      channel.close();
+    }
+  }
+
+  /**
+   * Closes then deletes the journal, once the run it records has been undone.
+   */
+  synchronized void delete() throws IOException {
+    close();
+    Files.deleteIfExists(journalFile);
+  }
+
+  private void writeHeader() throws IOException {
+    out.writeInt(MAGIC);
+    out.writeInt(FORMAT_VERSION);
+    BinaryStrings.write(out, destination);
+    sync();
+  }
+
+  private void sync() throws IOException {
+    out.flush();
+    channel.force(false);
+    unsyncedRecords = 0;
+  }
+
+  /**
+   * Reads the records of the journal into contents, returns the end of the last complete record.
+   */
+  private static long read(Path journalFile, FileChannel channel, String destination, Contents contents)
+      throws IOException {
+    if (channel.size() == 0) {
+      return 0;
+    }
+    ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    long end = 0;
+    try {
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        throw new IllegalArgumentException("File " + journalFile + " is not a snapsort journal");
+      }
+      String journalDestination = BinaryStrings.read(buffer);
+      if (!journalDestination.equals(destination)) {
+        throw new IllegalArgumentException(
+            "Journal " + journalFile + " was written for output folder " + journalDestination + ", not " + destination);
+      }
+      end = buffer.position();
+      while (buffer.hasRemaining()) {
+        byte type = buffer.get();
+        String path = BinaryStrings.read(buffer);
+        if (type == INTENDED) {
+          String newFolder = BinaryStrings.read(buffer);
+          String newName = BinaryStrings.read(buffer);
+          contents.pending.put(path, new RenamedFile(newName, newFolder, Path.of(path)));
+        } else if (type == DONE) {
+          contents.pending.remove(path);
+        } else if (type == MOVED) {
+          RenamedFile renamedFile = contents.pending.remove(path);
+          if (renamedFile != null) {
+            // Moved again after being moved back by hand, the last move is the one to undo
+            contents.moved.remove(path);
+            contents.moved.put(path, renamedFile);
+          }
+        } else if (type == FOLDER_CREATED) {
+          contents.createdFolders.add(Path.of(path));
+        } else {
+          log.warn("Unknown record type {} in journal {}, ignoring the rest of it", type, journalFile);
+          break;
+        }
+        end = buffer.position();
+      }
+    } catch (BufferUnderflowException e) {
+      // Interrupted while writing the last record
+    }
+    return end;
+  }
+
+  private static String key(RenamedFile renamedFile) {
+    return renamedFile.currentFile().toAbsolutePath().normalize().toString();
+  }
+}
@@ -0,0 +1,74 @@
+package snapsort.renamer;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.files.FileInfo;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link Deduplicator} for files arriving one by one: seconds are resolved as soon as no file still to come is
+ * expected before them (the watermark), so that they can be moved while the next files are analyzed.
+ * <p>
+ * When all the files arrive at or after the watermark, the result is the one of {@link Deduplicator}. A late file,
+ * arriving before the watermark, is moved away from the seconds already resolved like from the files already in the
+ * destination: it still gets a free second, but it may not be the one a single deduplication would have given.
+ * <p>
+ * Not thread safe, files are added and resolved by a single thread.
+ */
+@Slf4j
+public class PipelinedDeduplicator {
+  private final CollisionSweep<FileInfo> sweep;
+  // Second -> normalized path of the file given it by a previous step
+  private final Map<LocalDateTime, Path> resolved = new HashMap<>();
+  private LocalDateTime watermark = LocalDateTime.MIN;
+  private long lateFiles;
+
+  public PipelinedDeduplicator(DestinationIndex destinationIndex) {
+    // Deduplicator is given files sorted by path, files at a second are resolved in that order whatever their arrival
+    this.sweep = new CollisionSweep<>(CollisionSweep.FILE_INFOS, time -> {
+      Path occupant = resolved.get(time);
+      return occupant != null ? occupant : destinationIndex.occupant(time);
+    }, Comparator.comparing(FileInfo::path));
+  }
+
+  public void add(FileInfo file) {
+    if (file.timestamp().getTime().isBefore(watermark)) {
+      lateFiles++;
+      log.warn("File {} arrived after the resolution of its second, resolving it against the files already resolved",
+          file);
+    }
+    sweep.add(file);
+  }
+
+  /**
+   * Resolves the seconds before watermark, files added later are expected at or after it. Returns the files given a
+   * final timestamp by this step.
+   */
+  public List<FileInfo> resolveBefore(LocalDateTime watermark) {
+    if (watermark.isAfter(this.watermark)) {
+      this.watermark = watermark;
+    }
+    List<FileInfo> res = sweep.resolveBefore(this.watermark);
+    res.forEach(file -> resolved.put(file.timestamp().getTime(), file.path().toAbsolutePath().normalize()));
+    return res;
+  }
+
+  /**
+   * Resolves all the remaining files, no file is expected anymore.
+   */
+  public List<FileInfo> resolveAll() {
+    return resolveBefore(LocalDateTime.MAX);
+  }
+
+  /**
+   * Number of files added before the watermark.
+   */
+  public long getLateFiles() {
+    return lateFiles;
+  }
+}
@@ -2,14 +2,20 @@ package snapsort.renamer;
 
 import snapsort.extractor.filename.FinalFileNameDateExtractor;
 import snapsort.files.FileInfo;
+import snapsort.files.FileTable;
 import snapsort.files.FileTypeUtil;
 import jakarta.enterprise.context.ApplicationScoped;
 import lombok.extern.slf4j.Slf4j;
 
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Slf4j
 @ApplicationScoped
@@ -18,21 +24,55 @@ public class RenameGenerator {
   private static final DateTimeFormatter DAY_FOLDER_NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
 
   public List<RenamedFile> generateRenamedFileNames(Collection<FileInfo> files) {
-    return files.stream().map(RenameGenerator::generateRenamedFile).sorted(RenamedFile.BY_DESTINATION).toList();
+    Map<LocalDate, String> folderNames = new HashMap<>();
+    return files.stream()
+        .map(file -> generateRenamedFile(file.path(), file.timestamp().getTime(), file.size(),
+            file.lastModifiedMillis(), folderNames))
+        .sorted(RenamedFile.BY_DESTINATION)
+        .toList();
   }
 
-  private static RenamedFile generateRenamedFile(FileInfo fileInfo) {
-    LocalDateTime timestamp = fileInfo.timestamp().getTime();
-    String timeString = FinalFileNameDateExtractor.FILE_NAME_TARGET_FORMATTER.format(timestamp);
-    String extension = generateExtension(fileInfo);
-    String newName = timeString + "." + extension;
-    String folderName =
-        YEAR_FOLDER_NAME_FORMAT.format(timestamp) + "/" + DAY_FOLDER_NAME_FORMAT.format(timestamp) + "_";
-    return new RenamedFile(newName, folderName, fileInfo.path());
+  /**
+   * Same as {@link #generateRenamedFileNames(Collection)} for the rows of the table.
+   */
+  public List<RenamedFile> generateRenamedFileNames(FileTable files) {
+    List<RenamedFile> res = new ArrayList<>(files.size());
+    Map<LocalDate, String> folderNames = new HashMap<>();
+    for (int row = 0; row < files.size(); row++) {
+      res.add(generateRenamedFile(files.path(row), files.time(row), files.fileSize(row), files.lastModifiedMillis(row),
+          folderNames));
+    }
+    res.sort(RenamedFile.BY_DESTINATION);
+    return res;
+  }
+
+  /**
+   * folderNames holds the folder of each day already seen, so that the files of a day share the same string.
+   */
+  private static RenamedFile generateRenamedFile(Path file, LocalDateTime timestamp, long size,
+      long lastModifiedMillis, Map<LocalDate, String> folderNames) {
+    String extension = generateExtension(file);
+    String newName = baseName(timestamp) + "." + extension;
+    String folderName = folderNames.computeIfAbsent(timestamp.toLocalDate(), day -> folderName(timestamp));
+    return new RenamedFile(newName, folderName, file, size, lastModifiedMillis);
+  }
+
+  /**
+   * Name of the file for this timestamp, without extension.
+   */
+  static String baseName(LocalDateTime timestamp) {
+    return FinalFileNameDateExtractor.FILE_NAME_TARGET_FORMATTER.format(timestamp);
+  }
+
+  /**
+   * Folder of the files of the day of this timestamp, relative to the destination.
+   */
+  static String folderName(LocalDateTime timestamp) {
+    return YEAR_FOLDER_NAME_FORMAT.format(timestamp) + "/" + DAY_FOLDER_NAME_FORMAT.format(timestamp) + "_";
   }
 
-  private static String generateExtension(FileInfo fileInfo) {
-    String currentExtension = FileTypeUtil.getLowercaseExtension(fileInfo.path());
+  private static String generateExtension(Path file) {
+    String currentExtension = FileTypeUtil.getLowercaseExtension(file);
     if ("jpeg".equals(currentExtension)) {
       return "jpg";
     }
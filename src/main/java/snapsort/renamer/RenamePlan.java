@@ -0,0 +1,142 @@
+package snapsort.renamer;
+
+import lombok.extern.slf4j.Slf4j;
+import snapsort.files.FileInfo;
+import snapsort.io.BinaryStrings;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Renames computed by a dry run, written to a file so that they can be applied later without analyzing the files
+ * again.
+ * <p>
+ * The file is binary and written as a stream: a header with the destination, then one entry per file with its path,
+ * size and last modified date when it was analyzed, and its new folder and name. When the plan is applied, the files
+ * that changed or disappeared since are skipped: their planned date may be wrong.
+ */
+@Slf4j
+public class RenamePlan {
+  private static final int MAGIC = 0x534E504C; // "SNPL"
+  private static final int FORMAT_VERSION = 1;
+
+  /**
+   * Writes a plan, entries can be added batch after batch. The plan file only appears once committed: closing a writer
+   * that was not committed, for example because the run failed, leaves the previous plan as it was.
+   */
+  public static class Writer implements AutoCloseable {
+    private final Path planFile;
+    private final Path tempFile;
+    private final DataOutputStream out;
+    private long entries;
+    private boolean committed;
+
+    private Writer(Path planFile, Path destination) throws IOException {
+      this.planFile = planFile;
+      this.tempFile = planFile.resolveSibling(planFile.getFileName() + ".tmp");
+      this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)));
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      BinaryStrings.write(out, normalize(destination).toString());
+    }
+
+    public void add(Collection<RenamedFile> renamedFiles) throws IOException {
+      for (RenamedFile renamedFile : renamedFiles) {
+        if (renamedFile.size() == FileInfo.UNKNOWN) {
+          log.warn("File {} was not analyzed by this run, not adding it to the plan", renamedFile.currentFile());
+          continue;
+        }
+        BinaryStrings.write(out, normalize(renamedFile.currentFile()).toString());
+        out.writeLong(renamedFile.size());
+        out.writeLong(renamedFile.lastModifiedMillis());
+        BinaryStrings.write(out, renamedFile.newFolder());
+        BinaryStrings.write(out, renamedFile.newName());
+        entries++;
+      }
+    }
+
+    /**
+     * Replaces the plan file by the entries added so far, to be called once the run succeeded.
+     */
+    public void commit() throws IOException {
+      out.close();
+      Files.move(tempFile, planFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      committed = true;
+      log.info("Wrote {} planned renames to {}", entries, planFile);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (committed) {
+        return;
+      }
+      out.close();
+      Files.deleteIfExists(tempFile);
+      log.warn("Run did not finish, plan {} not written", planFile);
+    }
+  }
+
+  public static Writer writer(Path planFile, Path destination) throws IOException {
+    return new Writer(planFile, destination);
+  }
+
+  /**
+   * Gives the planned renames of the files that did not change since planning to consumer, entry after entry, without
+   * keeping them. Throws IllegalArgumentException if the plan is not a plan file or was made for another destination.
+   */
+  public static void forEach(Path planFile, Path destination, Consumer<RenamedFile> consumer) throws IOException {
+    long read = 0;
+    long skipped = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(planFile)))) {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IllegalArgumentException("File " + planFile + " is not a snapsort plan");
+      }
+      Path plannedDestination = Path.of(BinaryStrings.read(in));
+      if (!plannedDestination.equals(normalize(destination))) {
+        throw new IllegalArgumentException(
+            "Plan " + planFile + " was made for output folder " + plannedDestination + ", not " + destination);
+      }
+      String currentFile;
+      while ((currentFile = BinaryStrings.readOrEnd(in)) != null) {
+        Path file = Path.of(currentFile);
+        long size = in.readLong();
+        long lastModifiedMillis = in.readLong();
+        String newFolder = BinaryStrings.read(in);
+        RenamedFile renamedFile = new RenamedFile(BinaryStrings.read(in), newFolder, file, size, lastModifiedMillis);
+        if (isUnchanged(file, size, lastModifiedMillis)) {
+          consumer.accept(renamedFile);
+          read++;
+        } else {
+          skipped++;
+        }
+      }
+    }
+    log.info("Read {} planned renames from {}, skipped {} files changed since planning", read, planFile, skipped);
+  }
+
+  private static boolean isUnchanged(Path file, long size, long lastModifiedMillis) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+      if (attributes.size() == size && attributes.lastModifiedTime().toMillis() == lastModifiedMillis) {
+        return true;
+      }
+      log.warn("File {} changed since planning, skipping it", file);
+    } catch (IOException e) {
+      log.warn("File {} cannot be read anymore, skipping it", file);
+    }
+    return false;
+  }
+
+  private static Path normalize(Path path) {
+    return path.toAbsolutePath().normalize();
+  }
+}
@@ -1,5 +1,7 @@
 package snapsort.renamer;
 
+import snapsort.files.FileInfo;
+
 import java.nio.file.Path;
 import java.util.Comparator;
 
@@ -9,7 +11,14 @@ public record RenamedFile(
     // New folder name, to be created if needed
     String newFolder,
     // Source file to rename to newName and to move to newFolder
-    Path currentFile) {
+    Path currentFile,
+    // Size and last modified time of currentFile when it was analyzed, FileInfo.UNKNOWN if it was not
+    long size,
+    long lastModifiedMillis) {
+
+  public RenamedFile(String newName, String newFolder, Path currentFile) {
+    this(newName, newFolder, currentFile, FileInfo.UNKNOWN, FileInfo.UNKNOWN);
+  }
 
   public static final Comparator<RenamedFile> BY_DESTINATION =
       Comparator.comparing(RenamedFile::newFolder).thenComparing(RenamedFile::newName);
@@ -1,17 +1,71 @@
 package snapsort.renamer;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import lombok.extern.slf4j.Slf4j;
+import snapsort.JournalConfiguration;
+import snapsort.RenamerConfiguration;
+import snapsort.concurrent.ConcurrencyUtil;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Moves the files to their destination folder, never overwriting an existing file.
+ * <p>
+ * Files are grouped by destination folder: each folder is created once, and with several threads each folder is
+ * filled by a single thread. A file is moved by creating a hard link at its new name then removing its old name:
+ * creating the link fails if the name is taken, so there is no window between checking the destination and moving.
+ * Files going to another file system are copied and verified by {@link CrossDeviceCopier}.
+ * <p>
+ * With a journal file, moves are recorded in a {@link MoveJournal} before and after being done: an interrupted run
+ * can be finished by {@link #resume}, and a finished run can be moved back by {@link #undo}.
+ */
 @Slf4j
 @ApplicationScoped
 public class Renamer {
+  private final int renameThreads;
+  private final CrossDeviceCopier crossDeviceCopier;
+  // Folder -> its file store, empty when unknown
+  private final Map<Path, Optional<FileStore>> fileStores = new ConcurrentHashMap<>();
+  private final Path journalFile;
+  // Opened by the first move, null without journal file
+  private volatile MoveJournal journal;
+  // Files copied to another file system whose source could not be removed, reported at the end of the renames
+  private final LongAdder sourcesNotRemoved = new LongAdder();
 
-  public void renameFiles(Iterable<RenamedFile> renamedFiles, Path destination, boolean write) {
+  public Renamer(RenamerConfiguration configuration) {
+    this(configuration, new JournalConfiguration());
+  }
+
+  @Inject
+  public Renamer(RenamerConfiguration configuration, JournalConfiguration journalConfiguration) {
+    this.renameThreads = configuration.getRenameThreads();
+    this.crossDeviceCopier = new CrossDeviceCopier(configuration.getCopyThreads());
+    this.journalFile = journalConfiguration.getJournalFile();
+  }
+
+  /**
+   * Moves the files to the destination, never overwriting. Moved files are recorded in the destination index.
+   */
+  public void renameFiles(Iterable<RenamedFile> renamedFiles, Path destination, DestinationIndex destinationIndex,
+      boolean write) {
     Path normalizedDestination = destination.toAbsolutePath().normalize();
     if (!Files.exists(destination)) {
       log.error("Destination folder {} ({}) does not exist", destination, normalizedDestination);
@@ -22,38 +76,440 @@ public class Renamer {
     } else {
       log.info("Dry run, not renaming:");
     }
+    Map<String, List<RenamedFile>> filesByFolder = new LinkedHashMap<>();
+    List<RenamedFile> toMove = new ArrayList<>();
     for (RenamedFile renamedFile : renamedFiles) {
-      renameFile(renamedFile, normalizedDestination, write);
+      filesByFolder.computeIfAbsent(renamedFile.newFolder(), folder -> new ArrayList<>()).add(renamedFile);
+      toMove.add(renamedFile);
+    }
+    if (write && journalFile != null) {
+      try {
+        journal(normalizedDestination, false).intend(toMove);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Could not write journal " + journalFile + ", not moving files", e);
+      }
+    }
+    // Dry runs only log, keep them in order
+    int parallelism = write ? renameThreads : 1;
+    ConcurrencyUtil.mapOrdered(List.copyOf(filesByFolder.values()), parallelism,
+        files -> renameFolder(files, normalizedDestination, destinationIndex, write));
+    long notRemoved = sourcesNotRemoved.sumThenReset();
+    if (notRemoved > 0) {
+      log.error("{} files were copied to the output folder but are still in the input folders, see the errors above",
+          notRemoved);
     }
   }
 
-  private void renameFile(RenamedFile renamedFile, Path destination, boolean write) {
-    Path folder = destination.resolve(renamedFile.newFolder());
-    if (write && !Files.exists(folder)) {
+  /**
+   * Renames the files going to one folder, returns the number of files moved.
+   */
+  private int renameFolder(List<RenamedFile> files, Path destination, DestinationIndex destinationIndex,
+      boolean write) {
+    Path folder = destination.resolve(files.getFirst().newFolder());
+    if (write && !Files.isDirectory(folder)) {
       try {
         log.info("Creating folder {}", folder);
+        // Recorded first, removing a folder that could not be created does nothing
+        journalCreatingFolders(missingFolders(folder, destination));
         Files.createDirectories(folder);
       } catch (IOException e) {
-        log.error("Could not create folder {}", folder, e);
-        return;
+        log.error("Could not create folder {}, not moving its {} files", folder, files.size(), e);
+        files.forEach(renamedFile -> journalDone(renamedFile, false));
+        return 0;
       }
     }
-    Path newFile = folder.resolve(renamedFile.newName());
-    if (Files.exists(newFile)) {
-      log.error("File {} already exists", newFile);
-      return;
+    int moved = 0;
+    for (RenamedFile renamedFile : files) {
+      boolean renamed = renameFile(renamedFile, folder, destinationIndex, write);
+      if (renamed) {
+        moved++;
+      }
+      if (write) {
+        journalDone(renamedFile, renamed);
+      }
     }
+    return moved;
+  }
+
+  private boolean renameFile(RenamedFile renamedFile, Path folder, DestinationIndex destinationIndex, boolean write) {
+    Path newFile = folder.resolve(renamedFile.newName());
     Path oldFile = renamedFile.currentFile();
+    if (newFile.equals(oldFile.toAbsolutePath().normalize())) {
+      log.info("File {} already has the right name", newFile);
+      return false;
+    }
     String operation = write ? "Renaming" : "Would rename";
     log.info("{} {} to {}", operation, oldFile, newFile);
-    if (write) {
+    if (!write) {
+      return false;
+    }
+    try {
+      if (!moveNoClobber(oldFile, newFile)) {
+        // The file is at its new name, the journal records it as moved so that resuming does not copy it again
+        log.error("Copied {} to {} but could not remove it, remove it by hand", oldFile, newFile);
+        sourcesNotRemoved.increment();
+      }
+      destinationIndex.moved(oldFile, newFile);
+      return true;
+    } catch (FileAlreadyExistsException e) {
+      log.error("File {} already exists", newFile);
+    } catch (IOException e) {
+      log.error("Could not move {} to {}", oldFile, newFile, e);
+    }
+    return false;
+  }
+
+  /**
+   * Finishes the moves recorded in the journal by an interrupted run.
+   * <p>
+   * Files already at their new name are left as they are. A file present under both names is a move interrupted
+   * after its copy or link was made: the old name is removed. The other files are moved again.
+   */
+  public void resume(Path destination, DestinationIndex destinationIndex, boolean write) {
+    Path normalizedDestination = destination.toAbsolutePath().normalize();
+    MoveJournal resumedJournal;
+    try {
+      resumedJournal = journal(normalizedDestination, true);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read journal " + journalFile, e);
+    }
+    List<RenamedFile> pending = resumedJournal.pending();
+    log.info("Resuming {} unfinished moves from journal {}", pending.size(), journalFile);
+    if (!write) {
+      // Dry runs do not record anything
+      closeJournal();
+    }
+    List<RenamedFile> toMove = new ArrayList<>();
+    for (RenamedFile renamedFile : pending) {
+      Path newFile = normalizedDestination.resolve(renamedFile.newFolder()).resolve(renamedFile.newName());
+      if (!finishMove(renamedFile, newFile, destinationIndex, write)) {
+        toMove.add(renamedFile);
+      }
+    }
+    renameFiles(toMove, destination, destinationIndex, write);
+    finishJournal();
+  }
+
+  /**
+   * Moves the files moved by the run recorded in the journal back where they were, then removes the output folders
+   * created by the run that are now empty, and the journal.
+   * <p>
+   * Files are moved back in the reverse order, with several threads each source folder is filled by a single thread.
+   * A file is never moved back over a file that took its old name. A file found at its old name only was moved back by
+   * an interrupted undo, so an undo can be run again until the journal is removed.
+   */
+  public void undo(Path destination, boolean write) {
+    Path normalizedDestination = destination.toAbsolutePath().normalize();
+    MoveJournal undoneJournal;
+    try {
+      undoneJournal = MoveJournal.open(journalFile, normalizedDestination);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not read journal " + journalFile, e);
+    }
+    try (undoneJournal) {
+      if (!undoneJournal.pending().isEmpty()) {
+        throw new IllegalStateException("Journal " + journalFile + " has " + undoneJournal.pending().size()
+            + " unfinished moves of an interrupted run, finish them with --resume before undoing it");
+      }
+      List<RenamedFile> moved = undoneJournal.moved().reversed();
+      log.info("{} {} files back from journal {}", write ? "Moving" : "Dry run, not moving", moved.size(),
+          journalFile);
+      Map<Path, List<RenamedFile>> filesBySourceFolder = new LinkedHashMap<>();
+      for (RenamedFile renamedFile : moved) {
+        filesBySourceFolder.computeIfAbsent(renamedFile.currentFile().getParent(), folder -> new ArrayList<>())
+            .add(renamedFile);
+      }
+      int parallelism = write ? renameThreads : 1;
+      int movedBack = ConcurrencyUtil.mapOrdered(List.copyOf(filesBySourceFolder.values()), parallelism,
+          files -> undoFolder(files, normalizedDestination, write)).stream().mapToInt(Integer::intValue).sum();
+      if (!write) {
+        return;
+      }
+      log.info("Moved back {} of {} files", movedBack, moved.size());
+      removeEmptyFolders(undoneJournal.createdFolders());
+      if (movedBack == moved.size()) {
+        undoneJournal.delete();
+        log.info("Run undone, removed journal {}", journalFile);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not undo journal " + journalFile, e);
+    }
+  }
+
+  /**
+   * Closes the journal once all the moves of the run are over, does nothing without journal. The journal is kept so
+   * that the run can be undone.
+   */
+  public void finishJournal() {
+    if (journal != null && closeJournal()) {
+      log.info("All moves are over, journal {} can undo them", journalFile);
+    }
+  }
+
+  /**
+   * Closes the journal, returns whether it was written without error.
+   */
+  private boolean closeJournal() {
+    MoveJournal current = journal;
+    if (current == null) {
+      return false;
+    }
+    journal = null;
+    try {
+      current.close();
+      return true;
+    } catch (IOException e) {
+      log.error("Could not close journal {}", journalFile, e);
+      return false;
+    }
+  }
+
+  /**
+   * Whether the move of the file needs nothing more than what is done here, false if it has to be done.
+   */
+  private boolean finishMove(RenamedFile renamedFile, Path newFile, DestinationIndex destinationIndex,
+      boolean write) {
+    Path oldFile = renamedFile.currentFile();
+    if (newFile.equals(oldFile.toAbsolutePath().normalize())) {
+      journalDone(renamedFile, false);
+      return true;
+    }
+    boolean oldExists = Files.exists(oldFile);
+    if (!Files.exists(newFile)) {
+      if (!oldExists) {
+        log.warn("File {} disappeared, not moving it to {}", oldFile, newFile);
+        journalDone(renamedFile, false);
+        return true;
+      }
+      return false;
+    }
+    if (!oldExists) {
+      log.info("File {} was already moved to {}", oldFile, newFile);
+      journalDone(renamedFile, true);
+      return true;
+    }
+    try {
+      if (!Files.isSameFile(oldFile, newFile) && Files.mismatch(oldFile, newFile) != -1) {
+        // Name taken by another file, the move reports it
+        return false;
+      }
+      log.info("{} interrupted move of {} to {}", write ? "Finishing" : "Would finish", oldFile, newFile);
+      if (write) {
+        Files.delete(oldFile);
+        destinationIndex.moved(oldFile, newFile);
+        journalDone(renamedFile, true);
+      }
+    } catch (IOException e) {
+      log.error("Could not finish move of {} to {}", oldFile, newFile, e);
+    }
+    return true;
+  }
+
+  /**
+   * Moves back the files that came from one folder, returns the number of files moved back.
+   */
+  private int undoFolder(List<RenamedFile> files, Path destination, boolean write) {
+    Path sourceFolder = files.getFirst().currentFile().getParent();
+    if (write && !Files.isDirectory(sourceFolder)) {
+      try {
+        log.info("Creating folder {}", sourceFolder);
+        Files.createDirectories(sourceFolder);
+      } catch (IOException e) {
+        log.error("Could not create folder {}, not moving back its {} files", sourceFolder, files.size(), e);
+        return 0;
+      }
+    }
+    int movedBack = 0;
+    for (RenamedFile renamedFile : files) {
+      Path newFile = destination.resolve(renamedFile.newFolder()).resolve(renamedFile.newName());
+      Path oldFile = renamedFile.currentFile();
+      log.info("{} {} back to {}", write ? "Moving" : "Would move", newFile, oldFile);
+      if (!write) {
+        continue;
+      }
       try {
-        Files.move(oldFile, newFile);
+        if (!moveNoClobber(newFile, oldFile)) {
+          log.error("Copied {} back to {} but could not remove it, remove it by hand", newFile, oldFile);
+        }
+        movedBack++;
+      } catch (FileAlreadyExistsException e) {
+        if (isMovedBack(oldFile, newFile)) {
+          movedBack++;
+        } else if (removeCopy(oldFile, newFile)) {
+          movedBack++;
+        } else {
+          log.error("File {} already exists, leaving {}", oldFile, newFile);
+        }
+      } catch (NoSuchFileException e) {
+        if (isMovedBack(oldFile, newFile)) {
+          movedBack++;
+        } else {
+          log.error("File {} is not in the output folder anymore", newFile);
+        }
       } catch (IOException e) {
-        log.error("Could not move {} to {}", oldFile, newFile, e);
+        log.error("Could not move {} back to {}", newFile, oldFile, e);
       }
     }
+    return movedBack;
   }
 
-}
+  /**
+   * Whether the file is at its old name only, moved back by an undo interrupted before it could remove the journal.
+   */
+  private static boolean isMovedBack(Path oldFile, Path newFile) {
+    if (Files.exists(oldFile, LinkOption.NOFOLLOW_LINKS) && Files.notExists(newFile, LinkOption.NOFOLLOW_LINKS)) {
+      log.info("File {} was already moved back to {}", newFile, oldFile);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Removes newFile if it is a copy of oldFile, made by the run to another file system without being able to remove
+   * oldFile. Returns whether it was removed.
+   */
+  private static boolean removeCopy(Path oldFile, Path newFile) {
+    try {
+      if (Files.isSameFile(oldFile, newFile) || Files.mismatch(oldFile, newFile) != -1) {
+        return false;
+      }
+      log.info("File {} is still at {}, removing its copy", oldFile, newFile);
+      Files.delete(newFile);
+      return true;
+    } catch (IOException e) {
+      log.debug("Could not compare {} to {}", oldFile, newFile, e);
+      return false;
+    }
+  }
+
+  /**
+   * Removes the folders that are empty, deepest first so that a folder emptied by the removal of its subfolders is
+   * removed too.
+   */
+  private static void removeEmptyFolders(List<Path> folders) {
+    List<Path> deepestFirst = new ArrayList<>(folders);
+    deepestFirst.sort(Comparator.comparingInt(Path::getNameCount).reversed());
+    for (Path folder : deepestFirst) {
+      try {
+        if (Files.deleteIfExists(folder)) {
+          log.info("Removed empty folder {}", folder);
+        }
+      } catch (DirectoryNotEmptyException e) {
+        log.info("Keeping folder {}, it is not empty", folder);
+      } catch (IOException e) {
+        log.error("Could not remove folder {}", folder, e);
+      }
+    }
+  }
+
+  /**
+   * The folder and its parents up to the destination that do not exist yet, deepest first.
+   */
+  private List<Path> missingFolders(Path folder, Path destination) {
+    List<Path> res = new ArrayList<>();
+    if (journal == null) {
+      return res;
+    }
+    for (Path missing = folder; missing != null && !missing.equals(destination) && !Files.exists(missing);
+        missing = missing.getParent()) {
+      res.add(missing);
+    }
+    return res;
+  }
 
+  private MoveJournal journal(Path destination, boolean resuming) throws IOException {
+    MoveJournal current = journal;
+    if (current != null) {
+      return current;
+    }
+    synchronized (this) {
+      if (journal == null) {
+        MoveJournal opened = MoveJournal.open(journalFile, destination);
+        if (!resuming) {
+          if (!opened.pending().isEmpty()) {
+            opened.close();
+            throw new IllegalStateException("Journal " + journalFile + " has " + opened.pending().size()
+                + " unfinished moves of an interrupted run, finish them with --resume first");
+          }
+          // The journal records one run
+          opened.restart();
+        }
+        journal = opened;
+      }
+      return journal;
+    }
+  }
+
+  private void journalDone(RenamedFile renamedFile, boolean moved) {
+    MoveJournal current = journal;
+    if (current == null) {
+      return;
+    }
+    try {
+      current.done(renamedFile, moved);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write journal " + journalFile, e);
+    }
+  }
+
+  private void journalCreatingFolders(List<Path> folders) {
+    MoveJournal current = journal;
+    if (current == null || folders.isEmpty()) {
+      return;
+    }
+    try {
+      current.creatingFolders(folders);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not write journal " + journalFile, e);
+    }
+  }
+
+  /**
+   * Moves oldFile to newFile, throwing FileAlreadyExistsException if newFile exists. Returns false when the file was
+   * copied to another file system but oldFile could not be removed.
+   */
+  private boolean moveNoClobber(Path oldFile, Path newFile) throws IOException {
+    if (isOtherFileStore(oldFile.toAbsolutePath().getParent(), newFile.getParent())) {
+      return crossDeviceCopier.move(oldFile, newFile);
+    }
+    try {
+      // Atomically fails if the name is taken, whoever took it
+      Files.createLink(newFile, oldFile);
+    } catch (FileAlreadyExistsException e) {
+      throw e;
+    } catch (UnsupportedOperationException | FileSystemException e) {
+      // No hard links on this file system, a move checks the name then renames
+      log.debug("Could not link {} to {}, moving it", oldFile, newFile, e);
+      Files.move(oldFile, newFile);
+      return true;
+    }
+    try {
+      Files.delete(oldFile);
+    } catch (IOException e) {
+      // Leave the file under its old name only
+      Files.delete(newFile);
+      throw e;
+    }
+    return true;
+  }
+
+  /**
+   * Whether the folders are known to be on different file stores. Stores are looked up once per folder.
+   */
+  private boolean isOtherFileStore(Path folder, Path otherFolder) {
+    Optional<FileStore> store = fileStore(folder);
+    Optional<FileStore> otherStore = fileStore(otherFolder);
+    return store.isPresent() && otherStore.isPresent() && !store.get().equals(otherStore.get());
+  }
+
+  private Optional<FileStore> fileStore(Path folder) {
+    return fileStores.computeIfAbsent(folder, f -> {
+      try {
+        return Optional.of(Files.getFileStore(f));
+      } catch (IOException e) {
+        log.debug("Could not get the file store of {}", f, e);
+        return Optional.empty();
+      }
+    });
+  }
+}
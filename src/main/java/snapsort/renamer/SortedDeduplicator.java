@@ -0,0 +1,48 @@
+package snapsort.renamer;
+
+import snapsort.files.FileInfo;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * {@link Deduplicator} for files given by ascending timestamp, files at the same timestamp by path, such as the output
+ * of an external sort.
+ * <p>
+ * Each added file resolves the seconds before its own: no file still to come can be there. Only the files of the
+ * seconds not resolved yet and the files moved by collisions are kept, so the memory does not grow with the number of
+ * files. The result is the one of {@link Deduplicator}.
+ * <p>
+ * Not thread safe, files are added and resolved by a single thread.
+ */
+public class SortedDeduplicator {
+  private final CollisionSweep<FileInfo> sweep;
+  private FileInfo last;
+
+  public SortedDeduplicator(DestinationIndex destinationIndex) {
+    // Files at a second are added by path, the order in which Deduplicator resolves them
+    this.sweep = new CollisionSweep<>(CollisionSweep.FILE_INFOS, destinationIndex::occupant);
+  }
+
+  /**
+   * Adds a file, which cannot be before the previous one. Returns the files given a final timestamp by this step.
+   */
+  public List<FileInfo> add(FileInfo file) {
+    LocalDateTime time = file.timestamp().getTime();
+    if (last != null && (time.isBefore(last.timestamp().getTime())
+        || time.equals(last.timestamp().getTime()) && file.path().compareTo(last.path()) < 0)) {
+      throw new IllegalStateException("File " + file + " added after " + last + ", files must be sorted");
+    }
+    last = file;
+    List<FileInfo> res = sweep.resolveBefore(time);
+    sweep.add(file);
+    return res;
+  }
+
+  /**
+   * Resolves all the remaining files, no file is expected anymore.
+   */
+  public List<FileInfo> resolveAll() {
+    return sweep.resolveAll();
+  }
+}
@@ -15,6 +15,17 @@ public class ApplicationLauncher {
   private String dateMax;
   private boolean write;
   private boolean readFilesystemDateModified;
+  private Integer extractionThreads;
+  private Integer walkerThreads;
+  private Integer renameThreads;
+  private boolean pipelined;
+  private String planFile;
+  private String applyPlan;
+  private String journalFile;
+  private boolean undo;
+  private String shard;
+  private String shardResult;
+  private String mergeShards;
 
   public ApplicationLauncher(QuarkusMainLauncher launcher) {
     this.launcher = launcher;
@@ -50,6 +61,61 @@ public class ApplicationLauncher {
     return this;
   }
 
+  public ApplicationLauncher withExtractionThreads(int extractionThreads) {
+    this.extractionThreads = extractionThreads;
+    return this;
+  }
+
+  public ApplicationLauncher withWalkerThreads(int walkerThreads) {
+    this.walkerThreads = walkerThreads;
+    return this;
+  }
+
+  public ApplicationLauncher withPipelined(boolean pipelined) {
+    this.pipelined = pipelined;
+    return this;
+  }
+
+  public ApplicationLauncher withPlanFile(String planFile) {
+    this.planFile = planFile;
+    return this;
+  }
+
+  public ApplicationLauncher withApplyPlan(String applyPlan) {
+    this.applyPlan = applyPlan;
+    return this;
+  }
+
+  public ApplicationLauncher withJournalFile(String journalFile) {
+    this.journalFile = journalFile;
+    return this;
+  }
+
+  public ApplicationLauncher withUndo(boolean undo) {
+    this.undo = undo;
+    return this;
+  }
+
+  public ApplicationLauncher withShard(String shard) {
+    this.shard = shard;
+    return this;
+  }
+
+  public ApplicationLauncher withShardResult(String shardResult) {
+    this.shardResult = shardResult;
+    return this;
+  }
+
+  public ApplicationLauncher withMergeShards(String mergeShards) {
+    this.mergeShards = mergeShards;
+    return this;
+  }
+
+  public ApplicationLauncher withRenameThreads(int renameThreads) {
+    this.renameThreads = renameThreads;
+    return this;
+  }
+
   public LaunchResult run() {
     List<String> args = new ArrayList<>();
     if (inputFolders != null) {
@@ -74,6 +140,48 @@ public class ApplicationLauncher {
     if (readFilesystemDateModified) {
       args.add("--read-filesystem-date-modified");
     }
+    if (extractionThreads != null) {
+      args.add("--extraction-threads");
+      args.add(extractionThreads.toString());
+    }
+    if (walkerThreads != null) {
+      args.add("--walker-threads");
+      args.add(walkerThreads.toString());
+    }
+    if (renameThreads != null) {
+      args.add("--rename-threads");
+      args.add(renameThreads.toString());
+    }
+    if (pipelined) {
+      args.add("--pipelined");
+    }
+    if (planFile != null) {
+      args.add("--plan-file");
+      args.add(planFile);
+    }
+    if (applyPlan != null) {
+      args.add("--apply-plan");
+      args.add(applyPlan);
+    }
+    if (journalFile != null) {
+      args.add("--journal-file");
+      args.add(journalFile);
+    }
+    if (undo) {
+      args.add("--undo");
+    }
+    if (shard != null) {
+      args.add("--shard");
+      args.add(shard);
+    }
+    if (shardResult != null) {
+      args.add("--shard-result");
+      args.add(shardResult);
+    }
+    if (mergeShards != null) {
+      args.add("--merge-shards");
+      args.add(mergeShards);
+    }
     return launcher.launch(args.toArray(new String[0]));
   }
 
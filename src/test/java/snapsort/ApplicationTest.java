@@ -34,10 +34,14 @@ public class ApplicationTest {
     System.out.println("output folder is " + outputFolder);
   }
 
-  @SneakyThrows
   private List<String> listOutput() {
+    return listFiles(outputFolder);
+  }
+
+  @SneakyThrows
+  private List<String> listFiles(Path folder) {
     List<String> res = new ArrayList<>();
-    resourcesUtils.listFiles(res, outputFolder, "/");
+    resourcesUtils.listFiles(res, folder, "/");
     // Sort the list to have a deterministic order
     return res.stream().sorted().toList();
   }
@@ -60,6 +64,98 @@ public class ApplicationTest {
     testOutputFolderIsZipWithout();
   }
 
+  @Test
+  public void testRealRunWithParallelExtraction() {
+    launcher.withReadFilesystemDateModified(true);
+    launcher.withExtractionThreads(4);
+    testOutputFolderIsZipWithout();
+  }
+
+  @Test
+  public void testRealRunWithParallelWalk() {
+    launcher.withReadFilesystemDateModified(true);
+    launcher.withWalkerThreads(4);
+    launcher.withExtractionThreads(4);
+    testOutputFolderIsZipWithout();
+  }
+
+  @Test
+  public void testRealRunPipelined() {
+    launcher.withReadFilesystemDateModified(true);
+    launcher.withPipelined(true);
+    launcher.withExtractionThreads(4);
+    testOutputFolderIsZipWithout();
+  }
+
+  @Test
+  public void testRealRunWithParallelRename() {
+    launcher.withReadFilesystemDateModified(true);
+    launcher.withRenameThreads(4);
+    testOutputFolderIsZipWithout();
+  }
+
+  @Test
+  public void testShardsThenMerge() {
+    List<String> shardResults = new ArrayList<>();
+    for (int shard = 1; shard <= 3; shard++) {
+      String shardResult = outputFolder.resolveSibling("shard" + shard + ".bin").toString();
+      launcher.withShard(shard + "/3");
+      launcher.withShardResult(shardResult);
+      launcher.withWrite(true);
+      Assertions.assertEquals(0, launcher.run().exitCode());
+      Assertions.assertTrue(listOutput().isEmpty(), "shards should not move files");
+      shardResults.add(shardResult);
+    }
+
+    launcher.withShard(null);
+    launcher.withShardResult(null);
+    launcher.withInputFolders(null);
+    launcher.withMergeShards(String.join(",", shardResults));
+    testOutputFolderIsZipWithout("/2025/20250227_/2025-02-27 00.18.58.jpg");
+  }
+
+  @Test
+  public void testRealRunWithJournal_thenUndo() {
+    List<String> inputFiles = listFiles(Path.of(inputFolderName));
+    Path journalFile = outputFolder.resolveSibling("journal.bin");
+    launcher.withJournalFile(journalFile.toString());
+    testOutputFolderIsZipWithout("/2025/20250227_/2025-02-27 00.18.58.jpg");
+    Assertions.assertTrue(Files.exists(journalFile));
+
+    launcher.withInputFolders(null);
+    launcher.withUndo(true);
+    launcher.run();
+
+    Assertions.assertEquals(inputFiles, listFiles(Path.of(inputFolderName)));
+    Assertions.assertTrue(listOutput().isEmpty());
+    Assertions.assertFalse(Files.exists(journalFile));
+  }
+
+  @Test
+  public void testDryRunWithPlanFile_thenApplyPlan() {
+    String planFile = outputFolder.resolveSibling("plan.bin").toString();
+    launcher.withPlanFile(planFile);
+    launcher.run();
+    Assertions.assertTrue(listOutput().isEmpty());
+
+    // Applying the plan does not need the input folders anymore
+    launcher.withPlanFile(null);
+    launcher.withInputFolders(null);
+    launcher.withApplyPlan(planFile);
+    testOutputFolderIsZipWithout("/2025/20250227_/2025-02-27 00.18.58.jpg");
+  }
+
+  @Test
+  public void testRunWithoutInputFoldersNorPlan_fails() {
+    launcher.withInputFolders(null);
+    launcher.withWrite(true);
+
+    var result = launcher.run();
+
+    Assertions.assertEquals(2, result.exitCode());
+    Assertions.assertTrue(listOutput().isEmpty());
+  }
+
   @Test
   public void testRunWithDateMin() {
     launcher.withDateMin("2024-01-01");
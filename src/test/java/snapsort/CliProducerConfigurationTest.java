@@ -4,8 +4,10 @@ import org.junit.jupiter.api.Test;
 import picocli.CommandLine;
 import snapsort.cli.converter.IsoLocalDateConverter;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,6 +24,46 @@ class CliProducerConfigurationTest {
       LocalDate dateMax;
       @CommandLine.Option(names = "--read-filesystem-date-modified", defaultValue = "false")
       boolean readFilesystemDateModified;
+      @CommandLine.Option(names = "--extraction-threads", defaultValue = "1")
+      int extractionThreads;
+      @CommandLine.Option(names = "--walker-threads", defaultValue = "1")
+      int walkerThreads;
+      @CommandLine.Option(names = "--rename-threads", defaultValue = "1")
+      int renameThreads;
+      @CommandLine.Option(names = "--copy-threads", defaultValue = "1")
+      int copyThreads;
+      @CommandLine.Option(names = "--extraction-cache")
+      Path extractionCache;
+      @CommandLine.Option(names = "--pipelined", defaultValue = "false")
+      boolean pipelined;
+      @CommandLine.Option(names = "--camera-file-name-patterns", split = ",")
+      List<String> cameraFileNamePatterns;
+      @CommandLine.Option(names = "--plan-file")
+      Path planFile;
+      @CommandLine.Option(names = "--apply-plan")
+      Path applyPlan;
+      @CommandLine.Option(names = "--journal-file")
+      Path journalFile;
+      @CommandLine.Option(names = "--resume", defaultValue = "false")
+      boolean resume;
+      @CommandLine.Option(names = "--undo", defaultValue = "false")
+      boolean undo;
+      @CommandLine.Option(names = "--shard")
+      String shard;
+      @CommandLine.Option(names = "--shard-result")
+      Path shardResult;
+      @CommandLine.Option(names = "--merge-shards", split = ",")
+      List<Path> mergeShards;
+      @CommandLine.Option(names = "--max-files-in-memory")
+      int maxFilesInMemory;
+      @CommandLine.Option(names = "--spill-folder")
+      Path spillFolder;
+      @CommandLine.Option(names = "--extraction-timeout")
+      int extractionTimeout;
+      @CommandLine.Option(names = "--poison-file-registry")
+      Path poisonFileRegistry;
+      @CommandLine.Option(names = "--prune-by-date-range", defaultValue = "false")
+      boolean pruneByDateRange;
     }
     return new CommandLine(new Stub()).parseArgs(args);
   }
@@ -70,5 +112,267 @@ class CliProducerConfigurationTest {
     DateChooserConfiguration config = producer.dateChooserConfiguration(result);
 
     assertFalse(config.isReadFilesystemDateModified());
+    assertEquals(0, config.getExtractionTimeoutSeconds());
+  }
+
+  @Test
+  void dateChooserConfiguration_extractionTimeoutSet() {
+    CommandLine.ParseResult result = parse("--extraction-timeout", "30");
+    DateChooserConfiguration config = producer.dateChooserConfiguration(result);
+
+    assertEquals(30, config.getExtractionTimeoutSeconds());
+    assertThrows(IllegalArgumentException.class,
+        () -> producer.dateChooserConfiguration(parse("--extraction-timeout", "0")));
+  }
+
+  @Test
+  void fileListerConfiguration_defaultIsSequential() {
+    CommandLine.ParseResult result = parse();
+    FileListerConfiguration config = producer.fileListerConfiguration(result);
+
+    assertEquals(1, config.getExtractionThreads());
+  }
+
+  @Test
+  void fileListerConfiguration_extractionThreadsSet() {
+    CommandLine.ParseResult result = parse("--extraction-threads", "16");
+    FileListerConfiguration config = producer.fileListerConfiguration(result);
+
+    assertEquals(16, config.getExtractionThreads());
+  }
+
+  @Test
+  void fileListerConfiguration_zeroExtractionThreads_throws() {
+    CommandLine.ParseResult result = parse("--extraction-threads", "0");
+    assertThrows(IllegalArgumentException.class, () -> producer.fileListerConfiguration(result));
+  }
+
+  @Test
+  void fileListerConfiguration_walkerThreadsSet() {
+    CommandLine.ParseResult result = parse("--walker-threads", "8");
+    FileListerConfiguration config = producer.fileListerConfiguration(result);
+
+    assertEquals(8, config.getWalkerThreads());
+    assertEquals(1, config.getExtractionThreads());
+  }
+
+  @Test
+  void fileListerConfiguration_zeroWalkerThreads_throws() {
+    CommandLine.ParseResult result = parse("--walker-threads", "0");
+    assertThrows(IllegalArgumentException.class, () -> producer.fileListerConfiguration(result));
+  }
+
+  @Test
+  void renamerConfiguration_defaultIsSequential() {
+    CommandLine.ParseResult result = parse();
+    RenamerConfiguration config = producer.renamerConfiguration(result);
+
+    assertEquals(1, config.getRenameThreads());
+  }
+
+  @Test
+  void renamerConfiguration_renameThreadsSet() {
+    CommandLine.ParseResult result = parse("--rename-threads", "8");
+    RenamerConfiguration config = producer.renamerConfiguration(result);
+
+    assertEquals(8, config.getRenameThreads());
+  }
+
+  @Test
+  void renamerConfiguration_zeroRenameThreads_throws() {
+    CommandLine.ParseResult result = parse("--rename-threads", "0");
+    assertThrows(IllegalArgumentException.class, () -> producer.renamerConfiguration(result));
+  }
+
+  @Test
+  void renamerConfiguration_copyThreadsSet() {
+    CommandLine.ParseResult result = parse("--copy-threads", "4");
+    RenamerConfiguration config = producer.renamerConfiguration(result);
+
+    assertEquals(4, config.getCopyThreads());
+    assertEquals(1, config.getRenameThreads());
+  }
+
+  @Test
+  void renamerConfiguration_zeroCopyThreads_throws() {
+    CommandLine.ParseResult result = parse("--copy-threads", "0");
+    assertThrows(IllegalArgumentException.class, () -> producer.renamerConfiguration(result));
+  }
+
+  @Test
+  void extractionCacheConfiguration_disabledByDefault() {
+    CommandLine.ParseResult result = parse();
+    ExtractionCacheConfiguration config = producer.extractionCacheConfiguration(result);
+
+    assertNull(config.getCacheFile());
+  }
+
+  @Test
+  void extractionCacheConfiguration_cacheFileSet() {
+    CommandLine.ParseResult result = parse("--extraction-cache", "cache.bin");
+    ExtractionCacheConfiguration config = producer.extractionCacheConfiguration(result);
+
+    assertEquals(Path.of("cache.bin").toAbsolutePath().normalize(), config.getCacheFile());
+  }
+
+  @Test
+  void poisonFileConfiguration_registryFileSet() {
+    assertNull(producer.poisonFileConfiguration(parse()).getRegistryFile());
+    PoisonFileConfiguration config = producer.poisonFileConfiguration(parse("--poison-file-registry", "poison.tsv"));
+
+    assertEquals(Path.of("poison.tsv").toAbsolutePath().normalize(), config.getRegistryFile());
+  }
+
+  @Test
+  void pipelineConfiguration_defaultIsNotPipelined() {
+    CommandLine.ParseResult result = parse();
+
+    assertFalse(producer.pipelineConfiguration(result).isPipelined());
+  }
+
+  @Test
+  void pipelineConfiguration_pipelinedSet() {
+    CommandLine.ParseResult result = parse("--pipelined");
+
+    assertTrue(producer.pipelineConfiguration(result).isPipelined());
+  }
+
+  @Test
+  void cameraFileNameConfiguration_noPatternsByDefault() {
+    CommandLine.ParseResult result = parse();
+    CameraFileNameConfiguration config = producer.cameraFileNameConfiguration(result);
+
+    assertTrue(config.getPatterns().isEmpty());
+  }
+
+  @Test
+  void cameraFileNameConfiguration_patternsCompiled() {
+    CommandLine.ParseResult result = parse("--camera-file-name-patterns", "'CAM'yyyyMMdd-HHmmss*,@-yyyyMMdd");
+    CameraFileNameConfiguration config = producer.cameraFileNameConfiguration(result);
+
+    assertEquals(List.of("'CAM'yyyyMMdd-HHmmss*", "@-yyyyMMdd"),
+        config.getPatterns().stream().map(Object::toString).toList());
+  }
+
+  @Test
+  void cameraFileNameConfiguration_invalidPattern_throws() {
+    CommandLine.ParseResult result = parse("--camera-file-name-patterns", "yyyyMM");
+    assertThrows(IllegalArgumentException.class, () -> producer.cameraFileNameConfiguration(result));
+  }
+
+  @Test
+  void planConfiguration_noPlanByDefault() {
+    CommandLine.ParseResult result = parse();
+    PlanConfiguration config = producer.planConfiguration(result);
+
+    assertNull(config.getPlanFile());
+    assertNull(config.getApplyPlan());
+  }
+
+  @Test
+  void planConfiguration_planFileSet() {
+    CommandLine.ParseResult result = parse("--plan-file", "plan.bin");
+    PlanConfiguration config = producer.planConfiguration(result);
+
+    assertEquals(Path.of("plan.bin").toAbsolutePath().normalize(), config.getPlanFile());
+    assertNull(config.getApplyPlan());
+  }
+
+  @Test
+  void planConfiguration_planFileAndApplyPlan_throws() {
+    CommandLine.ParseResult result = parse("--plan-file", "plan.bin", "--apply-plan", "other.bin");
+    assertThrows(IllegalArgumentException.class, () -> producer.planConfiguration(result));
+  }
+
+  @Test
+  void fileListerConfiguration_shardSet() {
+    CommandLine.ParseResult result = parse("--shard", "3/16");
+    FileListerConfiguration config = producer.fileListerConfiguration(result);
+
+    assertEquals(3, config.getShard());
+    assertEquals(16, config.getShardCount());
+  }
+
+  @Test
+  void fileListerConfiguration_invalidShard_throws() {
+    assertThrows(IllegalArgumentException.class, () -> producer.fileListerConfiguration(parse("--shard", "3")));
+    assertThrows(IllegalArgumentException.class, () -> producer.fileListerConfiguration(parse("--shard", "0/16")));
+    assertThrows(IllegalArgumentException.class, () -> producer.fileListerConfiguration(parse("--shard", "17/16")));
+  }
+
+  @Test
+  void fileListerConfiguration_pruneByDateRangeWithDateMin() {
+    CommandLine.ParseResult result = parse("--prune-by-date-range", "--date-min", "2024-01-15");
+
+    assertTrue(producer.fileListerConfiguration(result).isPruneByDateRange());
+  }
+
+  @Test
+  void fileListerConfiguration_pruneByDateRangeWithoutRange_throws() {
+    CommandLine.ParseResult result = parse("--prune-by-date-range");
+    assertThrows(IllegalArgumentException.class, () -> producer.fileListerConfiguration(result));
+  }
+
+  @Test
+  void shardConfiguration_mergeShardsSet() {
+    CommandLine.ParseResult result = parse("--merge-shards", "shard1.bin,shard2.bin");
+    ShardConfiguration config = producer.shardConfiguration(result);
+
+    assertEquals(List.of(Path.of("shard1.bin").toAbsolutePath().normalize(),
+        Path.of("shard2.bin").toAbsolutePath().normalize()), config.getMergeShards());
+    assertNull(config.getShardResult());
+  }
+
+  @Test
+  void shardConfiguration_shardWithoutResult_throws() {
+    CommandLine.ParseResult result = parse("--shard", "1/2");
+    assertThrows(IllegalArgumentException.class, () -> producer.shardConfiguration(result));
+  }
+
+  @Test
+  void sortConfiguration_maxFilesInMemorySet() {
+    CommandLine.ParseResult result = parse("--max-files-in-memory", "1000000", "--spill-folder", "spill");
+    SortConfiguration config = producer.sortConfiguration(result);
+
+    assertEquals(1000000, config.getMaxFilesInMemory());
+    assertEquals(Path.of("spill").toAbsolutePath().normalize(), config.getSpillFolder());
+  }
+
+  @Test
+  void sortConfiguration_invalidOptions_throws() {
+    assertThrows(IllegalArgumentException.class, () -> producer.sortConfiguration(parse("--max-files-in-memory", "0")));
+    assertThrows(IllegalArgumentException.class, () -> producer.sortConfiguration(parse("--spill-folder", "spill")));
+    assertThrows(IllegalArgumentException.class,
+        () -> producer.sortConfiguration(parse("--max-files-in-memory", "10", "--pipelined")));
+  }
+
+  @Test
+  void journalConfiguration_noJournalByDefault() {
+    CommandLine.ParseResult result = parse();
+    JournalConfiguration config = producer.journalConfiguration(result);
+
+    assertNull(config.getJournalFile());
+    assertFalse(config.isResume());
+  }
+
+  @Test
+  void journalConfiguration_resumeJournal() {
+    CommandLine.ParseResult result = parse("--journal-file", "journal.bin", "--resume");
+    JournalConfiguration config = producer.journalConfiguration(result);
+
+    assertEquals(Path.of("journal.bin").toAbsolutePath().normalize(), config.getJournalFile());
+    assertTrue(config.isResume());
+  }
+
+  @Test
+  void journalConfiguration_resumeAndUndo_throws() {
+    CommandLine.ParseResult result = parse("--journal-file", "journal.bin", "--resume", "--undo");
+    assertThrows(IllegalArgumentException.class, () -> producer.journalConfiguration(result));
+  }
+
+  @Test
+  void journalConfiguration_resumeWithoutJournalFile_throws() {
+    CommandLine.ParseResult result = parse("--resume");
+    assertThrows(IllegalArgumentException.class, () -> producer.journalConfiguration(result));
   }
 }
@@ -2,20 +2,35 @@ package snapsort;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import snapsort.cache.ExtractionCache;
+import snapsort.cache.PoisonFileRegistry;
 import snapsort.files.FileInfo;
 import snapsort.files.FileLister;
+import snapsort.files.FileTable;
 import snapsort.renamer.Deduplicator;
+import snapsort.renamer.DestinationIndex;
 import snapsort.renamer.RenameGenerator;
 import snapsort.renamer.RenamedFile;
 import snapsort.renamer.Renamer;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -24,6 +39,12 @@ class SnapsortOrchestratorTest {
   @Mock
   private FileLister fileLister;
 
+  @Mock
+  private ExtractionCache extractionCache;
+
+  @Mock
+  private PoisonFileRegistry poisonFileRegistry;
+
   @Mock
   private Deduplicator deduplicator;
 
@@ -33,6 +54,24 @@ class SnapsortOrchestratorTest {
   @Mock
   private Renamer renamer;
 
+  @Spy
+  private PipelineConfiguration pipelineConfiguration = new PipelineConfiguration();
+
+  @Spy
+  private PlanConfiguration planConfiguration = new PlanConfiguration();
+
+  @Spy
+  private JournalConfiguration journalConfiguration = new JournalConfiguration();
+
+  @Spy
+  private ShardConfiguration shardConfiguration = new ShardConfiguration();
+
+  @Spy
+  private FileListerConfiguration fileListerConfiguration = new FileListerConfiguration();
+
+  @Spy
+  private SortConfiguration sortConfiguration = new SortConfiguration();
+
   @InjectMocks
   private SnapsortOrchestrator orchestrator;
 
@@ -40,20 +79,20 @@ class SnapsortOrchestratorTest {
   void execute_delegatesFullPipeline() {
     List<Path> inputFolders = List.of(Path.of("/photos"));
     Path outputFolder = Path.of("/output");
-    FileInfo fileInfo = mock(FileInfo.class);
-    FileInfo deduplicated = mock(FileInfo.class);
+    FileTable files = new FileTable();
     RenamedFile renamed = mock(RenamedFile.class);
 
-    when(fileLister.listFiles(inputFolders)).thenReturn(List.of(fileInfo));
-    when(deduplicator.deduplicateDates(List.of(fileInfo))).thenReturn(List.of(deduplicated));
-    when(renameGenerator.generateRenamedFileNames(List.of(deduplicated))).thenReturn(List.of(renamed));
+    when(fileLister.listFileTable(inputFolders)).thenReturn(files);
+    when(renameGenerator.generateRenamedFileNames(files)).thenReturn(List.of(renamed));
 
     orchestrator.execute(inputFolders, outputFolder, true);
 
-    verify(fileLister).listFiles(inputFolders);
-    verify(deduplicator).deduplicateDates(List.of(fileInfo));
-    verify(renameGenerator).generateRenamedFileNames(List.of(deduplicated));
-    verify(renamer).renameFiles(List.of(renamed), outputFolder, true);
+    verify(fileLister).listFileTable(inputFolders);
+    verify(extractionCache).save();
+    verify(poisonFileRegistry).save();
+    verify(deduplicator).deduplicateDates(eq(files), any(DestinationIndex.class));
+    verify(renameGenerator).generateRenamedFileNames(files);
+    verify(renamer).renameFiles(eq(List.of(renamed)), eq(outputFolder), any(DestinationIndex.class), eq(true));
   }
 
   @Test
@@ -61,12 +100,153 @@ class SnapsortOrchestratorTest {
     List<Path> inputFolders = List.of(Path.of("/in"));
     Path outputFolder = Path.of("/out");
 
-    when(fileLister.listFiles(anyList())).thenReturn(List.of());
-    when(deduplicator.deduplicateDates(any())).thenReturn(List.of());
-    when(renameGenerator.generateRenamedFileNames(any())).thenReturn(List.of());
+    when(fileLister.listFileTable(anyList())).thenReturn(new FileTable());
+    when(renameGenerator.generateRenamedFileNames(any(FileTable.class))).thenReturn(List.of());
 
     orchestrator.execute(inputFolders, outputFolder, false);
 
-    verify(renamer).renameFiles(List.of(), outputFolder, false);
+    verify(renamer).renameFiles(eq(List.of()), eq(outputFolder), any(DestinationIndex.class), eq(false));
+  }
+
+  @Test
+  void execute_pipelined_renamesDeduplicatedBatches(@TempDir Path outputFolder) {
+    List<Path> inputFolders = List.of(Path.of("/in"));
+    FileInfo first = new FileInfo(Path.of("/in/a.jpg"),
+        new TimeStampWithSource(LocalDateTime.of(2024, 5, 30, 21, 3, 59), TimeStampSource.EXIF_DATE_TIME));
+    FileInfo second = new FileInfo(Path.of("/in/b.jpg"), first.timestamp());
+    RenamedFile renamed = mock(RenamedFile.class);
+    pipelineConfiguration.setPipelined(true);
+    doAnswer(invocation -> {
+      BiConsumer<FileInfo, LocalDateTime> consumer = invocation.getArgument(2);
+      consumer.accept(first, LocalDateTime.MIN);
+      consumer.accept(null, LocalDateTime.MIN);
+      consumer.accept(second, LocalDateTime.MAX);
+      return null;
+    }).when(fileLister).listFilesByCandidateTime(eq(inputFolders), any(), any());
+    when(renameGenerator.generateRenamedFileNames(anyList())).thenReturn(List.of(renamed));
+
+    orchestrator.execute(inputFolders, outputFolder, true);
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<FileInfo>> deduplicated = ArgumentCaptor.forClass(List.class);
+    verify(renameGenerator, atLeastOnce()).generateRenamedFileNames(deduplicated.capture());
+    assertEquals(List.of(first.timestamp().getTime(), first.timestamp().getTime().plusSeconds(1)),
+        deduplicated.getAllValues().stream().flatMap(List::stream).map(file -> file.timestamp().getTime()).toList());
+    verify(renamer, atLeastOnce()).renameFiles(eq(List.of(renamed)), eq(outputFolder), any(DestinationIndex.class),
+        eq(true));
+    verify(extractionCache).save();
+    verifyNoInteractions(deduplicator);
+  }
+
+  @Test
+  void execute_maxFilesInMemory_sortedOnDiskAndRenamedByBatches(@TempDir Path tempDir) throws IOException {
+    List<Path> inputFolders = List.of(Path.of("/in"));
+    Path outputFolder = Files.createDirectory(tempDir.resolve("out"));
+    Path spillFolder = Files.createDirectory(tempDir.resolve("spill"));
+    TimeStampWithSource timestamp = new TimeStampWithSource(LocalDateTime.of(2024, 5, 30, 21, 3, 59),
+        TimeStampSource.EXIF_DATE_TIME);
+    sortConfiguration.setMaxFilesInMemory(2);
+    sortConfiguration.setSpillFolder(spillFolder);
+    doAnswer(invocation -> {
+      Consumer<FileInfo> consumer = invocation.getArgument(1);
+      consumer.accept(new FileInfo(Path.of("/in/c.jpg"), timestamp));
+      consumer.accept(new FileInfo(Path.of("/in/b.jpg"), timestamp));
+      consumer.accept(new FileInfo(Path.of("/in/a.jpg"), new TimeStampWithSource(timestamp.getTime().plusSeconds(1),
+          TimeStampSource.EXIF_DATE_TIME)));
+      return null;
+    }).when(fileLister).forEachFile(eq(inputFolders), any());
+    when(renameGenerator.generateRenamedFileNames(anyList())).thenReturn(List.of());
+
+    orchestrator.execute(inputFolders, outputFolder, false);
+
+    @SuppressWarnings("unchecked")
+    ArgumentCaptor<List<FileInfo>> deduplicated = ArgumentCaptor.forClass(List.class);
+    verify(renameGenerator, atLeastOnce()).generateRenamedFileNames(deduplicated.capture());
+    List<FileInfo> files = deduplicated.getAllValues().stream().flatMap(List::stream).toList();
+    assertEquals(List.of(Path.of("/in/b.jpg"), Path.of("/in/c.jpg"), Path.of("/in/a.jpg")),
+        files.stream().map(FileInfo::path).toList());
+    assertEquals(List.of(timestamp.getTime(), timestamp.getTime().plusSeconds(1), timestamp.getTime().plusSeconds(2)),
+        files.stream().map(file -> file.timestamp().getTime()).toList());
+    verify(extractionCache).save();
+    verify(renamer).finishJournal();
+    verifyNoInteractions(deduplicator);
+    try (Stream<Path> runs = Files.list(spillFolder)) {
+      assertEquals(List.of(), runs.toList());
+    }
+  }
+
+  @Test
+  void execute_dryRunWithPlanFile_planAppliedWithoutListing(@TempDir Path tempDir) throws IOException {
+    Path outputFolder = Files.createDirectory(tempDir.resolve("out"));
+    Path file = Files.writeString(tempDir.resolve("a.jpg"), "data");
+    RenamedFile renamed = new RenamedFile("2024-05-30 21.03.59.jpg", "2024/20240530_", file, Files.size(file),
+        Files.getLastModifiedTime(file).toMillis());
+    Path planFile = tempDir.resolve("plan.bin");
+    planConfiguration.setPlanFile(planFile);
+    when(fileLister.listFileTable(anyList())).thenReturn(new FileTable());
+    when(renameGenerator.generateRenamedFileNames(any(FileTable.class))).thenReturn(List.of(renamed));
+
+    orchestrator.execute(List.of(tempDir), outputFolder, false);
+    planConfiguration.setPlanFile(null);
+    planConfiguration.setApplyPlan(planFile);
+    orchestrator.execute(null, outputFolder, true);
+
+    verify(fileLister, times(1)).listFileTable(anyList());
+    verify(renamer).renameFiles(eq(List.of(renamed)), eq(outputFolder), any(DestinationIndex.class), eq(true));
+  }
+
+  @Test
+  void execute_shardsThenMerge_filesOfAllShardsRenamed(@TempDir Path tempDir) {
+    Path outputFolder = Path.of("/out");
+    List<Path> inputFolders = List.of(Path.of("/in"));
+    FileInfo first = new FileInfo(Path.of("/in/b/2.jpg"),
+        new TimeStampWithSource(LocalDateTime.of(2024, 5, 30, 21, 3, 59), TimeStampSource.EXIF_DATE_TIME));
+    FileInfo second = new FileInfo(Path.of("/in/a/1.jpg"), first.timestamp());
+    Path firstResult = tempDir.resolve("shard1.bin");
+    Path secondResult = tempDir.resolve("shard2.bin");
+    when(fileLister.listFileTable(inputFolders))
+        .thenReturn(FileTable.of(List.of(first)), FileTable.of(List.of(second)));
+    fileListerConfiguration.setShardCount(2);
+    shardConfiguration.setShardResult(firstResult);
+    orchestrator.execute(inputFolders, outputFolder, true);
+    fileListerConfiguration.setShard(2);
+    shardConfiguration.setShardResult(secondResult);
+    orchestrator.execute(inputFolders, outputFolder, true);
+    verifyNoInteractions(deduplicator, renameGenerator, renamer);
+
+    shardConfiguration.setShardResult(null);
+    shardConfiguration.setMergeShards(List.of(firstResult, secondResult));
+    when(renameGenerator.generateRenamedFileNames(any(FileTable.class))).thenReturn(List.of());
+    orchestrator.execute(null, outputFolder, true);
+
+    // Same order as a run that is not sharded
+    ArgumentCaptor<FileTable> merged = ArgumentCaptor.forClass(FileTable.class);
+    verify(deduplicator).deduplicateDates(merged.capture(), any(DestinationIndex.class));
+    assertEquals(List.of(second, first), merged.getValue().toFileInfos());
+    verify(fileLister, times(2)).listFileTable(inputFolders);
+  }
+
+  @Test
+  void execute_resume_onlyFinishesJournaledMoves() {
+    Path outputFolder = Path.of("/out");
+    journalConfiguration.setJournalFile(Path.of("/journal.bin"));
+    journalConfiguration.setResume(true);
+
+    orchestrator.execute(null, outputFolder, true);
+
+    verify(renamer).resume(eq(outputFolder), any(DestinationIndex.class), eq(true));
+    verifyNoInteractions(fileLister, deduplicator, renameGenerator);
+  }
+
+  @Test
+  void execute_undo_onlyMovesJournaledFilesBack() {
+    Path outputFolder = Path.of("/out");
+    journalConfiguration.setJournalFile(Path.of("/journal.bin"));
+    journalConfiguration.setUndo(true);
+
+    orchestrator.execute(null, outputFolder, true);
+
+    verify(renamer).undo(outputFolder, true);
+    verifyNoInteractions(fileLister, deduplicator, renameGenerator);
   }
 }
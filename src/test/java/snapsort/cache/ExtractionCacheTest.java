@@ -0,0 +1,189 @@
+package snapsort.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import snapsort.CameraFileNameConfiguration;
+import snapsort.DateChooserConfiguration;
+import snapsort.DateRange;
+import snapsort.ExtractionCacheConfiguration;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.extractor.filename.CameraFileNamePattern;
+import snapsort.files.FileContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtractionCacheTest {
+  private static final DateRange NO_RANGE = new DateRange(null, null);
+  private static final TimeStampWithSource TIMESTAMP =
+      new TimeStampWithSource(LocalDateTime.of(2024, 5, 30, 21, 3, 59, 123), TimeStampSource.EXIF_DATE_TIME_ORIGINAL);
+
+  @TempDir
+  private Path tempDir;
+  private ExtractionCacheConfiguration cacheConfig;
+  private Path file;
+
+  @BeforeEach
+  void setup() throws IOException {
+    cacheConfig = new ExtractionCacheConfiguration();
+    cacheConfig.setCacheFile(tempDir.resolve("cache.bin"));
+    file = Files.writeString(tempDir.resolve("photo.jpg"), "data");
+  }
+
+  private ExtractionCache cache(DateRange dateRange, boolean readFilesystemDateModified) {
+    return cache(dateRange, readFilesystemDateModified, new CameraFileNameConfiguration());
+  }
+
+  private ExtractionCache cache(DateRange dateRange, boolean readFilesystemDateModified,
+      CameraFileNameConfiguration cameraFileNameConfiguration) {
+    DateChooserConfiguration config = new DateChooserConfiguration();
+    config.setReadFilesystemDateModified(readFilesystemDateModified);
+    return new ExtractionCache(cacheConfig, dateRange, config, cameraFileNameConfiguration);
+  }
+
+  private void storeAndSave(TimeStampWithSource timestamp) {
+    ExtractionCache cache = cache(NO_RANGE, false);
+    cache.store(cache.key(new FileContext(file)), timestamp);
+    cache.save();
+  }
+
+  @Test
+  void disabledCache_noKeyAndNoFileWritten() {
+    ExtractionCache cache = new ExtractionCache(new ExtractionCacheConfiguration(), NO_RANGE,
+        new DateChooserConfiguration(), new CameraFileNameConfiguration());
+
+    assertNull(cache.key(new FileContext(file)));
+    assertNull(cache.lookup(null));
+    cache.save();
+    assertFalse(Files.exists(tempDir.resolve("cache.bin")));
+  }
+
+  @Test
+  void savedEntry_hitInNextRun() {
+    storeAndSave(TIMESTAMP);
+
+    ExtractionCache cache = cache(NO_RANGE, false);
+    ExtractionCache.CachedTimestamp cached = cache.lookup(cache.key(new FileContext(file)));
+
+    assertNotNull(cached);
+    assertEquals(TIMESTAMP, cached.timestamp());
+    assertEquals(1, cache.getHits());
+    assertEquals(0, cache.getMisses());
+  }
+
+  @Test
+  void fileWithoutDate_cachedAsNoTimestamp() {
+    storeAndSave(null);
+
+    ExtractionCache cache = cache(NO_RANGE, false);
+    ExtractionCache.CachedTimestamp cached = cache.lookup(cache.key(new FileContext(file)));
+
+    assertNotNull(cached);
+    assertNull(cached.timestamp());
+  }
+
+  @Test
+  void modifiedFile_miss() throws IOException {
+    storeAndSave(TIMESTAMP);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+
+    ExtractionCache cache = cache(NO_RANGE, false);
+
+    assertNull(cache.lookup(cache.key(new FileContext(file))));
+    assertEquals(1, cache.getMisses());
+  }
+
+  @Test
+  void dateRangeChanged_cacheInvalidated() {
+    storeAndSave(TIMESTAMP);
+
+    ExtractionCache cache = cache(new DateRange(LocalDateTime.of(2024, 1, 1, 0, 0), null), false);
+
+    assertNull(cache.lookup(cache.key(new FileContext(file))));
+  }
+
+  @Test
+  void readFilesystemDateModifiedChanged_cacheInvalidated() {
+    storeAndSave(TIMESTAMP);
+
+    ExtractionCache cache = cache(NO_RANGE, true);
+
+    assertNull(cache.lookup(cache.key(new FileContext(file))));
+  }
+
+  @Test
+  void cameraFileNamePatternsChanged_cacheInvalidated() {
+    storeAndSave(null);
+    CameraFileNameConfiguration cameraFileNameConfiguration = new CameraFileNameConfiguration();
+    cameraFileNameConfiguration.setPatterns(List.of(CameraFileNamePattern.of("'CAM'yyyyMMdd-HHmmss*")));
+
+    ExtractionCache cache = cache(NO_RANGE, false, cameraFileNameConfiguration);
+
+    assertNull(cache.lookup(cache.key(new FileContext(file))));
+  }
+
+  @Test
+  void concurrentProcesses_entriesOfBothKept() throws IOException {
+    Path otherFile = Files.writeString(tempDir.resolve("other.jpg"), "other data");
+    ExtractionCache first = cache(NO_RANGE, false);
+    ExtractionCache second = cache(NO_RANGE, false);
+    first.store(first.key(new FileContext(file)), TIMESTAMP);
+    second.store(second.key(new FileContext(otherFile)), TIMESTAMP);
+    first.save();
+    second.save();
+
+    ExtractionCache cache = cache(NO_RANGE, false);
+
+    assertNotNull(cache.lookup(cache.key(new FileContext(file))));
+    assertNotNull(cache.lookup(cache.key(new FileContext(otherFile))));
+  }
+
+  @Test
+  void deletedFile_removedFromCacheBySave() throws IOException {
+    Path deletedFile = Files.writeString(tempDir.resolve("deleted.jpg"), "data");
+    ExtractionCache cache = cache(NO_RANGE, false);
+    cache.store(cache.key(new FileContext(deletedFile)), TIMESTAMP);
+    cache.store(cache.key(new FileContext(file)), TIMESTAMP);
+    cache.save();
+    Files.delete(deletedFile);
+
+    // Next run only sees file, deleted.jpg has been moved away
+    ExtractionCache nextRun = cache(NO_RANGE, false);
+    nextRun.lookup(nextRun.key(new FileContext(file)));
+    nextRun.save();
+    Files.writeString(deletedFile, "data");
+    ExtractionCache lastRun = cache(NO_RANGE, false);
+
+    assertNull(lastRun.lookup(lastRun.key(new FileContext(deletedFile))));
+    assertNotNull(lastRun.lookup(lastRun.key(new FileContext(file))));
+  }
+
+  @Test
+  void deletedFileInFolderNotMet_keptBySave() throws IOException {
+    Path otherFolder = Files.createDirectory(tempDir.resolve("other"));
+    Path unmetFile = Files.writeString(otherFolder.resolve("unmet.jpg"), "data");
+    FileTime lastModified = Files.getLastModifiedTime(unmetFile);
+    ExtractionCache cache = cache(NO_RANGE, false);
+    cache.store(cache.key(new FileContext(unmetFile)), TIMESTAMP);
+    cache.store(cache.key(new FileContext(file)), TIMESTAMP);
+    cache.save();
+    Files.delete(unmetFile);
+
+    // Next run does not list the other folder, its files are not checked
+    ExtractionCache nextRun = cache(NO_RANGE, false);
+    nextRun.lookup(nextRun.key(new FileContext(file)));
+    nextRun.save();
+    Files.setLastModifiedTime(Files.writeString(unmetFile, "data"), lastModified);
+    ExtractionCache lastRun = cache(NO_RANGE, false);
+
+    assertNotNull(lastRun.lookup(lastRun.key(new FileContext(unmetFile))));
+  }
+}
@@ -0,0 +1,89 @@
+package snapsort.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import snapsort.PoisonFileConfiguration;
+import snapsort.files.FileContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PoisonFileRegistryTest {
+  private static final String EXTRACTOR = "ExifDateExtractor";
+
+  @TempDir
+  private Path tempDir;
+  private PoisonFileConfiguration config;
+  private Path file;
+
+  @BeforeEach
+  void setup() throws IOException {
+    config = new PoisonFileConfiguration();
+    config.setRegistryFile(tempDir.resolve("poison.tsv"));
+    file = Files.writeString(tempDir.resolve("photo.jpg"), "data");
+  }
+
+  private void recordAndSave(Path poisonFile) {
+    PoisonFileRegistry registry = new PoisonFileRegistry(config);
+    registry.record(registry.key(new FileContext(poisonFile)), EXTRACTOR, PoisonFileRegistry.Reason.TIMEOUT,
+        "more than PT10S");
+    registry.save();
+  }
+
+  private boolean isPoisonedForNextRun(Path poisonFile, String extractor) {
+    PoisonFileRegistry registry = new PoisonFileRegistry(config);
+    return registry.isPoisoned(registry.key(new FileContext(poisonFile)), extractor);
+  }
+
+  @Test
+  void disabledRegistry_nothingRecordedAndNoFileWritten() {
+    PoisonFileRegistry registry = new PoisonFileRegistry(new PoisonFileConfiguration());
+
+    assertNull(registry.key(new FileContext(file)));
+    registry.record(null, EXTRACTOR, PoisonFileRegistry.Reason.ERROR, "failure");
+    assertFalse(registry.isPoisoned(null, EXTRACTOR));
+    registry.save();
+    assertFalse(Files.exists(tempDir.resolve("poison.tsv")));
+  }
+
+  @Test
+  void recordedFile_poisonedForThatExtractorOnly() {
+    recordAndSave(file);
+
+    assertTrue(isPoisonedForNextRun(file, EXTRACTOR));
+    assertFalse(isPoisonedForNextRun(file, "MatroskaDateExtractor"));
+  }
+
+  @Test
+  void modifiedFile_triedAgainAndRemovedOnSave() throws IOException {
+    recordAndSave(file);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 2000));
+
+    PoisonFileRegistry registry = new PoisonFileRegistry(config);
+    assertFalse(registry.isPoisoned(registry.key(new FileContext(file)), EXTRACTOR));
+    registry.save();
+
+    assertFalse(Files.readString(tempDir.resolve("poison.tsv")).contains(file.toString()));
+  }
+
+  @Test
+  void entriesOfOtherProcesses_keptWhileTheirFileExists() throws IOException {
+    Path other = Files.writeString(tempDir.resolve("other.jpg"), "other");
+    Path deleted = Files.writeString(tempDir.resolve("deleted.jpg"), "deleted");
+    recordAndSave(other);
+    recordAndSave(deleted);
+    Files.delete(deleted);
+
+    recordAndSave(file);
+
+    String registry = Files.readString(tempDir.resolve("poison.tsv"));
+    assertTrue(registry.contains(file.toString()));
+    assertTrue(registry.contains(other.toString()));
+    assertFalse(registry.contains(deleted.toString()));
+  }
+}
@@ -0,0 +1,67 @@
+package snapsort.concurrent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyUtilTest {
+
+  /**
+   * Gives the items 0 to count - 1, counting the ones it could give.
+   */
+  private static Consumer<Consumer<Integer>> producer(int count, AtomicInteger given) {
+    return consumer -> {
+      for (int i = 0; i < count; i++) {
+        consumer.accept(i);
+        given.incrementAndGet();
+      }
+    };
+  }
+
+  @Test
+  void forEachAsProduced_allItemsDone() {
+    for (int parallelism : List.of(1, 4)) {
+      Set<Integer> done = ConcurrentHashMap.newKeySet();
+
+      ConcurrencyUtil.forEachAsProduced(producer(1000, new AtomicInteger()), parallelism, done::add);
+
+      assertEquals(1000, done.size());
+    }
+  }
+
+  @Test
+  void forEachAsProduced_parallelismOne_runByProducerThread() {
+    Set<Thread> threads = ConcurrentHashMap.newKeySet();
+
+    ConcurrencyUtil.forEachAsProduced(producer(100, new AtomicInteger()), 1,
+        item -> threads.add(Thread.currentThread()));
+
+    assertEquals(Set.of(Thread.currentThread()), threads);
+  }
+
+  @Test
+  void forEachAsProduced_actionFails_producerStoppedAndFailureRethrown() {
+    for (int parallelism : List.of(1, 4)) {
+      AtomicInteger given = new AtomicInteger();
+      IllegalStateException failure = new IllegalStateException("broken file");
+
+      IllegalStateException thrown = assertThrows(IllegalStateException.class,
+          () -> ConcurrencyUtil.forEachAsProduced(producer(100_000, given), parallelism, item -> {
+            if (item == 10) {
+              throw failure;
+            }
+          }));
+
+      assertEquals(failure, thrown);
+      assertTrue(given.get() < 100_000, "Producer went on after the failure: " + given.get() + " items given");
+    }
+  }
+}
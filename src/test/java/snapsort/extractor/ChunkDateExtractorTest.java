@@ -0,0 +1,158 @@
+package snapsort.extractor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.extractor.exif.TiffTestData;
+import snapsort.files.FileContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkDateExtractorTest {
+  private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+  private static final LocalDateTime TIME_UTC = LocalDateTime.of(2024, 5, 30, 19, 3, 59);
+  private static final LocalDateTime LOCAL_TIME = LocalDateTime.ofInstant(TIME_UTC.toInstant(ZoneOffset.UTC),
+      ZoneId.systemDefault());
+  private static final byte[] TIFF = new TiffTestData(ByteOrder.LITTLE_ENDIAN)
+      .withDateTimeOriginal("2024:05:30 21:03:58")
+      .build();
+  private static final List<TimeStampWithSource> TIFF_DATES = List.of(
+      new TimeStampWithSource(LocalDateTime.of(2024, 5, 30, 21, 3, 58), TimeStampSource.EXIF_DATE_TIME_ORIGINAL));
+  // Larger than the header read by FileContext, chunks after it are read with seeks
+  private static final int IMAGE_DATA_SIZE = 100_000;
+
+  private final ChunkDateExtractor extractor = new ChunkDateExtractor();
+
+  @TempDir
+  private Path tempDir;
+
+  private static byte[] pngChunk(String type, byte[] data) {
+    ByteBuffer res = ByteBuffer.allocate(12 + data.length);
+    res.putInt(data.length).put(type.getBytes(StandardCharsets.US_ASCII)).put(data);
+    // CRC is not checked
+    return res.putInt(0).array();
+  }
+
+  private static byte[] png(byte[]... chunks) {
+    return concat(PNG_SIGNATURE, concat(chunks), pngChunk("IEND", new byte[0]));
+  }
+
+  private static byte[] tIme(LocalDateTime utc) {
+    return ByteBuffer.allocate(7).putShort((short) utc.getYear()).put((byte) utc.getMonthValue())
+        .put((byte) utc.getDayOfMonth()).put((byte) utc.getHour()).put((byte) utc.getMinute())
+        .put((byte) utc.getSecond()).array();
+  }
+
+  private static byte[] riffChunk(String type, byte[]... contents) {
+    byte[] content = concat(contents);
+    ByteBuffer res = ByteBuffer.allocate(8 + content.length + (content.length & 1));
+    res.put(type.getBytes(StandardCharsets.US_ASCII)).putInt(Integer.reverseBytes(content.length)).put(content);
+    return res.array();
+  }
+
+  private static byte[] list(String type, byte[]... chunks) {
+    return riffChunk("LIST", ascii(type), concat(chunks));
+  }
+
+  private static byte[] riff(String formType, byte[]... chunks) {
+    return riffChunk("RIFF", ascii(formType), concat(chunks));
+  }
+
+  private static byte[] ascii(String text) {
+    return text.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    ByteArrayOutputStream res = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      res.writeBytes(part);
+    }
+    return res.toByteArray();
+  }
+
+  private List<TimeStampWithSource> extract(String name, byte[] content) throws IOException {
+    return extractor.extractDates(new FileContext(Files.write(tempDir.resolve(name), content)));
+  }
+
+  @Test
+  void png_exifPreferredOverTextAndTime() throws IOException {
+    byte[] png = png(pngChunk("IHDR", new byte[13]), pngChunk("tIME", tIme(TIME_UTC)),
+        pngChunk("IDAT", new byte[IMAGE_DATA_SIZE]), pngChunk("eXIf", TIFF));
+
+    assertEquals(TIFF_DATES, extract("scan.png", png));
+  }
+
+  @Test
+  void png_creationTimeTextPreferredOverTime() throws IOException {
+    byte[] png = png(pngChunk("IHDR", new byte[13]), pngChunk("tIME", tIme(TIME_UTC)),
+        pngChunk("tEXt", ascii("Title\0Holidays")),
+        // "\0" + "2" as "\02" would be an octal escape
+        pngChunk("tEXt", ascii("Creation Time\0" + "2024-05-30 21:03:57")));
+
+    assertEquals(List.of(new TimeStampWithSource(LocalDateTime.of(2024, 5, 30, 21, 3, 57),
+        TimeStampSource.IMAGE_CREATION_TIME)), extract("screenshot.png", png));
+  }
+
+  @Test
+  void png_timeInUtc() throws IOException {
+    byte[] png = png(pngChunk("IHDR", new byte[13]), pngChunk("IDAT", new byte[IMAGE_DATA_SIZE]),
+        pngChunk("tIME", tIme(TIME_UTC)));
+
+    assertEquals(List.of(new TimeStampWithSource(LOCAL_TIME, TimeStampSource.IMAGE_MODIFICATION_TIME)),
+        extract("drawing.png", png));
+  }
+
+  @Test
+  void webp_exifChunkAfterImageData() throws IOException {
+    byte[] webp = riff("WEBP", riffChunk("VP8X", new byte[10]), riffChunk("VP8 ", new byte[IMAGE_DATA_SIZE + 1]),
+        riffChunk("EXIF", TIFF));
+
+    assertEquals(TIFF_DATES, extract("photo.webp", webp));
+  }
+
+  @Test
+  void avi_exifInStreamDataPreferredOverIdit() throws IOException {
+    byte[] avi = riff("AVI ", list("hdrl", riffChunk("avih", new byte[56]),
+            list("strl", riffChunk("strh", new byte[56]), riffChunk("strd", ascii("AVIF\0\0Exif\0\0"), TIFF))),
+        list("INFO", riffChunk("ISFT", ascii("camera\0"))), riffChunk("IDIT", ascii("THU MAY 30 21:03:57 2024\n\0")),
+        list("movi", riffChunk("00dc", new byte[IMAGE_DATA_SIZE])));
+
+    assertEquals(TIFF_DATES, extract("MVI_0001.avi", avi));
+  }
+
+  @Test
+  void avi_iditAfterHeaderList() throws IOException {
+    byte[] avi = riff("AVI ", list("hdrl", riffChunk("avih", new byte[56]),
+            list("strl", riffChunk("strh", new byte[56]))),
+        list("movi", riffChunk("00dc", new byte[IMAGE_DATA_SIZE])),
+        riffChunk("IDIT", ascii("Thu May 30 21:03:57 2024\n\0")));
+
+    assertEquals(List.of(new TimeStampWithSource(LocalDateTime.of(2024, 5, 30, 21, 3, 57),
+        TimeStampSource.MOVIE_CREATION_TIME)), extract("clip.avi", avi));
+  }
+
+  @Test
+  void noDateOrOtherFormat_noDate() throws IOException {
+    byte[] pngWithoutDate = png(pngChunk("IHDR", new byte[13]), pngChunk("tEXt", ascii("Creation Time\0yesterday")));
+    byte[] wave = riff("WAVE", riffChunk("fmt ", new byte[16]));
+
+    assertTrue(extract("no-date.png", pngWithoutDate).isEmpty());
+    assertTrue(extract("text.png", ascii("not a png")).isEmpty());
+    assertTrue(extract("sound.avi", wave).isEmpty());
+    assertTrue(extract("photo.jpg", png(pngChunk("tIME", tIme(TIME_UTC)))).isEmpty());
+  }
+}
@@ -2,16 +2,28 @@ package snapsort.extractor;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import snapsort.CameraFileNameConfiguration;
 import snapsort.DateChooserConfiguration;
 import snapsort.DateRange;
+import snapsort.ExtractionCacheConfiguration;
+import snapsort.FileListerConfiguration;
+import snapsort.PoisonFileConfiguration;
 import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
+import snapsort.cache.ExtractionCache;
+import snapsort.cache.PoisonFileRegistry;
 import snapsort.extractor.filename.FinalFileNameDateExtractor;
 import snapsort.extractor.filename.FromCameraFileNameDateExtractor;
+import snapsort.files.FileContext;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.time.LocalDateTime;
 import java.util.Collections;
 import java.util.List;
@@ -22,13 +34,17 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class DateChooserTest {
 
-  private static final Path DUMMY = Path.of("test.jpg");
+  private static final FileContext DUMMY = new FileContext(Path.of("test.jpg"));
 
   @Mock
   private FinalFileNameDateExtractor finalExtractor;
   @Mock
   private ExifDateExtractor exifExtractor;
   @Mock
+  private MatroskaDateExtractor matroskaExtractor;
+  @Mock
+  private ChunkDateExtractor chunkExtractor;
+  @Mock
   private FromCameraFileNameDateExtractor cameraExtractor;
   @Mock
   private FileDateExtractor fileExtractor;
@@ -47,8 +63,34 @@ class DateChooserTest {
   private DateChooser chooser(boolean readFileDate, DateRange dateRange) {
     DateChooserConfiguration config = new DateChooserConfiguration();
     config.setReadFilesystemDateModified(readFileDate);
-    return new DateChooser(finalExtractor, exifExtractor, cameraExtractor, fileExtractor,
-        dateRange, config, new MedianDateSelector());
+    return chooser(config, dateRange, cache(new ExtractionCacheConfiguration(), dateRange, config));
+  }
+
+  private static ExtractionCache cache(ExtractionCacheConfiguration cacheConfig, DateRange dateRange,
+      DateChooserConfiguration config) {
+    return new ExtractionCache(cacheConfig, dateRange, config, new CameraFileNameConfiguration());
+  }
+
+  private DateChooser chooser(DateChooserConfiguration config, DateRange dateRange, ExtractionCache cache) {
+    return chooser(config, dateRange, cache, new PoisonFileRegistry(new PoisonFileConfiguration()));
+  }
+
+  private DateChooser chooser(DateChooserConfiguration config, DateRange dateRange, ExtractionCache cache,
+      PoisonFileRegistry poisonFileRegistry) {
+    return new DateChooser(finalExtractor, exifExtractor, matroskaExtractor, chunkExtractor, cameraExtractor,
+        fileExtractor, dateRange, config, new FileListerConfiguration(), new MedianDateSelector(), cache,
+        poisonFileRegistry);
+  }
+
+  private DateChooser chooser(DateChooserConfiguration config, PoisonFileRegistry poisonFileRegistry) {
+    DateRange noRange = new DateRange(null, null);
+    return chooser(config, noRange, cache(new ExtractionCacheConfiguration(), noRange, config), poisonFileRegistry);
+  }
+
+  private static PoisonFileRegistry poisonFileRegistry(Path registryFile) {
+    PoisonFileConfiguration poisonConfig = new PoisonFileConfiguration();
+    poisonConfig.setRegistryFile(registryFile);
+    return new PoisonFileRegistry(poisonConfig);
   }
 
   @Test
@@ -133,4 +175,110 @@ class DateChooserTest {
 
     assertSame(fileDate, result);
   }
+
+  @Test
+  void cachedTimestamp_extractorsNotCalledByNextRun(@TempDir Path tempDir) throws IOException {
+    FileContext file = new FileContext(Files.writeString(tempDir.resolve("test.jpg"), "data"));
+    ExtractionCacheConfiguration cacheConfig = new ExtractionCacheConfiguration();
+    cacheConfig.setCacheFile(tempDir.resolve("cache.bin"));
+    DateChooserConfiguration config = new DateChooserConfiguration();
+    DateRange noRange = new DateRange(null, null);
+    TimeStampWithSource expected = ts(2025, 6, 15, 10, 0);
+    when(finalExtractor.extractDates(file)).thenReturn(List.of(expected));
+
+    ExtractionCache firstRunCache = cache(cacheConfig, noRange, config);
+    DateChooser firstRun = chooser(config, noRange, firstRunCache);
+    assertSame(expected, firstRun.computeTimestamp(file));
+    firstRun.computeTimestamp(file);
+    verify(finalExtractor, times(1)).extractDates(file);
+    // Save is what the orchestrator does once files are listed
+    firstRunCache.save();
+
+    ExtractionCache nextRunCache = cache(cacheConfig, noRange, config);
+    TimeStampWithSource result = chooser(config, noRange, nextRunCache).computeTimestamp(file);
+
+    assertEquals(expected, result);
+    verify(finalExtractor, times(1)).extractDates(file);
+  }
+
+  @Test
+  void extractorTimesOut_nextExtractorUsedAndSkippedByNextRun(@TempDir Path tempDir) throws IOException {
+    Path path = Files.writeString(tempDir.resolve("IMG_20250615_100000.jpg"), "data");
+    BasicFileAttributes walkAttributes = Files.readAttributes(path, BasicFileAttributes.class);
+    FileContext file = new FileContext(path, walkAttributes);
+    Path registryFile = tempDir.resolve("poison.tsv");
+    DateChooserConfiguration config = new DateChooserConfiguration();
+    config.setExtractionTimeoutSeconds(1);
+    TimeStampWithSource expected = ts(2025, 6, 15, 10, 0);
+    when(exifExtractor.extractDates(file)).thenAnswer(invocation -> {
+      Thread.sleep(60_000);
+      return List.of(ts(2020, 1, 1, 0, 0));
+    });
+    // The next extractors get a new context, the abandoned one may still be in use
+    when(cameraExtractor.extractDates(any())).thenReturn(List.of(expected));
+
+    PoisonFileRegistry firstRunRegistry = poisonFileRegistry(registryFile);
+    assertSame(expected, chooser(config, firstRunRegistry).computeTimestamp(file));
+    firstRunRegistry.save();
+
+    ArgumentCaptor<FileContext> newContext = ArgumentCaptor.forClass(FileContext.class);
+    verify(cameraExtractor).extractDates(newContext.capture());
+    assertNotSame(file, newContext.getValue());
+    assertSame(walkAttributes, newContext.getValue().attributes());
+    assertTrue(Files.readString(registryFile).contains("\tTIMEOUT\tmore than PT1S\t"));
+    assertSame(expected, chooser(config, poisonFileRegistry(registryFile)).computeTimestamp(file));
+    verify(exifExtractor, times(1)).extractDates(any());
+  }
+
+  @Test
+  void extractorThrows_nextExtractorUsedAndSkippedByNextRun(@TempDir Path tempDir) throws IOException {
+    FileContext file = new FileContext(Files.writeString(tempDir.resolve("IMG_20250615_100000.jpg"), "data"));
+    Path registryFile = tempDir.resolve("poison.tsv");
+    DateChooserConfiguration config = new DateChooserConfiguration();
+    config.setExtractionTimeoutSeconds(1);
+    TimeStampWithSource expected = ts(2025, 6, 15, 10, 0);
+    when(exifExtractor.extractDates(file)).thenThrow(new IllegalStateException("corrupt\tsegment"));
+    when(cameraExtractor.extractDates(file)).thenReturn(List.of(expected));
+
+    PoisonFileRegistry firstRunRegistry = poisonFileRegistry(registryFile);
+    assertSame(expected, chooser(config, firstRunRegistry).computeTimestamp(file));
+    firstRunRegistry.save();
+
+    assertTrue(Files.readString(registryFile).contains(
+        "\tERROR\tjava.lang.IllegalStateException: corrupt segment\t"));
+    assertSame(expected, chooser(config, poisonFileRegistry(registryFile)).computeTimestamp(file));
+    verify(exifExtractor, times(1)).extractDates(any());
+  }
+
+  @Test
+  void extractorThrows_dateNotCachedAndExtractorTriedByNextRun(@TempDir Path tempDir) throws IOException {
+    FileContext file = new FileContext(Files.writeString(tempDir.resolve("IMG_20250615_100000.jpg"), "data"));
+    ExtractionCacheConfiguration cacheConfig = new ExtractionCacheConfiguration();
+    cacheConfig.setCacheFile(tempDir.resolve("cache.bin"));
+    DateChooserConfiguration config = new DateChooserConfiguration();
+    config.setExtractionTimeoutSeconds(1);
+    DateRange noRange = new DateRange(null, null);
+    TimeStampWithSource expected = ts(2025, 6, 15, 10, 0);
+    when(exifExtractor.extractDates(file)).thenThrow(new IllegalStateException("corrupt segment"));
+    when(cameraExtractor.extractDates(file)).thenReturn(List.of(expected));
+
+    ExtractionCache firstRunCache = cache(cacheConfig, noRange, config);
+    assertSame(expected, chooser(config, noRange, firstRunCache).computeTimestamp(file));
+    firstRunCache.save();
+
+    ExtractionCache nextRunCache = cache(cacheConfig, noRange, config);
+    assertSame(expected, chooser(config, noRange, nextRunCache).computeTimestamp(file));
+    verify(exifExtractor, times(2)).extractDates(file);
+    assertEquals(0, nextRunCache.getHits());
+  }
+
+  @Test
+  void noTimeout_extractorThrows_exceptionPropagated() {
+    IllegalStateException failure = new IllegalStateException("corrupt segment");
+    when(finalExtractor.extractDates(DUMMY)).thenReturn(Collections.emptyList());
+    when(exifExtractor.extractDates(DUMMY)).thenThrow(failure);
+
+    assertSame(failure, assertThrows(IllegalStateException.class, () -> chooser(false).computeTimestamp(DUMMY)));
+    verify(cameraExtractor, never()).extractDates(any());
+  }
 }
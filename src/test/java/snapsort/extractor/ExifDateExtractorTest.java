@@ -2,12 +2,25 @@ package snapsort.extractor;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import snapsort.TestResourcesUtils;
+import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
+import snapsort.extractor.exif.JpegExifReader;
+import snapsort.extractor.exif.TiffTestData;
+import snapsort.files.FileContext;
+import snapsort.files.FileTypeUtil;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ExifDateExtractorTest {
@@ -19,7 +32,7 @@ class ExifDateExtractorTest {
     Path file = tempDir.resolve("video.mp4");
     Files.writeString(file, "dummy");
 
-    List<TimeStampWithSource> result = extractor.extractDates(file);
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(file));
 
     assertTrue(result.isEmpty());
   }
@@ -29,7 +42,7 @@ class ExifDateExtractorTest {
     Path file = tempDir.resolve("image.png");
     Files.writeString(file, "dummy");
 
-    List<TimeStampWithSource> result = extractor.extractDates(file);
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(file));
 
     assertTrue(result.isEmpty());
   }
@@ -39,8 +52,95 @@ class ExifDateExtractorTest {
     Path file = tempDir.resolve("corrupt.jpg");
     Files.writeString(file, "not a real jpeg");
 
-    List<TimeStampWithSource> result = extractor.extractDates(file);
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(file));
 
     assertTrue(result.isEmpty());
   }
+
+  @Test
+  void realJpeg_sameDatesAsFullMetadataParsing(@TempDir Path tempDir) throws Exception {
+    Path inputFolder = Path.of(new TestResourcesUtils().extractTestFiles("/testfiles.zip", tempDir));
+    Path file = inputFolder.resolve("testfiles/4e69kpxgr88pm9pkjbr1b76far.jpg");
+
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(file));
+
+    assertEquals(List.of(
+        new TimeStampWithSource(LocalDateTime.of(2020, 11, 22, 9, 19, 41), TimeStampSource.EXIF_DATE_TIME),
+        new TimeStampWithSource(LocalDateTime.of(2016, 9, 19, 21, 11, 12), TimeStampSource.EXIF_DATE_TIME_DIGITIZED),
+        new TimeStampWithSource(LocalDateTime.of(2016, 9, 19, 21, 11, 12), TimeStampSource.EXIF_DATE_TIME_ORIGINAL)),
+        result);
+    assertEquals(ExifDateExtractor.extractDatesWithImaging(file), JpegExifReader.readDates(new FileContext(file)));
+  }
+
+  @Test
+  void syntheticJpeg_datesReadFromHeader(@TempDir Path tempDir) throws Exception {
+    byte[] tiff = new TiffTestData(ByteOrder.BIG_ENDIAN)
+        .withDateTime("2021:03:04 05:06:07")
+        .withDateTimeOriginal("2021:03:04 05:06:00")
+        .build();
+    Path file = Files.write(tempDir.resolve("photo.jpg"), TiffTestData.jpeg(tiff));
+
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(file));
+
+    assertEquals(List.of(
+        new TimeStampWithSource(LocalDateTime.of(2021, 3, 4, 5, 6, 7), TimeStampSource.EXIF_DATE_TIME),
+        new TimeStampWithSource(LocalDateTime.of(2021, 3, 4, 5, 6, 0), TimeStampSource.EXIF_DATE_TIME_ORIGINAL)),
+        result);
+  }
+
+  @Test
+  void truncatedExifSegment_fallsBackToFullParser(@TempDir Path tempDir) throws Exception {
+    byte[] jpeg = TiffTestData.jpeg(new TiffTestData(ByteOrder.LITTLE_ENDIAN)
+        .withDateTimeOriginal("2021:03:04 05:06:00").build());
+    Path file = Files.write(tempDir.resolve("truncated.jpg"), Arrays.copyOf(jpeg, 40));
+
+    assertNull(JpegExifReader.readDates(new FileContext(file)));
+    assertTrue(extractor.extractDates(new FileContext(file)).isEmpty());
+  }
+
+  @Test
+  void raw_datesReadWithoutSensorData(@TempDir Path tempDir) throws Exception {
+    byte[] tiff = new TiffTestData(ByteOrder.LITTLE_ENDIAN)
+        .withDateTime("2021:03:04 05:06:07")
+        .withDateTimeOriginal("2021:03:04 05:06:00")
+        .build();
+    // Sensor data after the IFDs, larger than the header of the file context
+    Path file = Files.write(tempDir.resolve("DSC_0001.NEF"), Arrays.copyOf(tiff, tiff.length + 100_000));
+
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(file));
+
+    assertEquals(List.of(
+        new TimeStampWithSource(LocalDateTime.of(2021, 3, 4, 5, 6, 7), TimeStampSource.EXIF_DATE_TIME),
+        new TimeStampWithSource(LocalDateTime.of(2021, 3, 4, 5, 6, 0), TimeStampSource.EXIF_DATE_TIME_ORIGINAL)),
+        result);
+  }
+
+  @Test
+  void tiff_ifdAfterImageData(@TempDir Path tempDir) throws Exception {
+    int ifd0 = 2 * FileContext.HEADER_SIZE;
+    byte[] dateTime = "2021:03:04 05:06:07\0".getBytes(StandardCharsets.US_ASCII);
+    ByteBuffer tiff = ByteBuffer.allocate(ifd0 + 2 + 12 + 4 + dateTime.length).order(ByteOrder.BIG_ENDIAN);
+    tiff.put(new byte[] { 'M', 'M' }).putShort((short) 42).putInt(ifd0);
+    tiff.position(ifd0);
+    tiff.putShort((short) 1).putShort((short) 0x0132).putShort((short) 2).putInt(dateTime.length)
+        .putInt(ifd0 + 2 + 12 + 4).putInt(0).put(dateTime);
+    Path file = Files.write(tempDir.resolve("scan.tif"), tiff.array());
+
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(file));
+
+    assertEquals(List.of(
+        new TimeStampWithSource(LocalDateTime.of(2021, 3, 4, 5, 6, 7), TimeStampSource.EXIF_DATE_TIME)), result);
+  }
+
+  @Test
+  void invalidRaw_emptyList(@TempDir Path tempDir) throws Exception {
+    byte[] tiff = new TiffTestData(ByteOrder.LITTLE_ENDIAN).withDateTime("2021:03:04 05:06:07").build();
+    ByteBuffer.wrap(tiff).order(ByteOrder.LITTLE_ENDIAN).putInt(4, 1_000_000);
+    Path outOfFile = Files.write(tempDir.resolve("IMG_0001.CR2"), tiff);
+    Path notTiff = Files.writeString(tempDir.resolve("DSC_0002.ARW"), "not a real raw");
+
+    assertTrue(FileTypeUtil.isSupportedExtension(FileTypeUtil.getLowercaseExtension(outOfFile)));
+    assertTrue(extractor.extractDates(new FileContext(outOfFile)).isEmpty());
+    assertTrue(extractor.extractDates(new FileContext(notTiff)).isEmpty());
+  }
 }
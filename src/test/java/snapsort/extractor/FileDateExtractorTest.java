@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
+import snapsort.files.FileContext;
 
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -22,7 +23,7 @@ class FileDateExtractorTest {
     Path file = tempDir.resolve("test.jpg");
     Files.writeString(file, "dummy");
 
-    List<TimeStampWithSource> result = extractor.extractDates(file);
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(file));
 
     assertFalse(result.isEmpty());
     assertEquals(1, result.size());
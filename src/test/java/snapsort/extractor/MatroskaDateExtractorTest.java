@@ -0,0 +1,133 @@
+package snapsort.extractor;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.files.FileContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatroskaDateExtractorTest {
+  private static final LocalDateTime DATE_UTC = LocalDateTime.of(2024, 5, 30, 19, 3, 59);
+  private static final LocalDateTime LOCAL_DATE = LocalDateTime.ofInstant(DATE_UTC.toInstant(ZoneOffset.UTC),
+      ZoneId.systemDefault());
+  // Nanoseconds since 2001-01-01T00:00:00Z
+  private static final long DATE_UTC_NANOS = (DATE_UTC.toEpochSecond(ZoneOffset.UTC) - 978_307_200L) * 1_000_000_000L;
+  private static final int EBML = 0x1A45DFA3;
+  private static final int SEGMENT = 0x18538067;
+  private static final int SEEK_HEAD = 0x114D9B74;
+  private static final int SEEK = 0x4DBB;
+  private static final int SEEK_ID = 0x53AB;
+  private static final int SEEK_POSITION = 0x53AC;
+  private static final int INFO = 0x1549A966;
+  private static final int DATE_UTC_ID = 0x4461;
+  private static final int CLUSTER = 0x1F43B675;
+  private static final int VOID = 0xEC;
+  // Larger than the header read by FileContext, elements after it are read with seeks
+  private static final int MEDIA_DATA_SIZE = 100_000;
+
+  private final MatroskaDateExtractor extractor = new MatroskaDateExtractor();
+
+  @TempDir
+  private Path tempDir;
+
+  private static byte[] id(int id) {
+    int length = 4 - Integer.numberOfLeadingZeros(id) / 8;
+    return Arrays.copyOfRange(ByteBuffer.allocate(4).putInt(id).array(), 4 - length, 4);
+  }
+
+  /**
+   * Element with its size written on 8 bytes, or unknown.
+   */
+  private static byte[] element(int id, boolean unknownSize, byte[]... contents) {
+    ByteArrayOutputStream res = new ByteArrayOutputStream();
+    res.writeBytes(id(id));
+    long size = 0;
+    for (byte[] content : contents) {
+      size += content.length;
+    }
+    res.writeBytes(ByteBuffer.allocate(8).putLong(unknownSize ? 0x01FF_FFFF_FFFF_FFFFL : 0x0100_0000_0000_0000L | size)
+        .array());
+    for (byte[] content : contents) {
+      res.writeBytes(content);
+    }
+    return res.toByteArray();
+  }
+
+  private static byte[] element(int id, byte[]... contents) {
+    return element(id, false, contents);
+  }
+
+  private static byte[] ebmlHeader(String docType) {
+    return element(EBML, element(0x4282, docType.getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  private static byte[] info(long dateUtcNanos) {
+    return element(INFO, element(0x2AD7B1, ByteBuffer.allocate(4).putInt(1_000_000).array()),
+        element(DATE_UTC_ID, ByteBuffer.allocate(8).putLong(dateUtcNanos).array()));
+  }
+
+  private static byte[] seekHead(int id, long position) {
+    return element(SEEK_HEAD, element(SEEK, element(SEEK_ID, id(id)),
+        element(SEEK_POSITION, ByteBuffer.allocate(8).putLong(position).array())));
+  }
+
+  private static byte[] concat(byte[]... parts) {
+    ByteArrayOutputStream res = new ByteArrayOutputStream();
+    for (byte[] part : parts) {
+      res.writeBytes(part);
+    }
+    return res.toByteArray();
+  }
+
+  private List<TimeStampWithSource> extract(String name, byte[] content) throws IOException {
+    return extractor.extractDates(new FileContext(Files.write(tempDir.resolve(name), content)));
+  }
+
+  @Test
+  void mkv_dateOfInfoAfterSeekHead() throws IOException {
+    byte[] mkv = concat(ebmlHeader("matroska"), element(SEGMENT, element(VOID, new byte[10]), info(DATE_UTC_NANOS),
+        element(CLUSTER, new byte[MEDIA_DATA_SIZE])));
+
+    assertEquals(List.of(new TimeStampWithSource(LOCAL_DATE, TimeStampSource.MOVIE_CREATION_TIME)),
+        extract("recording.mkv", mkv));
+  }
+
+  @Test
+  void webm_infoAfterClustersReachedThroughSeekHead() throws IOException {
+    byte[] seekHead = seekHead(INFO, 0);
+    byte[] cluster = element(CLUSTER, new byte[MEDIA_DATA_SIZE]);
+    // Info position is relative to the start of the segment data
+    seekHead = seekHead(INFO, seekHead.length + cluster.length);
+    byte[] webm = concat(ebmlHeader("webm"), element(SEGMENT, true, seekHead, cluster, info(DATE_UTC_NANOS)));
+
+    assertEquals(List.of(new TimeStampWithSource(LOCAL_DATE, TimeStampSource.MOVIE_CREATION_TIME)),
+        extract("capture.webm", webm));
+  }
+
+  @Test
+  void noDateUtcOrNotMatroska_noDate() throws IOException {
+    byte[] withoutDate = concat(ebmlHeader("matroska"), element(SEGMENT, element(INFO, new byte[0]),
+        element(CLUSTER, new byte[16])));
+    byte[] unsetDate = concat(ebmlHeader("matroska"), element(SEGMENT, info(0)));
+
+    assertTrue(extract("no-date.mkv", withoutDate).isEmpty());
+    assertTrue(extract("unset.mkv", unsetDate).isEmpty());
+    assertTrue(extract("text.mkv", "not ebml".getBytes(StandardCharsets.US_ASCII)).isEmpty());
+    assertTrue(extract("video.mp4", concat(ebmlHeader("matroska"), element(SEGMENT, info(DATE_UTC_NANOS)))).isEmpty());
+  }
+}
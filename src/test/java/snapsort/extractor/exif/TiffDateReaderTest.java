@@ -0,0 +1,82 @@
+package snapsort.extractor.exif;
+
+import org.junit.jupiter.api.Test;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TiffDateReaderTest {
+
+  private static List<TimeStampWithSource> read(TiffTestData data) {
+    return TiffDateReader.readDates(ByteBuffer.wrap(data.build()));
+  }
+
+  @Test
+  void littleEndian_allDatesInOrder() {
+    List<TimeStampWithSource> result = read(new TiffTestData(ByteOrder.LITTLE_ENDIAN)
+        .withDateTime("2020:11:22 09:19:41")
+        .withDateTimeOriginal("2016:09:19 21:11:12")
+        .withDateTimeDigitized("2016:09:19 21:11:13")
+        .withGps("2016:09:19", 19, 11, 10));
+
+    assertEquals(List.of(
+        new TimeStampWithSource(LocalDateTime.of(2016, 9, 19, 19, 11, 10), TimeStampSource.EXIF_GPS_DATE_TIME),
+        new TimeStampWithSource(LocalDateTime.of(2020, 11, 22, 9, 19, 41), TimeStampSource.EXIF_DATE_TIME),
+        new TimeStampWithSource(LocalDateTime.of(2016, 9, 19, 21, 11, 13), TimeStampSource.EXIF_DATE_TIME_DIGITIZED),
+        new TimeStampWithSource(LocalDateTime.of(2016, 9, 19, 21, 11, 12), TimeStampSource.EXIF_DATE_TIME_ORIGINAL)),
+        result);
+  }
+
+  @Test
+  void bigEndian_dateTimeOriginalOnly() {
+    List<TimeStampWithSource> result = read(new TiffTestData(ByteOrder.BIG_ENDIAN)
+        .withDateTimeOriginal("2023:07:01 12:00:05"));
+
+    assertEquals(List.of(new TimeStampWithSource(LocalDateTime.of(2023, 7, 1, 12, 0, 5),
+        TimeStampSource.EXIF_DATE_TIME_ORIGINAL)), result);
+  }
+
+  @Test
+  void dayAfterEndOfMonth_resolvedLikeFormatter() {
+    List<TimeStampWithSource> result = read(new TiffTestData(ByteOrder.LITTLE_ENDIAN)
+        .withDateTimeOriginal("2023:02:30 10:00:00"));
+
+    assertEquals(LocalDateTime.of(2023, 2, 28, 10, 0), result.getFirst().getTime());
+  }
+
+  @Test
+  void invalidAndBlankDates_ignored() {
+    List<TimeStampWithSource> result = read(new TiffTestData(ByteOrder.LITTLE_ENDIAN)
+        .withDateTime("0000:00:00 00:00:00")
+        .withDateTimeDigitized("                   ")
+        .withDateTimeOriginal("2023:13:01 10:00:00"));
+
+    assertTrue(result.isEmpty());
+  }
+
+  @Test
+  void invalidGpsTime_ignored() {
+    List<TimeStampWithSource> result = read(new TiffTestData(ByteOrder.LITTLE_ENDIAN)
+        .withGps("2016:09:19", 25, 0, 0));
+
+    assertTrue(result.isEmpty());
+  }
+
+  @Test
+  void notTiff_null() {
+    assertNull(TiffDateReader.readDates(ByteBuffer.wrap("not a tiff structure".getBytes())));
+  }
+
+  @Test
+  void truncatedStructure_null() {
+    byte[] tiff = new TiffTestData(ByteOrder.LITTLE_ENDIAN).withDateTime("2020:11:22 09:19:41").build();
+
+    assertNull(TiffDateReader.readDates(ByteBuffer.wrap(tiff, 0, 12).slice()));
+  }
+}
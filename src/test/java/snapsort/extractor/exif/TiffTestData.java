@@ -0,0 +1,121 @@
+package snapsort.extractor.exif;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds small TIFF structures (EXIF blocks) containing date tags.
+ */
+public class TiffTestData {
+  private static final int TYPE_ASCII = 2;
+  private static final int TYPE_LONG = 4;
+  private static final int TYPE_RATIONAL = 5;
+
+  private record Entry(int tag, int type, int count, byte[] value) {
+  }
+
+  private final ByteOrder order;
+  private final List<Entry> ifd0 = new ArrayList<>();
+  private final List<Entry> exifIfd = new ArrayList<>();
+  private final List<Entry> gpsIfd = new ArrayList<>();
+
+  public TiffTestData(ByteOrder order) {
+    this.order = order;
+  }
+
+  public TiffTestData withDateTime(String value) {
+    ifd0.add(ascii(0x0132, value));
+    return this;
+  }
+
+  public TiffTestData withDateTimeDigitized(String value) {
+    exifIfd.add(ascii(0x9004, value));
+    return this;
+  }
+
+  public TiffTestData withDateTimeOriginal(String value) {
+    exifIfd.add(ascii(0x9003, value));
+    return this;
+  }
+
+  public TiffTestData withGps(String date, int hour, int minute, int second) {
+    ByteBuffer time = ByteBuffer.allocate(24).order(order);
+    for (int value : new int[] { hour, minute, second }) {
+      time.putInt(value).putInt(1);
+    }
+    gpsIfd.add(new Entry(0x0007, TYPE_RATIONAL, 3, time.array()));
+    gpsIfd.add(ascii(0x001D, date));
+    return this;
+  }
+
+  private static Entry ascii(int tag, String value) {
+    byte[] bytes = Arrays.copyOf(value.getBytes(StandardCharsets.US_ASCII), value.length() + 1);
+    return new Entry(tag, TYPE_ASCII, bytes.length, bytes);
+  }
+
+  public byte[] build() {
+    ByteBuffer buffer = ByteBuffer.allocate(4096).order(order);
+    buffer.put(order == ByteOrder.LITTLE_ENDIAN ? new byte[] { 'I', 'I' } : new byte[] { 'M', 'M' });
+    buffer.putShort((short) 42).putInt(8);
+    List<Entry> root = new ArrayList<>(ifd0);
+    int exifOffset = 8 + ifdSize(root.size() + (exifIfd.isEmpty() ? 0 : 1) + (gpsIfd.isEmpty() ? 0 : 1));
+    int gpsOffset = exifOffset + (exifIfd.isEmpty() ? 0 : ifdSize(exifIfd.size()));
+    int dataOffset = gpsOffset + (gpsIfd.isEmpty() ? 0 : ifdSize(gpsIfd.size()));
+    if (!exifIfd.isEmpty()) {
+      root.add(new Entry(0x8769, TYPE_LONG, 1, pointer(exifOffset)));
+    }
+    if (!gpsIfd.isEmpty()) {
+      root.add(new Entry(0x8825, TYPE_LONG, 1, pointer(gpsOffset)));
+    }
+    dataOffset = writeIfd(buffer, 8, root, dataOffset);
+    dataOffset = writeIfd(buffer, exifOffset, exifIfd, dataOffset);
+    dataOffset = writeIfd(buffer, gpsOffset, gpsIfd, dataOffset);
+    return Arrays.copyOf(buffer.array(), dataOffset);
+  }
+
+  private byte[] pointer(int offset) {
+    return ByteBuffer.allocate(4).order(order).putInt(offset).array();
+  }
+
+  private static int ifdSize(int entries) {
+    return 2 + entries * 12 + 4;
+  }
+
+  private static int writeIfd(ByteBuffer buffer, int offset, List<Entry> entries, int dataOffset) {
+    if (entries.isEmpty()) {
+      return dataOffset;
+    }
+    buffer.position(offset);
+    buffer.putShort((short) entries.size());
+    for (Entry entry : entries) {
+      buffer.putShort((short) entry.tag()).putShort((short) entry.type()).putInt(entry.count());
+      if (entry.value().length <= 4) {
+        buffer.put(Arrays.copyOf(entry.value(), 4));
+      } else {
+        buffer.putInt(dataOffset);
+        buffer.put(dataOffset, entry.value());
+        dataOffset += entry.value().length;
+      }
+    }
+    buffer.putInt(0);
+    return dataOffset;
+  }
+
+  /**
+   * Minimal JPEG file: SOI, a JFIF APP0 segment, an EXIF APP1 segment with the TIFF structure, then SOS.
+   */
+  public static byte[] jpeg(byte[] tiff) {
+    ByteBuffer buffer = ByteBuffer.allocate(tiff.length + 64);
+    buffer.put((byte) 0xFF).put((byte) 0xD8);
+    buffer.put((byte) 0xFF).put((byte) 0xE0).putShort((short) 16);
+    buffer.put(new byte[] { 'J', 'F', 'I', 'F', 0, 1, 1, 0, 0, 1, 0, 1, 0, 0 });
+    buffer.put((byte) 0xFF).put((byte) 0xE1).putShort((short) (2 + 6 + tiff.length));
+    buffer.put(new byte[] { 'E', 'x', 'i', 'f', 0, 0 }).put(tiff);
+    buffer.put((byte) 0xFF).put((byte) 0xDA).putShort((short) 2);
+    return Arrays.copyOf(buffer.array(), buffer.position());
+  }
+}
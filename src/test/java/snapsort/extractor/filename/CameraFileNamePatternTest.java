@@ -0,0 +1,68 @@
+package snapsort.extractor.filename;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CameraFileNamePatternTest {
+  private static final LocalDateTime DATE = LocalDateTime.of(2016, 8, 4, 10, 9, 35);
+  private static final ZoneId PARIS = ZoneId.of("Europe/Paris");
+  private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+
+  @Test
+  void wordPrefix() {
+    CameraFileNamePattern pattern = CameraFileNamePattern.of("@_yyyyMMdd_HHmmss");
+
+    assertEquals(DATE, pattern.parse("IMG_20160804_100935"));
+    assertEquals(DATE, pattern.parse("a1_20160804_100935"));
+    assertNull(pattern.parse("_20160804_100935"));
+    assertNull(pattern.parse("123_20160804_100935"));
+    assertNull(pattern.parse("IMG_X_20160804_100935"));
+    assertNull(pattern.parse("IMG_20160804_100935_HDR"));
+  }
+
+  @Test
+  void anySuffix() {
+    CameraFileNamePattern pattern = CameraFileNamePattern.of("'DJI_'yyyyMMddHHmmss*");
+
+    assertEquals(DATE, pattern.parse("DJI_20160804100935"));
+    assertEquals(DATE, pattern.parse("DJI_20160804100935_0001_D"));
+    assertNull(pattern.parse("DJI_2016080410093"));
+  }
+
+  @Test
+  void ignoredDigits() {
+    CameraFileNamePattern pattern = CameraFileNamePattern.of("yyyyMMdd_HHmmss###");
+
+    assertEquals(DATE, pattern.parse("20160804_100935123"));
+    assertNull(pattern.parse("20160804_10093512a"));
+  }
+
+  @Test
+  void utc_convertedToLocalTime() {
+    CameraFileNamePattern pattern = CameraFileNamePattern.ofUtc("'PXL_'yyyyMMdd_HHmmss");
+
+    assertEquals(LocalDateTime.of(2016, 8, 4, 12, 9, 35), pattern.parse("PXL_20160804_100935", PARIS));
+    assertEquals(LocalDateTime.of(2016, 8, 4, 6, 9, 35), pattern.parse("PXL_20160804_100935", NEW_YORK));
+    assertNull(pattern.parse("PXL_2016080_100935", PARIS));
+  }
+
+  @Test
+  void localTime_notConverted() {
+    CameraFileNamePattern pattern = CameraFileNamePattern.of("'IMG_'yyyyMMdd_HHmmss");
+
+    assertEquals(DATE, pattern.parse("IMG_20160804_100935", PARIS));
+  }
+
+  @Test
+  void invalidPatterns() {
+    assertThrows(IllegalArgumentException.class, () -> CameraFileNamePattern.of("@yyyyMMdd"));
+    assertThrows(IllegalArgumentException.class, () -> CameraFileNamePattern.of("HHmmss*"));
+    assertThrows(IllegalArgumentException.class, () -> CameraFileNamePattern.of("@*"));
+  }
+}
@@ -0,0 +1,86 @@
+package snapsort.extractor.filename;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileNameDatePatternTest {
+
+  private static LocalDateTime parseWithFormatter(String input, DateTimeFormatter formatter) {
+    try {
+      return LocalDateTime.parse(input, formatter);
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+
+  @Test
+  void sameResultAsDateTimeFormatter() {
+    Random random = new Random(42);
+    String alphabet = "0123456789-.: _aZ";
+    for (String pattern : List.of("yyyy-MM-dd HH.mm.ss", "yyyy-MM-dd HH-mm-ss", "yyyy-MM-dd HH:mm:ss",
+        "yyyyMMdd HHmmss")) {
+      FileNameDatePattern fileNameDatePattern = FileNameDatePattern.of(pattern);
+      DateTimeFormatter formatter = DateTimeFormatter.ofPattern(pattern);
+      for (int run = 0; run < 20_000; run++) {
+        // Valid date with a few characters replaced, sometimes shorter or longer
+        LocalDateTime time = LocalDateTime.of(1 + random.nextInt(2100), 1, 1, 0, 0)
+            .plusSeconds(random.nextLong(366L * 24 * 3600));
+        StringBuilder input = new StringBuilder(formatter.format(time));
+        for (int i = random.nextInt(4); i > 0; i--) {
+          input.setCharAt(random.nextInt(input.length()), alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        if (random.nextInt(20) == 0) {
+          input.deleteCharAt(random.nextInt(input.length()));
+        } else if (random.nextInt(20) == 0) {
+          input.append(random.nextInt(10));
+        }
+
+        assertEquals(parseWithFormatter(input.toString(), formatter), fileNameDatePattern.parse(input),
+            "Input: " + input + ", pattern: " + pattern);
+      }
+    }
+  }
+
+  @Test
+  void resolvedLikeDateTimeFormatter() {
+    FileNameDatePattern pattern = FileNameDatePattern.of("yyyyMMdd HHmmss");
+
+    assertEquals(LocalDateTime.of(2023, 2, 28, 10, 0), pattern.parse("20230230 100000"));
+    assertEquals(LocalDateTime.of(2024, 1, 1, 0, 0), pattern.parse("20231231 240000"));
+    assertNull(pattern.parse("20231231 240001"));
+    assertNull(pattern.parse("20231301 100000"));
+    assertNull(pattern.parse("00000101 100000"));
+  }
+
+  @Test
+  void quotedLiteralsAndOptionalTime() {
+    FileNameDatePattern pattern = FileNameDatePattern.of("'IMG-'yyyyMMdd'-WA'");
+
+    assertEquals(LocalDateTime.of(2024, 5, 30, 0, 0), pattern.parse("IMG-20240530-WA"));
+    assertNull(pattern.parse("IMG_20240530-WA"));
+    assertEquals(LocalDateTime.of(2024, 5, 30, 0, 0), FileNameDatePattern.of("yyyy''MMdd").parse("2024'0530"));
+  }
+
+  @Test
+  void parseAtOffset() {
+    FileNameDatePattern pattern = FileNameDatePattern.of("yyyyMMdd_HHmmss");
+
+    assertEquals(LocalDateTime.of(2024, 5, 30, 21, 3, 59), pattern.parse("IMG_20240530_210359.jpg", 4));
+  }
+
+  @Test
+  void unsupportedPatterns_rejected() {
+    assertThrows(IllegalArgumentException.class, () -> FileNameDatePattern.of("yyyy-MM"));
+    assertThrows(IllegalArgumentException.class, () -> FileNameDatePattern.of("yy-MM-dd"));
+    assertThrows(IllegalArgumentException.class, () -> FileNameDatePattern.of("yyyy-MM-dd EEE"));
+    assertThrows(IllegalArgumentException.class, () -> FileNameDatePattern.of("yyyy-MM-dd 'unterminated"));
+    assertThrows(IllegalArgumentException.class, () -> FileNameDatePattern.of("yyyy-MM-dd-dd"));
+  }
+}
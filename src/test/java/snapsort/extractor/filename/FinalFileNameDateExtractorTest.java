@@ -3,6 +3,7 @@ package snapsort.extractor.filename;
 import org.junit.jupiter.api.Test;
 import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
+import snapsort.files.FileContext;
 
 import java.nio.file.Path;
 import java.time.LocalDateTime;
@@ -18,7 +19,7 @@ class FinalFileNameDateExtractorTest {
 
   @Test
   void dotFormatExtractsCorrectDate() {
-    List<TimeStampWithSource> result = extractor.extractDates(Path.of("2024-01-15 10.30.45.jpg"));
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(Path.of("2024-01-15 10.30.45.jpg")));
 
     assertEquals(1, result.size());
     assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30, 45), result.getFirst().getTime());
@@ -27,7 +28,7 @@ class FinalFileNameDateExtractorTest {
 
   @Test
   void dashVariantExtractsCorrectDate() {
-    List<TimeStampWithSource> result = extractor.extractDates(Path.of("2024-01-15 10-30-45.jpg"));
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(Path.of("2024-01-15 10-30-45.jpg")));
 
     assertEquals(1, result.size());
     assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30, 45), result.getFirst().getTime());
@@ -38,7 +39,7 @@ class FinalFileNameDateExtractorTest {
   void colonVariantExtractsCorrectDate() {
     assumeFalse(System.getProperty("os.name", "").toLowerCase().contains("win"),
         "Windows does not allow ':' in file names");
-    List<TimeStampWithSource> result = extractor.extractDates(Path.of("2024-01-15 10:30:45.jpg"));
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(Path.of("2024-01-15 10:30:45.jpg")));
 
     assertEquals(1, result.size());
     assertEquals(LocalDateTime.of(2024, 1, 15, 10, 30, 45), result.getFirst().getTime());
@@ -47,7 +48,7 @@ class FinalFileNameDateExtractorTest {
 
   @Test
   void invalidFilenameReturnsEmptyList() {
-    List<TimeStampWithSource> result = extractor.extractDates(Path.of("random_photo.jpg"));
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(Path.of("random_photo.jpg")));
 
     assertTrue(result.isEmpty());
   }
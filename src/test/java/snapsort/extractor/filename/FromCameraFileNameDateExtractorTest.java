@@ -1,14 +1,22 @@
 package snapsort.extractor.filename;
 
 import org.junit.jupiter.api.Test;
+import snapsort.CameraFileNameConfiguration;
 import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
+import snapsort.files.FileContext;
 
 import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FromCameraFileNameDateExtractorTest {
@@ -17,7 +25,7 @@ class FromCameraFileNameDateExtractorTest {
 
   @Test
   void imgPrefixExtractsCorrectDate() {
-    List<TimeStampWithSource> result = extractor.extractDates(Path.of("IMG_20160804_100935.jpg"));
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(Path.of("IMG_20160804_100935.jpg")));
 
     assertEquals(1, result.size());
     assertEquals(LocalDateTime.of(2016, 8, 4, 10, 9, 35), result.getFirst().getTime());
@@ -26,7 +34,7 @@ class FromCameraFileNameDateExtractorTest {
 
   @Test
   void vidPrefixExtractsCorrectDate() {
-    List<TimeStampWithSource> result = extractor.extractDates(Path.of("VID_20230115_183022.mp4"));
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(Path.of("VID_20230115_183022.mp4")));
 
     assertEquals(1, result.size());
     assertEquals(LocalDateTime.of(2023, 1, 15, 18, 30, 22), result.getFirst().getTime());
@@ -35,7 +43,7 @@ class FromCameraFileNameDateExtractorTest {
 
   @Test
   void bareDateWithoutPrefixExtractsCorrectDate() {
-    List<TimeStampWithSource> result = extractor.extractDates(Path.of("20160804_100935.jpg"));
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(Path.of("20160804_100935.jpg")));
 
     assertEquals(1, result.size());
     assertEquals(LocalDateTime.of(2016, 8, 4, 10, 9, 35), result.getFirst().getTime());
@@ -44,22 +52,111 @@ class FromCameraFileNameDateExtractorTest {
 
   @Test
   void singleSegmentFilenameReturnsEmptyList() {
-    List<TimeStampWithSource> result = extractor.extractDates(Path.of("photo.jpg"));
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(Path.of("photo.jpg")));
 
     assertTrue(result.isEmpty());
   }
 
   @Test
   void twoSegmentNonDateFilenameReturnsEmptyList() {
-    List<TimeStampWithSource> result = extractor.extractDates(Path.of("holiday_photo.jpg"));
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(Path.of("holiday_photo.jpg")));
 
     assertTrue(result.isEmpty());
   }
 
   @Test
   void wrongDateLengthReturnsEmptyList() {
-    List<TimeStampWithSource> result = extractor.extractDates(Path.of("IMG_2016_100935.jpg"));
+    List<TimeStampWithSource> result = extractor.extractDates(new FileContext(Path.of("IMG_2016_100935.jpg")));
 
     assertTrue(result.isEmpty());
   }
+
+  @Test
+  void otherCameraFormatsExtractCorrectDate() {
+    assertEquals(LocalDateTime.of(2024, 1, 15, 0, 0), extractor.parse("IMG-20240115-WA0007"));
+    assertEquals(LocalDateTime.of(2024, 1, 15, 0, 0), extractor.parse("VID-20240115-WA0012"));
+    assertEquals(LocalDateTime.of(2024, 1, 15, 18, 30, 22), extractor.parse("Screenshot_20240115-183022"));
+    assertEquals(LocalDateTime.of(2024, 1, 15, 18, 30, 22),
+        extractor.parse("Screenshot_20240115-183022_Chrome"));
+    assertEquals(LocalDateTime.of(2024, 1, 15, 18, 30, 22), extractor.parse("Screenshot 2024-01-15 at 18.30.22"));
+    assertEquals(LocalDateTime.of(2024, 1, 15, 18, 30, 22), extractor.parse("DJI_20240115183022_0001_D"));
+    assertEquals(LocalDateTime.of(2016, 8, 4, 10, 9, 35), extractor.parse("MVIMG_20160804_100935_1"));
+  }
+
+  @Test
+  void pixelNamesInUtc_convertedToLocalTime() {
+    LocalDateTime localTime = LocalDateTime.ofInstant(
+        LocalDateTime.of(2023, 12, 24, 18, 15, 3).toInstant(ZoneOffset.UTC), ZoneId.systemDefault());
+
+    assertEquals(localTime, extractor.parse("PXL_20231224_181503123"));
+    assertEquals(localTime, extractor.parse("PXL_20231224_181503123.MP"));
+  }
+
+  @Test
+  void cameraFormatsWithoutDateReturnNull() {
+    assertNull(extractor.parse("DJI_0001"));
+    assertNull(extractor.parse("GOPR0042"));
+    assertNull(extractor.parse("IMG-20240115-WA"));
+    assertNull(extractor.parse("PXL_20231224_1815031"));
+  }
+
+  @Test
+  void configuredPatternTriedAfterBuiltInOnes() {
+    CameraFileNameConfiguration configuration = new CameraFileNameConfiguration();
+    configuration.setPatterns(List.of(CameraFileNamePattern.of("'CAM'yyyyMMdd-HHmmss*")));
+    FromCameraFileNameDateExtractor configured = new FromCameraFileNameDateExtractor(configuration);
+
+    assertEquals(LocalDateTime.of(2024, 1, 15, 18, 30, 22), configured.parse("CAM20240115-183022"));
+    assertEquals(LocalDateTime.of(2016, 8, 4, 10, 9, 35), configured.parse("IMG_20160804_100935"));
+    assertNull(extractor.parse("CAM20240115-183022"));
+  }
+
+  @Test
+  void randomNames_sameDateAsSplitParsing() {
+    Random random = new Random(42);
+    String[] parts = { "IMG", "VID", "PXL", "1", "123", "", "_", "20160804", "100935", "20240229", "20230229",
+        "235960", "240000", "00000101", "1000", "x", "20160804_100935", "٣" };
+    for (int i = 0; i < 100_000; i++) {
+      StringBuilder name = new StringBuilder();
+      int count = 1 + random.nextInt(5);
+      for (int j = 0; j < count; j++) {
+        name.append(parts[random.nextInt(parts.length)]);
+        if (random.nextInt(3) > 0) {
+          name.append('_');
+        }
+      }
+      String input = name.toString();
+      LocalDateTime expected = splitParse(input);
+      LocalDateTime actual = extractor.parse(input);
+      if (expected != null || !input.startsWith("PXL_")) {
+        assertEquals(expected, actual, input);
+      }
+    }
+  }
+
+  // Parsing done before the pattern table, names it recognizes must keep their date
+  private static LocalDateTime splitParse(String fileName) {
+    String[] split = fileName.split("_");
+    if (split.length < 2) {
+      return null;
+    }
+    int dateIndex = 1;
+    if (split[0].chars().allMatch(Character::isDigit)) {
+      dateIndex = 0;
+    }
+    int timeIndex = dateIndex + 1;
+    if (timeIndex >= split.length) {
+      return null;
+    }
+    String date = split[dateIndex];
+    String time = split[timeIndex];
+    if (date.length() != 8 || time.length() != 6) {
+      return null;
+    }
+    try {
+      return LocalDateTime.parse(date + " " + time, DateTimeFormatter.ofPattern("yyyyMMdd HHmmss"));
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
 }
@@ -0,0 +1,84 @@
+package snapsort.files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import snapsort.DateRange;
+import snapsort.FileListerConfiguration;
+import snapsort.extractor.filename.FinalFileNameDateExtractor;
+import snapsort.extractor.filename.FromCameraFileNameDateExtractor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DateRangePrunerTest {
+  private static final DateRange YEAR_2024 = new DateRange(LocalDateTime.of(2024, 1, 1, 0, 0),
+      LocalDateTime.of(2025, 1, 1, 0, 0));
+
+  @TempDir
+  private Path tempDir;
+
+  private static DateRangePruner pruner(boolean pruneByDateRange, DateRange dateRange) {
+    FileListerConfiguration configuration = new FileListerConfiguration();
+    configuration.setPruneByDateRange(pruneByDateRange);
+    return new DateRangePruner(configuration, dateRange, new FinalFileNameDateExtractor(),
+        new FromCameraFileNameDateExtractor());
+  }
+
+  private boolean isSkippedFile(DateRangePruner pruner, String name, LocalDateTime lastModified) throws IOException {
+    Path file = Files.writeString(tempDir.resolve(name), "data");
+    Files.setLastModifiedTime(file, FileTime.from(lastModified.atZone(ZoneId.systemDefault()).toInstant()));
+    return pruner.isSkippedFile(file, Files.readAttributes(file, BasicFileAttributes.class));
+  }
+
+  @Test
+  void finalFileName_skippedWhenOutOfRange() throws IOException {
+    DateRangePruner pruner = pruner(true, YEAR_2024);
+    LocalDateTime now = LocalDateTime.now();
+
+    assertTrue(isSkippedFile(pruner, "2023-12-31 23.59.59.jpg", now));
+    assertTrue(isSkippedFile(pruner, "2025-01-01 00.00.00.jpg", now));
+    assertFalse(isSkippedFile(pruner, "2024-06-15 10.00.00.jpg", now));
+  }
+
+  @Test
+  void lastModifiedOrCameraFileNameBeforeMin_skipped() throws IOException {
+    DateRangePruner pruner = pruner(true, YEAR_2024);
+    LocalDateTime now = LocalDateTime.now();
+
+    assertTrue(isSkippedFile(pruner, "photo.jpg", LocalDateTime.of(2023, 12, 20, 10, 0)));
+    assertTrue(isSkippedFile(pruner, "IMG_20231220_100000.jpg", now));
+    // Within the slack, the date chosen from the content may still be in range
+    assertFalse(isSkippedFile(pruner, "photo2.jpg", LocalDateTime.of(2023, 12, 31, 12, 0)));
+    // Files can be written long after they were captured, these dates say nothing against the max
+    assertFalse(isSkippedFile(pruner, "IMG_20250601_100000.jpg", now));
+  }
+
+  @Test
+  void dayFolder_skippedWhenOutOfRange() {
+    DateRangePruner pruner = pruner(true, YEAR_2024);
+
+    assertTrue(pruner.isSkippedFolder(tempDir.resolve("2023/20231215_")));
+    assertTrue(pruner.isSkippedFolder(tempDir.resolve("2025/20250102_")));
+    assertFalse(pruner.isSkippedFolder(tempDir.resolve("2023/20231231_")));
+    assertFalse(pruner.isSkippedFolder(tempDir.resolve("2024/20240615_")));
+    // Not in the layout of a sorted library
+    assertFalse(pruner.isSkippedFolder(tempDir.resolve("2023")));
+    assertFalse(pruner.isSkippedFolder(tempDir.resolve("imports/20231215_")));
+  }
+
+  @Test
+  void withoutOptionOrRange_nothingSkipped() throws IOException {
+    for (DateRangePruner pruner : new DateRangePruner[] { pruner(false, YEAR_2024),
+        pruner(true, new DateRange(null, null)) }) {
+      assertFalse(pruner.isSkippedFolder(tempDir.resolve("2023/20231215_")));
+      assertFalse(isSkippedFile(pruner, "2023-12-31 23.59.59.jpg", LocalDateTime.of(2020, 1, 1, 0, 0)));
+    }
+  }
+}
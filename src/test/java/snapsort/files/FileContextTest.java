@@ -0,0 +1,50 @@
+package snapsort.files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileContextTest {
+  @TempDir
+  private Path tempDir;
+
+  @Test
+  void smallFile_headerIsWholeContent() throws IOException {
+    FileContext context = new FileContext(Files.write(tempDir.resolve("small.jpg"), new byte[] { 1, 2, 3 }));
+
+    ByteBuffer header = context.header();
+
+    assertEquals(3, header.remaining());
+    assertEquals(3, header.get(2));
+  }
+
+  @Test
+  void largeFile_headerReadOnceAndViewsIndependent() throws IOException {
+    Path file = Files.write(tempDir.resolve("large.jpg"), new byte[FileContext.HEADER_SIZE * 3]);
+    FileContext context = new FileContext(file);
+
+    ByteBuffer first = context.header();
+    first.get();
+    Files.delete(file);
+    ByteBuffer second = context.header();
+
+    assertEquals(FileContext.HEADER_SIZE, second.remaining());
+    assertTrue(second.isReadOnly());
+  }
+
+  @Test
+  void attributesReadOnFirstUse() throws IOException {
+    Path file = Files.writeString(tempDir.resolve("IMG_1.Jpeg"), "data");
+    FileContext context = new FileContext(file);
+
+    assertEquals(4, context.attributes().size());
+    assertEquals("jpeg", context.lowercaseExtension());
+    assertEquals("IMG_1", context.nameWithoutExtension());
+  }
+}
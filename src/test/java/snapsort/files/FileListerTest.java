@@ -5,19 +5,34 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import snapsort.DateRange;
+import snapsort.FileListerConfiguration;
 import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
 import snapsort.extractor.DateChooser;
+import snapsort.extractor.filename.FinalFileNameDateExtractor;
+import snapsort.extractor.filename.FromCameraFileNameDateExtractor;
+import snapsort.renamer.Deduplicator;
+import snapsort.renamer.DestinationIndex;
+import snapsort.renamer.PipelinedDeduplicator;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -26,9 +41,19 @@ class FileListerTest {
   @Mock
   private DateChooser dateChooser;
 
+  @Mock
+  private DateRangePruner dateRangePruner;
+
+  @Spy
+  private FileListerConfiguration configuration = new FileListerConfiguration();
+
   @InjectMocks
   private FileLister fileLister;
 
+  private static LocalDateTime lastModified(Path file) throws IOException {
+    return LocalDateTime.ofInstant(Files.getLastModifiedTime(file).toInstant(), ZoneId.systemDefault());
+  }
+
   private static TimeStampWithSource ts() {
     return new TimeStampWithSource(
         LocalDateTime.of(2025, 6, 15, 10, 0, 0),
@@ -40,7 +65,7 @@ class FileListerTest {
   void supportedFileWithTimestamp_included(@TempDir Path dir) throws IOException {
     Path jpg = Files.createFile(dir.resolve("photo.jpg"));
     Files.writeString(jpg, "data");
-    when(dateChooser.computeTimestamp(jpg)).thenReturn(ts());
+    when(dateChooser.computeTimestamp(argThat(file -> file.path().equals(jpg)))).thenReturn(ts());
 
     List<FileInfo> result = fileLister.listFiles(dir);
 
@@ -91,7 +116,7 @@ class FileListerTest {
   void dateChooserReturnsNull_fileExcluded(@TempDir Path dir) throws IOException {
     Path jpg = Files.createFile(dir.resolve("photo.jpg"));
     Files.writeString(jpg, "data");
-    when(dateChooser.computeTimestamp(jpg)).thenReturn(null);
+    when(dateChooser.computeTimestamp(argThat(file -> file.path().equals(jpg)))).thenReturn(null);
 
     List<FileInfo> result = fileLister.listFiles(dir);
 
@@ -119,4 +144,158 @@ class FileListerTest {
     // sorted by path — compare file names
     assertTrue(result.get(0).path().compareTo(result.get(1).path()) <= 0);
   }
+
+  @Test
+  void parallelExtraction_sameResultAsSequential(@TempDir Path dir) throws IOException {
+    for (int i = 0; i < 50; i++) {
+      Path subFolder = Files.createDirectories(dir.resolve("folder" + (i % 5)));
+      Files.writeString(subFolder.resolve("photo" + i + ".jpg"), "data");
+    }
+    when(dateChooser.computeTimestamp(any())).thenAnswer(invocation -> {
+      FileContext file = invocation.getArgument(0);
+      if (file.path().getFileName().toString().startsWith("photo1")) {
+        return null;
+      }
+      return ts();
+    });
+
+    List<FileInfo> sequential = fileLister.listFiles(dir);
+    configuration.setExtractionThreads(8);
+    List<FileInfo> parallel = new FileLister(dateChooser, dateRangePruner, configuration).listFiles(dir);
+    configuration.setWalkerThreads(4);
+    List<FileInfo> parallelWalk = new FileLister(dateChooser, dateRangePruner, configuration).listFiles(dir);
+
+    assertEquals(39, sequential.size());
+    assertEquals(sequential, parallel);
+    assertEquals(sequential, parallelWalk);
+  }
+
+  @Test
+  void shards_splitTheFilesByDirectory(@TempDir Path dir) throws IOException {
+    for (int folder = 0; folder < 10; folder++) {
+      Path subFolder = Files.createDirectory(dir.resolve("folder" + folder));
+      for (int i = 0; i < 3; i++) {
+        Files.writeString(subFolder.resolve("photo" + i + ".jpg"), "data");
+      }
+    }
+    when(dateChooser.computeTimestamp(any())).thenReturn(ts());
+    List<FileInfo> all = fileLister.listFiles(dir);
+
+    List<FileInfo> merged = new ArrayList<>();
+    configuration.setShardCount(3);
+    for (int shard = 1; shard <= 3; shard++) {
+      configuration.setShard(shard);
+      List<FileInfo> shardFiles = new FileLister(dateChooser, dateRangePruner, configuration).listFiles(dir);
+      assertTrue(shardFiles.size() < all.size(), "a shard should not list all the files");
+      // Files of a directory stay together
+      assertEquals(0, shardFiles.size() % 3);
+      merged.addAll(shardFiles);
+    }
+    merged.sort(Comparator.comparing(FileInfo::path));
+
+    assertEquals(all, merged);
+  }
+
+  @Test
+  void fileContext_hasAttributesReadByTheWalk(@TempDir Path dir) throws IOException {
+    Path jpg = Files.writeString(dir.resolve("photo.JPG"), "data");
+    when(dateChooser.computeTimestamp(any())).thenAnswer(invocation -> {
+      FileContext file = invocation.getArgument(0);
+      // Deleting the file shows the attributes are not read again
+      Files.delete(file.path());
+      assertEquals(4, file.attributes().size());
+      assertEquals("jpg", file.lowercaseExtension());
+      assertEquals("photo", file.nameWithoutExtension());
+      return ts();
+    });
+
+    List<FileInfo> result = fileLister.listFiles(dir);
+
+    assertEquals(List.of(jpg), result.stream().map(FileInfo::path).toList());
+  }
+
+  @Test
+  void symbolicLinkToFile_included(@TempDir Path dir) throws IOException {
+    Path jpg = Files.writeString(dir.resolve("photo.jpg"), "data");
+    Path link = Files.createSymbolicLink(dir.resolve("link.jpg"), jpg);
+    Files.createSymbolicLink(dir.resolve("broken.jpg"), dir.resolve("missing.jpg"));
+    when(dateChooser.computeTimestamp(any())).thenReturn(ts());
+
+    List<FileInfo> result = fileLister.listFiles(List.of(dir));
+
+    assertEquals(List.of(link, jpg), result.stream().map(FileInfo::path).toList());
+  }
+
+  @Test
+  void prunedFolderAndFile_notAnalyzed(@TempDir Path dir) throws IOException {
+    Path inRange = Files.writeString(Files.createDirectories(dir.resolve("2025/20250615_")).resolve("a.jpg"), "data");
+    Files.writeString(Files.createDirectories(dir.resolve("2024/20240615_")).resolve("b.jpg"), "data");
+    Files.writeString(dir.resolve("2024-06-15 10.00.00.jpg"), "data");
+    configuration.setPruneByDateRange(true);
+    DateRangePruner pruner = new DateRangePruner(configuration,
+        new DateRange(LocalDateTime.of(2025, 1, 1, 0, 0), null), new FinalFileNameDateExtractor(),
+        new FromCameraFileNameDateExtractor());
+    when(dateChooser.computeTimestamp(any())).thenReturn(ts());
+
+    List<FileInfo> result = new FileLister(dateChooser, pruner, configuration).listFiles(dir);
+
+    assertEquals(List.of(inRange), result.stream().map(FileInfo::path).toList());
+  }
+
+  @Test
+  void listFilesByCandidateTime_analyzedByLastModifiedDate(@TempDir Path dir) throws IOException {
+    Path newest = Files.writeString(dir.resolve("a.jpg"), "data");
+    Path oldest = Files.writeString(Files.createDirectories(dir.resolve("sub")).resolve("b.jpg"), "data");
+    Path unknown = Files.writeString(dir.resolve("c.jpg"), "data");
+    FileTime now = Files.getLastModifiedTime(newest);
+    Files.setLastModifiedTime(oldest, FileTime.fromMillis(now.toMillis() - Duration.ofDays(10).toMillis()));
+    Files.setLastModifiedTime(unknown, FileTime.fromMillis(now.toMillis() - Duration.ofDays(5).toMillis()));
+    when(dateChooser.computeTimestamp(any())).thenAnswer(invocation -> {
+      FileContext file = invocation.getArgument(0);
+      // Dated at their last modified date, the watermarks only keep the slack
+      return file.path().equals(unknown) ? null : new TimeStampWithSource(lastModified(file.path()),
+          TimeStampSource.EXIF_DATE_TIME);
+    });
+    List<Path> files = new ArrayList<>();
+    List<LocalDateTime> watermarks = new ArrayList<>();
+
+    fileLister.listFilesByCandidateTime(List.of(dir), Duration.ofHours(1), (file, watermark) -> {
+      files.add(file == null ? null : file.path());
+      watermarks.add(watermark);
+    });
+
+    assertEquals(Arrays.asList(oldest, null, newest), files);
+    LocalDateTime unknownTime = LocalDateTime.ofInstant(Files.getLastModifiedTime(unknown).toInstant(),
+        ZoneId.systemDefault());
+    LocalDateTime newestTime = LocalDateTime.ofInstant(now.toInstant(), ZoneId.systemDefault());
+    assertEquals(List.of(unknownTime.minusHours(1), newestTime.minusHours(1), LocalDateTime.MAX), watermarks);
+  }
+
+  @Test
+  void listFilesByCandidateTime_contentDatesOlderThanLastModified_sameResultAsBatch(@TempDir Path dir,
+      @TempDir Path outputFolder) throws IOException {
+    // Restored from an archive in reverse name order, long after the photos were taken in the same second
+    FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+    for (String name : List.of("c.jpg", "b.jpg", "a.jpg")) {
+      Path file = Files.writeString(dir.resolve(name), "data");
+      now = FileTime.fromMillis(now.toMillis() + Duration.ofHours(1).toMillis());
+      Files.setLastModifiedTime(file, now);
+    }
+    when(dateChooser.computeTimestamp(any())).thenReturn(ts());
+    List<FileInfo> batch = new Deduplicator().deduplicateDates(fileLister.listFiles(dir));
+    PipelinedDeduplicator pipelinedDeduplicator = new PipelinedDeduplicator(new DestinationIndex(outputFolder));
+    List<FileInfo> pipelined = new ArrayList<>();
+
+    fileLister.listFilesByCandidateTime(List.of(dir), Duration.ofDays(1), (file, watermark) -> {
+      if (file != null) {
+        pipelinedDeduplicator.add(file);
+      }
+      pipelined.addAll(pipelinedDeduplicator.resolveBefore(watermark));
+    });
+    pipelined.addAll(pipelinedDeduplicator.resolveAll());
+    pipelined.sort(Comparator.comparing(FileInfo::path));
+
+    assertEquals(0, pipelinedDeduplicator.getLateFiles());
+    assertEquals(batch, pipelined);
+  }
 }
@@ -0,0 +1,79 @@
+package snapsort.files;
+
+import org.junit.jupiter.api.Test;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileTableTest {
+
+  private static FileInfo file(String path, LocalDateTime time, TimeStampSource source) {
+    return new FileInfo(Path.of(path), new TimeStampWithSource(time, source));
+  }
+
+  @Test
+  void addedFiles_readBackWithNanosAndSource() {
+    List<FileInfo> files = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      TimeStampSource source = TimeStampSource.values()[i % TimeStampSource.values().length];
+      files.add(file("/photos/" + i + ".jpg", LocalDateTime.of(1969, 12, 31, 23, 59, 59, i * 1000).plusHours(i),
+          source));
+    }
+    // Grown from a small capacity
+    FileTable table = new FileTable(1);
+    files.forEach(table::add);
+
+    assertEquals(files.size(), table.size());
+    assertEquals(files, table.toFileInfos());
+  }
+
+  @Test
+  void order_stableForEqualTimes() {
+    Random random = new Random(42);
+    LocalDateTime base = LocalDateTime.of(2024, 5, 30, 21, 3, 59);
+    List<FileInfo> files = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      files.add(file("/photos/" + i + ".jpg", base.plusSeconds(random.nextInt(20)).withNano(random.nextInt(2)),
+          TimeStampSource.EXIF_DATE_TIME));
+    }
+    FileTable table = FileTable.of(files);
+
+    List<Integer> expected = IntStream.range(0, files.size()).boxed()
+        .sorted(Comparator.comparing((Integer row) -> files.get(row).timestamp().getTime()))
+        .toList();
+    assertEquals(expected, IntStream.of(table.order(table::compareTime)).boxed().toList());
+  }
+
+  @Test
+  void sortByPath_rowsKeepTheirTimestamps() {
+    FileInfo c = file("/photos/c.jpg", LocalDateTime.of(2024, 5, 30, 21, 3, 59), TimeStampSource.EXIF_DATE_TIME);
+    FileInfo a = file("/photos/a.jpg", LocalDateTime.of(2023, 1, 1, 0, 0), TimeStampSource.CAMERA_FILE_NAME);
+    FileInfo b = file("/photos/b/a.jpg", LocalDateTime.of(2025, 2, 3, 4, 5, 6, 7), TimeStampSource.FILE_LAST_MODIFIED);
+    FileTable table = FileTable.of(List.of(c, a, b));
+
+    table.sortByPath();
+    table.add(c.path(), c.timestamp());
+
+    assertEquals(List.of(a, b, c, c), table.toFileInfos());
+  }
+
+  @Test
+  void setTimestamp_replacesTimeAndSource() {
+    FileTable table = FileTable.of(List.of(
+        file("/photos/a.jpg", LocalDateTime.of(2024, 5, 30, 21, 3, 59, 5), TimeStampSource.EXIF_DATE_TIME)));
+
+    table.setTimestamp(0, LocalDateTime.of(2024, 5, 30, 21, 4, 0, 5), TimeStampSource.COLLISION_AVOIDANCE);
+
+    assertEquals(LocalDateTime.of(2024, 5, 30, 21, 4, 0, 5), table.time(0));
+    assertEquals(TimeStampSource.COLLISION_AVOIDANCE, table.source(0));
+  }
+}
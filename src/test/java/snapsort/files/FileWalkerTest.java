@@ -0,0 +1,66 @@
+package snapsort.files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileWalkerTest {
+  @TempDir
+  private Path tempDir;
+
+  private Map<Path, BasicFileAttributes> walk(int threads, Path folder) throws IOException {
+    Map<Path, BasicFileAttributes> res = new ConcurrentHashMap<>();
+    new FileWalker(threads).walk(folder, (file, attributes) -> assertNull(res.put(file, attributes)));
+    return res;
+  }
+
+  @Test
+  void parallelWalk_sameFilesAndAttributesAsSequential() throws IOException {
+    for (int i = 0; i < 200; i++) {
+      Path folder = Files.createDirectories(tempDir.resolve("a" + (i % 7)).resolve("b" + (i % 3)));
+      Files.writeString(folder.resolve("file" + i + ".jpg"), "x".repeat(i));
+    }
+    Files.createSymbolicLink(tempDir.resolve("link.jpg"), tempDir.resolve("a0/b0/file0.jpg"));
+    Files.createSymbolicLink(tempDir.resolve("folderLink"), tempDir.resolve("a1"));
+
+    Map<Path, BasicFileAttributes> sequential = walk(1, tempDir);
+    Map<Path, BasicFileAttributes> parallel = walk(8, tempDir);
+
+    assertEquals(202, sequential.size());
+    assertEquals(sequential.keySet(), parallel.keySet());
+    sequential.forEach((file, attributes) -> {
+      assertEquals(attributes.size(), parallel.get(file).size(), file.toString());
+      assertEquals(attributes.isSymbolicLink(), parallel.get(file).isSymbolicLink(), file.toString());
+    });
+    assertTrue(parallel.get(tempDir.resolve("folderLink")).isSymbolicLink());
+  }
+
+  @Test
+  void skippedDirectories_notListed() throws IOException {
+    Path kept = Files.writeString(Files.createDirectories(tempDir.resolve("kept/skipped")).resolve("a.jpg"), "x");
+    Files.writeString(Files.createDirectories(tempDir.resolve("skipped/kept")).resolve("b.jpg"), "x");
+
+    for (int threads : new int[] { 1, 8 }) {
+      Map<Path, BasicFileAttributes> res = new ConcurrentHashMap<>();
+      new FileWalker(threads).walk(tempDir, directory -> directory.equals(tempDir.resolve("skipped")),
+          (file, attributes) -> res.put(file, attributes));
+
+      assertEquals(Set.of(kept), res.keySet());
+    }
+  }
+
+  @Test
+  void missingFolder_ioExceptionReported() {
+    assertThrows(NoSuchFileException.class, () -> walk(4, tempDir.resolve("missing")));
+  }
+}
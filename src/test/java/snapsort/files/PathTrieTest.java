@@ -0,0 +1,58 @@
+package snapsort.files;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathTrieTest {
+
+  @Test
+  void directories_sharedAndRebuilt() {
+    PathTrie trie = new PathTrie();
+    Path camera = Path.of("/mnt/nas/phones/pixel/DCIM/Camera");
+
+    int id = trie.id(camera);
+
+    assertEquals(id, trie.id(Path.of("/mnt/nas/phones/pixel/DCIM/Camera")));
+    assertNotEquals(id, trie.id(Path.of("/mnt/nas/phones/pixel/DCIM")));
+    assertEquals(camera, trie.path(id));
+    assertEquals(Path.of("relative/folder"), trie.path(trie.id(Path.of("relative/folder"))));
+    assertEquals(PathTrie.NONE, trie.id(null));
+    assertNull(trie.path(PathTrie.NONE));
+  }
+
+  @Test
+  void compare_sameOrderAsPaths() {
+    // Names next to each other around the separator, in several directories and at several depths
+    String[] names = { "b", "b-c", "b.jpg", "b0", "a", "bc.jpg", "B" };
+    Random random = new Random(42);
+    List<Path> files = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      StringBuilder path = new StringBuilder(random.nextInt(5) == 0 ? "" : "/");
+      int depth = random.nextInt(4);
+      for (int level = 0; level < depth; level++) {
+        path.append(names[random.nextInt(names.length)]).append('/');
+      }
+      path.append(names[random.nextInt(names.length)]).append(random.nextBoolean() ? ".jpg" : "");
+      files.add(Path.of(path.toString()));
+    }
+    PathTrie trie = new PathTrie();
+    int[] directories = files.stream().mapToInt(file -> trie.id(file.getParent())).toArray();
+
+    for (int i = 0; i < files.size(); i++) {
+      for (int j = 0; j < files.size(); j++) {
+        Path file = files.get(i);
+        Path other = files.get(j);
+        Path name = file.getParent() == null ? file : file.getFileName();
+        Path otherName = other.getParent() == null ? other : other.getFileName();
+        assertEquals(Integer.signum(file.compareTo(other)),
+            Integer.signum(trie.compare(directories[i], name, directories[j], otherName)), file + " vs " + other);
+      }
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package snapsort.files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardResultTest {
+  private static final List<Path> INPUT_FOLDERS = List.of(Path.of("/photos"));
+
+  @TempDir
+  private Path tempDir;
+
+  private static FileInfo file(String path, int second) {
+    return new FileInfo(Path.of(path), new TimeStampWithSource(LocalDateTime.of(2024, 5, 30, 21, 3, second, 123),
+        TimeStampSource.EXIF_DATE_TIME_ORIGINAL));
+  }
+
+  @Test
+  void allShards_mergedSortedByPath() throws IOException {
+    FileInfo a = file("/photos/a/1.jpg", 1);
+    FileInfo b = file("/photos/b/1.jpg", 2);
+    FileInfo c = file("/photos/c/1.jpg", 3);
+    Path first = tempDir.resolve("shard1.bin");
+    Path second = tempDir.resolve("shard2.bin");
+    ShardResult.write(first, 1, 2, INPUT_FOLDERS, FileTable.of(List.of(a, c)));
+    ShardResult.write(second, 2, 2, INPUT_FOLDERS, FileTable.of(List.of(b)));
+
+    assertEquals(List.of(a, b, c), ShardResult.merge(List.of(second, first)).toFileInfos());
+  }
+
+  @Test
+  void missingShard_throws() throws IOException {
+    Path first = tempDir.resolve("shard1.bin");
+    ShardResult.write(first, 1, 2, INPUT_FOLDERS, FileTable.of(List.of(file("/photos/a/1.jpg", 1))));
+
+    assertThrows(IllegalArgumentException.class, () -> ShardResult.merge(List.of(first)));
+  }
+
+  @Test
+  void shardsOfOtherInputFolders_throws() throws IOException {
+    Path first = tempDir.resolve("shard1.bin");
+    Path second = tempDir.resolve("shard2.bin");
+    ShardResult.write(first, 1, 2, INPUT_FOLDERS, new FileTable());
+    ShardResult.write(second, 2, 2, List.of(Path.of("/other")), new FileTable());
+
+    assertThrows(IllegalArgumentException.class, () -> ShardResult.merge(List.of(first, second)));
+  }
+}
@@ -0,0 +1,70 @@
+package snapsort.files;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpillingFileSorterTest {
+  private static final Comparator<FileInfo> BY_TIME_THEN_PATH = Comparator
+      .comparing((FileInfo file) -> file.timestamp().getTime())
+      .thenComparing(FileInfo::path);
+
+  @TempDir
+  private Path tempDir;
+
+  private static List<FileInfo> randomFiles(int count) {
+    Random random = new Random(42);
+    LocalDateTime base = LocalDateTime.of(2024, 5, 30, 21, 3, 59);
+    TimeStampSource[] sources = TimeStampSource.values();
+    List<FileInfo> files = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      String folder = random.nextBoolean() ? "/photos/" : "/photos/2024/";
+      files.add(new FileInfo(Path.of(folder + random.nextInt(count) + "-" + i + ".jpg"),
+          new TimeStampWithSource(base.plusSeconds(random.nextInt(50)).withNano(random.nextInt(2)),
+              sources[random.nextInt(sources.length)])));
+    }
+    return files;
+  }
+
+  private List<FileInfo> sort(List<FileInfo> files, int maxFilesInMemory) throws IOException {
+    List<FileInfo> res = new ArrayList<>();
+    try (SpillingFileSorter sorter = new SpillingFileSorter(maxFilesInMemory, tempDir)) {
+      files.forEach(file -> sorter.add(file.path(), file.timestamp()));
+      assertEquals(files.size(), sorter.size());
+      sorter.forEachByTime(res::add);
+    }
+    try (Stream<Path> left = Files.list(tempDir)) {
+      assertEquals(List.of(), left.toList());
+    }
+    return res;
+  }
+
+  @Test
+  void filesInMemory_sortedByTimeThenPath() throws IOException {
+    List<FileInfo> files = randomFiles(500);
+
+    assertEquals(files.stream().sorted(BY_TIME_THEN_PATH).toList(), sort(files, 1000));
+  }
+
+  @Test
+  void spilledRuns_sameOrderAsInMemory() throws IOException {
+    List<FileInfo> files = randomFiles(3000);
+
+    // Over 64 runs, merged in several steps
+    assertEquals(files.stream().sorted(BY_TIME_THEN_PATH).toList(), sort(files, 17));
+    assertEquals(files.stream().sorted(BY_TIME_THEN_PATH).toList(), sort(files, 1000));
+  }
+}
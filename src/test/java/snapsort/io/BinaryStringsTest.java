@@ -0,0 +1,71 @@
+package snapsort.io;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BinaryStringsTest {
+
+  private static byte[] written(String... values) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      for (String value : values) {
+        BinaryStrings.write(out, value);
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  private static DataInputStream in(byte[] bytes) {
+    return new DataInputStream(new ByteArrayInputStream(bytes));
+  }
+
+  @Test
+  void stream_readBack() throws IOException {
+    DataInputStream in = in(written("/photos/été.jpg", ""));
+
+    assertEquals("/photos/été.jpg", BinaryStrings.read(in));
+    assertEquals("", BinaryStrings.readOrEnd(in));
+    assertNull(BinaryStrings.readOrEnd(in));
+    assertThrows(EOFException.class, () -> BinaryStrings.read(in));
+  }
+
+  @Test
+  void stream_cutWithinString_error() throws IOException {
+    byte[] bytes = written("IMG_20160804_100935.jpg");
+
+    assertThrows(EOFException.class, () -> BinaryStrings.readOrEnd(in(Arrays.copyOf(bytes, 2))));
+    assertThrows(EOFException.class, () -> BinaryStrings.readOrEnd(in(Arrays.copyOf(bytes, bytes.length - 1))));
+    assertThrows(EOFException.class, () -> BinaryStrings.read(in(new byte[] { -1, -1, -1, -1 })));
+  }
+
+  @Test
+  void buffer_readBack() throws IOException {
+    ByteBuffer buffer = ByteBuffer.wrap(written("/photos/été.jpg"));
+
+    assertEquals("/photos/été.jpg", BinaryStrings.read(buffer));
+    assertThrows(BufferUnderflowException.class, () -> BinaryStrings.read(buffer));
+  }
+
+  @Test
+  void buffer_cutWithinString_error() throws IOException {
+    byte[] bytes = written("IMG_20160804_100935.jpg");
+
+    assertThrows(BufferUnderflowException.class,
+        () -> BinaryStrings.read(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1))));
+    assertThrows(BufferUnderflowException.class,
+        () -> BinaryStrings.read(ByteBuffer.wrap(new byte[] { -1, -1, -1, -1 })));
+  }
+}
@@ -0,0 +1,108 @@
+package snapsort.renamer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CrossDeviceCopierTest {
+
+  @TempDir
+  private Path src;
+  @TempDir
+  private Path dest;
+
+  private Path randomFile(String name, int size) throws IOException {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    Path file = Files.write(src.resolve(name), content);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(1_700_000_000_000L));
+    return file;
+  }
+
+  @Test
+  void move_contentAndLastModifiedKept_sourceDeleted() throws IOException {
+    Path source = randomFile("video.mp4", 100_000);
+    byte[] content = Files.readAllBytes(source);
+    Path target = dest.resolve("2025-06-15 10.30.45.mp4");
+
+    new CrossDeviceCopier(1).move(source, target);
+
+    assertFalse(Files.exists(source));
+    assertArrayEquals(content, Files.readAllBytes(target));
+    assertEquals(FileTime.fromMillis(1_700_000_000_000L), Files.getLastModifiedTime(target));
+    try (var files = Files.list(dest)) {
+      assertEquals(1, files.count(), "temporary file should be gone");
+    }
+  }
+
+  @Test
+  void move_largeFileInParallelChunks() throws IOException {
+    Path source = randomFile("video.mp4", 1_000_003);
+    byte[] content = Files.readAllBytes(source);
+    Path target = dest.resolve("2025-06-15 10.30.45.mp4");
+
+    new CrossDeviceCopier(4, 100_000).move(source, target);
+
+    assertFalse(Files.exists(source));
+    assertArrayEquals(content, Files.readAllBytes(target));
+  }
+
+  @Test
+  void move_emptyFile() throws IOException {
+    Path source = randomFile("empty.jpg", 0);
+    Path target = dest.resolve("2025-06-15 10.30.45.jpg");
+
+    new CrossDeviceCopier(4, 100_000).move(source, target);
+
+    assertFalse(Files.exists(source));
+    assertEquals(0, Files.size(target));
+  }
+
+  @Test
+  void move_targetExists_sourceKeptAndNothingOverwritten() throws IOException {
+    Path source = randomFile("photo.jpg", 1000);
+    Path target = Files.writeString(dest.resolve("2025-06-15 10.30.45.jpg"), "existing");
+
+    assertThrows(FileAlreadyExistsException.class, () -> new CrossDeviceCopier(1).move(source, target));
+
+    assertTrue(Files.exists(source));
+    assertEquals("existing", Files.readString(target));
+    try (var files = Files.list(dest)) {
+      assertEquals(1, files.count(), "temporary file should be gone");
+    }
+  }
+
+  @Test
+  void sourceModifiedWhileCopied_error() throws IOException {
+    Path source = randomFile("video.mp4", 1000);
+    BasicFileAttributes before = Files.readAttributes(source, BasicFileAttributes.class);
+
+    CrossDeviceCopier.checkUnchanged(source, before);
+    Files.write(source, new byte[] { 1 }, StandardOpenOption.APPEND);
+    assertThrows(IOException.class, () -> CrossDeviceCopier.checkUnchanged(source, before));
+    Files.write(source, new byte[1000]);
+    Files.setLastModifiedTime(source, FileTime.fromMillis(1_800_000_000_000L));
+    assertThrows(IOException.class, () -> CrossDeviceCopier.checkUnchanged(source, before));
+  }
+
+  @Test
+  void buffersReusedByNextCopies() throws IOException {
+    CrossDeviceCopier copier = new CrossDeviceCopier(1);
+
+    for (int i = 0; i < 3; i++) {
+      copier.move(randomFile("photo" + i + ".jpg", 100_000 + i), dest.resolve("2025-06-15 10.30.4" + i + ".jpg"));
+    }
+
+    assertEquals(1, copier.pooledBuffers());
+  }
+}
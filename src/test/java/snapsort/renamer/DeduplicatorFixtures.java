@@ -0,0 +1,35 @@
+package snapsort.renamer;
+
+import snapsort.TimeStampSource;
+import snapsort.TimeStampWithSource;
+import snapsort.files.FileInfo;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Files given to the deduplicators by their tests.
+ */
+class DeduplicatorFixtures {
+
+  static FileInfo fileInfo(String path, LocalDateTime time, TimeStampSource source) {
+    return new FileInfo(Path.of(path), new TimeStampWithSource(time, source));
+  }
+
+  static FileInfo fileInfo(String path, String time, TimeStampSource source) {
+    return fileInfo(path, LocalDateTime.parse(time), source);
+  }
+
+  static FileInfo fileInfo(String path, LocalDateTime time) {
+    return fileInfo(path, time, TimeStampSource.EXIF_DATE_TIME);
+  }
+
+  /**
+   * The files in the order of the result of {@link Deduplicator}.
+   */
+  static List<FileInfo> sortedByPath(List<FileInfo> files) {
+    return files.stream().sorted(Comparator.comparing(FileInfo::path)).toList();
+  }
+}
@@ -1,17 +1,29 @@
 package snapsort.renamer;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
 import snapsort.files.FileInfo;
+import snapsort.files.FileTable;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static snapsort.renamer.DeduplicatorFixtures.fileInfo;
+import static snapsort.renamer.DeduplicatorFixtures.sortedByPath;
 
 class DeduplicatorTest {
 
@@ -50,7 +62,125 @@ class DeduplicatorTest {
     assertEquals(3, timestamps.size(), "All timestamps must be unique, got: " + result);
   }
 
-  private static FileInfo fileInfo(String name, String timestamp, TimeStampSource source) {
-    return new FileInfo(Path.of(name), new TimeStampWithSource(LocalDateTime.parse(timestamp), source));
+  @Test
+  void largeBurstInSameSecond_spreadOverConsecutiveSeconds() {
+    LocalDateTime burst = LocalDateTime.parse("2025-07-14T11:26:42");
+    List<FileInfo> files = new ArrayList<>();
+    for (int i = 0; i < 50_000; i++) {
+      files.add(fileInfo(String.format("burst%06d.jpg", i), burst.toString(), TimeStampSource.EXIF_DATE_TIME_ORIGINAL));
+    }
+
+    List<FileInfo> result = assertTimeoutPreemptively(Duration.ofSeconds(5),
+        () -> deduplicator.deduplicateDates(files));
+
+    assertEquals(new TimeStampWithSource(burst, TimeStampSource.EXIF_DATE_TIME_ORIGINAL),
+        result.getFirst().timestamp());
+    for (int i = 1; i < result.size(); i++) {
+      assertEquals(new TimeStampWithSource(burst.plusSeconds(i), TimeStampSource.COLLISION_AVOIDANCE),
+          result.get(i).timestamp());
+    }
+  }
+
+  @Test
+  void sameResultAsRepeatedPasses() {
+    Random random = new Random(42);
+    LocalDateTime base = LocalDateTime.parse("2025-07-14T11:26:42");
+    for (int run = 0; run < 2000; run++) {
+      List<FileInfo> files = new ArrayList<>();
+      int count = 1 + random.nextInt(15);
+      for (int i = 0; i < count; i++) {
+        TimeStampSource source = random.nextBoolean() ? TimeStampSource.EXIF_DATE_TIME : TimeStampSource.CAMERA_FILE_NAME;
+        files.add(fileInfo("f" + random.nextInt(1000) + "_" + i + ".jpg",
+            base.plusSeconds(random.nextInt(8)).toString(), source));
+      }
+
+      assertEquals(deduplicateWithRepeatedPasses(files), deduplicator.deduplicateDates(files), "Input: " + files);
+    }
+  }
+
+  @Test
+  void secondsTakenInDestination_skipped(@TempDir Path dest) throws IOException {
+    Path dayFolder = Files.createDirectories(dest.resolve("2025/20250714_"));
+    Files.createFile(dayFolder.resolve("2025-07-14 11.26.42.jpg"));
+    Files.createFile(dayFolder.resolve("2025-07-14 11.26.43.mp4"));
+    FileInfo fileA = fileInfo("a.jpg", "2025-07-14T11:26:42", TimeStampSource.EXIF_DATE_TIME_ORIGINAL);
+    FileInfo fileB = fileInfo("b.jpg", "2025-07-14T11:26:42", TimeStampSource.EXIF_DATE_TIME_ORIGINAL);
+    FileInfo fileC = fileInfo("c.jpg", "2025-07-14T11:26:50", TimeStampSource.EXIF_DATE_TIME_ORIGINAL);
+
+    List<FileInfo> result = deduplicator.deduplicateDates(List.of(fileA, fileB, fileC), new DestinationIndex(dest));
+
+    assertEquals(List.of(
+        fileInfo("a.jpg", "2025-07-14T11:26:44", TimeStampSource.COLLISION_AVOIDANCE),
+        fileInfo("b.jpg", "2025-07-14T11:26:45", TimeStampSource.COLLISION_AVOIDANCE),
+        fileC), result);
+  }
+
+  @Test
+  void fileAlreadyAtItsPlaceInDestination_keepsItsSecond(@TempDir Path dest) throws IOException {
+    Path dayFolder = Files.createDirectories(dest.resolve("2025/20250714_"));
+    Path sorted = Files.createFile(dayFolder.resolve("2025-07-14 11.26.42.jpg"));
+    FileInfo newFile = fileInfo("a.jpg", "2025-07-14T11:26:42", TimeStampSource.EXIF_DATE_TIME_ORIGINAL);
+    FileInfo sortedFile = new FileInfo(sorted,
+        new TimeStampWithSource(LocalDateTime.parse("2025-07-14T11:26:42"), TimeStampSource.FINAL_FILE_NAME));
+
+    List<FileInfo> result = deduplicator.deduplicateDates(List.of(newFile, sortedFile), new DestinationIndex(dest));
+
+    // Sorted by path, absolute one first
+    assertEquals(List.of(sortedFile, fileInfo("a.jpg", "2025-07-14T11:26:43", TimeStampSource.COLLISION_AVOIDANCE)),
+        result);
+  }
+
+  @Test
+  void table_sameResultAsList(@TempDir Path dest) throws IOException {
+    Random random = new Random(42);
+    LocalDateTime base = LocalDateTime.parse("2025-07-14T11:26:42");
+    Path dayFolder = Files.createDirectories(dest.resolve("2025/20250714_"));
+    for (int i = 0; i < 12; i += 3) {
+      Files.createFile(dayFolder.resolve(RenameGenerator.baseName(base.plusSeconds(i)) + ".jpg"));
+    }
+    for (int run = 0; run < 2000; run++) {
+      List<FileInfo> files = new ArrayList<>();
+      int count = 1 + random.nextInt(15);
+      for (int i = 0; i < count; i++) {
+        // Some files are already at their place in the destination, some have a fraction of second
+        LocalDateTime time = base.plusSeconds(random.nextInt(12));
+        Path sortedPath = dayFolder.resolve(RenameGenerator.baseName(time) + ".jpg");
+        boolean sorted = random.nextInt(10) == 0 && files.stream().noneMatch(file -> file.path().equals(sortedPath));
+        Path path = sorted ? sortedPath : Path.of("f" + random.nextInt(1000) + "_" + i + ".jpg");
+        files.add(new FileInfo(path, new TimeStampWithSource(time.withNano(random.nextInt(3) * 1000),
+            TimeStampSource.EXIF_DATE_TIME)));
+      }
+      List<FileInfo> sortedFiles = sortedByPath(files);
+      FileTable table = FileTable.of(sortedFiles);
+
+      deduplicator.deduplicateDates(table, new DestinationIndex(dest));
+
+      assertEquals(deduplicator.deduplicateDates(sortedFiles, new DestinationIndex(dest)), table.toFileInfos(),
+          "Input: " + files);
+    }
+  }
+
+  /**
+   * Reference: regroups all the files by timestamp and shifts the collisions until there is none left.
+   */
+  private static List<FileInfo> deduplicateWithRepeatedPasses(List<FileInfo> files) {
+    boolean collisions = true;
+    while (collisions) {
+      collisions = false;
+      Map<LocalDateTime, List<FileInfo>> filesByDate = files.stream()
+          .collect(Collectors.groupingBy(file -> file.timestamp().getTime(), TreeMap::new, Collectors.toList()));
+      List<FileInfo> res = new ArrayList<>();
+      for (List<FileInfo> group : filesByDate.values()) {
+        collisions |= group.size() > 1;
+        res.add(group.getFirst());
+        for (int i = 1; i < group.size(); i++) {
+          FileInfo file = group.get(i);
+          LocalDateTime shifted = file.timestamp().getTime().plusSeconds(i);
+          res.add(new FileInfo(file.path(), new TimeStampWithSource(shifted, TimeStampSource.COLLISION_AVOIDANCE)));
+        }
+      }
+      files = res;
+    }
+    return sortedByPath(files);
   }
 }
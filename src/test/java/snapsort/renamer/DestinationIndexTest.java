@@ -0,0 +1,55 @@
+package snapsort.renamer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DestinationIndexTest {
+  private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2025, 6, 15, 10, 30, 45);
+
+  @TempDir
+  private Path dest;
+
+  @Test
+  void existingFiles_occupyTheirSecond() throws IOException {
+    Path dayFolder = Files.createDirectories(dest.resolve("2025/20250615_"));
+    Path existing = Files.createFile(dayFolder.resolve("2025-06-15 10.30.45.mp4"));
+    Files.createFile(dayFolder.resolve("notes.txt"));
+
+    DestinationIndex index = new DestinationIndex(dest);
+
+    assertEquals(existing.toAbsolutePath().normalize(), index.occupant(TIMESTAMP));
+    assertEquals(existing.toAbsolutePath().normalize(), index.occupant(TIMESTAMP.withNano(500)));
+    assertNull(index.occupant(TIMESTAMP.plusSeconds(1)));
+    assertNull(index.occupant(TIMESTAMP.plusDays(1)));
+  }
+
+  @Test
+  void moved_updatesListedFolders() throws IOException {
+    Path dayFolder = Files.createDirectories(dest.resolve("2025/20250615_"));
+    Path oldFile = Files.createFile(dayFolder.resolve("2025-06-15 10.30.45.jpg"));
+    DestinationIndex index = new DestinationIndex(dest);
+    assertNotNull(index.occupant(TIMESTAMP));
+
+    index.moved(oldFile, dayFolder.resolve("2025-06-15 10.30.46.jpg"));
+
+    assertNull(index.occupant(TIMESTAMP));
+    assertEquals(dayFolder.resolve("2025-06-15 10.30.46.jpg").toAbsolutePath().normalize(),
+        index.occupant(TIMESTAMP.plusSeconds(1)));
+  }
+
+  @Test
+  void parseFileName_onlyGeneratedNames() {
+    assertEquals(TIMESTAMP, DestinationIndex.parseFileName("2025-06-15 10.30.45.jpg"));
+    assertNull(DestinationIndex.parseFileName("2025-06-15 10.30.45"));
+    assertNull(DestinationIndex.parseFileName("2025-06-15 10-30-45.jpg"));
+    assertNull(DestinationIndex.parseFileName("2025-02-30 10.30.45.jpg"));
+    assertNull(DestinationIndex.parseFileName("IMG_20250615_103045.jpg"));
+  }
+}
@@ -0,0 +1,121 @@
+package snapsort.renamer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoveJournalTest {
+  @TempDir
+  private Path tempDir;
+  private Path destination;
+  private Path journalFile;
+
+  @BeforeEach
+  void setup() throws IOException {
+    destination = Files.createDirectory(tempDir.resolve("dest"));
+    journalFile = tempDir.resolve("journal.bin");
+  }
+
+  private RenamedFile renamed(String name, String newName) {
+    return new RenamedFile(newName, "2024/20240530_", tempDir.resolve(name).toAbsolutePath().normalize());
+  }
+
+  @Test
+  void intendedMovesNotDone_pendingWhenReopened() throws IOException {
+    RenamedFile done = renamed("a.jpg", "2024-05-30 21.03.59.jpg");
+    RenamedFile notDone = renamed("b.jpg", "2024-05-30 21.04.00.jpg");
+    try (MoveJournal journal = MoveJournal.open(journalFile, destination)) {
+      assertTrue(journal.pending().isEmpty());
+      journal.intend(List.of(done, notDone));
+      journal.done(done, true);
+    }
+
+    try (MoveJournal journal = MoveJournal.open(journalFile, destination)) {
+      assertEquals(List.of(notDone), journal.pending());
+    }
+  }
+
+  @Test
+  void movedFilesAndCreatedFolders_readBackUntilRestart() throws IOException {
+    RenamedFile moved = renamed("a.jpg", "2024-05-30 21.03.59.jpg");
+    RenamedFile failed = renamed("b.jpg", "2024-05-30 21.04.00.jpg");
+    Path createdFolder = destination.resolve("2024/20240530_");
+    try (MoveJournal journal = MoveJournal.open(journalFile, destination)) {
+      journal.intend(List.of(moved, failed));
+      journal.creatingFolders(List.of(createdFolder));
+      journal.done(moved, true);
+      journal.done(failed, false);
+    }
+
+    try (MoveJournal journal = MoveJournal.open(journalFile, destination)) {
+      assertTrue(journal.pending().isEmpty());
+      assertEquals(List.of(moved), journal.moved());
+      assertEquals(List.of(createdFolder), journal.createdFolders());
+      journal.restart();
+    }
+
+    try (MoveJournal journal = MoveJournal.open(journalFile, destination)) {
+      assertTrue(journal.moved().isEmpty());
+      assertTrue(journal.createdFolders().isEmpty());
+    }
+  }
+
+  @Test
+  void createdFolders_onDiskWithoutClosingTheJournal() throws IOException {
+    Path createdFolder = destination.resolve("2024/20240530_");
+    try (MoveJournal journal = MoveJournal.open(journalFile, destination)) {
+      journal.creatingFolders(List.of(createdFolder, createdFolder.getParent()));
+
+      try (MoveJournal reread = MoveJournal.open(journalFile, destination)) {
+        assertEquals(List.of(createdFolder, createdFolder.getParent()), reread.createdFolders());
+      }
+    }
+  }
+
+  @Test
+  void incompleteLastRecord_cutAndJournalStillUsable() throws IOException {
+    RenamedFile first = renamed("a.jpg", "2024-05-30 21.03.59.jpg");
+    RenamedFile second = renamed("b.jpg", "2024-05-30 21.04.00.jpg");
+    try (MoveJournal journal = MoveJournal.open(journalFile, destination)) {
+      journal.intend(List.of(first));
+    }
+    // Killed while writing a record
+    Files.write(journalFile, new byte[] { 1, 0, 0, 0, 42, 'x' }, StandardOpenOption.APPEND);
+
+    try (MoveJournal journal = MoveJournal.open(journalFile, destination)) {
+      assertEquals(List.of(first), journal.pending());
+      journal.intend(List.of(second));
+    }
+
+    try (MoveJournal journal = MoveJournal.open(journalFile, destination)) {
+      assertEquals(List.of(first, second), journal.pending());
+    }
+  }
+
+  @Test
+  void otherDestination_throws() throws IOException {
+    try (MoveJournal journal = MoveJournal.open(journalFile, destination)) {
+      journal.intend(List.of(renamed("a.jpg", "2024-05-30 21.03.59.jpg")));
+    }
+    Path otherDestination = Files.createDirectory(tempDir.resolve("other"));
+
+    assertThrows(IllegalArgumentException.class, () -> MoveJournal.open(journalFile, otherDestination));
+  }
+
+  @Test
+  void deleted_fileRemoved() throws IOException {
+    MoveJournal journal = MoveJournal.open(journalFile, destination);
+
+    journal.delete();
+
+    assertFalse(Files.exists(journalFile));
+  }
+}
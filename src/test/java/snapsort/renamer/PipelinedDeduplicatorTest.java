@@ -0,0 +1,70 @@
+package snapsort.renamer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import snapsort.files.FileInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static snapsort.renamer.DeduplicatorFixtures.fileInfo;
+import static snapsort.renamer.DeduplicatorFixtures.sortedByPath;
+
+class PipelinedDeduplicatorTest {
+  private static final LocalDateTime START = LocalDateTime.parse("2025-07-14T11:26:42");
+
+  @TempDir
+  private Path tempDir;
+
+  @Test
+  void filesArrivingAfterWatermark_sameResultAsDeduplicator() {
+    Random random = new Random(42);
+    for (int run = 0; run < 500; run++) {
+      // Candidate time of each file, its date is at most 10 seconds before
+      List<LocalDateTime> candidates = new ArrayList<>();
+      List<FileInfo> files = new ArrayList<>();
+      for (int i = 0; i < 1 + random.nextInt(40); i++) {
+        candidates.add(START.plusSeconds(random.nextInt(20)));
+      }
+      candidates.sort(Comparator.naturalOrder());
+      for (int i = 0; i < candidates.size(); i++) {
+        files.add(fileInfo(random.nextInt(1000) + "-" + i + ".jpg", candidates.get(i).minusSeconds(random.nextInt(11))));
+      }
+      PipelinedDeduplicator pipelined = new PipelinedDeduplicator(new DestinationIndex(tempDir));
+      List<FileInfo> result = new ArrayList<>();
+      for (int i = 0; i < files.size(); i++) {
+        pipelined.add(files.get(i));
+        LocalDateTime watermark = i + 1 < files.size() ? candidates.get(i + 1).minusSeconds(10) : LocalDateTime.MAX;
+        result.addAll(pipelined.resolveBefore(watermark));
+      }
+      result.addAll(pipelined.resolveAll());
+
+      assertEquals(0, pipelined.getLateFiles());
+      assertEquals(new Deduplicator().deduplicateDates(sortedByPath(files)), sortedByPath(result), files.toString());
+    }
+  }
+
+  @Test
+  void lateFile_movedAwayFromResolvedSecondsAndDestination() throws IOException {
+    Files.createDirectories(tempDir.resolve("2025/20250714_"));
+    Files.writeString(tempDir.resolve("2025/20250714_/2025-07-14 11.26.44.jpg"), "existing");
+    PipelinedDeduplicator pipelined = new PipelinedDeduplicator(new DestinationIndex(tempDir));
+    pipelined.add(fileInfo("a.jpg", START));
+    pipelined.add(fileInfo("b.jpg", START));
+    List<FileInfo> result = new ArrayList<>(pipelined.resolveBefore(START.plusMinutes(1)));
+
+    pipelined.add(fileInfo("late.jpg", START));
+    result.addAll(pipelined.resolveAll());
+
+    assertEquals(1, pipelined.getLateFiles());
+    assertEquals(List.of(START, START.plusSeconds(1), START.plusSeconds(3)),
+        sortedByPath(result).stream().map(file -> file.timestamp().getTime()).toList());
+  }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.Test;
 import snapsort.TimeStampSource;
 import snapsort.TimeStampWithSource;
 import snapsort.files.FileInfo;
+import snapsort.files.FileTable;
 
 import java.nio.file.Path;
 import java.time.LocalDateTime;
@@ -60,6 +61,14 @@ class RenameGeneratorTest {
     assertEquals("2025/20251225_", result.get(1).newFolder());
   }
 
+  @Test
+  void table_sameNamesAsList() {
+    List<FileInfo> files = List.of(file("b.jpeg", 2025, 12, 25, 18, 0, 0), file("a.mp4", 2025, 1, 1, 6, 0, 0),
+        file("c.png", 2025, 1, 1, 5, 59, 59));
+
+    assertEquals(generator.generateRenamedFileNames(files), generator.generateRenamedFileNames(FileTable.of(files)));
+  }
+
   @Test
   void emptyInput_emptyList() {
     assertTrue(generator.generateRenamedFileNames(Collections.emptyList()).isEmpty());
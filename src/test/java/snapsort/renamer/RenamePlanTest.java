@@ -0,0 +1,117 @@
+package snapsort.renamer;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenamePlanTest {
+  @TempDir
+  private Path tempDir;
+  private Path destination;
+  private Path planFile;
+
+  @BeforeEach
+  void setup() throws IOException {
+    destination = Files.createDirectory(tempDir.resolve("dest"));
+    planFile = tempDir.resolve("plan.bin");
+  }
+
+  private RenamedFile renamed(String name, String newName) throws IOException {
+    Path file = Files.writeString(tempDir.resolve(name), "data of " + name);
+    // Version read by the analysis
+    return new RenamedFile(newName, "2024/20240530_", file.toAbsolutePath().normalize(), Files.size(file),
+        Files.getLastModifiedTime(file).toMillis());
+  }
+
+  private void write(List<RenamedFile> renamedFiles) throws IOException {
+    try (RenamePlan.Writer writer = RenamePlan.writer(planFile, destination)) {
+      // Added batch by batch like the pipelined mode does
+      for (RenamedFile renamedFile : renamedFiles) {
+        writer.add(List.of(renamedFile));
+      }
+      writer.commit();
+    }
+  }
+
+  private List<RenamedFile> read(Path planDestination) throws IOException {
+    List<RenamedFile> res = new ArrayList<>();
+    RenamePlan.forEach(planFile, planDestination, res::add);
+    return res;
+  }
+
+  @Test
+  void writtenPlan_readBack() throws IOException {
+    List<RenamedFile> renamedFiles = List.of(
+        renamed("a.jpg", "2024-05-30 21.03.59.jpg"),
+        renamed("b c.jpg", "2024-05-30 21.04.00.jpg"));
+    write(renamedFiles);
+
+    assertEquals(renamedFiles, read(destination));
+  }
+
+  @Test
+  void fileChangedSincePlanning_skipped() throws IOException {
+    RenamedFile changed = renamed("a.jpg", "2024-05-30 21.03.59.jpg");
+    RenamedFile unchanged = renamed("b.jpg", "2024-05-30 21.04.00.jpg");
+    RenamedFile deleted = renamed("c.jpg", "2024-05-30 21.04.01.jpg");
+    write(List.of(changed, unchanged, deleted));
+    Files.writeString(changed.currentFile(), "edited since");
+    Files.delete(deleted.currentFile());
+
+    assertEquals(List.of(unchanged), read(destination));
+  }
+
+  @Test
+  void fileChangedBetweenAnalysisAndPlanWriting_skipped() throws IOException {
+    RenamedFile changed = renamed("a.jpg", "2024-05-30 21.03.59.jpg");
+    Files.writeString(changed.currentFile(), "edited after its analysis");
+    write(List.of(changed));
+
+    assertEquals(List.of(), read(destination));
+  }
+
+  @Test
+  void notAnalyzed_notAdded() throws IOException {
+    Path file = Files.writeString(tempDir.resolve("a.jpg"), "data");
+    write(List.of(new RenamedFile("2024-05-30 21.03.59.jpg", "2024/20240530_", file)));
+
+    assertEquals(List.of(), read(destination));
+  }
+
+  @Test
+  void otherDestination_throws() throws IOException {
+    write(List.of(renamed("a.jpg", "2024-05-30 21.03.59.jpg")));
+    Path otherDestination = Files.createDirectory(tempDir.resolve("other"));
+
+    assertThrows(IllegalArgumentException.class, () -> read(otherDestination));
+  }
+
+  @Test
+  void notAPlan_throws() throws IOException {
+    Files.writeString(planFile, "not a plan");
+
+    assertThrows(IllegalArgumentException.class, () -> read(destination));
+  }
+
+  @Test
+  void notCommitted_previousPlanKept() throws IOException {
+    List<RenamedFile> planned = List.of(renamed("a.jpg", "2024-05-30 21.03.59.jpg"));
+    write(planned);
+
+    try (RenamePlan.Writer writer = RenamePlan.writer(planFile, destination)) {
+      // The run fails after a first batch
+      writer.add(List.of(renamed("b.jpg", "2024-05-30 21.04.00.jpg")));
+    }
+
+    assertEquals(planned, read(destination));
+    assertFalse(Files.exists(tempDir.resolve("plan.bin.tmp")));
+  }
+}
@@ -2,17 +2,21 @@ package snapsort.renamer;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import snapsort.JournalConfiguration;
+import snapsort.RenamerConfiguration;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class RenamerTest {
 
-  private final Renamer renamer = new Renamer();
+  private final Renamer renamer = new Renamer(new RenamerConfiguration());
 
   private static RenamedFile renamed(Path source, String folder, String name) {
     return new RenamedFile(name, folder, source);
@@ -23,7 +27,7 @@ class RenamerTest {
     Path file = Files.createFile(src.resolve("photo.jpg"));
     RenamedFile rf = renamed(file, "2025/20250615_", "2025-06-15 10.30.45.jpg");
 
-    renamer.renameFiles(List.of(rf), dest, false);
+    renamer.renameFiles(List.of(rf), dest, new DestinationIndex(dest), false);
 
     assertTrue(Files.exists(file), "original file should still exist");
     assertFalse(Files.exists(dest.resolve("2025/20250615_")), "target folder should not be created");
@@ -34,7 +38,7 @@ class RenamerTest {
     Path file = Files.createFile(src.resolve("photo.jpg"));
     RenamedFile rf = renamed(file, "2025/20250615_", "2025-06-15 10.30.45.jpg");
 
-    renamer.renameFiles(List.of(rf), dest, true);
+    renamer.renameFiles(List.of(rf), dest, new DestinationIndex(dest), true);
 
     assertFalse(Files.exists(file), "original should be gone");
     assertTrue(Files.exists(dest.resolve("2025/20250615_/2025-06-15 10.30.45.jpg")));
@@ -46,7 +50,7 @@ class RenamerTest {
     Path nonExistent = src.resolve("no-such-dir");
     RenamedFile rf = renamed(file, "2025/", "out.jpg");
 
-    renamer.renameFiles(List.of(rf), nonExistent, true);
+    renamer.renameFiles(List.of(rf), nonExistent, new DestinationIndex(nonExistent), true);
 
     assertTrue(Files.exists(file), "original file should remain");
   }
@@ -60,20 +64,232 @@ class RenamerTest {
     Files.writeString(existing, "existing");
 
     RenamedFile rf = renamed(file, "2025/20250615_", "2025-06-15 10.30.45.jpg");
-    renamer.renameFiles(List.of(rf), dest, true);
+    renamer.renameFiles(List.of(rf), dest, new DestinationIndex(dest), true);
 
     assertTrue(Files.exists(file), "original should still exist");
     assertEquals("existing", Files.readString(existing), "existing file should not be overwritten");
   }
 
+  @Test
+  void targetFileCreatedAfterPlanning_notOverwritten(@TempDir Path src, @TempDir Path dest) throws IOException {
+    Path file = Files.writeString(src.resolve("photo.jpg"), "original");
+    LocalDateTime timestamp = LocalDateTime.of(2025, 6, 15, 10, 30, 45);
+    DestinationIndex destinationIndex = new DestinationIndex(dest);
+    // Planning found the second free
+    assertNull(destinationIndex.occupant(timestamp));
+    Path targetDir = Files.createDirectories(dest.resolve("2025/20250615_"));
+    Path existing = Files.writeString(targetDir.resolve("2025-06-15 10.30.45.jpg"), "created by another process");
+
+    renamer.renameFiles(List.of(renamed(file, "2025/20250615_", "2025-06-15 10.30.45.jpg")), dest, destinationIndex,
+        true);
+
+    assertEquals("original", Files.readString(file), "original should still exist");
+    assertEquals("created by another process", Files.readString(existing));
+  }
+
+  @Test
+  void fileAlreadyAtItsPlace_leftAsIs(@TempDir Path dest) throws IOException {
+    Path targetDir = Files.createDirectories(dest.resolve("2025/20250615_"));
+    Path file = Files.writeString(targetDir.resolve("2025-06-15 10.30.45.jpg"), "content");
+
+    RenamedFile rf = renamed(file, "2025/20250615_", "2025-06-15 10.30.45.jpg");
+    renamer.renameFiles(List.of(rf), dest, new DestinationIndex(dest), true);
+
+    assertEquals("content", Files.readString(file));
+  }
+
+  @Test
+  void movedFile_recordedInDestinationIndex(@TempDir Path src, @TempDir Path dest) throws IOException {
+    Path file = Files.createFile(src.resolve("photo.jpg"));
+    DestinationIndex index = new DestinationIndex(dest);
+    LocalDateTime timestamp = LocalDateTime.of(2025, 6, 15, 10, 30, 45);
+    assertNull(index.occupant(timestamp));
+
+    RenamedFile rf = renamed(file, "2025/20250615_", "2025-06-15 10.30.45.jpg");
+    renamer.renameFiles(List.of(rf), dest, index, true);
+
+    assertEquals(dest.resolve("2025/20250615_/2025-06-15 10.30.45.jpg").toAbsolutePath().normalize(),
+        index.occupant(timestamp));
+  }
+
   @Test
   void createsNestedDirectoriesWhenNeeded(@TempDir Path src, @TempDir Path dest) throws IOException {
     Path file = Files.createFile(src.resolve("video.mp4"));
     RenamedFile rf = renamed(file, "2025/20250101_", "2025-01-01 00.00.00.mp4");
 
-    renamer.renameFiles(List.of(rf), dest, true);
+    renamer.renameFiles(List.of(rf), dest, new DestinationIndex(dest), true);
 
     assertTrue(Files.isDirectory(dest.resolve("2025/20250101_")));
     assertTrue(Files.exists(dest.resolve("2025/20250101_/2025-01-01 00.00.00.mp4")));
   }
+
+  @Test
+  void parallelRename_allFilesMovedToTheirFolder(@TempDir Path src, @TempDir Path dest) throws IOException {
+    RenamerConfiguration config = new RenamerConfiguration();
+    config.setRenameThreads(4);
+    List<RenamedFile> renamedFiles = new ArrayList<>();
+    for (int day = 1; day <= 10; day++) {
+      for (int second = 0; second < 10; second++) {
+        Path file = Files.writeString(src.resolve("photo" + day + "_" + second + ".jpg"), day + "_" + second);
+        renamedFiles.add(renamed(file, String.format("2025/202506%02d_", day),
+            String.format("2025-06-%02d 10.30.%02d.jpg", day, second)));
+      }
+    }
+
+    new Renamer(config).renameFiles(renamedFiles, dest, new DestinationIndex(dest), true);
+
+    for (int day = 1; day <= 10; day++) {
+      for (int second = 0; second < 10; second++) {
+        Path moved = dest.resolve(String.format("2025/202506%02d_/2025-06-%02d 10.30.%02d.jpg", day, day, second));
+        assertEquals(day + "_" + second, Files.readString(moved));
+      }
+    }
+    try (var remaining = Files.list(src)) {
+      assertEquals(0, remaining.count(), "all the files should have been moved");
+    }
+  }
+
+  private static Renamer journaledRenamer(Path journalFile) {
+    JournalConfiguration journalConfiguration = new JournalConfiguration();
+    journalConfiguration.setJournalFile(journalFile);
+    return new Renamer(new RenamerConfiguration(), journalConfiguration);
+  }
+
+  @Test
+  void undo_filesMovedBackAndCreatedFoldersRemoved(@TempDir Path src, @TempDir Path dest) throws IOException {
+    Path journalFile = src.resolve("journal.bin");
+    Path album = Files.createDirectory(src.resolve("album"));
+    Path photo = Files.writeString(album.resolve("photo.jpg"), "photo");
+    Path video = Files.writeString(src.resolve("video.mp4"), "video");
+    // Existed before the run, kept
+    Path existingFolder = Files.createDirectories(dest.resolve("2024/20240101_"));
+    RenamerConfiguration config = new RenamerConfiguration();
+    config.setRenameThreads(2);
+    JournalConfiguration journalConfiguration = new JournalConfiguration();
+    journalConfiguration.setJournalFile(journalFile);
+    Renamer journaledRenamer = new Renamer(config, journalConfiguration);
+    journaledRenamer.renameFiles(List.of(
+        renamed(photo, "2025/20250615_", "2025-06-15 10.30.45.jpg"),
+        renamed(video, "2024/20240101_", "2024-01-01 00.00.00.mp4")), dest, new DestinationIndex(dest), true);
+    journaledRenamer.finishJournal();
+    Files.delete(album);
+
+    new Renamer(config, journalConfiguration).undo(dest, true);
+
+    assertEquals("photo", Files.readString(photo));
+    assertEquals("video", Files.readString(video));
+    assertFalse(Files.exists(dest.resolve("2025")), "folders created by the run should be removed");
+    assertTrue(Files.isDirectory(existingFolder));
+    assertFalse(Files.exists(journalFile));
+  }
+
+  @Test
+  void undo_fileTakingTheOldName_notOverwritten(@TempDir Path src, @TempDir Path dest) throws IOException {
+    Path journalFile = src.resolve("journal.bin");
+    Path photo = Files.writeString(src.resolve("photo.jpg"), "photo");
+    Renamer journaledRenamer = journaledRenamer(journalFile);
+    journaledRenamer.renameFiles(List.of(renamed(photo, "2025/20250615_", "2025-06-15 10.30.45.jpg")), dest,
+        new DestinationIndex(dest), true);
+    journaledRenamer.finishJournal();
+    Files.writeString(photo, "new photo");
+
+    journaledRenamer(journalFile).undo(dest, true);
+
+    assertEquals("new photo", Files.readString(photo));
+    assertEquals("photo", Files.readString(dest.resolve("2025/20250615_/2025-06-15 10.30.45.jpg")));
+    assertTrue(Files.exists(journalFile), "journal should be kept while files are not moved back");
+  }
+
+  @Test
+  void undo_interruptedThenRunAgain_allFilesMovedBackAndJournalRemoved(@TempDir Path src, @TempDir Path dest)
+      throws IOException {
+    Path journalFile = src.resolve("journal.bin");
+    Path photo = Files.writeString(src.resolve("photo.jpg"), "photo");
+    Path video = Files.writeString(src.resolve("video.mp4"), "video");
+    Renamer journaledRenamer = journaledRenamer(journalFile);
+    journaledRenamer.renameFiles(List.of(
+        renamed(photo, "2025/20250615_", "2025-06-15 10.30.45.jpg"),
+        renamed(video, "2025/20250615_", "2025-06-15 10.30.46.mp4")), dest, new DestinationIndex(dest), true);
+    journaledRenamer.finishJournal();
+    // The first undo stops after moving the video back, files are undone in reverse order
+    Files.writeString(photo, "blocking");
+    journaledRenamer(journalFile).undo(dest, true);
+    assertEquals("video", Files.readString(video));
+    assertTrue(Files.exists(journalFile));
+    Files.delete(photo);
+
+    journaledRenamer(journalFile).undo(dest, true);
+
+    assertEquals("photo", Files.readString(photo));
+    assertEquals("video", Files.readString(video));
+    assertFalse(Files.exists(dest.resolve("2025")));
+    assertFalse(Files.exists(journalFile), "journal should be removed once all files are back");
+  }
+
+  @Test
+  void undo_copyWhoseSourceWasNotRemoved_copyRemoved(@TempDir Path src, @TempDir Path dest) throws IOException {
+    Path journalFile = src.resolve("journal.bin");
+    Path photo = Files.writeString(src.resolve("photo.jpg"), "photo");
+    Path copy = dest.resolve("2025/20250615_/2025-06-15 10.30.45.jpg");
+    Renamer journaledRenamer = journaledRenamer(journalFile);
+    journaledRenamer.renameFiles(List.of(renamed(photo, "2025/20250615_", "2025-06-15 10.30.45.jpg")), dest,
+        new DestinationIndex(dest), true);
+    journaledRenamer.finishJournal();
+    // State left by a copy to another file system whose source could not be deleted
+    Files.copy(copy, photo);
+
+    journaledRenamer(journalFile).undo(dest, true);
+
+    assertEquals("photo", Files.readString(photo));
+    assertFalse(Files.exists(copy));
+    assertFalse(Files.exists(journalFile));
+  }
+
+  @Test
+  void resume_finishesInterruptedMoves(@TempDir Path src, @TempDir Path dest) throws IOException {
+    Path journalFile = src.resolve("journal.bin");
+    Path targetDir = Files.createDirectories(dest.resolve("2025/20250615_"));
+    // Moved before the interruption, its end was not recorded
+    Path moved = src.resolve("moved.jpg");
+    Files.writeString(targetDir.resolve("2025-06-15 10.30.45.jpg"), "moved");
+    // Interrupted between the link to its new name and the removal of its old name
+    Path linked = Files.writeString(src.resolve("linked.jpg"), "linked");
+    Files.createLink(targetDir.resolve("2025-06-15 10.30.46.jpg"), linked);
+    // Not moved yet
+    Path notMoved = Files.writeString(src.resolve("notMoved.jpg"), "notMoved");
+    try (MoveJournal journal = MoveJournal.open(journalFile, dest)) {
+      journal.intend(List.of(
+          renamed(moved, "2025/20250615_", "2025-06-15 10.30.45.jpg"),
+          renamed(linked, "2025/20250615_", "2025-06-15 10.30.46.jpg"),
+          renamed(notMoved, "2025/20250615_", "2025-06-15 10.30.47.jpg")));
+    }
+
+    journaledRenamer(journalFile).resume(dest, new DestinationIndex(dest), true);
+
+    assertFalse(Files.exists(linked));
+    assertFalse(Files.exists(notMoved));
+    assertEquals("moved", Files.readString(targetDir.resolve("2025-06-15 10.30.45.jpg")));
+    assertEquals("linked", Files.readString(targetDir.resolve("2025-06-15 10.30.46.jpg")));
+    assertEquals("notMoved", Files.readString(targetDir.resolve("2025-06-15 10.30.47.jpg")));
+    try (MoveJournal journal = MoveJournal.open(journalFile, dest)) {
+      assertTrue(journal.pending().isEmpty());
+      assertEquals(3, journal.moved().size());
+    }
+  }
+
+  @Test
+  void unfinishedJournal_newRunRefused(@TempDir Path src, @TempDir Path dest) throws IOException {
+    Path journalFile = src.resolve("journal.bin");
+    Path interrupted = Files.createFile(src.resolve("interrupted.jpg"));
+    try (MoveJournal journal = MoveJournal.open(journalFile, dest)) {
+      journal.intend(List.of(renamed(interrupted, "2025/20250615_", "2025-06-15 10.30.45.jpg")));
+    }
+    Path file = Files.createFile(src.resolve("photo.jpg"));
+    List<RenamedFile> renamedFiles = List.of(renamed(file, "2025/20250615_", "2025-06-15 10.30.46.jpg"));
+    Renamer journaledRenamer = journaledRenamer(journalFile);
+
+    assertThrows(IllegalStateException.class,
+        () -> journaledRenamer.renameFiles(renamedFiles, dest, new DestinationIndex(dest), true));
+    assertTrue(Files.exists(file));
+  }
 }
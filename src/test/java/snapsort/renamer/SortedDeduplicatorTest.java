@@ -0,0 +1,59 @@
+package snapsort.renamer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import snapsort.files.FileInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static snapsort.renamer.DeduplicatorFixtures.fileInfo;
+import static snapsort.renamer.DeduplicatorFixtures.sortedByPath;
+
+class SortedDeduplicatorTest {
+  private static final LocalDateTime START = LocalDateTime.parse("2025-07-14T11:26:42");
+
+  @TempDir
+  private Path tempDir;
+
+  @Test
+  void filesByTimeThenPath_sameResultAsDeduplicator() throws IOException {
+    Files.createDirectories(tempDir.resolve("2025/20250714_"));
+    Files.writeString(tempDir.resolve("2025/20250714_/2025-07-14 11.26.45.jpg"), "existing");
+    DestinationIndex destinationIndex = new DestinationIndex(tempDir);
+    Random random = new Random(42);
+    for (int run = 0; run < 500; run++) {
+      List<FileInfo> files = new ArrayList<>();
+      for (int i = 0; i < 1 + random.nextInt(40); i++) {
+        files.add(fileInfo(random.nextInt(1000) + "-" + i + ".jpg", START.plusSeconds(random.nextInt(15))));
+      }
+      List<FileInfo> sorted = files.stream()
+          .sorted(Comparator.comparing((FileInfo file) -> file.timestamp().getTime()).thenComparing(FileInfo::path))
+          .toList();
+      SortedDeduplicator sortedDeduplicator = new SortedDeduplicator(destinationIndex);
+      List<FileInfo> result = new ArrayList<>();
+      sorted.forEach(file -> result.addAll(sortedDeduplicator.add(file)));
+      result.addAll(sortedDeduplicator.resolveAll());
+
+      assertEquals(new Deduplicator().deduplicateDates(sortedByPath(files), destinationIndex), sortedByPath(result),
+          files.toString());
+    }
+  }
+
+  @Test
+  void fileBeforePrevious_throws() {
+    SortedDeduplicator sortedDeduplicator = new SortedDeduplicator(new DestinationIndex(tempDir));
+    sortedDeduplicator.add(fileInfo("b.jpg", START));
+
+    assertThrows(IllegalStateException.class, () -> sortedDeduplicator.add(fileInfo("a.jpg", START)));
+    assertThrows(IllegalStateException.class, () -> sortedDeduplicator.add(fileInfo("c.jpg", START.minusSeconds(1))));
+  }
+}